@@ -0,0 +1,90 @@
+package com.huan.tomcat.jdbc.benchmark;
+
+import com.huan.tomcat.jdbc.inteceptor.BatchChunkFeature;
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author edenhuan
+ * executeBatch of a prepared update with the batch handed to the driver in one piece (chunkSize 0)
+ * and buffered by the trap and executed chunk by chunk.
+ * Run with {@code gradle jmh -Pjmh.includes=BatchChunkBenchmark}, allocation rate is
+ * reported by the gc profiler.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchChunkBenchmark {
+    private static final String UPDATE_MONEY = "update customer set money = ? where id = ?";
+
+    @Param({BenchmarkDataSources.TRAP, BenchmarkDataSources.TRAP_WRAPPER})
+    public String interceptor;
+
+    @Param({"0", "100", "1000"})
+    public int chunkSize;
+
+    @Param({"1000"})
+    public int rows;
+
+    DataSource dataSource;
+
+    @Setup
+    public void setUp() throws SQLException {
+        dataSource = BenchmarkDataSources.h2(interceptor, BatchChunkFeature.PROP_BATCH_CHUNK_SIZE + "=" + chunkSize);
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.close(true);
+    }
+
+    /**
+     * One borrowed connection per benchmark thread, so only the batch path is measured.
+     */
+    @State(Scope.Thread)
+    public static class BorrowedConnection {
+        Connection connection;
+
+        @Setup(Level.Iteration)
+        public void borrow(BatchChunkBenchmark benchmark) throws SQLException {
+            connection = benchmark.dataSource.getConnection();
+        }
+
+        @TearDown(Level.Iteration)
+        public void giveBack() throws SQLException {
+            connection.close();
+        }
+    }
+
+    @Benchmark
+    public int executeBatch(BorrowedConnection borrowed) throws SQLException {
+        try (PreparedStatement ps = borrowed.connection.prepareStatement(UPDATE_MONEY)) {
+            for (int i = 0; i < rows; i++) {
+                ps.setDouble(1, i);
+                ps.setInt(2, i % 100 + 1);
+                ps.addBatch();
+            }
+            return ps.executeBatch().length;
+        }
+    }
+}
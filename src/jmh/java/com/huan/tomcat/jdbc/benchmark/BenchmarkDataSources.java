@@ -0,0 +1,126 @@
+package com.huan.tomcat.jdbc.benchmark;
+
+import com.huan.tomcat.jdbc.fault.FaultInjectingDataSource;
+import com.huan.tomcat.jdbc.fault.FaultInjectingDriver;
+import com.huan.tomcat.jdbc.fault.Faults;
+import com.huan.tomcat.jdbc.inteceptor.ConnectionErrorTrap;
+import com.huan.tomcat.jdbc.inteceptor.ConnectionErrorTrapJmx;
+import com.huan.tomcat.jdbc.inteceptor.StatisticsFeature;
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.PoolProperties;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author edenhuan
+ * Builds tomcat jdbc pools over an in-process H2 database for the benchmarks.
+ */
+final class BenchmarkDataSources {
+    static final String NONE = "none";
+    static final String TRAP = "trap";
+    static final String TRAP_JMX = "trapJmx";
+    static final String TRAP_WRAPPER = "trapWrapper";
+    static final String TRAP_STATISTICS = "trapStatistics";
+
+    static final String SELECT_BY_ID = "select id, name, money from customer where id = ?";
+    static final String SELECT_ALL = "select id, name, money from customer";
+
+    private static final AtomicInteger sequence = new AtomicInteger();
+
+    private BenchmarkDataSources() {
+    }
+
+    /**
+     * Pool over a plain H2 in-memory database, seeded with the sample customer table.
+     */
+    static DataSource h2(String interceptor) throws SQLException {
+        return h2(interceptor, null);
+    }
+
+    /**
+     * @param properties  extra interceptor properties appended to the setup, e.g. "batchChunkSize=100"
+     */
+    static DataSource h2(String interceptor, String properties) throws SQLException {
+        String url = newUrl();
+        PoolProperties p = poolProperties(interceptor);
+        if (properties != null && p.getJdbcInterceptors() != null) {
+            String interceptors = p.getJdbcInterceptors();
+            p.setJdbcInterceptors(interceptors.endsWith(")")
+                    ? interceptors.substring(0, interceptors.length() - 1) + "," + properties + ")"
+                    : interceptors + "(" + properties + ")");
+        }
+        p.setDriverClassName("org.h2.Driver");
+        p.setUrl(url);
+        DataSource dataSource = new DataSource(p);
+        seed(dataSource);
+        return dataSource;
+    }
+
+    /**
+     * Pool over the fault injecting driver of the load tests whose statements always fail with a MySQL
+     * "Communications link failure". The driver class name is only used by ExceptionSorterManager to
+     * pick the MySQL sorter, the connections themselves come from the data source.
+     */
+    static DataSource faulty(String interceptor) throws SQLException {
+        String name = "benchmark" + sequence.incrementAndGet();
+        PoolProperties p = poolProperties(interceptor);
+        p.setDriverClassName("com.mysql.jdbc.Driver");
+        p.setDataSource(new FaultInjectingDataSource(FaultInjectingDriver.url(name,
+                "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1")));
+        DataSource dataSource = new DataSource(p);
+        seed(dataSource);
+        FaultInjectingDriver.script(name).failRandomly(1, Faults.communicationsLinkFailure());
+        return dataSource;
+    }
+
+    static String interceptorClass(String interceptor) {
+        switch (interceptor) {
+            case NONE:
+                return null;
+            case TRAP:
+                return ConnectionErrorTrap.class.getName();
+            case TRAP_JMX:
+                return ConnectionErrorTrapJmx.class.getName();
+            case TRAP_WRAPPER:
+                return ConnectionErrorTrap.class.getName() + "(" + ConnectionErrorTrap.PROP_USE_WRAPPER + "=true)";
+            case TRAP_STATISTICS:
+                return ConnectionErrorTrap.class.getName() + "(" + ConnectionErrorTrap.PROP_USE_WRAPPER + "=true,"
+                        + StatisticsFeature.PROP_STATISTICS + "=true)";
+            default:
+                throw new IllegalArgumentException("Unknown interceptor setup:" + interceptor);
+        }
+    }
+
+    private static PoolProperties poolProperties(String interceptor) {
+        PoolProperties p = new PoolProperties();
+        p.setName("benchmark-" + interceptor);
+        p.setInitialSize(4);
+        p.setMinIdle(4);
+        p.setMaxIdle(16);
+        p.setMaxActive(16);
+        p.setDefaultAutoCommit(true);
+        p.setTestOnBorrow(false);
+        p.setTestOnReturn(false);
+        p.setTestWhileIdle(false);
+        p.setJmxEnabled(true);
+        p.setJdbcInterceptors(interceptorClass(interceptor));
+        return p;
+    }
+
+    private static String newUrl() {
+        return "jdbc:h2:mem:benchmark" + sequence.incrementAndGet() + ";DB_CLOSE_DELAY=-1";
+    }
+
+    private static void seed(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("create table customer (id int primary key, name varchar(64), money double)");
+            for (int i = 1; i <= 100; i++) {
+                statement.executeUpdate("insert into customer (id, name, money) values (" + i + ", 'test" + i + "', " + i + ")");
+            }
+        }
+    }
+}
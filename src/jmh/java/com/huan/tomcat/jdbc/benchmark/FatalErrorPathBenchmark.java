@@ -0,0 +1,62 @@
+package com.huan.tomcat.jdbc.benchmark;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author edenhuan
+ * Borrow/execute/close cycle where every execution fails with a fatal MySQL error, so the
+ * interceptors go through MysqlExceptionSorter, discard the connection and the pool reconnects.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FatalErrorPathBenchmark {
+
+    @Param({BenchmarkDataSources.NONE, BenchmarkDataSources.TRAP, BenchmarkDataSources.TRAP_JMX,
+            BenchmarkDataSources.TRAP_WRAPPER})
+    public String interceptor;
+
+    DataSource dataSource;
+
+    @Setup
+    public void setUp() throws SQLException {
+        dataSource = BenchmarkDataSources.faulty(interceptor);
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.close(true);
+    }
+
+    @Benchmark
+    public boolean fatalErrorCycle() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.prepareStatement(BenchmarkDataSources.SELECT_BY_ID)) {
+            ps.setInt(1, 42);
+            ps.executeQuery();
+            return false;
+        } catch (SQLException | RuntimeException e) {
+            return true;
+        }
+    }
+}
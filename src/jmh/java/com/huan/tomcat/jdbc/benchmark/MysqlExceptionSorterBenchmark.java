@@ -0,0 +1,78 @@
+package com.huan.tomcat.jdbc.benchmark;
+
+import com.huan.tomcat.jdbc.vendor.ExceptionSorter;
+import com.huan.tomcat.jdbc.vendor.MysqlExceptionSorter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author edenhuan
+ * Cost of classifying one exception, before (legacy) and after the fast path of MysqlExceptionSorter.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MysqlExceptionSorterBenchmark {
+
+    /**
+     * fatalByState: 08S01 link failure, decided by code
+     * duplicateKey: ordinary 1062 error, short message
+     * fatalByMessage: no code, "Communications link failure" message
+     * longMessage: 1064 syntax error echoing a 64k statement, the pathological case
+     */
+    @Param({"fatalByState", "duplicateKey", "fatalByMessage", "longMessage"})
+    public String kind;
+
+    private SQLException exception;
+    private final ExceptionSorter legacy = new LegacyMysqlExceptionSorter();
+    private final ExceptionSorter current = new MysqlExceptionSorter();
+
+    @Setup
+    public void setUp() {
+        switch (kind) {
+            case "fatalByState":
+                exception = new SQLException("Communications link failure", "08S01", 0);
+                break;
+            case "duplicateKey":
+                exception = new SQLException("Duplicate entry '256' for key 'PRIMARY'", "23000", 1062);
+                break;
+            case "fatalByMessage":
+                exception = new SQLException("Communications link failure\n\nThe last packet successfully received from the server was 1 milliseconds ago.");
+                break;
+            case "longMessage":
+                StringBuilder sb = new StringBuilder("You have an error in your SQL syntax; check the manual near 'insert into customer (name, money) values ");
+                while (sb.length() < 64 * 1024) {
+                    sb.append("('test', 1.0), ");
+                }
+                exception = new SQLException(sb.append("'").toString(), "42000", 1064);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown exception kind:" + kind);
+        }
+    }
+
+    @Benchmark
+    public boolean legacy() {
+        return legacy.isExceptionFatal(exception);
+    }
+
+    @Benchmark
+    public boolean current() {
+        return current.isExceptionFatal(exception);
+    }
+}
@@ -0,0 +1,105 @@
+package com.huan.tomcat.jdbc.benchmark;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author edenhuan
+ * Statement create/execute/close cost with and without the connection error trap.
+ * Run with {@code gradle jmh -Pjmh.includes=StatementProxyBenchmark}, allocation rate is
+ * reported by the gc profiler.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StatementProxyBenchmark {
+
+    @Param({BenchmarkDataSources.NONE, BenchmarkDataSources.TRAP, BenchmarkDataSources.TRAP_JMX,
+            BenchmarkDataSources.TRAP_WRAPPER, BenchmarkDataSources.TRAP_STATISTICS})
+    public String interceptor;
+
+    DataSource dataSource;
+
+    @Setup
+    public void setUp() throws SQLException {
+        dataSource = BenchmarkDataSources.h2(interceptor);
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.close(true);
+    }
+
+    /**
+     * One borrowed connection per benchmark thread, so only the statement path is measured.
+     */
+    @State(Scope.Thread)
+    public static class BorrowedConnection {
+        Connection connection;
+
+        @Setup(Level.Iteration)
+        public void borrow(StatementProxyBenchmark benchmark) throws SQLException {
+            connection = benchmark.dataSource.getConnection();
+        }
+
+        @TearDown(Level.Iteration)
+        public void giveBack() throws SQLException {
+            connection.close();
+        }
+    }
+
+    @Benchmark
+    public double prepareExecuteClose(BorrowedConnection borrowed) throws SQLException {
+        try (PreparedStatement ps = borrowed.connection.prepareStatement(BenchmarkDataSources.SELECT_BY_ID)) {
+            ps.setInt(1, 42);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getDouble(3) : -1;
+            }
+        }
+    }
+
+    @Benchmark
+    public int createExecuteClose(BorrowedConnection borrowed) throws SQLException {
+        int rows = 0;
+        try (Statement statement = borrowed.connection.createStatement();
+             ResultSet rs = statement.executeQuery(BenchmarkDataSources.SELECT_ALL)) {
+            while (rs.next()) {
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    @Benchmark
+    public double borrowPrepareExecuteClose() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.prepareStatement(BenchmarkDataSources.SELECT_BY_ID)) {
+            ps.setInt(1, 42);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getDouble(3) : -1;
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.huan.tomcat.jdbc.fault;
+
+import java.sql.SQLRecoverableException;
+
+/**
+ * @author edenhuan
+ * Shaped like MySQL Connector/J's CommunicationsException: same simple class name, SQLState 08S01,
+ * so exception sorters that look at the class name treat it the way they treat the driver's one.
+ */
+public class CommunicationsException extends SQLRecoverableException {
+    private static final long serialVersionUID = 1L;
+
+    public static final String SQL_STATE = "08S01";
+
+    public CommunicationsException(String reason) {
+        super(reason, SQL_STATE, 0);
+    }
+
+    public CommunicationsException(String reason, Throwable cause) {
+        super(reason, SQL_STATE, 0, cause);
+    }
+}
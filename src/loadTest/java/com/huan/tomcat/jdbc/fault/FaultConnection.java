@@ -0,0 +1,13 @@
+package com.huan.tomcat.jdbc.fault;
+
+import java.sql.Connection;
+
+/**
+ * @author edenhuan
+ * Connection of {@link FaultInjectingDriver}. getHost() answers the script name, the way the MySQL
+ * driver answers its current host, so every script plays one backend host.
+ */
+public interface FaultConnection extends Connection {
+
+    String getHost();
+}
@@ -0,0 +1,104 @@
+package com.huan.tomcat.jdbc.fault;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * @author edenhuan
+ * {@link DataSource} over {@link FaultInjectingDriver}. Lets a pool keep driverClassName set to the
+ * MySQL driver, which selects the MySQL exception sorter, while connections come from the fault driver.
+ * With several urls it plays a loadbalance url: connections go round robin over the urls, a url whose
+ * backend is down is skipped.
+ */
+public class FaultInjectingDataSource implements DataSource {
+    private final FaultInjectingDriver driver = new FaultInjectingDriver();
+    private final String[] urls;
+    private final AtomicInteger next = new AtomicInteger();
+    private PrintWriter logWriter;
+    private int loginTimeout;
+
+    public FaultInjectingDataSource(String... urls) {
+        if (urls.length == 0) {
+            throw new IllegalArgumentException("no url");
+        }
+        this.urls = urls;
+    }
+
+    public String getUrl() {
+        return urls[0];
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connect(new Properties());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        Properties info = new Properties();
+        if (username != null) {
+            info.setProperty("user", username);
+        }
+        if (password != null) {
+            info.setProperty("password", password);
+        }
+        return connect(info);
+    }
+
+    private Connection connect(Properties info) throws SQLException {
+        int start = next.getAndIncrement();
+        SQLException failure = null;
+        for (int i = 0; i < urls.length; i++) {
+            try {
+                return driver.connect(urls[Math.floorMod(start + i, urls.length)], info);
+            } catch (SQLException e) {
+                failure = e;
+            }
+        }
+        throw failure;
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return logWriter;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        this.logWriter = out;
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        this.loginTimeout = seconds;
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return loginTimeout;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
@@ -0,0 +1,89 @@
+package com.huan.tomcat.jdbc.fault;
+
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * @author edenhuan
+ * JDBC driver that wraps another one, usually H2 in memory, and injects the faults of a named
+ * {@link FaultScript}. URL: jdbc:fault:&lt;script name&gt;:&lt;url of the wrapped driver&gt;, e.g.
+ * jdbc:fault:primary:jdbc:h2:mem:test;DB_CLOSE_DELAY=-1
+ */
+public class FaultInjectingDriver implements Driver {
+    public static final String URL_PREFIX = "jdbc:fault:";
+
+    private static final ConcurrentHashMap<String, FaultScript> scripts = new ConcurrentHashMap<>();
+
+    static {
+        try {
+            DriverManager.registerDriver(new FaultInjectingDriver());
+        } catch (SQLException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * the script of the name, created on first use
+     */
+    public static FaultScript script(String name) {
+        return scripts.computeIfAbsent(name, FaultScript::new);
+    }
+
+    public static String url(String scriptName, String delegateUrl) {
+        return URL_PREFIX + scriptName + ":" + delegateUrl;
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) throws SQLException {
+        if (!acceptsURL(url)) {
+            return null;
+        }
+        String rest = url.substring(URL_PREFIX.length());
+        int separator = rest.indexOf(':');
+        if (separator <= 0) {
+            throw new SQLException("Invalid fault url, expected " + URL_PREFIX + "<script>:<url>: " + url);
+        }
+        FaultScript script = script(rest.substring(0, separator));
+        script.beforeConnect();
+        int generation = script.getGeneration();
+        Connection connection = DriverManager.getConnection(rest.substring(separator + 1), info);
+        return FaultInvocationHandler.wrap(connection, FaultConnection.class, script, generation);
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+        return url != null && url.startsWith(URL_PREFIX);
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+}
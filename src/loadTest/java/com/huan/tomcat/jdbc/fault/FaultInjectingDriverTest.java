@@ -0,0 +1,81 @@
+package com.huan.tomcat.jdbc.fault;
+
+import com.huan.tomcat.jdbc.vendor.MysqlExceptionSorter;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FaultInjectingDriverTest {
+    private final MysqlExceptionSorter sorter = new MysqlExceptionSorter();
+
+    private static String url(String script) {
+        return FaultInjectingDriver.url(script, "jdbc:h2:mem:" + script + ";DB_CLOSE_DELAY=-1");
+    }
+
+    @Test
+    public void failNextFailsTheGivenNumberOfExecutions() throws SQLException {
+        FaultScript script = FaultInjectingDriver.script("failNext").failNext(2, Faults.vendorCode(1040));
+        try (Connection connection = DriverManager.getConnection(url("failNext"));
+             Statement statement = connection.createStatement()) {
+            for (int i = 0; i < 2; i++) {
+                try {
+                    statement.execute("select 1");
+                    fail("execution " + i + " should fail");
+                } catch (SQLException e) {
+                    assertEquals(1040, e.getErrorCode());
+                    assertTrue(sorter.isExceptionFatal(e));
+                }
+            }
+            assertTrue(statement.execute("select 1"));
+        } finally {
+            script.reset();
+        }
+    }
+
+    @Test
+    public void connectionsOpenedBeforeAnOutageStayBroken() throws Exception {
+        FaultScript script = FaultInjectingDriver.script("outage");
+        try (Connection before = DriverManager.getConnection(url("outage"))) {
+            script.backendDown(200);
+            try {
+                DriverManager.getConnection(url("outage"));
+                fail("connect should fail while the backend is down");
+            } catch (SQLException e) {
+                assertTrue(sorter.isBackendFailure(e));
+            }
+            Thread.sleep(300);
+            try (Connection after = DriverManager.getConnection(url("outage"));
+                 Statement statement = after.createStatement()) {
+                assertTrue(statement.execute("select 1"));
+            }
+            assertFalse(before.isValid(1));
+            try {
+                before.createStatement().close();
+                fail("a connection of the old backend should stay broken");
+            } catch (SQLException e) {
+                assertEquals(CommunicationsException.SQL_STATE, e.getSQLState());
+                assertTrue(sorter.isExceptionFatal(e));
+            }
+        } finally {
+            script.reset();
+        }
+    }
+
+    @Test
+    public void injectedErrorsAreSortedLikeTheDriverOnes() {
+        assertTrue(sorter.isExceptionFatal(Faults.communicationsLinkFailure().get()));
+        assertTrue(sorter.isExceptionFatal(Faults.sqlState("08S01").get()));
+        assertTrue(sorter.isExceptionFatal(Faults.vendorCode(1045).get()));
+        assertFalse(sorter.isExceptionFatal(Faults.vendorCode(1062).get()));
+        assertFalse(sorter.isExceptionFatal(Faults.lockWaitTimeout().get()));
+        assertTrue(sorter.isExceptionSuspect(Faults.lockWaitTimeout().get()));
+    }
+}
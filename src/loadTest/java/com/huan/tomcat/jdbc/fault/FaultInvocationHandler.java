@@ -0,0 +1,111 @@
+package com.huan.tomcat.jdbc.fault;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * @author edenhuan
+ * Proxy of the connections, statements, result sets and metadata of the wrapped driver. A broken connection
+ * fails every call but close, isClosed and isValid, statement executions and result set reads also
+ * get the latency and errors of the script. unwrap returns the object of the wrapped driver.
+ */
+class FaultInvocationHandler implements InvocationHandler {
+    private final Object target;
+    private final FaultScript script;
+    private final int generation;
+
+    private FaultInvocationHandler(Object target, FaultScript script, int generation) {
+        this.target = target;
+        this.script = script;
+        this.generation = generation;
+    }
+
+    static <T> T wrap(Object target, Class<T> type, FaultScript script, int generation) {
+        return type.cast(Proxy.newProxyInstance(FaultInvocationHandler.class.getClassLoader(),
+                new Class<?>[]{type}, new FaultInvocationHandler(target, script, generation)));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        switch (name) {
+            case "toString":
+                return "Fault[" + script.getName() + "]" + target;
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "getHost":
+                return script.getName();
+            case "close":
+            case "isClosed":
+            case "unwrap":
+            case "isWrapperFor":
+                return call(method, args);
+            case "isValid":
+                if (script.isBroken(generation)) {
+                    return Boolean.FALSE;
+                }
+                return call(method, args);
+            default:
+                break;
+        }
+        if (name.startsWith("execute")) {
+            try {
+                script.beforeExecute(generation);
+            } catch (SQLException x) {
+                if (script.isCloseOnFailure() && target instanceof Statement) {
+                    closeAfterFailure((Statement) target);
+                }
+                throw x;
+            }
+        } else if (script.isBroken(generation)) {
+            throw Faults.communicationsLinkFailure().get();
+        }
+        return wrapResult(call(method, args));
+    }
+
+    private static void closeAfterFailure(Statement statement) {
+        try {
+            Connection connection = statement.getConnection();
+            statement.close();
+            connection.close();
+        } catch (SQLException ignore) {
+            // already closed
+        }
+    }
+
+    private Object call(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Object wrapResult(Object result) {
+        if (result instanceof CallableStatement) {
+            return wrap((CallableStatement) result, CallableStatement.class, script, generation);
+        } else if (result instanceof PreparedStatement) {
+            return wrap((PreparedStatement) result, PreparedStatement.class, script, generation);
+        } else if (result instanceof Statement) {
+            return wrap((Statement) result, Statement.class, script, generation);
+        } else if (result instanceof ResultSet) {
+            return wrap((ResultSet) result, ResultSet.class, script, generation);
+        } else if (result instanceof Connection) {
+            return wrap((Connection) result, Connection.class, script, generation);
+        } else if (result instanceof DatabaseMetaData) {
+            return wrap((DatabaseMetaData) result, DatabaseMetaData.class, script, generation);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,172 @@
+package com.huan.tomcat.jdbc.fault;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * @author edenhuan
+ * What the connections of one {@link FaultInjectingDriver} URL do wrong. Can be changed at any time
+ * from any thread while the connections are in use:
+ * latency is added to every statement execution, connectLatency to every new connection, failNext fails the next executions, failRandomly
+ * fails a share of them, backendDown makes the backend unreachable for a while. A connection opened
+ * before an outage stays broken after it, like a socket to a restarted server. With closeOnFailure
+ * a failed execution also closes its statement and connection, like MySQL and PostgreSQL drivers do
+ * on a communications failure.
+ */
+public class FaultScript {
+    private final String name;
+
+    private volatile long latency;
+    private volatile long connectLatency;
+    private final AtomicInteger failNext = new AtomicInteger(0);
+    private final AtomicInteger passBeforeFail = new AtomicInteger(0);
+    private volatile Supplier<SQLException> nextError;
+    private volatile double errorRate;
+    private volatile Supplier<SQLException> randomError;
+    private volatile long downFrom;
+    private volatile long downUntil;
+    private volatile boolean closeOnFailure;
+    /**
+     * bumped by every outage, connections of an older generation are broken
+     */
+    private final AtomicInteger generation = new AtomicInteger(0);
+
+    public FaultScript(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param millis  added to every statement execution
+     */
+    public FaultScript latency(long millis) {
+        this.latency = millis;
+        return this;
+    }
+
+    /**
+     * @param millis  added to every connect, like a slow TLS handshake
+     */
+    public FaultScript connectLatency(long millis) {
+        this.connectLatency = millis;
+        return this;
+    }
+
+    /**
+     * fail the next count statement executions of any connection
+     */
+    public FaultScript failNext(int count, Supplier<SQLException> error) {
+        return failAfter(0, count, error);
+    }
+
+    /**
+     * let the next pass statement executions of any connection succeed, then fail count of them
+     */
+    public FaultScript failAfter(int pass, int count, Supplier<SQLException> error) {
+        this.nextError = error;
+        this.passBeforeFail.set(pass);
+        this.failNext.set(count);
+        return this;
+    }
+
+    /**
+     * fail the given share of statement executions, 0 turns it off
+     */
+    public FaultScript failRandomly(double rate, Supplier<SQLException> error) {
+        this.randomError = error;
+        this.errorRate = rate;
+        return this;
+    }
+
+    /**
+     * The backend goes down now for the given milliseconds: opening connections fails, every
+     * connection opened before stays broken for good.
+     */
+    public FaultScript backendDown(long millis) {
+        long now = System.currentTimeMillis();
+        generation.incrementAndGet();
+        this.downFrom = now;
+        this.downUntil = now + millis;
+        return this;
+    }
+
+    /**
+     * @param close  a failed statement execution closes the statement and its connection
+     */
+    public FaultScript closeOnFailure(boolean close) {
+        this.closeOnFailure = close;
+        return this;
+    }
+
+    public boolean isCloseOnFailure() {
+        return closeOnFailure;
+    }
+
+    public FaultScript reset() {
+        latency = 0;
+        connectLatency = 0;
+        closeOnFailure = false;
+        failNext.set(0);
+        passBeforeFail.set(0);
+        errorRate = 0;
+        downUntil = 0;
+        return this;
+    }
+
+    public boolean isDown() {
+        long now = System.currentTimeMillis();
+        return now >= downFrom && now < downUntil;
+    }
+
+    /**
+     * end of the last outage in milliseconds, 0 if none
+     */
+    public long getDownUntil() {
+        return downUntil;
+    }
+
+    public int getGeneration() {
+        return generation.get();
+    }
+
+    public boolean isBroken(int connectionGeneration) {
+        return connectionGeneration != generation.get() || isDown();
+    }
+
+    void beforeConnect() throws SQLException {
+        if (isDown()) {
+            throw Faults.connectionRefused();
+        }
+        sleep(connectLatency);
+    }
+
+    void beforeExecute(int connectionGeneration) throws SQLException {
+        if (isBroken(connectionGeneration)) {
+            throw Faults.communicationsLinkFailure().get();
+        }
+        sleep(latency);
+        if (failNext.get() > 0 && passBeforeFail.getAndDecrement() <= 0 && failNext.getAndDecrement() > 0) {
+            throw nextError.get();
+        }
+        double rate = errorRate;
+        if (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate) {
+            throw randomError.get();
+        }
+    }
+
+    private static void sleep(long delay) throws SQLException {
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Query execution was interrupted", "70100", 1317, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.huan.tomcat.jdbc.fault;
+
+import java.net.ConnectException;
+import java.sql.SQLException;
+import java.util.function.Supplier;
+
+/**
+ * @author edenhuan
+ * Errors a {@link FaultScript} can inject, shaped like the ones MySQL Connector/J raises.
+ */
+public final class Faults {
+    public static final String COMMUNICATIONS_LINK_FAILURE = "Communications link failure";
+
+    private Faults() {
+    }
+
+    /**
+     * CommunicationsException with SQLState 08S01, what the driver throws when the socket broke
+     */
+    public static Supplier<SQLException> communicationsLinkFailure() {
+        return () -> new CommunicationsException(COMMUNICATIONS_LINK_FAILURE
+                + "\n\nThe last packet successfully received from the server was 0 milliseconds ago.");
+    }
+
+    /**
+     * plain SQLException with the given SQLState and no vendor code
+     */
+    public static Supplier<SQLException> sqlState(String sqlState) {
+        return () -> new SQLException("Injected failure with SQLState " + sqlState, sqlState, 0);
+    }
+
+    /**
+     * SQLException with a MySQL vendor error code, e.g. 1040 ER_CON_COUNT_ERROR or 1205 ER_LOCK_WAIT_TIMEOUT
+     */
+    public static Supplier<SQLException> vendorCode(int errorCode) {
+        return () -> new SQLException("Injected failure with error code " + errorCode, "HY000", errorCode);
+    }
+
+    public static Supplier<SQLException> lockWaitTimeout() {
+        return () -> new SQLException("Lock wait timeout exceeded; try restarting transaction", "HY000", 1205);
+    }
+
+    /**
+     * what opening a connection fails with while the backend is down
+     */
+    public static SQLException connectionRefused() {
+        return new CommunicationsException(COMMUNICATIONS_LINK_FAILURE
+                + "\n\nThe driver has not received any packets from the server.",
+                new ConnectException("Connection refused (Connection refused)"));
+    }
+}
@@ -0,0 +1,120 @@
+package com.huan.tomcat.jdbc.loadtest;
+
+import com.huan.tomcat.jdbc.fault.FaultInjectingDataSource;
+import com.huan.tomcat.jdbc.fault.FaultInjectingDriver;
+import com.huan.tomcat.jdbc.fault.FaultScript;
+import com.huan.tomcat.jdbc.fault.Faults;
+import com.huan.tomcat.jdbc.inteceptor.AdaptiveTimeout;
+import com.huan.tomcat.jdbc.inteceptor.AdaptiveTimeoutFeature;
+import com.huan.tomcat.jdbc.inteceptor.ConnectionErrorTrap;
+import com.huan.tomcat.jdbc.inteceptor.ConnectionErrorTrapContext;
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.PoolProperties;
+import org.h2.jdbc.JdbcStatement;
+import org.junit.After;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class AdaptiveTimeoutTest {
+    private static final int MIN = 1;
+    private static final int MAX = 30;
+    private static final int MIN_SAMPLES = 5;
+
+    private final FaultScript script = FaultInjectingDriver.script("timeout").reset();
+    private DataSource dataSource;
+
+    @After
+    public void close() {
+        script.reset();
+        if (dataSource != null) {
+            dataSource.close(true);
+        }
+    }
+
+    private DataSource createDataSource(boolean useWrapper, String database) {
+        PoolProperties p = new PoolProperties();
+        p.setName("adaptive-timeout");
+        p.setDriverClassName("com.mysql.jdbc.Driver");
+        p.setDataSource(new FaultInjectingDataSource(
+                FaultInjectingDriver.url("timeout", "jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1")));
+        p.setInitialSize(1);
+        p.setMaxActive(1);
+        p.setJmxEnabled(false);
+        p.setUseStatementFacade(false);
+        p.setJdbcInterceptors(ConnectionErrorTrap.class.getName() + "(" + ConnectionErrorTrap.PROP_USE_WRAPPER + "="
+                + useWrapper + "," + AdaptiveTimeoutFeature.PROP_ADAPTIVE_TIMEOUT + "=true,"
+                + AdaptiveTimeoutFeature.PROP_ADAPTIVE_TIMEOUT_MULTIPLIER + "=2,"
+                + AdaptiveTimeoutFeature.PROP_ADAPTIVE_TIMEOUT_MIN + "=" + MIN + ","
+                + AdaptiveTimeoutFeature.PROP_ADAPTIVE_TIMEOUT_MAX + "=" + MAX + ","
+                + AdaptiveTimeoutFeature.PROP_ADAPTIVE_TIMEOUT_MIN_SAMPLES + "=" + MIN_SAMPLES + ")");
+        dataSource = new DataSource(p);
+        return dataSource;
+    }
+
+    /**
+     * query timeout set on the H2 statement under the trap and the fault driver
+     */
+    private static int driverTimeout(Statement statement) throws SQLException {
+        return statement.unwrap(JdbcStatement.class).getQueryTimeout();
+    }
+
+    @Test
+    public void adaptiveTimeoutIsAppliedToTheDriverStatement() throws Exception {
+        for (boolean useWrapper : new boolean[]{false, true}) {
+            createDataSource(useWrapper, "timeout" + useWrapper);
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                //too few samples, the SQL gets the max timeout
+                statement.executeQuery("select 1").close();
+                assertEquals(MAX, driverTimeout(statement));
+                for (int i = 0; i < MIN_SAMPLES; i++) {
+                    statement.executeQuery("select 1").close();
+                }
+                assertEquals(MAX, driverTimeout(statement));
+
+                //once recomputed, a fast SQL gets the min timeout
+                Thread.sleep(1100);
+                statement.executeQuery("select 1").close();
+                assertEquals(MIN, driverTimeout(statement));
+                //the application still sees its own timeout
+                assertEquals(0, statement.getQueryTimeout());
+
+                //the shorter of the application timeout and the adaptive one is applied
+                statement.setQueryTimeout(5);
+                statement.executeQuery("select 1").close();
+                assertEquals(MIN, driverTimeout(statement));
+                assertEquals(5, statement.getQueryTimeout());
+                statement.executeQuery("select 1 from dual").close();
+                assertEquals(5, driverTimeout(statement));
+            }
+            dataSource.close(true);
+            dataSource = null;
+        }
+    }
+
+    @Test
+    public void queryTimeoutIsCountedAndKeepsTheConnection() throws SQLException {
+        createDataSource(true, "timeoutCount");
+        ConnectionErrorTrapContext context = ConnectionErrorTrapContext.get(dataSource.getPool());
+        AdaptiveTimeout policy = context.getAdaptiveTimeout();
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            script.failNext(1, Faults.sqlState("HYT00"));
+            try {
+                statement.executeQuery("select 1");
+                fail("the injected timeout should be thrown");
+            } catch (SQLException expected) {
+                // a timeout, not fatal
+            }
+        }
+        assertEquals(1, policy.getTimeoutCount());
+        assertEquals(0, context.getDiscardCount());
+        assertEquals(1, dataSource.getPool().getSize());
+    }
+}
@@ -0,0 +1,110 @@
+package com.huan.tomcat.jdbc.loadtest;
+
+import com.huan.tomcat.jdbc.fault.FaultInjectingDataSource;
+import com.huan.tomcat.jdbc.fault.FaultInjectingDriver;
+import com.huan.tomcat.jdbc.fault.FaultScript;
+import com.huan.tomcat.jdbc.inteceptor.AdaptiveValidationFeature;
+import com.huan.tomcat.jdbc.inteceptor.ConnectionErrorTrap;
+import com.huan.tomcat.jdbc.inteceptor.ConnectionErrorTrapContext;
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.PoolProperties;
+import org.junit.After;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class AdaptiveValidationTest {
+    private static final int SIZE = 3;
+
+    private final FaultScript script = FaultInjectingDriver.script("adaptive").reset();
+    private DataSource dataSource;
+
+    @After
+    public void close() {
+        script.reset();
+        if (dataSource != null) {
+            dataSource.close(true);
+        }
+    }
+
+    private DataSource createDataSource(String database) {
+        PoolProperties p = new PoolProperties();
+        p.setName("adaptive-validation");
+        p.setDriverClassName("com.mysql.jdbc.Driver");
+        p.setDataSource(new FaultInjectingDataSource(
+                FaultInjectingDriver.url("adaptive", "jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1")));
+        p.setInitialSize(SIZE);
+        p.setMaxActive(SIZE);
+        p.setJmxEnabled(false);
+        p.setJdbcInterceptors(ConnectionErrorTrap.class.getName() + "("
+                + AdaptiveValidationFeature.PROP_ADAPTIVE_VALIDATION + "=true,"
+                + AdaptiveValidationFeature.PROP_ADAPTIVE_VALIDATION_WINDOW + "=60000)");
+        dataSource = new DataSource(p);
+        return dataSource;
+    }
+
+    /**
+     * borrow every connection of the pool at once and run a statement on each
+     */
+    private void selectOnAll() throws SQLException {
+        List<Connection> connections = new ArrayList<>();
+        try {
+            for (int i = 0; i < SIZE; i++) {
+                connections.add(dataSource.getConnection());
+            }
+            for (Connection connection : connections) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.executeQuery("select 1").close();
+                }
+            }
+        } finally {
+            for (Connection connection : connections) {
+                connection.close();
+            }
+        }
+    }
+
+    @Test
+    public void connectionsBrokenByAnOutageAreReconnectedOnBorrow() throws Exception {
+        createDataSource("adaptive");
+        ConnectionErrorTrapContext context = ConnectionErrorTrapContext.get(dataSource.getPool());
+        //no error, no validation
+        selectOnAll();
+        selectOnAll();
+        assertEquals(0, context.getAdaptiveValidationCount());
+
+        List<Connection> connections = new ArrayList<>();
+        for (int i = 0; i < SIZE; i++) {
+            connections.add(dataSource.getConnection());
+        }
+        script.backendDown(50);
+        try (Statement statement = connections.get(0).createStatement()) {
+            statement.executeQuery("select 1");
+            fail("the outage should break the connection");
+        } catch (SQLException expected) {
+            // fatal, the connection is released
+        }
+        //the others go back to the pool broken
+        for (Connection connection : connections) {
+            connection.close();
+        }
+        Thread.sleep(100);
+
+        //the broken ones are validated and reconnected before the borrower gets them
+        selectOnAll();
+        assertEquals(SIZE - 1, context.getAdaptiveValidationFailureCount());
+        long validations = context.getAdaptiveValidationCount();
+        assertEquals(SIZE - 1, validations);
+
+        //checked after the error, they are not validated again so soon
+        selectOnAll();
+        assertEquals(validations, context.getAdaptiveValidationCount());
+    }
+}
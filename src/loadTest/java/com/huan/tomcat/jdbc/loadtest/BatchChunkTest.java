@@ -0,0 +1,288 @@
+package com.huan.tomcat.jdbc.loadtest;
+
+import com.huan.tomcat.jdbc.fault.FaultInjectingDataSource;
+import com.huan.tomcat.jdbc.fault.FaultInjectingDriver;
+import com.huan.tomcat.jdbc.fault.FaultScript;
+import com.huan.tomcat.jdbc.fault.Faults;
+import com.huan.tomcat.jdbc.inteceptor.BatchChunkException;
+import com.huan.tomcat.jdbc.inteceptor.BatchChunkFeature;
+import com.huan.tomcat.jdbc.inteceptor.ConnectionErrorTrap;
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.PoolProperties;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BatchChunkTest {
+    private static final String INSERT = "insert into customer (id, name, money) values (?, ?, ?)";
+    private static final int ROWS = 1050;
+    private static final int CHUNK = 100;
+
+    private final FaultScript script = FaultInjectingDriver.script("batch").reset();
+    private DataSource dataSource;
+
+    @After
+    public void close() {
+        script.reset();
+        if (dataSource != null) {
+            dataSource.close(true);
+        }
+    }
+
+    private DataSource createDataSource(boolean useWrapper, String database) throws SQLException {
+        PoolProperties p = new PoolProperties();
+        p.setName("batch-chunk");
+        p.setDriverClassName("com.mysql.jdbc.Driver");
+        p.setDataSource(new FaultInjectingDataSource(
+                FaultInjectingDriver.url("batch", "jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1")));
+        p.setInitialSize(2);
+        p.setMaxActive(2);
+        p.setJmxEnabled(false);
+        p.setJdbcInterceptors(ConnectionErrorTrap.class.getName() + "(" + ConnectionErrorTrap.PROP_USE_WRAPPER + "="
+                + useWrapper + "," + BatchChunkFeature.PROP_BATCH_CHUNK_SIZE + "=" + CHUNK + ")");
+        dataSource = new DataSource(p);
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("drop table if exists customer");
+            statement.execute("create table customer (id int primary key, name varchar(64), money double)");
+        }
+        return dataSource;
+    }
+
+    private static void addRows(PreparedStatement ps, int from, int to) throws SQLException {
+        ps.setString(2, "customer");
+        for (int id = from; id < to; id++) {
+            //name stays bound from the first row on, as the driver would keep it
+            ps.setInt(1, id);
+            ps.setDouble(3, id);
+            ps.addBatch();
+        }
+    }
+
+    private int count() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("select count(*), count(distinct id), sum(money) from customer"
+                     + " where name = 'customer'")) {
+            rs.next();
+            assertEquals(rs.getInt(1), rs.getInt(2));
+            return rs.getInt(1);
+        }
+    }
+
+    @Test
+    public void chunkedBatchExecutesEveryRow() throws SQLException {
+        for (boolean useWrapper : new boolean[]{false, true}) {
+            createDataSource(useWrapper, "batchEveryRow" + useWrapper);
+            try (Connection connection = dataSource.getConnection();
+                 PreparedStatement ps = connection.prepareStatement(INSERT)) {
+                addRows(ps, 0, ROWS);
+                int[] counts = ps.executeBatch();
+                assertEquals(ROWS, counts.length);
+                for (int count : counts) {
+                    assertEquals(1, count);
+                }
+                //the buffer is reused by the next batch
+                addRows(ps, ROWS, ROWS + 10);
+                assertEquals(10, ps.executeLargeBatch().length);
+            }
+            assertEquals(ROWS + 10, count());
+            dataSource.close(true);
+            dataSource = null;
+        }
+    }
+
+    @Test
+    public void fatalErrorReportsTheCommittedChunks() throws SQLException {
+        for (boolean useWrapper : new boolean[]{false, true}) {
+            createDataSource(useWrapper, "batchFatal" + useWrapper);
+            int resume = -1;
+            try (Connection connection = dataSource.getConnection();
+                 PreparedStatement ps = connection.prepareStatement(INSERT)) {
+                addRows(ps, 0, ROWS);
+                script.failAfter(3, 1, Faults.communicationsLinkFailure());
+                ps.executeBatch();
+                fail("the fourth chunk should fail");
+            } catch (BatchChunkException e) {
+                assertEquals(3, e.getFailedChunk());
+                assertEquals(3 * CHUNK, e.getResumeIndex());
+                assertEquals(3 * CHUNK, e.getUpdateCounts().length);
+                assertTrue(e.isCommitted());
+                assertTrue(e.isDiscarded());
+                assertEquals("08S01", e.getSQLState());
+                resume = e.getResumeIndex();
+            }
+            assertEquals(resume, count());
+            //resume on a fresh connection
+            try (Connection connection = dataSource.getConnection();
+                 PreparedStatement ps = connection.prepareStatement(INSERT)) {
+                addRows(ps, resume, ROWS);
+                assertEquals(ROWS - resume, ps.executeBatch().length);
+            }
+            assertEquals(ROWS, count());
+            dataSource.close(true);
+            dataSource = null;
+        }
+    }
+
+    @Test
+    public void driverCountsOfTheFailedChunkAreKept() throws SQLException {
+        for (boolean useWrapper : new boolean[]{false, true}) {
+            createDataSource(useWrapper, "batchDuplicate" + useWrapper);
+            try (Connection connection = dataSource.getConnection();
+                 PreparedStatement ps = connection.prepareStatement(INSERT)) {
+                addRows(ps, 0, 2 * CHUNK + 50);
+                //duplicate key in the middle of the third chunk
+                addRows(ps, 0, 1);
+                addRows(ps, 2 * CHUNK + 50, ROWS);
+                ps.executeBatch();
+                fail("the third chunk should fail");
+            } catch (BatchChunkException e) {
+                assertEquals(2, e.getFailedChunk());
+                assertEquals(2 * CHUNK, e.getUpdateCounts().length);
+                assertTrue(e.getCause() instanceof BatchUpdateException);
+                long[] failed = e.getFailedChunkUpdateCounts();
+                assertTrue(failed.length > 50);
+                assertEquals(1, failed[49]);
+                assertEquals(Statement.EXECUTE_FAILED, failed[50]);
+                assertFalse(e.isDiscarded());
+            }
+            dataSource.close(true);
+            dataSource = null;
+        }
+    }
+
+    @Test
+    public void everyParameterTypeIsBoundAgain() throws SQLException {
+        for (boolean useWrapper : new boolean[]{false, true}) {
+            createDataSource(useWrapper, "batchTypes" + useWrapper);
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute("create table sample (id int primary key, flag boolean, tiny tinyint, small smallint,"
+                        + " big bigint, ratio real, amount decimal(10, 2), label varchar(16), data varbinary(4),"
+                        + " day date, created timestamp, note varchar(16))");
+            }
+            Timestamp created = Timestamp.valueOf("2020-01-02 03:04:05");
+            try (Connection connection = dataSource.getConnection();
+                 PreparedStatement ps = connection.prepareStatement(
+                         "insert into sample values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+                for (int id = 0; id < 250; id++) {
+                    ps.setInt(1, id);
+                    ps.setBoolean(2, id % 2 == 0);
+                    ps.setByte(3, (byte) id);
+                    ps.setShort(4, (short) id);
+                    ps.setLong(5, id * 10000000000L);
+                    ps.setFloat(6, id / 4f);
+                    ps.setBigDecimal(7, BigDecimal.valueOf(id, 2));
+                    ps.setObject(8, "label" + id, Types.VARCHAR);
+                    ps.setBytes(9, new byte[]{(byte) id});
+                    ps.setDate(10, Date.valueOf("2020-01-02"));
+                    ps.setTimestamp(11, created);
+                    if (id % 3 == 0) {
+                        ps.setNull(12, Types.VARCHAR);
+                    } else {
+                        ps.setObject(12, "note" + id);
+                    }
+                    ps.addBatch();
+                }
+                assertEquals(250, ps.executeBatch().length);
+            }
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery("select * from sample where id = 201")) {
+                assertTrue(rs.next());
+                assertFalse(rs.getBoolean(2));
+                assertEquals(-55, rs.getByte(3));
+                assertEquals(201, rs.getShort(4));
+                assertEquals(2010000000000L, rs.getLong(5));
+                assertEquals(50.25f, rs.getFloat(6), 0);
+                assertEquals(BigDecimal.valueOf(201, 2), rs.getBigDecimal(7));
+                assertEquals("label201", rs.getString(8));
+                assertArrayEquals(new byte[]{(byte) 201}, rs.getBytes(9));
+                assertEquals(Date.valueOf("2020-01-02"), rs.getDate(10));
+                assertEquals(created, rs.getTimestamp(11));
+                assertNull(rs.getString(12));
+            }
+            dataSource.close(true);
+            dataSource = null;
+        }
+    }
+
+    @Test
+    public void chunksOfALostTransactionAreNotCommitted() throws SQLException {
+        createDataSource(false, "batchTransaction");
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.prepareStatement(INSERT)) {
+            connection.setAutoCommit(false);
+            addRows(ps, 0, ROWS);
+            script.failAfter(2, 1, Faults.communicationsLinkFailure());
+            ps.executeBatch();
+            fail("the third chunk should fail");
+        } catch (BatchChunkException e) {
+            assertEquals(2 * CHUNK, e.getResumeIndex());
+            assertFalse(e.isCommitted());
+            assertTrue(e.isDiscarded());
+        }
+        assertEquals(0, count());
+    }
+
+    @Test
+    public void plainStatementBatchIsChunked() throws SQLException {
+        createDataSource(true, "batchPlain");
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            for (int id = 0; id < 250; id++) {
+                statement.addBatch("insert into customer (id, name, money) values (" + id + ", 'customer', 1)");
+            }
+            script.failAfter(2, 1, Faults.vendorCode(1062));
+            statement.executeBatch();
+            fail("the third chunk should fail");
+        } catch (BatchChunkException e) {
+            assertEquals(2 * CHUNK, e.getResumeIndex());
+            assertFalse(e.isDiscarded());
+        }
+        assertEquals(2 * CHUNK, count());
+    }
+
+    @Test
+    public void streamParameterExecutesTheBatchInOnePiece() throws SQLException {
+        createDataSource(false, "batchStream");
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("create table document (id int primary key, content blob)");
+        }
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.prepareStatement("insert into document (id, content) values (?, ?)")) {
+            for (int id = 0; id < 250; id++) {
+                ps.setInt(1, id);
+                if (id == 120) {
+                    ps.setBinaryStream(2, new ByteArrayInputStream(new byte[]{1, 2, 3}), 3);
+                } else {
+                    ps.setBytes(2, new byte[]{(byte) id});
+                }
+                ps.addBatch();
+            }
+            int[] expected = new int[250];
+            java.util.Arrays.fill(expected, 1);
+            assertArrayEquals(expected, ps.executeBatch());
+        }
+    }
+}
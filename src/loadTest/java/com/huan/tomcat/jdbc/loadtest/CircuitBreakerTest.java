@@ -0,0 +1,203 @@
+package com.huan.tomcat.jdbc.loadtest;
+
+import com.huan.tomcat.jdbc.fault.FaultInjectingDataSource;
+import com.huan.tomcat.jdbc.fault.FaultInjectingDriver;
+import com.huan.tomcat.jdbc.fault.FaultScript;
+import com.huan.tomcat.jdbc.fault.Faults;
+import com.huan.tomcat.jdbc.inteceptor.CircuitBreaker;
+import com.huan.tomcat.jdbc.inteceptor.CircuitBreakerFeature;
+import com.huan.tomcat.jdbc.inteceptor.CircuitBreakerOpenException;
+import com.huan.tomcat.jdbc.inteceptor.ConnectionErrorTrap;
+import com.huan.tomcat.jdbc.inteceptor.ConnectionErrorTrapContext;
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.PoolProperties;
+import org.junit.After;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+public class CircuitBreakerTest {
+    private static final int THRESHOLD = 3;
+    private static final long OPEN_TIME = 200;
+
+    private final FaultScript script = FaultInjectingDriver.script("breaker").reset();
+    private DataSource dataSource;
+
+    @After
+    public void close() {
+        script.reset();
+        if (dataSource != null) {
+            dataSource.close(true);
+        }
+    }
+
+    private DataSource createDataSource(boolean useWrapper, String database) {
+        PoolProperties p = new PoolProperties();
+        p.setName("circuit-breaker");
+        p.setDriverClassName("com.mysql.jdbc.Driver");
+        p.setDataSource(new FaultInjectingDataSource(
+                FaultInjectingDriver.url("breaker", "jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1")));
+        p.setInitialSize(2);
+        p.setMaxActive(2);
+        p.setValidationQuery("select 1");
+        p.setJmxEnabled(false);
+        p.setJdbcInterceptors(ConnectionErrorTrap.class.getName() + "(" + ConnectionErrorTrap.PROP_USE_WRAPPER + "="
+                + useWrapper + "," + CircuitBreakerFeature.PROP_BREAKER_THRESHOLD + "=" + THRESHOLD + ","
+                + CircuitBreakerFeature.PROP_BREAKER_WINDOW + "=60000,"
+                + CircuitBreakerFeature.PROP_BREAKER_OPEN_TIME + "=" + OPEN_TIME + ")");
+        dataSource = new DataSource(p);
+        return dataSource;
+    }
+
+    private void select() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.executeQuery("select 1").close();
+        }
+    }
+
+    @Test
+    public void breakerOpensAtTheThresholdAndTheProbeClosesIt() throws Exception {
+        for (boolean useWrapper : new boolean[]{false, true}) {
+            createDataSource(useWrapper, "breaker" + useWrapper);
+            select();
+            CircuitBreaker breaker = ConnectionErrorTrapContext.get(dataSource.getPool()).getCircuitBreaker();
+            for (int i = 1; i <= THRESHOLD; i++) {
+                assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+                script.failNext(1, Faults.communicationsLinkFailure());
+                try {
+                    select();
+                    fail("the injected error should be thrown");
+                } catch (SQLException e) {
+                    assertFalse(e instanceof CircuitBreakerOpenException);
+                }
+            }
+            assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+            assertEquals(1, breaker.getOpenCount());
+
+            //fails fast, the backend is not asked
+            try {
+                select();
+                fail("the open breaker should reject the statement");
+            } catch (CircuitBreakerOpenException expected) {
+                assertEquals(1, breaker.getRejectedCount());
+            }
+
+            Thread.sleep(OPEN_TIME + 50);
+            select();
+            assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+            assertEquals(1, breaker.getCloseCount());
+            select();
+            dataSource.close(true);
+            dataSource = null;
+        }
+    }
+
+    @Test
+    public void probeLeavesTheOpenTransactionAlone() throws Exception {
+        createDataSource(false, "breakerTransaction");
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("create table breaker_tx (id int)");
+        }
+        CircuitBreaker breaker = ConnectionErrorTrapContext.get(dataSource.getPool()).getCircuitBreaker();
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(false);
+            statement.executeUpdate("insert into breaker_tx values (1)");
+            for (int i = 0; i < THRESHOLD; i++) {
+                script.failNext(1, Faults.communicationsLinkFailure());
+                try {
+                    select();
+                } catch (SQLException expected) {
+                    // counted by the breaker
+                }
+            }
+            assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+            Thread.sleep(OPEN_TIME + 50);
+            //the probe runs on this connection, in the middle of the transaction
+            statement.executeQuery("select 1").close();
+            assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+            connection.rollback();
+            connection.setAutoCommit(true);
+        }
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("select count(*) from breaker_tx")) {
+            rs.next();
+            assertEquals("the probe must not commit the insert", 0, rs.getInt(1));
+        }
+    }
+
+    @Test
+    public void failedProbeKeepsTheBreakerOpen() throws Exception {
+        createDataSource(true, "breakerProbe");
+        select();
+        CircuitBreaker breaker = ConnectionErrorTrapContext.get(dataSource.getPool()).getCircuitBreaker();
+        for (int i = 0; i < THRESHOLD; i++) {
+            script.failNext(1, Faults.communicationsLinkFailure());
+            try {
+                select();
+            } catch (SQLException expected) {
+                // counted by the breaker
+            }
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            //the borrowed connection is broken by the outage and no fresh one can be opened
+            script.backendDown(60000);
+            Thread.sleep(OPEN_TIME + 50);
+            statement.executeQuery("select 1");
+            fail("the failed probe should reject the statement");
+        } catch (CircuitBreakerOpenException expected) {
+            // probe failed
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(0, breaker.getCloseCount());
+    }
+
+    @Test
+    public void probeReconnectsAStaleConnection() throws Exception {
+        for (boolean useWrapper : new boolean[]{false, true}) {
+            createDataSource(useWrapper, "breakerStale" + useWrapper);
+            select();
+            CircuitBreaker breaker = ConnectionErrorTrapContext.get(dataSource.getPool()).getCircuitBreaker();
+            for (int i = 0; i < THRESHOLD; i++) {
+                script.failNext(1, Faults.communicationsLinkFailure());
+                try {
+                    select();
+                } catch (SQLException expected) {
+                    // counted by the breaker
+                }
+            }
+            assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                //a short outage leaves the borrowed connection stale, the backend is up again for the probe
+                script.backendDown(10);
+                Thread.sleep(OPEN_TIME + 50);
+                try {
+                    statement.executeQuery("select 1");
+                    fail("the statement of the stale connection should fail");
+                } catch (SQLException e) {
+                    assertFalse(e instanceof CircuitBreakerOpenException);
+                }
+                assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+                assertEquals(1, breaker.getCloseCount());
+                try (Statement again = connection.createStatement()) {
+                    again.executeQuery("select 1").close();
+                }
+            }
+            dataSource.close(true);
+            dataSource = null;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.huan.tomcat.jdbc.loadtest;
+
+import com.huan.tomcat.jdbc.fault.FaultInjectingDataSource;
+import com.huan.tomcat.jdbc.fault.FaultInjectingDriver;
+import com.huan.tomcat.jdbc.fault.FaultScript;
+import com.huan.tomcat.jdbc.inteceptor.ConnectionErrorTrap;
+import com.huan.tomcat.jdbc.inteceptor.ConnectionErrorTrapContext;
+import com.huan.tomcat.jdbc.inteceptor.ConnectionRecycler;
+import com.huan.tomcat.jdbc.inteceptor.RecycleFeature;
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.PoolProperties;
+import org.junit.After;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ConnectionRecyclerTest {
+    private static final int SIZE = 4;
+    private static final int CONCURRENCY = 2;
+    private static final long AGE = 300;
+
+    private final FaultScript script = FaultInjectingDriver.script("recycle").reset();
+    private DataSource dataSource;
+
+    @After
+    public void close() {
+        script.reset();
+        if (dataSource != null) {
+            dataSource.close(true);
+        }
+    }
+
+    private DataSource createDataSource() {
+        PoolProperties p = new PoolProperties();
+        p.setName("recycle");
+        p.setDriverClassName("com.mysql.jdbc.Driver");
+        p.setDataSource(new FaultInjectingDataSource(
+                FaultInjectingDriver.url("recycle", "jdbc:h2:mem:recycle;DB_CLOSE_DELAY=-1")));
+        p.setInitialSize(SIZE);
+        p.setMaxIdle(SIZE);
+        p.setMaxActive(SIZE);
+        p.setJmxEnabled(false);
+        p.setJdbcInterceptors(ConnectionErrorTrap.class.getName() + "(" + RecycleFeature.PROP_RECYCLE_AGE + "="
+                + AGE + "," + RecycleFeature.PROP_RECYCLE_JITTER + "=0,"
+                + RecycleFeature.PROP_RECYCLE_CONCURRENCY + "=" + CONCURRENCY + ")");
+        dataSource = new DataSource(p);
+        return dataSource;
+    }
+
+    /**
+     * borrow every connection of the pool, then return them all
+     */
+    private void borrowAll(long hold) throws SQLException, InterruptedException {
+        List<Connection> connections = new ArrayList<>();
+        for (int i = 0; i < SIZE; i++) {
+            connections.add(dataSource.getConnection());
+        }
+        Thread.sleep(hold);
+        for (Connection connection : connections) {
+            connection.close();
+        }
+    }
+
+    private boolean awaitIdle(int idle, long timeout) throws InterruptedException {
+        long end = System.currentTimeMillis() + timeout;
+        while (dataSource.getPool().getIdle() < idle) {
+            if (System.currentTimeMillis() > end) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    @Test
+    public void recyclingRespectsItsConcurrency() throws Exception {
+        createDataSource();
+        ConnectionRecycler recycler = ConnectionErrorTrapContext.get(dataSource.getPool()).getRecycler();
+        script.connectLatency(200);
+
+        //every connection expired, only CONCURRENCY are reconnected at once
+        borrowAll(AGE + 50);
+        assertEquals(CONCURRENCY, recycler.getRunning());
+        assertEquals(SIZE - CONCURRENCY, recycler.getSkippedCount());
+        //the ones being reconnected stay borrowed
+        assertEquals(SIZE - CONCURRENCY, dataSource.getPool().getIdle());
+        assertTrue("the recycled connections should be returned", awaitIdle(SIZE, 5000));
+        assertEquals(CONCURRENCY, recycler.getRecycleCount());
+        assertEquals(0, recycler.getRunning());
+
+        //the skipped ones are recycled on their next return, the fresh ones are left alone
+        borrowAll(0);
+        assertEquals(SIZE - CONCURRENCY, recycler.getRunning());
+        assertTrue("the recycled connections should be returned", awaitIdle(SIZE, 5000));
+        assertEquals(SIZE, recycler.getRecycleCount());
+        assertEquals(SIZE - CONCURRENCY, recycler.getSkippedCount());
+        assertEquals(0, recycler.getFailureCount());
+        assertEquals(SIZE, dataSource.getPool().getSize());
+    }
+}
@@ -0,0 +1,125 @@
+package com.huan.tomcat.jdbc.loadtest;
+
+import com.huan.tomcat.jdbc.fault.FaultInjectingDataSource;
+import com.huan.tomcat.jdbc.fault.FaultInjectingDriver;
+import com.huan.tomcat.jdbc.fault.FaultScript;
+import com.huan.tomcat.jdbc.fault.Faults;
+import com.huan.tomcat.jdbc.inteceptor.ConnectionErrorTrap;
+import com.huan.tomcat.jdbc.inteceptor.ConnectionErrorTrapContext;
+import com.huan.tomcat.jdbc.inteceptor.ConnectionRefiller;
+import com.huan.tomcat.jdbc.inteceptor.RefillFeature;
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.PoolProperties;
+import org.junit.After;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ConnectionRefillerTest {
+    private static final int SIZE = 4;
+
+    private final FaultScript script = FaultInjectingDriver.script("refill").reset();
+    private DataSource dataSource;
+
+    @After
+    public void close() {
+        script.reset();
+        if (dataSource != null) {
+            dataSource.close(true);
+        }
+    }
+
+    private DataSource createDataSource(boolean refill, String database) {
+        PoolProperties p = new PoolProperties();
+        p.setName("refill");
+        p.setDriverClassName("com.mysql.jdbc.Driver");
+        p.setDataSource(new FaultInjectingDataSource(
+                FaultInjectingDriver.url("refill", "jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1")));
+        p.setInitialSize(SIZE);
+        p.setMinIdle(SIZE);
+        p.setMaxIdle(SIZE);
+        p.setMaxActive(SIZE);
+        p.setJmxEnabled(false);
+        p.setJdbcInterceptors(ConnectionErrorTrap.class.getName() + "(" + RefillFeature.PROP_REFILL + "="
+                + refill + "," + RefillFeature.PROP_REFILL_MAX_BACKOFF + "=200)");
+        dataSource = new DataSource(p);
+        return dataSource;
+    }
+
+    /**
+     * every connection of the pool fails with a fatal error and is released
+     * @param outage  the backend is down for that many milliseconds from the failure on, 0 for none
+     */
+    private void failAll(long outage) throws SQLException {
+        List<Connection> connections = new ArrayList<>();
+        try {
+            for (int i = 0; i < SIZE; i++) {
+                connections.add(dataSource.getConnection());
+            }
+            if (outage > 0) {
+                script.backendDown(outage);
+            } else {
+                script.failNext(SIZE, Faults.communicationsLinkFailure());
+            }
+            for (Connection connection : connections) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("select 1");
+                } catch (SQLException expected) {
+                    // released on close
+                }
+            }
+        } finally {
+            for (Connection connection : connections) {
+                connection.close();
+            }
+        }
+    }
+
+    private boolean awaitIdle(int idle, long timeout) throws InterruptedException {
+        long end = System.currentTimeMillis() + timeout;
+        while (dataSource.getPool().getIdle() < idle) {
+            if (System.currentTimeMillis() > end) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    @Test
+    public void refillerRestoresTheIdleCount() throws Exception {
+        createDataSource(true, "refill");
+        failAll(0);
+        assertTrue("the pool should be refilled to minIdle", awaitIdle(SIZE, 5000));
+        ConnectionRefiller refiller = ConnectionErrorTrapContext.get(dataSource.getPool()).getRefiller();
+        //refill tasks running at once may both count a connection one of them opened
+        assertTrue(refiller.getRefilledCount() >= SIZE);
+        assertEquals(0, refiller.getFailureCount());
+        assertEquals(SIZE, dataSource.getPool().getSize());
+    }
+
+    @Test
+    public void withoutRefillThePoolStaysEmpty() throws Exception {
+        createDataSource(false, "noRefill");
+        failAll(0);
+        Thread.sleep(ConnectionRefiller.REQUEST_DELAY * 10);
+        assertEquals(0, dataSource.getPool().getIdle());
+    }
+
+    @Test
+    public void refillerBacksOffWhileTheBackendIsDown() throws Exception {
+        createDataSource(true, "refillDown");
+        failAll(300);
+        assertTrue("the pool should be refilled after the outage", awaitIdle(SIZE, 5000));
+        ConnectionRefiller refiller = ConnectionErrorTrapContext.get(dataSource.getPool()).getRefiller();
+        assertTrue(refiller.getFailureCount() > 0);
+        assertTrue(refiller.getRefilledCount() >= SIZE);
+    }
+}
@@ -0,0 +1,230 @@
+package com.huan.tomcat.jdbc.loadtest;
+
+import com.huan.tomcat.jdbc.fault.FaultInjectingDataSource;
+import com.huan.tomcat.jdbc.fault.FaultInjectingDriver;
+import com.huan.tomcat.jdbc.fault.FaultScript;
+import com.huan.tomcat.jdbc.fault.Faults;
+import com.huan.tomcat.jdbc.inteceptor.ConnectionErrorTrap;
+import com.huan.tomcat.jdbc.inteceptor.PurgeFeature;
+import com.huan.tomcat.jdbc.inteceptor.RefillFeature;
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.PoolProperties;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @author edenhuan
+ * Multi-threaded load against a tomcat jdbc pool over {@link FaultInjectingDriver}. Threads borrow,
+ * execute and return in a loop while the backend goes down once; the report tells throughput,
+ * p50/p99 latency, failed requests and how long requests kept failing after the backend was back.
+ * Run the default comparison with gradle failoverBenchmark, or [threads] [seconds] as arguments.
+ */
+public class FailoverLoadHarness {
+    /**
+     * width of the time slots failures are counted in, the resolution of the time to recover
+     */
+    static final long SLOT = 100;
+    /**
+     * vendor code of the non fatal errors injected by {@link FailoverScenario#setErrorRate(double)}
+     */
+    static final int INJECTED_ERROR_CODE = 1062;
+    private static final String MYSQL_DRIVER = "com.mysql.jdbc.Driver";
+
+    private static final AtomicInteger sequence = new AtomicInteger();
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        long duration = args.length > 1 ? Long.parseLong(args[1]) * 1000 : 10000;
+        String trap = ConnectionErrorTrap.class.getName();
+        List<FailoverScenario> scenarios = Arrays.asList(
+                new FailoverScenario("none", null),
+                new FailoverScenario("none+testOnBorrow", null).setTestOnBorrow(true),
+                new FailoverScenario("trap", trap),
+                new FailoverScenario("trap+purgeOnFatal", trap + "(" + PurgeFeature.PROP_PURGE_ON_FATAL + "=true)"),
+                new FailoverScenario("trap+wrapper+refill", trap + "(" + ConnectionErrorTrap.PROP_USE_WRAPPER + "=true,"
+                        + RefillFeature.PROP_REFILL + "=true)"));
+        List<FailoverReport> reports = new ArrayList<>();
+        for (FailoverScenario scenario : scenarios) {
+            scenario.setThreads(threads).setMaxActive(threads).setDuration(duration)
+                    .setOutageAt(duration * 3 / 10).setOutageDuration(duration / 5);
+            reports.add(new FailoverLoadHarness().run(scenario));
+        }
+        System.out.println(FailoverReport.header());
+        for (FailoverReport report : reports) {
+            System.out.println(report);
+        }
+    }
+
+    public FailoverReport run(FailoverScenario scenario) throws Exception {
+        String scriptName = scenario.getName() + "-" + sequence.incrementAndGet();
+        FaultScript script = FaultInjectingDriver.script(scriptName).reset().latency(scenario.getLatency());
+        if (scenario.getErrorRate() > 0) {
+            script.failRandomly(scenario.getErrorRate(), Faults.vendorCode(INJECTED_ERROR_CODE));
+        }
+        DataSource dataSource = createDataSource(scenario, scriptName);
+        int slots = (int) (scenario.getDuration() / SLOT) + 1;
+        AtomicLongArray failures = new AtomicLongArray(slots);
+        Worker[] workers = new Worker[scenario.getThreads()];
+        CountDownLatch done = new CountDownLatch(workers.length);
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker(dataSource, scenario, start, failures, done);
+            newThread(workers[i], "failover-" + scriptName + "-" + i).start();
+        }
+        if (scenario.getOutageAt() >= 0) {
+            Thread.sleep(scenario.getOutageAt());
+            script.backendDown(scenario.getOutageDuration());
+        }
+        done.await();
+        long elapsed = System.currentTimeMillis() - start;
+        dataSource.close(true);
+        return report(scenario, workers, failures, elapsed);
+    }
+
+    protected Thread newThread(Runnable worker, String name) {
+        Thread thread = new Thread(worker, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    protected DataSource createDataSource(FailoverScenario scenario, String scriptName) throws SQLException {
+        PoolProperties p = new PoolProperties();
+        p.setName("failover-" + scriptName);
+        //the MySQL driver class selects the MySQL exception sorter, connections come from the data source
+        p.setDriverClassName(MYSQL_DRIVER);
+        p.setDataSource(new FaultInjectingDataSource(FaultInjectingDriver.url(scriptName,
+                "jdbc:h2:mem:" + scriptName + ";DB_CLOSE_DELAY=-1")));
+        p.setInitialSize(scenario.getMaxActive());
+        p.setMinIdle(scenario.getMaxActive());
+        p.setMaxIdle(scenario.getMaxActive());
+        p.setMaxActive(scenario.getMaxActive());
+        p.setMaxWait(1000);
+        p.setValidationQuery("select 1");
+        p.setTestOnBorrow(scenario.isTestOnBorrow());
+        p.setJmxEnabled(false);
+        p.setJdbcInterceptors(scenario.getInterceptors());
+        DataSource dataSource = new DataSource(p);
+        dataSource.createPool();
+        return dataSource;
+    }
+
+    protected FailoverReport report(FailoverScenario scenario, Worker[] workers, AtomicLongArray failures,
+                                    long elapsed) {
+        int count = 0;
+        long failed = 0;
+        for (Worker worker : workers) {
+            count += worker.count;
+            failed += worker.failed;
+        }
+        long[] latencies = new long[count];
+        int offset = 0;
+        for (Worker worker : workers) {
+            System.arraycopy(worker.latencies, 0, latencies, offset, worker.count);
+            offset += worker.count;
+        }
+        Arrays.sort(latencies);
+        return new FailoverReport(scenario.getName(), count + failed, failed, elapsed,
+                percentile(latencies, 0.5), percentile(latencies, 0.99), timeToRecover(scenario, failures));
+    }
+
+    static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(sorted.length * percentile) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    /**
+     * Failures of the last second of the run mean the pool never recovered
+     */
+    static long timeToRecover(FailoverScenario scenario, AtomicLongArray failures) {
+        if (scenario.getOutageAt() < 0) {
+            return 0;
+        }
+        int last = -1;
+        for (int i = 0; i < failures.length(); i++) {
+            if (failures.get(i) > 0) {
+                last = i;
+            }
+        }
+        long outageEnd = scenario.getOutageAt() + scenario.getOutageDuration();
+        long lastFailure = (last + 1) * SLOT;
+        if (last < 0 || lastFailure <= outageEnd) {
+            return 0;
+        }
+        if (lastFailure > scenario.getDuration() - 1000) {
+            return FailoverReport.NEVER;
+        }
+        return lastFailure - outageEnd;
+    }
+
+    static class Worker implements Runnable {
+        private final DataSource dataSource;
+        private final FailoverScenario scenario;
+        private final long start;
+        private final AtomicLongArray failures;
+        private final CountDownLatch done;
+
+        long[] latencies = new long[1 << 10];
+        int count;
+        long failed;
+
+        Worker(DataSource dataSource, FailoverScenario scenario, long start, AtomicLongArray failures,
+               CountDownLatch done) {
+            this.dataSource = dataSource;
+            this.scenario = scenario;
+            this.start = start;
+            this.failures = failures;
+            this.done = done;
+        }
+
+        @Override
+        public void run() {
+            try {
+                long end = start + scenario.getDuration();
+                while (System.currentTimeMillis() < end) {
+                    long begin = System.nanoTime();
+                    try {
+                        execute();
+                        record((System.nanoTime() - begin) / 1000);
+                    } catch (SQLException e) {
+                        failed++;
+                        if (e.getErrorCode() != INJECTED_ERROR_CODE) {
+                            int slot = (int) ((System.currentTimeMillis() - start) / SLOT);
+                            failures.incrementAndGet(Math.min(slot, failures.length() - 1));
+                        }
+                    }
+                }
+            } finally {
+                done.countDown();
+            }
+        }
+
+        private void execute() throws SQLException {
+            try (Connection connection = dataSource.getConnection();
+                 PreparedStatement statement = connection.prepareStatement(scenario.getSql());
+                 ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    resultSet.getObject(1);
+                }
+            }
+        }
+
+        private void record(long micros) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = micros;
+        }
+    }
+}
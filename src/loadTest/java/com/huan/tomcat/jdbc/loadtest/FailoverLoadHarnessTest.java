@@ -0,0 +1,34 @@
+package com.huan.tomcat.jdbc.loadtest;
+
+import com.huan.tomcat.jdbc.inteceptor.ConnectionErrorTrap;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FailoverLoadHarnessTest {
+
+    private static FailoverScenario shortScenario(String name, String interceptors) {
+        return new FailoverScenario(name, interceptors)
+                .setThreads(4)
+                .setMaxActive(4)
+                .setDuration(3000)
+                .setOutageAt(800)
+                .setOutageDuration(500);
+    }
+
+    @Test
+    public void poolWithoutTrapKeepsBrokenConnections() throws Exception {
+        FailoverReport report = new FailoverLoadHarness().run(shortScenario("none", null));
+        assertEquals(FailoverReport.NEVER, report.getTimeToRecover());
+    }
+
+    @Test
+    public void trapRecoversShortlyAfterTheOutage() throws Exception {
+        FailoverReport report = new FailoverLoadHarness().run(
+                shortScenario("trap", ConnectionErrorTrap.class.getName()));
+        assertTrue(report.toString(), report.getFailed() > 0);
+        assertTrue(report.toString(), report.getTimeToRecover() != FailoverReport.NEVER);
+        assertTrue(report.toString(), report.getTimeToRecover() <= 500);
+    }
+}
@@ -0,0 +1,72 @@
+package com.huan.tomcat.jdbc.loadtest;
+
+/**
+ * @author edenhuan
+ * Result of one {@link FailoverScenario}.
+ */
+public class FailoverReport {
+    public static final long NEVER = -1;
+
+    private final String name;
+    private final long requests;
+    private final long failed;
+    private final long elapsed;
+    private final long p50Micros;
+    private final long p99Micros;
+    private final long timeToRecover;
+
+    public FailoverReport(String name, long requests, long failed, long elapsed, long p50Micros, long p99Micros,
+                          long timeToRecover) {
+        this.name = name;
+        this.requests = requests;
+        this.failed = failed;
+        this.elapsed = elapsed;
+        this.p50Micros = p50Micros;
+        this.p99Micros = p99Micros;
+        this.timeToRecover = timeToRecover;
+    }
+
+    public static String header() {
+        return String.format("%-28s %10s %12s %10s %10s %8s %12s",
+                "scenario", "requests", "ops/s", "p50(us)", "p99(us)", "failed", "recover(ms)");
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public double getThroughput() {
+        return elapsed == 0 ? 0 : requests * 1000.0 / elapsed;
+    }
+
+    public long getP50Micros() {
+        return p50Micros;
+    }
+
+    public long getP99Micros() {
+        return p99Micros;
+    }
+
+    /**
+     * milliseconds from the end of the outage to the end of the last failing time slot, 0 if
+     * nothing failed after the outage, {@link #NEVER} if requests still failed at the end of the run
+     */
+    public long getTimeToRecover() {
+        return timeToRecover;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-28s %10d %12.1f %10d %10d %8d %12s",
+                name, requests, getThroughput(), p50Micros, p99Micros, failed,
+                timeToRecover == NEVER ? "never" : String.valueOf(timeToRecover));
+    }
+}
@@ -0,0 +1,122 @@
+package com.huan.tomcat.jdbc.loadtest;
+
+/**
+ * @author edenhuan
+ * One run of {@link FailoverLoadHarness}: the interceptors of the pool, the load and the outage.
+ */
+public class FailoverScenario {
+    private final String name;
+    /**
+     * jdbcInterceptors of the pool, null for none
+     */
+    private final String interceptors;
+    private boolean testOnBorrow = false;
+    private int threads = 8;
+    private int maxActive = 8;
+    private long duration = 10000;
+    /**
+     * milliseconds after the start when the backend goes down, negative for no outage
+     */
+    private long outageAt = 3000;
+    private long outageDuration = 2000;
+    private long latency = 0;
+    private double errorRate = 0;
+    private String sql = "select 1";
+
+    public FailoverScenario(String name, String interceptors) {
+        this.name = name;
+        this.interceptors = interceptors;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getInterceptors() {
+        return interceptors;
+    }
+
+    public boolean isTestOnBorrow() {
+        return testOnBorrow;
+    }
+
+    public FailoverScenario setTestOnBorrow(boolean testOnBorrow) {
+        this.testOnBorrow = testOnBorrow;
+        return this;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public FailoverScenario setThreads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    public int getMaxActive() {
+        return maxActive;
+    }
+
+    public FailoverScenario setMaxActive(int maxActive) {
+        this.maxActive = maxActive;
+        return this;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    public FailoverScenario setDuration(long duration) {
+        this.duration = duration;
+        return this;
+    }
+
+    public long getOutageAt() {
+        return outageAt;
+    }
+
+    public FailoverScenario setOutageAt(long outageAt) {
+        this.outageAt = outageAt;
+        return this;
+    }
+
+    public long getOutageDuration() {
+        return outageDuration;
+    }
+
+    public FailoverScenario setOutageDuration(long outageDuration) {
+        this.outageDuration = outageDuration;
+        return this;
+    }
+
+    public long getLatency() {
+        return latency;
+    }
+
+    public FailoverScenario setLatency(long latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    /**
+     * share of executions failing with a non fatal vendor error during the whole run
+     */
+    public FailoverScenario setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public FailoverScenario setSql(String sql) {
+        this.sql = sql;
+        return this;
+    }
+}
@@ -0,0 +1,110 @@
+package com.huan.tomcat.jdbc.loadtest;
+
+import com.huan.tomcat.jdbc.fault.FaultInjectingDataSource;
+import com.huan.tomcat.jdbc.fault.FaultInjectingDriver;
+import com.huan.tomcat.jdbc.fault.FaultScript;
+import com.huan.tomcat.jdbc.fault.Faults;
+import com.huan.tomcat.jdbc.inteceptor.ConnectionErrorTrap;
+import com.huan.tomcat.jdbc.inteceptor.ConnectionErrorTrapContext;
+import com.huan.tomcat.jdbc.inteceptor.HostHealth;
+import com.huan.tomcat.jdbc.inteceptor.HostTracker;
+import com.huan.tomcat.jdbc.inteceptor.HostTrackingFeature;
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.PoolProperties;
+import org.junit.After;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HostTrackingTest {
+    private final FaultScript healthy = FaultInjectingDriver.script("replica-a").reset();
+    private final FaultScript sick = FaultInjectingDriver.script("replica-b").reset();
+    private DataSource dataSource;
+
+    @After
+    public void close() {
+        healthy.reset();
+        sick.reset();
+        if (dataSource != null) {
+            dataSource.close(true);
+        }
+    }
+
+    private DataSource createDataSource(String interceptors) throws SQLException {
+        PoolProperties p = new PoolProperties();
+        p.setName("host-tracking");
+        p.setDriverClassName("com.mysql.jdbc.Driver");
+        p.setDataSource(new FaultInjectingDataSource(
+                FaultInjectingDriver.url("replica-a", "jdbc:h2:mem:replica-a;DB_CLOSE_DELAY=-1"),
+                FaultInjectingDriver.url("replica-b", "jdbc:h2:mem:replica-b;DB_CLOSE_DELAY=-1")));
+        p.setInitialSize(32);
+        p.setMinIdle(32);
+        p.setMaxIdle(32);
+        p.setMaxActive(32);
+        p.setValidationQuery("select 1");
+        p.setJmxEnabled(false);
+        p.setJdbcInterceptors(interceptors);
+        dataSource = new DataSource(p);
+        dataSource.createPool();
+        return dataSource;
+    }
+
+    /**
+     * Borrow every connection of the pool in each round, so all of them get used
+     */
+    private int execute(DataSource dataSource, int rounds) throws SQLException {
+        int failed = 0;
+        Connection[] connections = new Connection[dataSource.getMaxActive()];
+        for (int round = 0; round < rounds; round++) {
+            for (int i = 0; i < connections.length; i++) {
+                connections[i] = dataSource.getConnection();
+            }
+            for (Connection connection : connections) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("select 1");
+                } catch (SQLException e) {
+                    failed++;
+                } finally {
+                    connection.close();
+                }
+            }
+        }
+        return failed;
+    }
+
+    @Test
+    public void sickHostIsEvictedAtOnce() throws SQLException {
+        DataSource dataSource = createDataSource(ConnectionErrorTrap.class.getName() + "("
+                + HostTrackingFeature.PROP_HOST_ERROR_THRESHOLD + "=2)");
+        //new connections to the sick host still open, its statements fail
+        sick.failRandomly(1.0, Faults.communicationsLinkFailure());
+        //the connections borrowed when the host is quarantined fail anyway
+        assertEquals(16, execute(dataSource, 1));
+        int failed = execute(dataSource, 24);
+
+        HostTracker tracker = ConnectionErrorTrapContext.get(dataSource.getPool()).getHostTracker();
+        HostHealth health = tracker.getHealth("replica-b");
+        assertEquals(0, failed);
+        assertEquals(1, health.getQuarantineCount());
+        assertTrue(health.isQuarantined(System.currentTimeMillis()));
+        assertFalse(tracker.isQuarantined("replica-a", System.currentTimeMillis()));
+        assertEquals(14, health.getEvictedCount());
+        assertTrue(health.getReconnectCount() > 0);
+    }
+
+    @Test
+    public void withoutHostTrackingTheSickHostKeepsFailing() throws SQLException {
+        DataSource dataSource = createDataSource(ConnectionErrorTrap.class.getName());
+        sick.failRandomly(1.0, Faults.communicationsLinkFailure());
+        assertEquals(16, execute(dataSource, 1));
+        //half of the replacements go to the sick host again
+        int failed = execute(dataSource, 24);
+        assertTrue("failed " + failed, failed >= 8);
+    }
+}
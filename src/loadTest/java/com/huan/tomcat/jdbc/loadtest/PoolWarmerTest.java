@@ -0,0 +1,75 @@
+package com.huan.tomcat.jdbc.loadtest;
+
+import com.huan.tomcat.jdbc.fault.FaultInjectingDataSource;
+import com.huan.tomcat.jdbc.fault.FaultInjectingDriver;
+import com.huan.tomcat.jdbc.fault.FaultScript;
+import com.huan.tomcat.jdbc.inteceptor.ConnectionErrorTrap;
+import com.huan.tomcat.jdbc.inteceptor.ConnectionErrorTrapContext;
+import com.huan.tomcat.jdbc.inteceptor.PoolWarmer;
+import com.huan.tomcat.jdbc.inteceptor.WarmUpFeature;
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.PoolProperties;
+import org.junit.After;
+import org.junit.Test;
+
+import java.sql.SQLException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PoolWarmerTest {
+    private static final int SIZE = 8;
+    private static final long HANDSHAKE = 100;
+
+    private final FaultScript script = FaultInjectingDriver.script("warmup").reset();
+    private DataSource dataSource;
+
+    @After
+    public void close() {
+        script.reset();
+        if (dataSource != null) {
+            dataSource.close(true);
+        }
+    }
+
+    /**
+     * start a pool warming up its initialSize connections on concurrency threads
+     * @return the warmer of the pool
+     */
+    private PoolWarmer startPool(int concurrency, String database) throws SQLException {
+        PoolProperties p = new PoolProperties();
+        p.setName("warm-up");
+        p.setDriverClassName("com.mysql.jdbc.Driver");
+        p.setDataSource(new FaultInjectingDataSource(
+                FaultInjectingDriver.url("warmup", "jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1")));
+        p.setInitialSize(SIZE);
+        p.setMaxActive(SIZE);
+        p.setJmxEnabled(false);
+        p.setJdbcInterceptors(ConnectionErrorTrap.class.getName() + "(" + WarmUpFeature.PROP_WARM_UP
+                + "=true," + WarmUpFeature.PROP_WARM_UP_CONCURRENCY + "=" + concurrency + ")");
+        dataSource = new DataSource(p);
+        dataSource.createPool();
+        return ConnectionErrorTrapContext.get(dataSource.getPool()).getWarmer();
+    }
+
+    @Test
+    public void warmUpFillsInitialSizeInParallel() throws SQLException {
+        script.connectLatency(HANDSHAKE);
+        PoolWarmer serial = startPool(1, "warmUpSerial");
+        assertEquals(SIZE, serial.getWarmedCount());
+        long serialDuration = serial.getDuration();
+        dataSource.close(true);
+        dataSource = null;
+
+        PoolWarmer parallel = startPool(SIZE, "warmUpParallel");
+        assertEquals(SIZE, parallel.getWarmedCount());
+        assertEquals(0, parallel.getFailureCount());
+        assertEquals(SIZE, dataSource.getPool().getSize());
+        assertEquals(SIZE, dataSource.getPool().getIdle());
+        assertTrue(parallel.getHandshakeMax() >= HANDSHAKE);
+        assertTrue(parallel.getHandshakeAverage() >= HANDSHAKE);
+        assertTrue(serialDuration >= SIZE * HANDSHAKE);
+        assertTrue("parallel:" + parallel.getDuration() + "ms serial:" + serialDuration + "ms",
+                parallel.getDuration() < serialDuration / 2);
+    }
+}
@@ -0,0 +1,110 @@
+package com.huan.tomcat.jdbc.loadtest;
+
+import com.huan.tomcat.jdbc.fault.FaultInjectingDataSource;
+import com.huan.tomcat.jdbc.fault.FaultInjectingDriver;
+import com.huan.tomcat.jdbc.fault.FaultScript;
+import com.huan.tomcat.jdbc.inteceptor.ConnectionErrorTrap;
+import com.huan.tomcat.jdbc.inteceptor.ConnectionErrorTrapContext;
+import com.huan.tomcat.jdbc.inteceptor.ResultSetTrapFeature;
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.PoolProperties;
+import org.junit.After;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ResultSetTrapTest {
+    private final FaultScript script = FaultInjectingDriver.script("resultset").reset();
+    private DataSource dataSource;
+
+    @After
+    public void close() {
+        script.reset();
+        if (dataSource != null) {
+            dataSource.close(true);
+        }
+    }
+
+    private DataSource createDataSource(boolean useWrapper, boolean trapResultSets, String database)
+            throws SQLException {
+        PoolProperties p = new PoolProperties();
+        p.setName("result-set-trap");
+        p.setDriverClassName("com.mysql.jdbc.Driver");
+        p.setDataSource(new FaultInjectingDataSource(
+                FaultInjectingDriver.url("resultset", "jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1")));
+        p.setInitialSize(1);
+        p.setMaxActive(1);
+        p.setJmxEnabled(false);
+        p.setJdbcInterceptors(ConnectionErrorTrap.class.getName() + "(" + ConnectionErrorTrap.PROP_USE_WRAPPER + "="
+                + useWrapper + "," + ResultSetTrapFeature.PROP_TRAP_RESULT_SETS + "=" + trapResultSets + ")");
+        dataSource = new DataSource(p);
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("create table customer (id int primary key, name varchar(64))");
+            statement.execute("insert into customer values (1, 'one'), (2, 'two')");
+        }
+        return dataSource;
+    }
+
+    /**
+     * the backend goes away while the result set is read
+     * @return discards of the pool afterwards
+     */
+    private long failWhileReading() throws SQLException {
+        ConnectionErrorTrapContext context = ConnectionErrorTrapContext.get(dataSource.getPool());
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.prepareStatement("select name from customer order by id");
+             ResultSet rs = ps.executeQuery()) {
+            assertTrue(rs.next());
+            script.backendDown(50);
+            rs.next();
+            fail("reading from a broken connection should fail");
+        } catch (SQLException expected) {
+            // raised by the result set
+        }
+        return context.getDiscardCount();
+    }
+
+    @Test
+    public void resultSetReadErrorDiscardsTheConnection() throws SQLException {
+        for (boolean useWrapper : new boolean[]{false, true}) {
+            createDataSource(useWrapper, true, "resultSet" + useWrapper);
+            assertEquals(1, failWhileReading());
+            assertEquals(0, dataSource.getPool().getSize());
+            script.reset();
+            dataSource.close(true);
+            dataSource = null;
+        }
+    }
+
+    @Test
+    public void withoutTrapResultSetsTheReadErrorIsMissed() throws SQLException {
+        createDataSource(true, false, "resultSetOff");
+        assertEquals(0, failWhileReading());
+        assertEquals(1, dataSource.getPool().getSize());
+    }
+
+    @Test
+    public void metadataErrorDiscardsTheConnection() throws SQLException {
+        createDataSource(true, true, "metadata");
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            script.backendDown(50);
+            metaData.getTables(null, null, "CUSTOMER", null).close();
+            fail("metadata of a broken connection should fail");
+        } catch (SQLException expected) {
+            // raised by the metadata
+        }
+        assertEquals(1, ConnectionErrorTrapContext.get(dataSource.getPool()).getDiscardCount());
+        assertEquals(0, dataSource.getPool().getSize());
+    }
+}
@@ -0,0 +1,124 @@
+package com.huan.tomcat.jdbc.loadtest;
+
+import com.huan.tomcat.jdbc.fault.FaultInjectingDataSource;
+import com.huan.tomcat.jdbc.fault.FaultInjectingDriver;
+import com.huan.tomcat.jdbc.fault.FaultScript;
+import com.huan.tomcat.jdbc.fault.Faults;
+import com.huan.tomcat.jdbc.inteceptor.ConnectionErrorTrap;
+import com.huan.tomcat.jdbc.inteceptor.ConnectionErrorTrapContext;
+import com.huan.tomcat.jdbc.inteceptor.RetryBudget;
+import com.huan.tomcat.jdbc.inteceptor.RetryReadsFeature;
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.PoolProperties;
+import org.junit.After;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class RetryReadTest {
+    private final FaultScript script = FaultInjectingDriver.script("retry").reset();
+    private DataSource dataSource;
+
+    @After
+    public void close() {
+        script.reset();
+        if (dataSource != null) {
+            dataSource.close(true);
+        }
+    }
+
+    private DataSource createDataSource(boolean useWrapper, String database) throws SQLException {
+        PoolProperties p = new PoolProperties();
+        p.setName("retry-read");
+        p.setDriverClassName("com.mysql.jdbc.Driver");
+        p.setDataSource(new FaultInjectingDataSource(
+                FaultInjectingDriver.url("retry", "jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1")));
+        p.setInitialSize(1);
+        p.setMaxActive(1);
+        p.setJmxEnabled(false);
+        p.setJdbcInterceptors(ConnectionErrorTrap.class.getName() + "(" + ConnectionErrorTrap.PROP_USE_WRAPPER + "="
+                + useWrapper + "," + RetryReadsFeature.PROP_RETRY_READS + "=true)");
+        dataSource = new DataSource(p);
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("create table customer (id int primary key, name varchar(64))");
+            statement.execute("insert into customer values (1, 'one'), (2, 'two'), (3, 'three')");
+        }
+        return dataSource;
+    }
+
+    private static int count(ResultSet rs) throws SQLException {
+        int rows = 0;
+        while (rs.next()) {
+            rows++;
+        }
+        return rows;
+    }
+
+    /**
+     * the injected failure closes the driver statement and connection, the retry must not ask them
+     */
+    @Test
+    public void readIsRetriedWithTheSettingsOfTheApplication() throws SQLException {
+        for (boolean useWrapper : new boolean[]{false, true}) {
+            createDataSource(useWrapper, "retryRead" + useWrapper);
+            RetryBudget budget = ConnectionErrorTrapContext.get(dataSource.getPool()).getRetryBudget();
+            try (Connection connection = dataSource.getConnection();
+                 PreparedStatement ps = connection.prepareStatement("select name from customer where id >= ?")) {
+                ps.setFetchSize(10);
+                ps.setMaxRows(2);
+                ps.setQueryTimeout(5);
+                ps.setInt(1, 1);
+                script.closeOnFailure(true).failNext(1, Faults.communicationsLinkFailure());
+                try (ResultSet rs = ps.executeQuery()) {
+                    assertEquals(2, count(rs));
+                }
+                assertEquals(1, budget.getSuccessCount());
+                assertEquals(2, ps.getMaxRows());
+                assertEquals(10, ps.getFetchSize());
+                assertEquals(5, ps.getQueryTimeout());
+            }
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.setMaxRows(1);
+                script.closeOnFailure(true).failNext(1, Faults.communicationsLinkFailure());
+                try (ResultSet rs = statement.executeQuery("select name from customer")) {
+                    assertEquals(1, count(rs));
+                }
+                assertEquals(2, budget.getSuccessCount());
+                assertEquals(1, statement.getMaxRows());
+            }
+            dataSource.close(true);
+            dataSource = null;
+        }
+    }
+
+    @Test
+    public void readInATransactionIsNotRetried() throws SQLException {
+        for (boolean useWrapper : new boolean[]{false, true}) {
+            createDataSource(useWrapper, "retryTransaction" + useWrapper);
+            RetryBudget budget = ConnectionErrorTrapContext.get(dataSource.getPool()).getRetryBudget();
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(false);
+                try (Statement statement = connection.createStatement()) {
+                    script.closeOnFailure(true).failNext(1, Faults.communicationsLinkFailure());
+                    statement.executeQuery("select name from customer");
+                    fail("a read in a transaction must not be retried");
+                } catch (SQLException expected) {
+                    // not retried
+                }
+            }
+            assertEquals(0, budget.getRetryCount());
+            assertEquals(0, budget.getSuccessCount());
+            dataSource.close(true);
+            dataSource = null;
+        }
+    }
+}
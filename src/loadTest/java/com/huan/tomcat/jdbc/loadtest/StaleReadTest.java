@@ -0,0 +1,200 @@
+package com.huan.tomcat.jdbc.loadtest;
+
+import com.huan.sample.config.StaleReadInterceptor;
+import com.huan.tomcat.jdbc.fault.FaultInjectingDataSource;
+import com.huan.tomcat.jdbc.fault.FaultInjectingDriver;
+import com.huan.tomcat.jdbc.fault.FaultScript;
+import com.huan.tomcat.jdbc.fault.Faults;
+import com.huan.tomcat.jdbc.inteceptor.CircuitBreakerFeature;
+import com.huan.tomcat.jdbc.inteceptor.CircuitBreakerOpenException;
+import com.huan.tomcat.jdbc.inteceptor.ConnectionErrorTrap;
+import com.huan.tomcat.jdbc.stale.StaleResultCache;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.PoolProperties;
+import org.junit.After;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StaleReadTest {
+    private static final String POOL = "stale-read";
+    private static final long OUTAGE = 300;
+    private static final long OPEN_TIME = 600;
+
+    public interface CustomerMapper {
+        @Select("select name from customer where id = #{id}")
+        String findName(int id);
+
+        @Select("select name from customer order by id")
+        List<String> findNames();
+
+        @Select("select count(*) from customer")
+        int count();
+
+        @Update("update customer set name = #{name} where id = #{id}")
+        int rename(@Param("id") int id, @Param("name") String name);
+    }
+
+    private final FaultScript script = FaultInjectingDriver.script("stale").reset();
+    private final StaleResultCache cache = new StaleResultCache(16, 60000, POOL);
+    private DataSource dataSource;
+    private SqlSessionFactory sessionFactory;
+
+    @After
+    public void close() {
+        script.reset();
+        if (dataSource != null) {
+            dataSource.close(true);
+        }
+    }
+
+    private void createSessionFactory() throws SQLException {
+        PoolProperties p = new PoolProperties();
+        p.setName(POOL);
+        p.setDriverClassName("com.mysql.jdbc.Driver");
+        p.setDataSource(new FaultInjectingDataSource(
+                FaultInjectingDriver.url("stale", "jdbc:h2:mem:stale;DB_CLOSE_DELAY=-1")));
+        p.setInitialSize(1);
+        p.setMaxActive(1);
+        p.setJmxEnabled(false);
+        p.setJdbcInterceptors(ConnectionErrorTrap.class.getName() + "("
+                + CircuitBreakerFeature.PROP_BREAKER_THRESHOLD + "=2,"
+                + CircuitBreakerFeature.PROP_BREAKER_OPEN_TIME + "=" + OPEN_TIME + ")");
+        dataSource = new DataSource(p);
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("create table customer (id int primary key, name varchar(64))");
+            statement.execute("insert into customer values (1, 'one'), (2, 'two')");
+        }
+        Configuration configuration = new Configuration(
+                new Environment("stale", new JdbcTransactionFactory(), dataSource));
+        configuration.addMapper(CustomerMapper.class);
+        //count is not opted in
+        String namespace = CustomerMapper.class.getName();
+        configuration.addInterceptor(new StaleReadInterceptor(cache,
+                Arrays.asList(namespace + ".findName", namespace + ".findNames")));
+        sessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+    }
+
+    /**
+     * a session per call, so the local cache of MyBatis does not answer
+     */
+    private String findName(int id) {
+        try (SqlSession session = sessionFactory.openSession(true)) {
+            return session.getMapper(CustomerMapper.class).findName(id);
+        }
+    }
+
+    private List<String> findNames() {
+        try (SqlSession session = sessionFactory.openSession(true)) {
+            return session.getMapper(CustomerMapper.class).findNames();
+        }
+    }
+
+    private int count() {
+        try (SqlSession session = sessionFactory.openSession(true)) {
+            return session.getMapper(CustomerMapper.class).count();
+        }
+    }
+
+    private void rename(int id, String name) {
+        try (SqlSession session = sessionFactory.openSession(true)) {
+            session.getMapper(CustomerMapper.class).rename(id, name);
+        }
+    }
+
+    @Test
+    public void staleReadIsServedOnlyWhileTheBreakerIsOpen() throws Exception {
+        createSessionFactory();
+        assertEquals("one", findName(1));
+        //a healthy backend is always read
+        rename(1, "uno");
+        assertEquals("uno", findName(1));
+        findNames().clear();
+        assertEquals(2, count());
+        assertFalse(cache.isBackendDown(System.currentTimeMillis()));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+        assertEquals(2, cache.getSize());
+
+        //one fatal error, e.g. of a stale connection, does not flag the backend down
+        script.failNext(1, Faults.communicationsLinkFailure());
+        try {
+            findName(2);
+            fail("the injected error should be thrown");
+        } catch (PersistenceException expected) {
+            // fatal, counted by the breaker
+        }
+        assertFalse(cache.isBackendDown(System.currentTimeMillis()));
+
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            script.backendDown(OUTAGE);
+            statement.execute("select 1");
+            fail("the outage should break the connection");
+        } catch (SQLException expected) {
+            // fatal, opens the breaker
+        }
+        assertTrue(cache.isBackendDown(System.currentTimeMillis()));
+        assertEquals("uno", findName(1));
+        assertEquals(1, cache.getHitCount());
+        //served lists are copies
+        List<String> names = findNames();
+        assertEquals(Arrays.asList("uno", "two"), names);
+        names.clear();
+        assertEquals(Arrays.asList("uno", "two"), findNames());
+        assertEquals(3, cache.getHitCount());
+
+        //nothing to serve, the read goes to the dead pool
+        try {
+            findName(2);
+            fail("a read without a stale result should reach the backend");
+        } catch (PersistenceException expected) {
+            // rejected by the open breaker
+        }
+        assertEquals(1, cache.getMissCount());
+        //not opted in, never served stale
+        try {
+            count();
+            fail("a read that did not opt in should reach the backend");
+        } catch (PersistenceException expected) {
+            // rejected by the open breaker
+        }
+        assertEquals(1, cache.getMissCount());
+        try {
+            rename(1, "ein");
+            fail("a write should fail fast while the backend is down");
+        } catch (PersistenceException e) {
+            assertTrue(e.getCause() instanceof CircuitBreakerOpenException);
+        }
+        assertEquals(1, cache.getRejectedWriteCount());
+
+        //once the breaker is due for its probe, reads and writes go to the backend again and close it
+        Thread.sleep(OPEN_TIME + 100);
+        assertFalse(cache.isBackendDown(System.currentTimeMillis()));
+        rename(1, "eins");
+        assertEquals("eins", findName(1));
+        assertEquals(2, count());
+        assertEquals(3, cache.getHitCount());
+        assertEquals(1, cache.getRejectedWriteCount());
+    }
+}
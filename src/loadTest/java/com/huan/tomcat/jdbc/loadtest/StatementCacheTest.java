@@ -0,0 +1,150 @@
+package com.huan.tomcat.jdbc.loadtest;
+
+import com.huan.tomcat.jdbc.fault.FaultInjectingDataSource;
+import com.huan.tomcat.jdbc.fault.FaultInjectingDriver;
+import com.huan.tomcat.jdbc.fault.FaultScript;
+import com.huan.tomcat.jdbc.fault.Faults;
+import com.huan.tomcat.jdbc.inteceptor.ConnectionErrorTrap;
+import com.huan.tomcat.jdbc.inteceptor.ConnectionErrorTrapContext;
+import com.huan.tomcat.jdbc.inteceptor.StatementCacheFeature;
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.PoolProperties;
+import org.junit.After;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StatementCacheTest {
+    private static final String SELECT_BY_ID = "select name from customer where id = ?";
+    private static final String SELECT_BY_NAME = "select id from customer where name = ?";
+
+    private final FaultScript script = FaultInjectingDriver.script("cache").reset();
+    private DataSource dataSource;
+
+    @After
+    public void close() {
+        script.reset();
+        if (dataSource != null) {
+            dataSource.close(true);
+        }
+    }
+
+    private DataSource createDataSource(boolean useWrapper, String database) throws SQLException {
+        PoolProperties p = new PoolProperties();
+        p.setName("statement-cache");
+        p.setDriverClassName("com.mysql.jdbc.Driver");
+        p.setDataSource(new FaultInjectingDataSource(
+                FaultInjectingDriver.url("cache", "jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1")));
+        p.setInitialSize(1);
+        p.setMaxActive(1);
+        p.setJmxEnabled(false);
+        //the statement facade of the pool would hide a statement handed out twice
+        p.setUseStatementFacade(false);
+        p.setJdbcInterceptors(ConnectionErrorTrap.class.getName() + "(" + ConnectionErrorTrap.PROP_USE_WRAPPER + "="
+                + useWrapper + "," + StatementCacheFeature.PROP_STATEMENT_CACHE_SIZE + "=4)");
+        dataSource = new DataSource(p);
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("create table customer (id int primary key, name varchar(64))");
+            statement.execute("insert into customer values (1, 'one'), (2, 'two')");
+        }
+        return dataSource;
+    }
+
+    private static String select(PreparedStatement ps, int id) throws SQLException {
+        ps.setInt(1, id);
+        try (ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getString(1) : null;
+        }
+    }
+
+    @Test
+    public void closingAStatementTwiceDoesNotParkTheNextOne() throws SQLException {
+        for (boolean useWrapper : new boolean[]{false, true}) {
+            createDataSource(useWrapper, "cacheDoubleClose" + useWrapper);
+            ConnectionErrorTrapContext context = ConnectionErrorTrapContext.get(dataSource.getPool());
+            try (Connection connection = dataSource.getConnection()) {
+                PreparedStatement first = connection.prepareStatement(SELECT_BY_ID);
+                assertEquals("one", select(first, 1));
+                first.close();
+
+                PreparedStatement second = connection.prepareStatement(SELECT_BY_ID);
+                assertEquals(1, context.getStatementCacheHitCount());
+                assertNotSame(first, second);
+                assertTrue(first.isClosed());
+                assertFalse(second.isClosed());
+
+                //the old handle stays closed, its second close must not park the statement in use
+                first.close();
+                try {
+                    first.setInt(1, 1);
+                    fail("a closed statement must not be usable");
+                } catch (SQLException expected) {
+                    // closed
+                }
+                PreparedStatement third = connection.prepareStatement(SELECT_BY_ID);
+                assertEquals(1, context.getStatementCacheHitCount());
+                second.setInt(1, 2);
+                assertEquals("one", select(third, 1));
+                try (ResultSet rs = second.executeQuery()) {
+                    assertTrue(rs.next());
+                    assertEquals("two", rs.getString(1));
+                }
+                second.close();
+                third.close();
+            }
+            dataSource.close(true);
+            dataSource = null;
+        }
+    }
+
+    @Test
+    public void discardedConnectionDropsItsCachedStatements() throws SQLException {
+        for (boolean useWrapper : new boolean[]{false, true}) {
+            createDataSource(useWrapper, "cacheDiscard" + useWrapper);
+            ConnectionErrorTrapContext context = ConnectionErrorTrapContext.get(dataSource.getPool());
+            try (Connection connection = dataSource.getConnection()) {
+                connection.prepareStatement(SELECT_BY_ID).close();
+                connection.prepareStatement(SELECT_BY_NAME).close();
+                try (PreparedStatement ps = connection.prepareStatement(SELECT_BY_ID)) {
+                    assertEquals(1, context.getStatementCacheHitCount());
+                    script.failNext(1, Faults.communicationsLinkFailure());
+                    select(ps, 1);
+                    fail("the injected error should be thrown");
+                } catch (SQLException expected) {
+                    // fatal, the connection is discarded
+                }
+            }
+            assertEquals(1, context.getDiscardCount());
+
+            //the statement parked on the broken connection is not handed out on the new one
+            try (Connection connection = dataSource.getConnection()) {
+                try (PreparedStatement ps = connection.prepareStatement(SELECT_BY_NAME)) {
+                    assertEquals(1, context.getStatementCacheHitCount());
+                    assertEquals(3, context.getStatementCacheMissCount());
+                    ps.setString(1, "two");
+                    try (ResultSet rs = ps.executeQuery()) {
+                        assertTrue(rs.next());
+                        assertEquals(2, rs.getInt(1));
+                    }
+                }
+                //the cache works again on the new connection
+                connection.prepareStatement(SELECT_BY_NAME).close();
+                assertEquals(2, context.getStatementCacheHitCount());
+            }
+            script.reset();
+            dataSource.close(true);
+            dataSource = null;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.huan.tomcat.jdbc.loadtest;
+
+import com.huan.tomcat.jdbc.fault.FaultInjectingDataSource;
+import com.huan.tomcat.jdbc.fault.FaultInjectingDriver;
+import com.huan.tomcat.jdbc.fault.FaultScript;
+import com.huan.tomcat.jdbc.fault.Faults;
+import com.huan.tomcat.jdbc.inteceptor.ConnectionErrorTrap;
+import com.huan.tomcat.jdbc.inteceptor.ConnectionErrorTrapContext;
+import com.huan.tomcat.jdbc.inteceptor.SuspectValidationFeature;
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.PoolProperties;
+import org.apache.tomcat.jdbc.pool.Validator;
+import org.junit.After;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SuspectValidationTest {
+    private final FaultScript script = FaultInjectingDriver.script("suspect").reset();
+    private final CountingValidator validator = new CountingValidator();
+    private DataSource dataSource;
+
+    @After
+    public void close() {
+        script.reset();
+        if (dataSource != null) {
+            dataSource.close(true);
+        }
+    }
+
+    /**
+     * counts the validations of the trap, the pool itself validates nothing with the default properties
+     */
+    public static class CountingValidator implements Validator {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public boolean validate(Connection connection, int validateAction) {
+            count.incrementAndGet();
+            try {
+                return connection.isValid(0);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        public int getCount() {
+            return count.get();
+        }
+    }
+
+    private DataSource createDataSource(boolean useWrapper, String mode, String database) {
+        PoolProperties p = new PoolProperties();
+        p.setName("suspect-validation");
+        p.setDriverClassName("com.mysql.jdbc.Driver");
+        p.setDataSource(new FaultInjectingDataSource(
+                FaultInjectingDriver.url("suspect", "jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1")));
+        p.setInitialSize(1);
+        p.setMaxActive(1);
+        p.setJmxEnabled(false);
+        p.setValidator(validator);
+        p.setJdbcInterceptors(ConnectionErrorTrap.class.getName() + "(" + ConnectionErrorTrap.PROP_USE_WRAPPER + "="
+                + useWrapper + "," + SuspectValidationFeature.PROP_SUSPECT_VALIDATION + "=" + mode + ")");
+        dataSource = new DataSource(p);
+        return dataSource;
+    }
+
+    private static void failWithLockWaitTimeout(Statement statement) {
+        try {
+            statement.execute("select 1");
+            fail("the injected error should be thrown");
+        } catch (SQLException expected) {
+            // suspect, not fatal
+        }
+    }
+
+    private boolean awaitIdle(long timeout) throws InterruptedException {
+        long end = System.currentTimeMillis() + timeout;
+        while (dataSource.getPool().getIdle() == 0 && dataSource.getPool().getSize() > 0) {
+            if (System.currentTimeMillis() > end) {
+                return false;
+            }
+            Thread.sleep(5);
+        }
+        return true;
+    }
+
+    @Test
+    public void suspectConnectionIsValidatedOnceOnReturn() throws SQLException {
+        for (boolean useWrapper : new boolean[]{false, true}) {
+            createDataSource(useWrapper, SuspectValidationFeature.SUSPECT_VALIDATION_RETURN, "suspect" + useWrapper);
+            ConnectionErrorTrapContext context = ConnectionErrorTrapContext.get(dataSource.getPool());
+            int before = validator.getCount();
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                script.failNext(2, Faults.lockWaitTimeout());
+                failWithLockWaitTimeout(statement);
+                failWithLockWaitTimeout(statement);
+                statement.execute("select 1");
+                assertEquals(before, validator.getCount());
+            }
+            assertEquals(before + 1, validator.getCount());
+            assertEquals(1, context.getSuspectCount());
+            assertEquals(0, context.getSuspectDiscardCount());
+            assertEquals(1, dataSource.getPool().getIdle());
+
+            //a healthy connection is never validated
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute("select 1");
+            }
+            assertEquals(before + 1, validator.getCount());
+            dataSource.close(true);
+            dataSource = null;
+        }
+    }
+
+    @Test
+    public void suspectConnectionFailingValidationIsDiscarded() throws SQLException {
+        createDataSource(true, SuspectValidationFeature.SUSPECT_VALIDATION_RETURN, "suspectDiscard");
+        ConnectionErrorTrapContext context = ConnectionErrorTrapContext.get(dataSource.getPool());
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            script.failNext(1, Faults.lockWaitTimeout());
+            failWithLockWaitTimeout(statement);
+            //the connection is gone by the time it is returned
+            script.backendDown(100);
+        }
+        assertEquals(1, context.getSuspectDiscardCount());
+        assertEquals(0, dataSource.getPool().getSize());
+    }
+
+    @Test
+    public void asyncValidationReturnsTheConnectionAfterValidating() throws Exception {
+        createDataSource(true, SuspectValidationFeature.SUSPECT_VALIDATION_ASYNC, "suspectAsync");
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            script.failNext(1, Faults.lockWaitTimeout());
+            failWithLockWaitTimeout(statement);
+        }
+        assertTrue("the validated connection should be returned", awaitIdle(5000));
+        assertEquals(1, validator.getCount());
+        assertEquals(1, dataSource.getPool().getIdle());
+    }
+}
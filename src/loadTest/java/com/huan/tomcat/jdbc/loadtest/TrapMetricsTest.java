@@ -0,0 +1,127 @@
+package com.huan.tomcat.jdbc.loadtest;
+
+import com.huan.tomcat.jdbc.fault.FaultInjectingDataSource;
+import com.huan.tomcat.jdbc.fault.FaultInjectingDriver;
+import com.huan.tomcat.jdbc.fault.FaultScript;
+import com.huan.tomcat.jdbc.fault.Faults;
+import com.huan.tomcat.jdbc.inteceptor.CircuitBreakerFeature;
+import com.huan.tomcat.jdbc.inteceptor.ConnectionErrorTrap;
+import com.huan.tomcat.jdbc.inteceptor.ConnectionErrorTrapContext;
+import com.huan.tomcat.jdbc.inteceptor.StatisticsFeature;
+import com.huan.tomcat.jdbc.metrics.TrapMetrics;
+import com.huan.tomcat.jdbc.metrics.TrapMetricsCollector;
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.PoolProperties;
+import org.junit.After;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TrapMetricsTest {
+    private final FaultScript script = FaultInjectingDriver.script("metrics").reset();
+    private final TrapMetricsCollector collector = new TrapMetricsCollector();
+    private DataSource dataSource;
+
+    @After
+    public void close() {
+        script.reset();
+        if (dataSource != null) {
+            dataSource.close(true);
+        }
+    }
+
+    private DataSource createDataSource(String name) {
+        PoolProperties p = new PoolProperties();
+        p.setName(name);
+        p.setDriverClassName("com.mysql.jdbc.Driver");
+        p.setDataSource(new FaultInjectingDataSource(
+                FaultInjectingDriver.url("metrics", "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1")));
+        p.setInitialSize(2);
+        p.setMaxActive(2);
+        p.setJmxEnabled(false);
+        p.setJdbcInterceptors(ConnectionErrorTrap.class.getName() + "(" + CircuitBreakerFeature.PROP_BREAKER_THRESHOLD
+                + "=10," + StatisticsFeature.PROP_STATISTICS + "=true)");
+        dataSource = new DataSource(p);
+        return dataSource;
+    }
+
+    private void select() {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.executeQuery("select 1").close();
+        } catch (SQLException expected) {
+            // counted by the trap
+        }
+    }
+
+    private TrapMetrics find(long id) {
+        for (TrapMetrics metrics : collector.collect()) {
+            if (metrics.getId() == id) {
+                return metrics;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void snapshotCountsTheFatalErrorsOfThePool() {
+        createDataSource("metricsPool");
+        long id = ConnectionErrorTrapContext.get(dataSource.getPool()).getId();
+        select();
+        TrapMetrics metrics = find(id);
+        assertNotNull(metrics);
+        assertEquals(0, metrics.getDiscardCount());
+        assertEquals(0, metrics.getFatalSize());
+        assertEquals("CLOSED", metrics.getCircuitBreakerState());
+        assertEquals(1, metrics.getStatisticsSize());
+
+        script.failNext(2, Faults.communicationsLinkFailure());
+        select();
+        select();
+        script.failNext(1, Faults.vendorCode(1040));
+        select();
+        metrics = find(id);
+        assertEquals(3, metrics.getDiscardCount());
+        assertTrue(metrics.getLastDiscard() > 0);
+        assertEquals(2, metrics.getFatalSize());
+        long communications = 0;
+        long tooManyConnections = 0;
+        for (int i = 0; i < metrics.getFatalSize(); i++) {
+            if ("08S01".equals(metrics.getFatalSqlState(i))) {
+                communications = metrics.getFatalCount(i);
+            } else if (metrics.getFatalErrorCode(i) == 1040) {
+                tooManyConnections = metrics.getFatalCount(i);
+            }
+        }
+        assertEquals(2, communications);
+        assertEquals(1, tooManyConnections);
+    }
+
+    @Test
+    public void renderedTextCarriesThePoolLabels() {
+        createDataSource("metricsRender");
+        long id = ConnectionErrorTrapContext.get(dataSource.getPool()).getId();
+        script.failNext(1, Faults.communicationsLinkFailure());
+        select();
+        String labels = "{pool=\"metricsRender\",id=\"" + id + "\"";
+        String text = collector.renderPrometheus();
+        assertTrue(text, text.contains("tomcat_jdbc_trap_discards_total" + labels + "} 1\n"));
+        assertTrue(text, text.contains("tomcat_jdbc_trap_fatal_errors_total" + labels + ",sqlstate=\"08S01\""));
+        assertTrue(text, text.contains("tomcat_jdbc_trap_circuit_breaker_state" + labels + ",state=\"CLOSED\"} 1\n"));
+        String json = collector.renderJson();
+        assertTrue(json, json.contains("{\"name\":\"metricsRender\",\"id\":" + id + ","));
+        assertTrue(json, json.contains("\"discardCount\":1,"));
+
+        //a closed pool leaves the snapshots
+        dataSource.close(true);
+        dataSource = null;
+        assertNull(find(id));
+    }
+}
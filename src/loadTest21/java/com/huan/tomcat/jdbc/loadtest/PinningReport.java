@@ -0,0 +1,79 @@
+package com.huan.tomcat.jdbc.loadtest;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author edenhuan
+ * {@link FailoverReport} of a run plus the jdk.VirtualThreadPinned events recorded during it. Pins
+ * with a frame of the interceptor or vendor packages on their stack are counted apart: those are
+ * ours, the others belong to the driver or the pool.
+ */
+public class PinningReport {
+    static final String[] TRAP_PACKAGES = {
+            "com.huan.tomcat.jdbc.inteceptor.",
+            "com.huan.tomcat.jdbc.vendor.",
+    };
+
+    private final FailoverReport report;
+    private final int pinned;
+    private final List<RecordedEvent> trapPinned = new ArrayList<>();
+
+    public PinningReport(FailoverReport report, List<RecordedEvent> pinned) {
+        this.report = report;
+        this.pinned = pinned.size();
+        for (RecordedEvent event : pinned) {
+            if (isTrapFrameOnStack(event)) {
+                trapPinned.add(event);
+            }
+        }
+    }
+
+    static boolean isTrapFrameOnStack(RecordedEvent event) {
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        if (stackTrace == null) {
+            return false;
+        }
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            String type = frame.getMethod().getType().getName();
+            for (String prefix : TRAP_PACKAGES) {
+                if (type.startsWith(prefix)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public static String header() {
+        return FailoverReport.header() + String.format(" %8s %8s", "pinned", "trapPin");
+    }
+
+    public FailoverReport getReport() {
+        return report;
+    }
+
+    public int getPinned() {
+        return pinned;
+    }
+
+    public int getTrapPinned() {
+        return trapPinned.size();
+    }
+
+    /**
+     * stack of the first pin in the trap, empty if none
+     */
+    public String getFirstTrapPin() {
+        return trapPinned.isEmpty() ? "" : trapPinned.get(0).toString();
+    }
+
+    @Override
+    public String toString() {
+        return report + String.format(" %8d %8d", pinned, trapPinned.size());
+    }
+}
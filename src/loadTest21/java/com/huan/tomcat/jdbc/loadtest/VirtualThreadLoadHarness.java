@@ -0,0 +1,98 @@
+package com.huan.tomcat.jdbc.loadtest;
+
+import com.huan.tomcat.jdbc.inteceptor.AdaptiveValidationFeature;
+import com.huan.tomcat.jdbc.inteceptor.ConnectionErrorTrap;
+import com.huan.tomcat.jdbc.inteceptor.ConnectionErrorTrapJmx;
+import com.huan.tomcat.jdbc.inteceptor.PurgeFeature;
+import com.huan.tomcat.jdbc.inteceptor.RefillFeature;
+import com.huan.tomcat.jdbc.inteceptor.ResultSetTrapFeature;
+import com.huan.tomcat.jdbc.inteceptor.StatisticsFeature;
+import com.huan.tomcat.jdbc.inteceptor.SuspectValidationFeature;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * @author edenhuan
+ * {@link FailoverLoadHarness} on Java 21: thousands of request threads, virtual or platform, share a
+ * small pool with the trap and most of its options enabled while the backend goes down once, so the
+ * statement, discard, purge, refill and notification paths all run. Every statement sleeps in the
+ * fault injecting driver; a monitor of the trap held across it would pin the carrier thread, which
+ * JFR reports as jdk.VirtualThreadPinned.
+ * Run with gradle virtualThreadBenchmark -Pjava21Home=[jdk 21], or [threads] [seconds] as arguments.
+ */
+public class VirtualThreadLoadHarness extends FailoverLoadHarness {
+    static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    static final String INTERCEPTORS = ConnectionErrorTrapJmx.class.getName() + "("
+            + ConnectionErrorTrap.PROP_USE_WRAPPER + "=true,"
+            + PurgeFeature.PROP_PURGE_ON_FATAL + "=true,"
+            + RefillFeature.PROP_REFILL + "=true,"
+            + StatisticsFeature.PROP_STATISTICS + "=true,"
+            + ResultSetTrapFeature.PROP_TRAP_RESULT_SETS + "=true,"
+            + AdaptiveValidationFeature.PROP_ADAPTIVE_VALIDATION + "=true,"
+            + SuspectValidationFeature.PROP_SUSPECT_VALIDATION + "="
+            + SuspectValidationFeature.SUSPECT_VALIDATION_ASYNC + ")";
+
+    private final ThreadFactory threadFactory;
+
+    public VirtualThreadLoadHarness(ThreadFactory threadFactory) {
+        this.threadFactory = threadFactory;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        long duration = args.length > 1 ? Long.parseLong(args[1]) * 1000 : 10000;
+        List<PinningReport> reports = new ArrayList<>();
+        reports.add(new VirtualThreadLoadHarness(Thread.ofPlatform().daemon().factory())
+                .runRecorded(scenario("platform", threads, duration)));
+        reports.add(new VirtualThreadLoadHarness(Thread.ofVirtual().factory())
+                .runRecorded(scenario("virtual", threads, duration)));
+        System.out.println(PinningReport.header());
+        for (PinningReport report : reports) {
+            System.out.println(report);
+        }
+        for (PinningReport report : reports) {
+            if (report.getTrapPinned() > 0) {
+                System.out.println(report.getFirstTrapPin());
+            }
+        }
+    }
+
+    static FailoverScenario scenario(String name, int threads, long duration) {
+        return new FailoverScenario(name, INTERCEPTORS)
+                .setThreads(threads)
+                .setMaxActive(64)
+                .setLatency(2)
+                .setDuration(duration)
+                .setOutageAt(duration * 3 / 10)
+                .setOutageDuration(Math.min(1000, duration / 5));
+    }
+
+    /**
+     * {@link #run(FailoverScenario)} under a JFR stream recording every pin, whatever its duration
+     */
+    public PinningReport runRecorded(FailoverScenario scenario) throws Exception {
+        List<RecordedEvent> pinned = new CopyOnWriteArrayList<>();
+        try (RecordingStream stream = new RecordingStream()) {
+            stream.enable(PINNED_EVENT).withoutThreshold().withStackTrace();
+            stream.onEvent(PINNED_EVENT, pinned::add);
+            stream.startAsync();
+            FailoverReport report = run(scenario);
+            //flushes and waits until the recorded events are consumed
+            stream.stop();
+            return new PinningReport(report, pinned);
+        }
+    }
+
+    @Override
+    protected Thread newThread(Runnable worker, String name) {
+        Thread thread = threadFactory.newThread(worker);
+        thread.setName(name);
+        return thread;
+    }
+}
@@ -0,0 +1,56 @@
+package com.huan.tomcat.jdbc.loadtest;
+
+import com.huan.tomcat.jdbc.inteceptor.TrapScheduler;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class VirtualThreadLoadHarnessTest {
+
+    @Test
+    public void trapDoesNotPinVirtualThreads() throws Exception {
+        PinningReport report = new VirtualThreadLoadHarness(Thread.ofVirtual().factory())
+                .runRecorded(VirtualThreadLoadHarness.scenario("virtual", 1000, 4000));
+        assertTrue(report.toString(), report.getReport().getRequests() > report.getReport().getFailed());
+        assertTrue(report.toString(), report.getReport().getFailed() > 0);
+        assertEquals(report.getFirstTrapPin(), 0, report.getTrapPinned());
+    }
+
+    @Test
+    public void everyTrapTaskGetsAVirtualThread() throws Exception {
+        int tasks = 64;
+        CountDownLatch started = new CountDownLatch(tasks);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger platform = new AtomicInteger();
+        for (int i = 0; i < tasks; i++) {
+            TrapScheduler.execute(() -> {
+                if (!Thread.currentThread().isVirtual()) {
+                    platform.incrementAndGet();
+                }
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        //blocked tasks do not hold back the others
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        release.countDown();
+        CountDownLatch scheduled = new CountDownLatch(1);
+        TrapScheduler.schedule(() -> {
+            if (!Thread.currentThread().isVirtual()) {
+                platform.incrementAndGet();
+            }
+            scheduled.countDown();
+        }, 10, TimeUnit.MILLISECONDS);
+        assertTrue(scheduled.await(10, TimeUnit.SECONDS));
+        assertEquals(0, platform.get());
+    }
+}
@@ -0,0 +1,33 @@
+package com.huan.sample.config;
+
+import com.huan.tomcat.jdbc.stale.StaleResultCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+/**
+ * Degraded reads: mapped selects are served stale while the circuit breaker of the pool is open, see
+ * {@link StaleReadInterceptor}. The pool needs breakerThreshold>0, stale-read.statements lists the
+ * statement ids or mapper namespaces whose selects may be served stale.
+ * The MyBatis auto configuration registers every Interceptor bean.
+ */
+@Configuration
+@ConditionalOnProperty(name = "stale-read.enabled", havingValue = "true")
+public class StaleReadConfig {
+
+    @Bean
+    public StaleResultCache staleResultCache(@Value("${stale-read.max-size:10000}") int maxSize,
+                                             @Value("${stale-read.max-age:600000}") long maxAge,
+                                             @Value("${stale-read.pool-name:#{null}}") String poolName) {
+        return new StaleResultCache(maxSize, maxAge, poolName);
+    }
+
+    @Bean
+    public StaleReadInterceptor staleReadInterceptor(StaleResultCache staleResultCache,
+                                                     @Value("${stale-read.statements:}") String statements) {
+        return new StaleReadInterceptor(staleResultCache,
+                StringUtils.commaDelimitedListToSet(StringUtils.trimAllWhitespace(statements)));
+    }
+}
@@ -0,0 +1,126 @@
+package com.huan.sample.config;
+
+import com.huan.tomcat.jdbc.inteceptor.CircuitBreakerOpenException;
+import com.huan.tomcat.jdbc.stale.StaleResultCache;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * MyBatis plugin serving mapped selects from a {@link StaleResultCache} while the circuit breaker of
+ * ConnectionErrorTrap is open, instead of queueing on a dead pool. Only the selects of the statements and
+ * mapper namespaces that opted in are kept, and none read inside a Spring transaction. Every successful
+ * select of them refreshes the cache, one failing while the backend is down falls back to it too. Other
+ * selects cost a map lookup. Writes fail fast with {@link CircuitBreakerOpenException} while the backend
+ * is down.
+ */
+@Intercepts({
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class})
+})
+public class StaleReadInterceptor implements Interceptor {
+    private final StaleResultCache cache;
+    /**
+     * ids of the statements and namespaces of the mappers that opted in
+     */
+    private final Set<String> statements;
+    private final ConcurrentHashMap<String, Boolean> optedIn = new ConcurrentHashMap<>();
+
+    /**
+     * @param statements  ids of the selects to keep, or namespaces of the mappers whose selects are all kept
+     */
+    public StaleReadInterceptor(StaleResultCache cache, Collection<String> statements) {
+        this.cache = cache;
+        this.statements = new HashSet<>(statements);
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Object[] args = invocation.getArgs();
+        MappedStatement ms = (MappedStatement) args[0];
+        if (ms.getSqlCommandType() != SqlCommandType.SELECT) {
+            if (cache.isBackendDown(System.currentTimeMillis())) {
+                cache.incrementRejectedWriteCount();
+                throw new CircuitBreakerOpenException("Backend is down, " + ms.getId() + " not executed.");
+            }
+            return invocation.proceed();
+        }
+        if (args[3] != Executor.NO_RESULT_HANDLER || !isOptedIn(ms)
+                || TransactionSynchronizationManager.isActualTransactionActive()) {
+            //results streamed to a handler, of statements that did not opt in or read in a transaction are not kept
+            return invocation.proceed();
+        }
+        Executor executor = (Executor) invocation.getTarget();
+        BoundSql boundSql = ms.getBoundSql(args[1]);
+        CacheKey key = executor.createCacheKey(ms, args[1], (RowBounds) args[2], boundSql);
+        long now = System.currentTimeMillis();
+        boolean down = cache.isBackendDown(now);
+        if (down) {
+            Object stale = cache.get(key, now);
+            if (stale != null) {
+                return stale;
+            }
+        }
+        Object result;
+        try {
+            result = invocation.proceed();
+        } catch (Throwable t) {
+            now = System.currentTimeMillis();
+            //a read that already missed is not looked up twice
+            if (!down && cache.isBackendDown(now)) {
+                Object stale = cache.get(key, now);
+                if (stale != null) {
+                    return stale;
+                }
+            }
+            throw t;
+        }
+        cache.put(key, result, System.currentTimeMillis());
+        return result;
+    }
+
+    /**
+     * Return true if the statement or its mapper opted in, decided once per statement
+     */
+    protected boolean isOptedIn(MappedStatement ms) {
+        String id = ms.getId();
+        Boolean opted = optedIn.get(id);
+        if (opted == null) {
+            int dot = id.lastIndexOf('.');
+            opted = statements.contains(id) || dot > 0 && statements.contains(id.substring(0, dot));
+            optedIn.put(id, opted);
+        }
+        return opted;
+    }
+
+    @Override
+    public Object plugin(Object target) {
+        return target instanceof Executor ? Plugin.wrap(target, this) : target;
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+        //configured by StaleReadConfig
+    }
+
+    public StaleResultCache getCache() {
+        return cache;
+    }
+}
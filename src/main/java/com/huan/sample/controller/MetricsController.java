@@ -0,0 +1,34 @@
+package com.huan.sample.controller;
+
+import com.huan.tomcat.jdbc.metrics.TrapMetricsCollector;
+import com.huan.tomcat.jdbc.metrics.TrapMetricsRenderer;
+import com.huan.tomcat.jdbc.stale.StaleResultCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+
+@RestController
+@RequestMapping("/metrics")
+public class MetricsController {
+    @Autowired(required = false)
+    private StaleResultCache staleResultCache;
+
+    @GetMapping(produces = TrapMetricsRenderer.PROMETHEUS_CONTENT_TYPE)
+    public String prometheus() {
+        String text = TrapMetricsCollector.getDefault().renderPrometheus();
+        if (staleResultCache == null) {
+            return text;
+        }
+        StringBuilder sb = new StringBuilder(text);
+        TrapMetricsRenderer.writeStaleCache("mybatis", staleResultCache, sb);
+        return sb.toString();
+    }
+
+    @GetMapping(path = "/json", produces = MediaType.APPLICATION_JSON_VALUE)
+    public String json() {
+        return TrapMetricsCollector.getDefault().renderJson();
+    }
+}
@@ -0,0 +1,99 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author edenhuan
+ * Query timeout of a SQL derived from its own latency: multiplier times its p99, within
+ * [minTimeout, maxTimeout] seconds. SQL with fewer than minSamples executions get maxTimeout.
+ * The timeout is cached on the {@link QueryStats} and recomputed at most once per second, so
+ * applying it costs a volatile read per execution.
+ */
+public class AdaptiveTimeout {
+    static final long REFRESH = 1000;
+
+    private final double multiplier;
+    private final int minTimeout;
+    private final int maxTimeout;
+    private final long minSamples;
+
+    private final LongAdder timeoutCount = new LongAdder();
+
+    public AdaptiveTimeout(double multiplier, int minTimeout, int maxTimeout, long minSamples) {
+        if (minTimeout <= 0 || maxTimeout < minTimeout) {
+            throw new IllegalArgumentException("invalid timeout range:" + minTimeout + "-" + maxTimeout);
+        }
+        this.multiplier = multiplier;
+        this.minTimeout = minTimeout;
+        this.maxTimeout = maxTimeout;
+        this.minSamples = minSamples;
+    }
+
+    /**
+     * @param stats  statistics of the SQL, null if it never ran
+     * @param now    current time in milliseconds
+     * @return the query timeout in seconds
+     */
+    public int getTimeout(QueryStats stats, long now) {
+        if (stats == null) {
+            return maxTimeout;
+        }
+        if (now - stats.getTimeoutUpdated() < REFRESH) {
+            return stats.getTimeout();
+        }
+        int timeout;
+        if (stats.getCount() < minSamples) {
+            timeout = maxTimeout;
+        } else {
+            double seconds = Math.ceil(stats.getPercentileMicros(0.99) * multiplier / 1000000);
+            timeout = (int) Math.min(maxTimeout, Math.max(minTimeout, seconds));
+        }
+        stats.setTimeout(timeout, now);
+        return timeout;
+    }
+
+    /**
+     * Return true if the error is a query timeout: SQLTimeoutException, SQLState HYT00/HYT01, or the
+     * MySQL query interrupted state 70100
+     */
+    public static boolean isTimeout(Throwable t) {
+        SQLException e = DiscardEvent.toSQLException(t);
+        if (e == null) {
+            return false;
+        }
+        if (e instanceof SQLTimeoutException) {
+            return true;
+        }
+        String state = e.getSQLState();
+        return "HYT00".equals(state) || "HYT01".equals(state) || "70100".equals(state);
+    }
+
+    public void incrementTimeoutCount() {
+        timeoutCount.increment();
+    }
+
+    /**
+     * executions that failed with a query timeout
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+
+    public double getMultiplier() {
+        return multiplier;
+    }
+
+    public int getMinTimeout() {
+        return minTimeout;
+    }
+
+    public int getMaxTimeout() {
+        return maxTimeout;
+    }
+
+    public long getMinSamples() {
+        return minSamples;
+    }
+}
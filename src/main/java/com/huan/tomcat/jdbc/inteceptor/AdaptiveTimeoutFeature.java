@@ -0,0 +1,115 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import org.apache.tomcat.jdbc.pool.ConnectionPool;
+import org.apache.tomcat.jdbc.pool.PoolProperties.InterceptorProperty;
+
+import java.util.Map;
+
+/**
+ * @author edenhuan
+ * With adaptiveTimeout=true each execute call gets a query timeout of adaptiveTimeoutMultiplier times
+ * the p99 latency of its SQL, between adaptiveTimeoutMin and adaptiveTimeoutMax seconds, SQL with fewer
+ * than adaptiveTimeoutMinSamples executions get adaptiveTimeoutMax (see {@link AdaptiveTimeout}). A
+ * timeout set by the application is an upper bound. Statistics are collected even if statistics=false.
+ * A timed out connection is suspect, it is validated when returned.
+ */
+public class AdaptiveTimeoutFeature implements TrapFeature {
+    public static final String PROP_ADAPTIVE_TIMEOUT = "adaptiveTimeout";
+    public static final String PROP_ADAPTIVE_TIMEOUT_MULTIPLIER = "adaptiveTimeoutMultiplier";
+    public static final String PROP_ADAPTIVE_TIMEOUT_MIN = "adaptiveTimeoutMin";
+    public static final String PROP_ADAPTIVE_TIMEOUT_MAX = "adaptiveTimeoutMax";
+    public static final String PROP_ADAPTIVE_TIMEOUT_MIN_SAMPLES = "adaptiveTimeoutMinSamples";
+
+    /**
+     * creates the statistics the timeouts are derived from
+     */
+    protected final StatisticsFeature statistics;
+    protected boolean adaptiveTimeout = false;
+    protected double adaptiveTimeoutMultiplier = 5;
+    /**
+     * bounds of the adaptive query timeout in seconds
+     */
+    protected int adaptiveTimeoutMin = 1;
+    protected int adaptiveTimeoutMax = 300;
+    protected int adaptiveTimeoutMinSamples = 100;
+
+    public AdaptiveTimeoutFeature(StatisticsFeature statistics) {
+        this.statistics = statistics;
+    }
+
+    @Override
+    public void setProperties(Map<String, InterceptorProperty> properties) {
+        InterceptorProperty p = properties.get(PROP_ADAPTIVE_TIMEOUT);
+        if (p != null) {
+            setAdaptiveTimeout(p.getValueAsBoolean(false));
+        }
+        p = properties.get(PROP_ADAPTIVE_TIMEOUT_MULTIPLIER);
+        if (p != null) {
+            setAdaptiveTimeoutMultiplier(p.getValueAsDouble(adaptiveTimeoutMultiplier));
+        }
+        p = properties.get(PROP_ADAPTIVE_TIMEOUT_MIN);
+        if (p != null) {
+            setAdaptiveTimeoutMin(p.getValueAsInt(adaptiveTimeoutMin));
+        }
+        p = properties.get(PROP_ADAPTIVE_TIMEOUT_MAX);
+        if (p != null) {
+            setAdaptiveTimeoutMax(p.getValueAsInt(adaptiveTimeoutMax));
+        }
+        p = properties.get(PROP_ADAPTIVE_TIMEOUT_MIN_SAMPLES);
+        if (p != null) {
+            setAdaptiveTimeoutMinSamples(p.getValueAsInt(adaptiveTimeoutMinSamples));
+        }
+    }
+
+    @Override
+    public void poolStarted(ConnectionPool pool, ConnectionErrorTrapContext context) {
+        if (!adaptiveTimeout) {
+            return;
+        }
+        statistics.startStatistics(context);
+        if (context.getAdaptiveTimeout() == null) {
+            context.setAdaptiveTimeout(new AdaptiveTimeout(adaptiveTimeoutMultiplier, adaptiveTimeoutMin,
+                    adaptiveTimeoutMax, adaptiveTimeoutMinSamples));
+        }
+    }
+
+    public boolean isAdaptiveTimeout() {
+        return adaptiveTimeout;
+    }
+
+    public void setAdaptiveTimeout(boolean adaptiveTimeout) {
+        this.adaptiveTimeout = adaptiveTimeout;
+    }
+
+    public double getAdaptiveTimeoutMultiplier() {
+        return adaptiveTimeoutMultiplier;
+    }
+
+    public void setAdaptiveTimeoutMultiplier(double adaptiveTimeoutMultiplier) {
+        this.adaptiveTimeoutMultiplier = adaptiveTimeoutMultiplier;
+    }
+
+    public int getAdaptiveTimeoutMin() {
+        return adaptiveTimeoutMin;
+    }
+
+    public void setAdaptiveTimeoutMin(int adaptiveTimeoutMin) {
+        this.adaptiveTimeoutMin = adaptiveTimeoutMin;
+    }
+
+    public int getAdaptiveTimeoutMax() {
+        return adaptiveTimeoutMax;
+    }
+
+    public void setAdaptiveTimeoutMax(int adaptiveTimeoutMax) {
+        this.adaptiveTimeoutMax = adaptiveTimeoutMax;
+    }
+
+    public int getAdaptiveTimeoutMinSamples() {
+        return adaptiveTimeoutMinSamples;
+    }
+
+    public void setAdaptiveTimeoutMinSamples(int adaptiveTimeoutMinSamples) {
+        this.adaptiveTimeoutMinSamples = adaptiveTimeoutMinSamples;
+    }
+}
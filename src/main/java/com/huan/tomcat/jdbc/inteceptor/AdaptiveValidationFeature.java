@@ -0,0 +1,50 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import org.apache.tomcat.jdbc.pool.PoolProperties.InterceptorProperty;
+
+import java.util.Map;
+
+/**
+ * @author edenhuan
+ * With adaptiveValidation=true borrowed connections are validated only within adaptiveValidationWindow
+ * milliseconds after a fatal error of the pool, less often the longer ago the error was, see
+ * {@link ConnectionErrorTrap#validateOnBorrow}. Without errors no validation query is sent at all.
+ */
+public class AdaptiveValidationFeature implements TrapFeature {
+    public static final String PROP_ADAPTIVE_VALIDATION = "adaptiveValidation";
+    public static final String PROP_ADAPTIVE_VALIDATION_WINDOW = "adaptiveValidationWindow";
+
+    protected boolean adaptiveValidation = false;
+    /**
+     * milliseconds after the last fatal error during which borrowed connections may be validated
+     */
+    protected long adaptiveValidationWindow = 60000;
+
+    @Override
+    public void setProperties(Map<String, InterceptorProperty> properties) {
+        InterceptorProperty p = properties.get(PROP_ADAPTIVE_VALIDATION);
+        if (p != null) {
+            setAdaptiveValidation(p.getValueAsBoolean(false));
+        }
+        p = properties.get(PROP_ADAPTIVE_VALIDATION_WINDOW);
+        if (p != null) {
+            setAdaptiveValidationWindow(p.getValueAsLong(adaptiveValidationWindow));
+        }
+    }
+
+    public boolean isAdaptiveValidation() {
+        return adaptiveValidation;
+    }
+
+    public void setAdaptiveValidation(boolean adaptiveValidation) {
+        this.adaptiveValidation = adaptiveValidation;
+    }
+
+    public long getAdaptiveValidationWindow() {
+        return adaptiveValidationWindow;
+    }
+
+    public void setAdaptiveValidationWindow(long adaptiveValidationWindow) {
+        this.adaptiveValidationWindow = adaptiveValidationWindow;
+    }
+}
@@ -0,0 +1,47 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import org.apache.tomcat.jdbc.pool.PoolProperties.InterceptorProperty;
+
+import java.util.Map;
+
+/**
+ * @author edenhuan
+ * With asyncEvents=true discards are logged and notified by the {@link DiscardEventDispatcher} instead of
+ * the request thread. Discards of the same pool/SQLState/errorCode within eventWindow milliseconds are
+ * coalesced: the first is reported with its stack trace, the others as one summary when the window ends.
+ */
+public class AsyncEventsFeature implements TrapFeature {
+    public static final String PROP_ASYNC_EVENTS = "asyncEvents";
+    public static final String PROP_EVENT_WINDOW = "eventWindow";
+
+    protected boolean asyncEvents = false;
+    protected long eventWindow = 5000;
+
+    @Override
+    public void setProperties(Map<String, InterceptorProperty> properties) {
+        InterceptorProperty p = properties.get(PROP_ASYNC_EVENTS);
+        if (p != null) {
+            setAsyncEvents(p.getValueAsBoolean(false));
+        }
+        p = properties.get(PROP_EVENT_WINDOW);
+        if (p != null) {
+            setEventWindow(p.getValueAsLong(eventWindow));
+        }
+    }
+
+    public boolean isAsyncEvents() {
+        return asyncEvents;
+    }
+
+    public void setAsyncEvents(boolean asyncEvents) {
+        this.asyncEvents = asyncEvents;
+    }
+
+    public long getEventWindow() {
+        return eventWindow;
+    }
+
+    public void setEventWindow(long eventWindow) {
+        this.eventWindow = eventWindow;
+    }
+}
@@ -0,0 +1,108 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+/**
+ * @author edenhuan
+ * Rows added to the batch of a statement with batchChunkSize>0, kept by the trap instead of the driver
+ * so {@link ConnectionErrorTrap#executeBatch} can hand them to the driver chunk by chunk. A row of a
+ * prepared statement is a copy of its {@link StatementParameters}, the rows stored back to back in the
+ * typed arrays of one StatementParameters with the end of each row in a second array; a row of a plain
+ * statement is its SQL. The arrays only grow and are
+ * kept after the batch was executed, a statement batching again allocates nothing.
+ * A row with a parameter that can not be bound twice (streams, LOBs) switches the buffer to pass
+ * through: the buffered rows go to the driver and the batch is executed in one piece as without the
+ * buffer. Used by the thread owning the statement only.
+ */
+public class BatchBuffer {
+    private final StatementParameters columns = new StatementParameters(64);
+    private int[] ends = new int[16];
+    private String[] sqls;
+    private int rows;
+    private boolean passThrough;
+
+    /**
+     * Add the parameters currently bound to a prepared statement as a row
+     * @return false if a parameter can not be bound again, the row is not added
+     */
+    public boolean add(StatementParameters parameters) {
+        if (!parameters.isReplayable()) {
+            return false;
+        }
+        parameters.copyTo(columns);
+        if (rows == ends.length) {
+            ends = Arrays.copyOf(ends, rows * 2);
+        }
+        ends[rows++] = columns.getSize();
+        return true;
+    }
+
+    /**
+     * Add the SQL of a plain statement as a row
+     * @return true
+     */
+    public boolean add(String sql) {
+        if (sqls == null) {
+            sqls = new String[16];
+        } else if (rows == sqls.length) {
+            sqls = Arrays.copyOf(sqls, rows * 2);
+        }
+        sqls[rows++] = sql;
+        return true;
+    }
+
+    /**
+     * Add the rows from index from to index to to the batch of the driver statement
+     */
+    public void bind(Statement statement, int from, int to) throws SQLException {
+        if (sqls != null) {
+            for (int row = from; row < to; row++) {
+                statement.addBatch(sqls[row]);
+            }
+            return;
+        }
+        PreparedStatement ps = (PreparedStatement) statement;
+        for (int row = from; row < to; row++) {
+            columns.bind(ps, row > 0 ? ends[row - 1] : 0, ends[row]);
+            ps.addBatch();
+        }
+    }
+
+    /**
+     * Hand the buffered rows to the driver statement, further rows of this batch go straight to the driver
+     */
+    public void passThrough(Statement statement) throws SQLException {
+        try {
+            bind(statement, 0, rows);
+        } finally {
+            clear();
+            passThrough = true;
+        }
+    }
+
+    public boolean isPassThrough() {
+        return passThrough;
+    }
+
+    /**
+     * number of buffered rows
+     */
+    public int size() {
+        return rows;
+    }
+
+    /**
+     * Forget the batch, the arrays are kept for the next one
+     */
+    public void clear() {
+        columns.clear();
+        if (sqls != null) {
+            Arrays.fill(sqls, 0, rows, null);
+        }
+        rows = 0;
+        passThrough = false;
+    }
+}
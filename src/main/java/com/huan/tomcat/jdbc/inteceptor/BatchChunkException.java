@@ -0,0 +1,98 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+
+/**
+ * @author edenhuan
+ * Thrown by executeBatch with batchChunkSize>0 when a chunk of the batch failed. The update counts are
+ * the ones of the chunks executed before, so getUpdateCounts().length is the index of the first row
+ * that has to be executed again; the rows of the failed chunk may be partly applied, what the driver
+ * reported for them is in {@link #getFailedChunkUpdateCounts()}. The chunks before
+ * are committed if the connection was in auto-commit mode, otherwise they belong to the transaction,
+ * which is lost if the connection was discarded. The error of the driver is the cause and the next
+ * exception, SQLState and error code are copied from it.
+ */
+public class BatchChunkException extends BatchUpdateException {
+    private static final long serialVersionUID = 1L;
+
+    private final int chunkSize;
+    private final int failedChunk;
+    private final int resumeIndex;
+    private final boolean committed;
+    private final boolean discarded;
+    private final long[] failedChunkUpdateCounts;
+
+    public BatchChunkException(long[] updateCounts, int chunkSize, int failedChunk, boolean committed,
+                               boolean discarded, SQLException cause) {
+        super("Chunk " + failedChunk + " of a batch failed, the " + updateCounts.length + " rows of the chunks before"
+                        + (committed ? " are committed" : discarded ? " are rolled back" : " are not committed")
+                        + ": " + cause.getMessage(),
+                cause.getSQLState(), cause.getErrorCode(), updateCounts, cause);
+        this.chunkSize = chunkSize;
+        this.failedChunk = failedChunk;
+        this.resumeIndex = updateCounts.length;
+        this.committed = committed;
+        this.discarded = discarded;
+        this.failedChunkUpdateCounts = getUpdateCounts(cause);
+        setNextException(cause);
+    }
+
+    private static long[] getUpdateCounts(SQLException cause) {
+        if (!(cause instanceof BatchUpdateException)) {
+            return new long[0];
+        }
+        BatchUpdateException e = (BatchUpdateException) cause;
+        long[] counts = e.getLargeUpdateCounts();
+        if (counts != null) {
+            return counts;
+        }
+        int[] small = e.getUpdateCounts();
+        counts = new long[small != null ? small.length : 0];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = small[i];
+        }
+        return counts;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * index of the chunk that failed, also the number of chunks executed before
+     */
+    public int getFailedChunk() {
+        return failedChunk;
+    }
+
+    /**
+     * index of the first row not executed by a successful chunk, where a retry on a fresh connection resumes
+     */
+    public int getResumeIndex() {
+        return resumeIndex;
+    }
+
+    /**
+     * Update counts the driver reported for the rows of the failed chunk, in the order of the rows starting
+     * at {@link #getResumeIndex()}: the rows it executed before stopping, or every row with
+     * Statement.EXECUTE_FAILED for the failed ones if it went on. Empty if the driver gave none.
+     */
+    public long[] getFailedChunkUpdateCounts() {
+        return failedChunkUpdateCounts.clone();
+    }
+
+    /**
+     * true if the chunks before the failed one were executed in auto-commit mode
+     */
+    public boolean isCommitted() {
+        return committed;
+    }
+
+    /**
+     * true if the failure discarded the connection
+     */
+    public boolean isDiscarded() {
+        return discarded;
+    }
+}
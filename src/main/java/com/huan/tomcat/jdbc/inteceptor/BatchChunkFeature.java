@@ -0,0 +1,42 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import org.apache.tomcat.jdbc.pool.PoolProperties.InterceptorProperty;
+
+import java.util.Map;
+
+/**
+ * @author edenhuan
+ * With batchChunkSize&gt;0 addBatch rows of plain and prepared statements are kept in a {@link BatchBuffer}
+ * and executeBatch hands them to the driver batchChunkSize rows at a time. A failed chunk raises a
+ * {@link BatchChunkException} holding the update counts of the chunks executed before, so the application
+ * can resume after them on a fresh connection. Parameters of prepared statements are then recorded on
+ * every set call. 0 hands executeBatch to the driver as it is.
+ */
+public class BatchChunkFeature implements TrapFeature {
+    public static final String PROP_BATCH_CHUNK_SIZE = "batchChunkSize";
+
+    /**
+     * rows of a batch executed at once, 0 disables chunking
+     */
+    protected int batchChunkSize = 0;
+
+    @Override
+    public void setProperties(Map<String, InterceptorProperty> properties) {
+        InterceptorProperty p = properties.get(PROP_BATCH_CHUNK_SIZE);
+        if (p != null) {
+            setBatchChunkSize(p.getValueAsInt(batchChunkSize));
+        }
+    }
+
+    public boolean isBatchChunking() {
+        return batchChunkSize > 0;
+    }
+
+    public int getBatchChunkSize() {
+        return batchChunkSize;
+    }
+
+    public void setBatchChunkSize(int batchChunkSize) {
+        this.batchChunkSize = batchChunkSize;
+    }
+}
@@ -0,0 +1,151 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author edenhuan
+ * Lock free circuit breaker of one pool. Opens after threshold fatal errors within window
+ * milliseconds, stays open for openTime milliseconds, then lets a single probe decide whether
+ * to close again.
+ */
+public class CircuitBreaker {
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * breakers of all pools that are not closed, never below the real number: a pool closed while its
+     * breaker is open leaves it counted
+     */
+    private static final AtomicInteger notClosedCount = new AtomicInteger(0);
+
+    private final int threshold;
+    private final long window;
+    private final long openTime;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicLong windowStart = new AtomicLong(0);
+    private final AtomicInteger windowCount = new AtomicInteger(0);
+    private volatile long openedAt;
+    private volatile long lastTransition;
+
+    private final LongAdder openCount = new LongAdder();
+    private final LongAdder closeCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+
+    public CircuitBreaker(int threshold, long window, long openTime) {
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("threshold must be positive:" + threshold);
+        }
+        this.threshold = threshold;
+        this.window = window;
+        this.openTime = openTime;
+    }
+
+    public boolean isClosed() {
+        return state.get() == State.CLOSED;
+    }
+
+    /**
+     * @return true while statements are rejected: open and not due for the half-open probe yet, or probing
+     */
+    public boolean isRejecting(long now) {
+        State current = state.get();
+        return current == State.HALF_OPEN || current == State.OPEN && now - openedAt < openTime;
+    }
+
+    /**
+     * @return false if the breaker of every pool is closed, a cheap check before looking at the pools
+     */
+    public static boolean isAnyNotClosed() {
+        return notClosedCount.get() > 0;
+    }
+
+    /**
+     * Count a fatal verdict, open the breaker when the threshold is reached within the window
+     * @return true if this call opened the breaker
+     */
+    public boolean recordFatal(long now) {
+        if (state.get() != State.CLOSED) {
+            return false;
+        }
+        long start = windowStart.get();
+        if (now - start > window && windowStart.compareAndSet(start, now)) {
+            windowCount.set(0);
+        }
+        if (windowCount.incrementAndGet() >= threshold && state.compareAndSet(State.CLOSED, State.OPEN)) {
+            openedAt = now;
+            lastTransition = now;
+            openCount.increment();
+            notClosedCount.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Return true if the caller won the single half-open probe and must report it with {@link #endProbe}
+     */
+    public boolean tryStartProbe(long now) {
+        if (state.get() == State.OPEN && now - openedAt >= openTime
+                && state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+            lastTransition = now;
+            return true;
+        }
+        return false;
+    }
+
+    public void endProbe(boolean success, long now) {
+        if (success) {
+            windowCount.set(0);
+            windowStart.set(now);
+            if (state.compareAndSet(State.HALF_OPEN, State.CLOSED)) {
+                closeCount.increment();
+                notClosedCount.decrementAndGet();
+            }
+        } else {
+            openedAt = now;
+            state.compareAndSet(State.HALF_OPEN, State.OPEN);
+        }
+        lastTransition = now;
+    }
+
+    public void reject() {
+        rejectedCount.increment();
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public long getWindow() {
+        return window;
+    }
+
+    public long getOpenTime() {
+        return openTime;
+    }
+
+    public long getLastTransition() {
+        return lastTransition;
+    }
+
+    public long getOpenCount() {
+        return openCount.sum();
+    }
+
+    public long getCloseCount() {
+        return closeCount.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+}
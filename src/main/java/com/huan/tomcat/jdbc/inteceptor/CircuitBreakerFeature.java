@@ -0,0 +1,72 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import org.apache.tomcat.jdbc.pool.ConnectionPool;
+import org.apache.tomcat.jdbc.pool.PoolProperties.InterceptorProperty;
+
+import java.util.Map;
+
+/**
+ * @author edenhuan
+ * With breakerThreshold>0 a {@link CircuitBreaker} opens after that many fatal errors within
+ * breakerWindow milliseconds, statements then fail with {@link CircuitBreakerOpenException} for
+ * breakerOpenTime milliseconds until a single validation probe succeeds.
+ */
+public class CircuitBreakerFeature implements TrapFeature {
+    public static final String PROP_BREAKER_THRESHOLD = "breakerThreshold";
+    public static final String PROP_BREAKER_WINDOW = "breakerWindow";
+    public static final String PROP_BREAKER_OPEN_TIME = "breakerOpenTime";
+
+    /**
+     * fatal errors within breakerWindow that open the circuit breaker, 0 disables it
+     */
+    protected int breakerThreshold = 0;
+    protected long breakerWindow = 10000;
+    protected long breakerOpenTime = 30000;
+
+    @Override
+    public void setProperties(Map<String, InterceptorProperty> properties) {
+        InterceptorProperty p = properties.get(PROP_BREAKER_THRESHOLD);
+        if (p != null) {
+            setBreakerThreshold(p.getValueAsInt(breakerThreshold));
+        }
+        p = properties.get(PROP_BREAKER_WINDOW);
+        if (p != null) {
+            setBreakerWindow(p.getValueAsLong(breakerWindow));
+        }
+        p = properties.get(PROP_BREAKER_OPEN_TIME);
+        if (p != null) {
+            setBreakerOpenTime(p.getValueAsLong(breakerOpenTime));
+        }
+    }
+
+    @Override
+    public void poolStarted(ConnectionPool pool, ConnectionErrorTrapContext context) {
+        if (breakerThreshold > 0 && context.getCircuitBreaker() == null) {
+            context.setCircuitBreaker(new CircuitBreaker(breakerThreshold, breakerWindow, breakerOpenTime));
+        }
+    }
+
+    public int getBreakerThreshold() {
+        return breakerThreshold;
+    }
+
+    public void setBreakerThreshold(int breakerThreshold) {
+        this.breakerThreshold = breakerThreshold;
+    }
+
+    public long getBreakerWindow() {
+        return breakerWindow;
+    }
+
+    public void setBreakerWindow(long breakerWindow) {
+        this.breakerWindow = breakerWindow;
+    }
+
+    public long getBreakerOpenTime() {
+        return breakerOpenTime;
+    }
+
+    public void setBreakerOpenTime(long breakerOpenTime) {
+        this.breakerOpenTime = breakerOpenTime;
+    }
+}
@@ -0,0 +1,15 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import java.sql.SQLException;
+
+/**
+ * @author edenhuan
+ * Thrown instead of executing a statement while the circuit breaker of the pool is open.
+ */
+public class CircuitBreakerOpenException extends SQLException {
+    private static final long serialVersionUID = 1L;
+
+    public CircuitBreakerOpenException(String reason) {
+        super(reason);
+    }
+}
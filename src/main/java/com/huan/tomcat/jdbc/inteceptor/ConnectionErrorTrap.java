@@ -1,47 +1,264 @@
 package com.huan.tomcat.jdbc.inteceptor;
 
-import com.huan.test.logback.vendor.ExceptionSorter;
-import com.huan.test.logback.vendor.ExceptionSorterManager;
+import com.huan.tomcat.jdbc.journal.DiscardJournal;
+import com.huan.tomcat.jdbc.vendor.ExceptionSorter;
 import org.apache.juli.logging.Log;
 import org.apache.juli.logging.LogFactory;
 import org.apache.tomcat.jdbc.pool.ConnectionPool;
+import org.apache.tomcat.jdbc.pool.PoolProperties.InterceptorProperty;
 import org.apache.tomcat.jdbc.pool.PooledConnection;
 import org.apache.tomcat.jdbc.pool.interceptor.AbstractCreateStatementInterceptor;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Map;
-import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * @author edenhuan
  * Connection error trap interceptor. Release connection when sql execute error.
+ * Whether an error is fatal is decided by the {@link ExceptionSorter} of the pool, picked once per pool
+ * by {@link com.huan.tomcat.jdbc.vendor.ExceptionSorterManager} from the driver class name or the url,
+ * or set with exceptionSorter=&lt;class name&gt;.
+ * The settings of the trap itself are described at their fields. Optional features read their own
+ * properties and create the components they need when the pool starts, see the implementations of
+ * {@link TrapFeature}: {@link CircuitBreakerFeature}, {@link RefillFeature}, {@link StatisticsFeature},
+ * {@link HostTrackingFeature}, {@link AdaptiveTimeoutFeature}, {@link StatementCacheFeature},
+ * {@link RetryReadsFeature}, {@link JournalFeature}, {@link RecycleFeature}, {@link PurgeFeature},
+ * {@link AsyncEventsFeature}, {@link SuspectValidationFeature}, {@link AdaptiveValidationFeature},
+ * {@link ResultSetTrapFeature}, {@link BatchChunkFeature} and {@link WarmUpFeature}.
  */
 public class ConnectionErrorTrap extends AbstractCreateStatementInterceptor {
+    public static final String PROP_USE_WRAPPER = "useWrapper";
+    public static final String PROP_EXCEPTION_SORTER = "exceptionSorter";
+
+    protected static final String SET_AUTO_COMMIT = "setAutoCommit";
+
+    protected final CircuitBreakerFeature breakerFeature = new CircuitBreakerFeature();
+    protected final RefillFeature refillFeature = new RefillFeature();
+    protected final StatisticsFeature statisticsFeature = new StatisticsFeature();
+    protected final HostTrackingFeature hostFeature = new HostTrackingFeature();
+    protected final AdaptiveTimeoutFeature timeoutFeature = new AdaptiveTimeoutFeature(statisticsFeature);
+    protected final StatementCacheFeature cacheFeature = new StatementCacheFeature();
+    protected final RetryReadsFeature retryFeature = new RetryReadsFeature();
+    protected final JournalFeature journalFeature = new JournalFeature();
+    protected final RecycleFeature recycleFeature = new RecycleFeature();
+    protected final PurgeFeature purgeFeature = new PurgeFeature();
+    protected final AsyncEventsFeature eventsFeature = new AsyncEventsFeature();
+    protected final SuspectValidationFeature suspectFeature = new SuspectValidationFeature();
+    protected final AdaptiveValidationFeature validationFeature = new AdaptiveValidationFeature();
+    protected final ResultSetTrapFeature resultSetFeature = new ResultSetTrapFeature();
+    protected final BatchChunkFeature batchFeature = new BatchChunkFeature();
+    protected final WarmUpFeature warmUpFeature = new WarmUpFeature();
+    /**
+     * features in the order their components are created in poolStarted, the warm-up last
+     */
+    protected final TrapFeature[] features = {breakerFeature, refillFeature, statisticsFeature, hostFeature,
+            timeoutFeature, cacheFeature, retryFeature, journalFeature, recycleFeature, purgeFeature,
+            eventsFeature, suspectFeature, validationFeature, resultSetFeature, batchFeature, warmUpFeature};
+
     protected PooledConnection con;
     protected ConnectionPool pool;
+    protected ConnectionErrorTrapContext context;
+    /**
+     * wrap statements by {@link TrapStatement} and its subclasses instead of reflective proxies
+     */
+    protected boolean useWrapper = false;
+    /**
+     * class name of the exception sorter, null to pick it by driver class name or url
+     */
+    protected String exceptionSorter;
+    /**
+     * statement cache of the connection, interceptors stay with their connection
+     */
+    protected TrapStatementCache statementCache;
+    /**
+     * when the connection should be recycled, 0 if not known yet
+     */
+    protected long recycleAt;
+    /**
+     * lastConnected of the connection recycleAt was drawn for
+     */
+    protected long recycleConnected;
+    /**
+     * backend host of the connection when it was borrowed, null if not tracked
+     */
+    protected String host;
+    /**
+     * the connection raised a suspect error since it was borrowed
+     */
+    protected volatile boolean suspect = false;
+    /**
+     * auto-commit mode of the connection, kept up to date by setAutoCommit and read when the first retryable
+     * statement of a borrow is created, null if not known
+     */
+    protected Boolean autoCommit;
 
     private static final Log log = LogFactory.getLog(ConnectionErrorTrap.class);
 
-    protected static final Map<ConnectionPool, LongAdder> counts = new HashMap<>();
-
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (suspect && compare(CLOSE_VAL, method)) {
+            return closeSuspect(proxy, method, args);
+        }
+        if (recycleAt > 0 && compare(CLOSE_VAL, method) && System.currentTimeMillis() >= recycleAt
+                && closeExpired(proxy, method, args)) {
+            return null;
+        }
+        TrapStatementCache.Key key = statementCache != null ? getCacheKey(method, args) : null;
+        if (key != null) {
+            Statement cached = checkoutStatement(key);
+            if (cached != null) {
+                //a fresh wrapper, the one closed by the application stays closed
+                Object statement = createStatement(proxy, method, args, cached, 0);
+                setCacheKey(statement, key);
+                return statement;
+            }
+        }
+        Object result;
         try {
-            return super.invoke(proxy, method, args);
+            result = super.invoke(proxy, method, args);
         } catch (Throwable t) {
-            if (checkIfNeedDiscardConnection(t)) {
-                setConnectionDiscard();
-            }
+            trapThrowable(t);
             throw t;
         }
+        if (args != null && args.length == 1 && compare(SET_AUTO_COMMIT, method)) {
+            autoCommit = (Boolean) args[0];
+        }
+        if (key != null) {
+            setCacheKey(result, key);
+        }
+        if (resultSetFeature.isTrapResultSets() && result instanceof DatabaseMetaData) {
+            return new TrapDatabaseMetaData(this, (DatabaseMetaData) result, (Connection) proxy);
+        }
+        return result;
+    }
+
+    /**
+     * Wrap a result set so its errors reach the trap, returns it as is when trapResultSets is off
+     * @param statement  statement the result set reports, null for the driver's one
+     */
+    protected ResultSet wrapResultSet(ResultSet resultSet, Statement statement) {
+        if (!resultSetFeature.isTrapResultSets() || resultSet == null || resultSet instanceof TrapResultSet) {
+            return resultSet;
+        }
+        return new TrapResultSet(this, resultSet, statement);
+    }
+
+    @Override
+    public void setProperties(Map<String, InterceptorProperty> properties) {
+        super.setProperties(properties);
+        InterceptorProperty p = properties.get(PROP_USE_WRAPPER);
+        if (p != null) {
+            setUseWrapper(p.getValueAsBoolean(false));
+        }
+        p = properties.get(PROP_EXCEPTION_SORTER);
+        if (p != null) {
+            setExceptionSorter(p.getValue());
+        }
+        for (TrapFeature feature : features) {
+            feature.setProperties(properties);
+        }
+    }
+
+    public boolean isUseWrapper() {
+        return useWrapper;
+    }
+
+    public void setUseWrapper(boolean useWrapper) {
+        this.useWrapper = useWrapper;
+    }
+
+    public String getExceptionSorter() {
+        return exceptionSorter;
+    }
+
+    public void setExceptionSorter(String exceptionSorter) {
+        this.exceptionSorter = exceptionSorter != null && !exceptionSorter.trim().isEmpty()
+                ? exceptionSorter.trim() : null;
+    }
+
+    public CircuitBreakerFeature getBreakerFeature() {
+        return breakerFeature;
+    }
+
+    public RefillFeature getRefillFeature() {
+        return refillFeature;
+    }
+
+    public StatisticsFeature getStatisticsFeature() {
+        return statisticsFeature;
+    }
+
+    public HostTrackingFeature getHostFeature() {
+        return hostFeature;
+    }
+
+    public AdaptiveTimeoutFeature getTimeoutFeature() {
+        return timeoutFeature;
+    }
+
+    public StatementCacheFeature getCacheFeature() {
+        return cacheFeature;
+    }
+
+    public RetryReadsFeature getRetryFeature() {
+        return retryFeature;
+    }
+
+    public JournalFeature getJournalFeature() {
+        return journalFeature;
+    }
+
+    public RecycleFeature getRecycleFeature() {
+        return recycleFeature;
+    }
+
+    public PurgeFeature getPurgeFeature() {
+        return purgeFeature;
+    }
+
+    public AsyncEventsFeature getEventsFeature() {
+        return eventsFeature;
+    }
+
+    public SuspectValidationFeature getSuspectFeature() {
+        return suspectFeature;
+    }
+
+    public AdaptiveValidationFeature getValidationFeature() {
+        return validationFeature;
+    }
+
+    public ResultSetTrapFeature getResultSetFeature() {
+        return resultSetFeature;
+    }
+
+    public BatchChunkFeature getBatchFeature() {
+        return batchFeature;
+    }
+
+    public WarmUpFeature getWarmUpFeature() {
+        return warmUpFeature;
+    }
+
+    public boolean isAdaptiveTimeout() {
+        return timeoutFeature.isAdaptiveTimeout();
+    }
+
+    public TrapStatementCache getStatementCache() {
+        return statementCache;
     }
 
     /**
@@ -51,6 +268,9 @@ public class ConnectionErrorTrap extends AbstractCreateStatementInterceptor {
     public Object createStatement(Object proxy, Method method, Object[] args, Object statement, long time) {
         try {
             String name = method.getName();
+            if (useWrapper) {
+                return createWrapper(name, args, statement);
+            }
             Constructor<?> constructor = null;
             String sql = null;
             if (compare(CREATE_STATEMENT, name)) {
@@ -68,13 +288,264 @@ public class ConnectionErrorTrap extends AbstractCreateStatementInterceptor {
                 // do nothing
                 return statement;
             }
-            return constructor.newInstance(new Object[]{new ConnectionErrorTrap.StatementProxy(statement, sql)});
+            ConnectionErrorTrap.StatementProxy handler = new ConnectionErrorTrap.StatementProxy(statement, sql);
+            handler.settings = getRetrySettings(name, args, statement);
+            if (handler.settings != null && sql != null) {
+                handler.parameters = new StatementParameters();
+            }
+            if (batchFeature.isBatchChunking() && !compare(PREPARE_CALL, name)) {
+                handler.batching = true;
+                if (sql != null && handler.parameters == null) {
+                    handler.parameters = new StatementParameters();
+                }
+            }
+            return constructor.newInstance(new Object[]{handler});
         } catch (Exception x) {
             log.warn("Unable to create statement proxy.", x);
         }
         return statement;
     }
 
+    /**
+     * Wrap the statement with a delegating statement, no reflection is involved afterwards.
+     */
+    protected Object createWrapper(String name, Object[] args, Object statement) {
+        if (compare(CREATE_STATEMENT, name)) {
+            TrapStatement wrapper = new TrapStatement(this, (Statement) statement, null);
+            wrapper.setRetrySettings(getRetrySettings(name, args, statement));
+            wrapper.setBatching(batchFeature.isBatchChunking());
+            return wrapper;
+        } else if (compare(PREPARE_STATEMENT, name)) {
+            TrapPreparedStatement wrapper = new TrapPreparedStatement(this, (PreparedStatement) statement,
+                    (String) args[0]);
+            wrapper.setRetrySettings(getRetrySettings(name, args, statement));
+            wrapper.setBatching(batchFeature.isBatchChunking());
+            return wrapper;
+        } else if (compare(PREPARE_CALL, name)) {
+            return new TrapCallableStatement(this, (CallableStatement) statement, (String) args[0]);
+        }
+        return statement;
+    }
+
+    /**
+     * @return key of a prepareStatement/prepareCall call the statement cache handles, null for other calls
+     * and for the variants with holdability or generated keys
+     */
+    protected TrapStatementCache.Key getCacheKey(Method method, Object[] args) {
+        String name = method.getName();
+        boolean call = compare(PREPARE_CALL, name);
+        if (!call && !compare(PREPARE_STATEMENT, name)) {
+            return null;
+        }
+        if (args == null || !(args[0] instanceof String)) {
+            return null;
+        }
+        if (args.length == 1) {
+            return new TrapStatementCache.Key(call, (String) args[0], ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+        }
+        if (args.length == 3 && args[1] instanceof Integer && args[2] instanceof Integer) {
+            return new TrapStatementCache.Key(call, (String) args[0], (Integer) args[1], (Integer) args[2]);
+        }
+        return null;
+    }
+
+    /**
+     * @return the cached driver statement, null on a miss
+     */
+    protected Statement checkoutStatement(TrapStatementCache.Key key) {
+        PooledConnection con = this.con;
+        ConnectionErrorTrapContext context = this.context;
+        if (con == null || context == null) {
+            return null;
+        }
+        TrapStatementCache.Entry entry = statementCache.checkout(key, con.getConnection());
+        if (entry == null) {
+            context.incrementStatementCacheMissCount();
+            return null;
+        }
+        context.incrementStatementCacheHitCount();
+        return entry.getStatement();
+    }
+
+    protected void setCacheKey(Object statement, TrapStatementCache.Key key) {
+        if (statement instanceof TrapStatement) {
+            ((TrapStatement) statement).setCacheKey(key);
+        } else if (statement != null && Proxy.isProxyClass(statement.getClass())
+                && Proxy.getInvocationHandler(statement) instanceof StatementProxy) {
+            ((StatementProxy) Proxy.getInvocationHandler(statement)).cacheKey = key;
+        }
+    }
+
+    /**
+     * The application closes a cacheable statement: clear it and park the driver statement in the statement
+     * cache, the wrapper stays closed
+     * @param timeout  query timeout state of the wrapper, null if the trap never set a timeout on it
+     * @return false if it must be closed instead
+     */
+    protected boolean parkStatement(TrapStatementCache.Key key, Statement statement, StatementTimeout timeout) {
+        TrapStatementCache cache = this.statementCache;
+        PooledConnection con = this.con;
+        ConnectionErrorTrapContext context = this.context;
+        if (cache == null || con == null || context == null) {
+            return false;
+        }
+        if (con.isDiscarded()) {
+            cache.invalidate();
+            return false;
+        }
+        try {
+            ResultSet resultSet = statement.getResultSet();
+            if (resultSet != null) {
+                resultSet.close();
+            }
+            ((PreparedStatement) statement).clearParameters();
+            statement.clearBatch();
+            if (timeout != null && timeout.getApplied() != 0) {
+                //the next wrapper takes the timeout of the driver statement as the one the application set
+                statement.setQueryTimeout(0);
+            }
+        } catch (SQLException x) {
+            return false;
+        }
+        TrapStatementCache.Entry entry = new TrapStatementCache.Entry(key, statement);
+        TrapStatementCache.Entry evicted = cache.checkin(entry, con.getConnection());
+        if (evicted == entry) {
+            return false;
+        }
+        if (evicted != null) {
+            context.incrementStatementCacheEvictionCount();
+            try {
+                evicted.getStatement().close();
+            } catch (SQLException x) {
+                log.debug("Unable to close an evicted cached statement.", x);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true for createStatement() and prepareStatement(sql) of a read when retryReads is on, the
+     * statement can then be created again on a reconnected connection
+     */
+    protected boolean isRetryable(String name, Object[] args) {
+        if (!retryFeature.isRetryReads()) {
+            return false;
+        }
+        if (compare(CREATE_STATEMENT, name)) {
+            return args == null || args.length == 0;
+        }
+        return compare(PREPARE_STATEMENT, name) && args != null && args.length == 1
+                && RetryBudget.isRead((String) args[0]);
+    }
+
+    /**
+     * @return the settings of a new statement whose failed reads may be retried, null if they may not: retryReads
+     * is off, the call is not createStatement() or prepareStatement(sql) of a read, or the settings can not be
+     * read. The auto-commit mode of the connection is read too if it is not known yet.
+     */
+    protected StatementSettings getRetrySettings(String name, Object[] args, Object statement) {
+        PooledConnection con = this.con;
+        if (!isRetryable(name, args) || con == null || !(statement instanceof Statement)) {
+            return null;
+        }
+        try {
+            if (autoCommit == null) {
+                autoCommit = con.getConnection().getAutoCommit();
+            }
+            return StatementSettings.read((Statement) statement);
+        } catch (SQLException | RuntimeException x) {
+            log.debug("Unable to read the settings of a new statement, its reads are not retried.", x);
+            return null;
+        }
+    }
+
+    /**
+     * Called after the fatal error of a read on a retryable statement. If the SQL is a plain SELECT, the
+     * connection is in auto-commit mode, the circuit breaker is closed and the retry budget allows it,
+     * reconnect the pooled connection and create the statement again on it with the same settings and
+     * parameters. Nothing is asked from the failed driver statement or connection, drivers close them on
+     * a communications failure.
+     * @param sql         SQL executed
+     * @param query       SQL of a prepared statement, null for a plain statement
+     * @param parameters  parameters bound to the prepared statement
+     * @param settings    fetch size, max rows and query timeout the application set
+     * @return the new driver statement to execute the read once more, null if it is not retried
+     */
+    protected Statement retryRead(String sql, String query, StatementParameters parameters,
+                                  StatementSettings settings) {
+        ConnectionErrorTrapContext context = this.context;
+        RetryBudget budget = context != null ? context.getRetryBudget() : null;
+        PooledConnection con = this.con;
+        if (budget == null || con == null || !con.isDiscarded() || !RetryBudget.isRead(sql)) {
+            return null;
+        }
+        if (query != null && (parameters == null || !parameters.isReplayable())) {
+            return null;
+        }
+        if (!Boolean.TRUE.equals(autoCommit)) {
+            return null;
+        }
+        CircuitBreaker breaker = context.getCircuitBreaker();
+        if (breaker != null && !breaker.isClosed()) {
+            return null;
+        }
+        if (!budget.tryAcquire(System.currentTimeMillis())) {
+            return null;
+        }
+        Statement retry = null;
+        try {
+            con.reconnect();
+            if (!con.validate(PooledConnection.VALIDATE_INIT)) {
+                throw new SQLException("Failed to validate a newly established connection.");
+            }
+            con.setLastValidated(System.currentTimeMillis());
+            HostTracker tracker = context.getHostTracker();
+            if (tracker != null) {
+                trackHost(con, tracker);
+                if (con.isDiscarded()) {
+                    return null;
+                }
+            }
+            Connection connection = con.getConnection();
+            if (!connection.getAutoCommit()) {
+                connection.setAutoCommit(true);
+            }
+            autoCommit = Boolean.TRUE;
+            if (query != null) {
+                PreparedStatement prepared = connection.prepareStatement(query);
+                retry = prepared;
+                parameters.replay(prepared);
+            } else {
+                retry = connection.createStatement();
+            }
+            settings.apply(retry);
+            return retry;
+        } catch (Exception x) {
+            log.warn("Unable to retry a read on pool:" + context.getName() + " after a fatal error.", x);
+            if (retry != null) {
+                try {
+                    retry.close();
+                } catch (SQLException ignore) {
+                    //the connection is discarded anyway
+                }
+            }
+            con.setDiscarded(true);
+            return null;
+        }
+    }
+
+    /**
+     * a retried read succeeded
+     */
+    protected void retrySucceeded() {
+        ConnectionErrorTrapContext context = this.context;
+        RetryBudget budget = context != null ? context.getRetryBudget() : null;
+        if (budget != null) {
+            budget.incrementSuccessCount();
+        }
+    }
+
     @Override
     public void closeInvoked() {
         //NOOP
@@ -84,20 +555,153 @@ public class ConnectionErrorTrap extends AbstractCreateStatementInterceptor {
     public void reset(ConnectionPool parent, PooledConnection con) {
         this.pool = parent;
         this.con = con;
+        this.suspect = false;
+        this.autoCommit = null;
+        if (statementCache == null && con != null) {
+            statementCache = cacheFeature.createCache();
+        }
+        if (parent == null) {
+            this.context = null;
+        } else if (context == null || context.getPool() != parent) {
+            //interceptors stay with their connection, so this lookup happens once per connection
+            this.context = ConnectionErrorTrapContext.get(parent);
+        }
+        HostTracker tracker = context != null ? context.getHostTracker() : null;
+        if (tracker != null && con != null) {
+            trackHost(con, tracker);
+        }
+        if (validationFeature.isAdaptiveValidation() && con != null) {
+            validateOnBorrow(con);
+        }
+        ConnectionRecycler recycler = context != null ? context.getRecycler() : null;
+        if (recycler != null && con != null && con.getLastConnected() != recycleConnected) {
+            recycleConnected = con.getLastConnected();
+            recycleAt = recycler.getRecycleAt(recycleConnected);
+        }
+    }
+
+    /**
+     * Remember the backend host of the borrowed connection. A connection to a quarantined host is
+     * reconnected, at most once per known host, hoping the driver balances it to another one.
+     */
+    protected void trackHost(PooledConnection con, HostTracker tracker) {
+        String host = resolveHost(con);
+        this.host = host;
+        if (host == null) {
+            return;
+        }
+        tracker.register(con, host);
+        long now = System.currentTimeMillis();
+        for (int i = tracker.getHostCount(); i > 1 && tracker.isQuarantined(host, now); i--) {
+            tracker.getHealth(host).incrementReconnectCount();
+            try {
+                con.reconnect();
+                if (!con.validate(PooledConnection.VALIDATE_INIT)) {
+                    throw new SQLException("Failed to validate a newly established connection.");
+                }
+                con.setLastValidated(System.currentTimeMillis());
+            } catch (Exception x) {
+                log.warn("Unable to reconnect a connection of pool:" + context.getName()
+                        + " to the quarantined host:" + host + ".", x);
+                con.setDiscarded(true);
+                return;
+            }
+            host = resolveHost(con);
+            this.host = host;
+            if (host == null) {
+                return;
+            }
+            tracker.register(con, host);
+        }
+    }
+
+    protected String resolveHost(PooledConnection con) {
+        ConnectionErrorTrapContext context = this.context;
+        ExceptionSorter sorter = context != null ? context.getSorter() : null;
+        Connection connection = con.getConnection();
+        return sorter != null && connection != null ? sorter.getBackendHost(connection) : null;
+    }
+
+    /**
+     * Validate the borrowed connection if the pool had a fatal error within adaptiveValidationWindow
+     * and the connection was not checked in the first half of the time since that error. A connection
+     * older than the error is always checked, a checked one again only when the time since the error
+     * has doubled, so validations after an error storm decay geometrically. A connection that fails is
+     * reconnected before the borrower gets it.
+     */
+    protected void validateOnBorrow(PooledConnection con) {
+        ConnectionErrorTrapContext context = this.context;
+        long lastFatal = context != null ? context.getLastFatal() : 0;
+        if (lastFatal == 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastFatal > validationFeature.getAdaptiveValidationWindow()) {
+            return;
+        }
+        long lastChecked = Math.max(con.getLastValidated(), con.getLastConnected());
+        if (lastChecked >= lastFatal + (now - lastFatal) / 2) {
+            return;
+        }
+        context.incrementAdaptiveValidationCount();
+        if (ConnectionValidator.validate(con)) {
+            return;
+        }
+        context.incrementAdaptiveValidationFailureCount();
+        try {
+            con.reconnect();
+            if (!con.validate(PooledConnection.VALIDATE_INIT)) {
+                throw new SQLException("Failed to validate a newly established connection.");
+            }
+            con.setLastValidated(System.currentTimeMillis());
+        } catch (Exception x) {
+            log.warn("Unable to reconnect a connection of pool:" + context.getName()
+                    + " that failed validation after a fatal error.", x);
+            con.setDiscarded(true);
+        }
     }
 
     @Override
     public void poolClosed(ConnectionPool pool) {
-        ExceptionSorterManager.deleteSorter(pool);
-        deleteCount(pool);
+        ConnectionErrorTrapContext context = ConnectionErrorTrapContext.close(pool);
+        if (context != null) {
+            for (TrapFeature feature : features) {
+                feature.poolClosed(context);
+            }
+        }
         super.poolClosed(pool);
     }
 
     @Override
     public void poolStarted(ConnectionPool pool) {
         super.poolStarted(pool);
-        ExceptionSorterManager.setSorter(pool);
-        initCount(pool);
+        this.context = ConnectionErrorTrapContext.start(pool, exceptionSorter);
+        if (context != null) {
+            for (TrapFeature feature : features) {
+                feature.poolStarted(pool, context);
+            }
+        }
+    }
+
+    /**
+     * A connection of the pool is being closed, refill the pool in the background if enabled
+     */
+    @Override
+    public void disconnected(ConnectionPool parent, PooledConnection con, boolean finalizing) {
+        super.disconnected(parent, con, finalizing);
+        TrapStatementCache cache = this.statementCache;
+        if (cache != null) {
+            cache.invalidate();
+        }
+        ConnectionErrorTrapContext context = this.context;
+        HostTracker tracker = context != null ? context.getHostTracker() : null;
+        if (tracker != null && con != null) {
+            tracker.unregister(con);
+        }
+        ConnectionRefiller refiller = context != null ? context.getRefiller() : null;
+        if (refiller != null && finalizing) {
+            refiller.request();
+        }
     }
 
     /**
@@ -106,6 +710,32 @@ public class ConnectionErrorTrap extends AbstractCreateStatementInterceptor {
     protected class StatementProxy implements InvocationHandler {
         protected Object delegate;
         protected final String query;
+        /**
+         * query timeout state, created on first use when adaptiveTimeout is on
+         */
+        protected StatementTimeout timeout;
+        /**
+         * key in the statement cache of the connection, null if the statement is not cached
+         */
+        protected TrapStatementCache.Key cacheKey;
+        /**
+         * settings of a statement created with the default result set options, whose failed reads may be
+         * retried, null otherwise
+         */
+        protected StatementSettings settings;
+        protected boolean retrying;
+        /**
+         * parameters of a retryable prepared read or of a prepared statement with batchChunkSize>0, null otherwise
+         */
+        protected StatementParameters parameters;
+        /**
+         * addBatch rows are kept by the trap, see {@link ConnectionErrorTrap#executeBatch}
+         */
+        protected boolean batching;
+        /**
+         * rows of the current batch, created on first addBatch
+         */
+        protected BatchBuffer batch;
 
         public StatementProxy(Object parent, String query) {
             this.delegate = parent;
@@ -128,6 +758,14 @@ public class ConnectionErrorTrap extends AbstractCreateStatementInterceptor {
                 if (delegate == null) {
                     return null;
                 }
+                if (cacheKey != null) {
+                    Object statement = delegate;
+                    delegate = null;
+                    if (parkStatement(cacheKey, (Statement) statement, timeout)) {
+                        return null;
+                    }
+                    delegate = statement;
+                }
             }
             if (compare(ISCLOSED_VAL, method)) {
                 if (delegate == null) {
@@ -137,15 +775,60 @@ public class ConnectionErrorTrap extends AbstractCreateStatementInterceptor {
             if (delegate == null) {
                 throw new SQLException("Statement closed.");
             }
+            String name = method.getName();
+            if (timeoutFeature.isAdaptiveTimeout() && "getQueryTimeout".equals(name)) {
+                return Integer.valueOf(timeout().getRequested());
+            }
+            long start = 0;
+            boolean execute = name.startsWith(EXECUTE);
+            if (execute) {
+                start = beforeExecute();
+                if (timeoutFeature.isAdaptiveTimeout()) {
+                    boolean batch = "executeBatch".equals(name) || "executeLargeBatch".equals(name);
+                    applyTimeout((Statement) delegate, batch ? null : getSql(args), query == null, timeout());
+                }
+            }
             Object result = null;
             try {
+                if (batch != null && batch.size() > 0 && !batch.isPassThrough() && isUnreplayableSet(name, args)) {
+                    beforeUnreplayable();
+                }
                 //invoke next
-                result = method.invoke(delegate, args);
-            } catch (Throwable t) {
-                if (checkIfNeedDiscardConnection(t)) {
-                    setConnectionDiscard();
+                result = batching && isBatchCall(name, args) ? invokeBatch(name, args) : method.invoke(delegate, args);
+                if (timeoutFeature.isAdaptiveTimeout() && "setQueryTimeout".equals(name)) {
+                    timeout().setRequested(((Integer) args[0]).intValue());
+                }
+                if (settings != null) {
+                    settings.record(name, args);
+                }
+                if (parameters != null) {
+                    recordParameter(method, args);
+                }
+            } catch (InvocationTargetException e) {
+                Throwable t = e.getCause() != null ? e.getCause() : e;
+                if (execute) {
+                    afterExecute(getSql(args), query == null, start, t);
+                }
+                trapThrowable(t);
+                if (execute && retry(name, args)) {
+                    try {
+                        result = invoke(proxy, method, args);
+                        retrySucceeded();
+                        return result;
+                    } finally {
+                        retrying = false;
+                    }
                 }
                 throw t;
+            } catch (Throwable t) {
+                trapThrowable(t);
+                throw t;
+            }
+            if (execute) {
+                afterExecute(getSql(args), query == null, start, null);
+            }
+            if (resultSetFeature.isTrapResultSets() && result instanceof ResultSet) {
+                result = wrapResultSet((ResultSet) result, (Statement) proxy);
             }
             //perform close cleanup
             if (compare(CLOSE_VAL, method)) {
@@ -153,71 +836,622 @@ public class ConnectionErrorTrap extends AbstractCreateStatementInterceptor {
             }
             return result;
         }
+
+        /**
+         * addBatch of the statement type, clearBatch, executeBatch or executeLargeBatch
+         */
+        protected boolean isBatchCall(String name, Object[] args) {
+            switch (name) {
+                case "addBatch":
+                    return (query != null) == (args == null || args.length == 0);
+                case "clearBatch":
+                case "executeBatch":
+                case "executeLargeBatch":
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        protected boolean isUnreplayableSet(String name, Object[] args) {
+            return name.startsWith("set") && args != null && args.length > 1 && args[0] instanceof Integer
+                    && !StatementParameters.isReplayable(args[1]);
+        }
+
+        /**
+         * A parameter that can not be bound twice is about to be set: hand the rows buffered for the batch
+         * to the driver and bind the current row again, the rest of the batch passes through
+         */
+        protected void beforeUnreplayable() throws SQLException {
+            PreparedStatement statement = (PreparedStatement) delegate;
+            batch.passThrough(statement);
+            parameters.replay(statement);
+        }
+
+        /**
+         * Batch calls with batchChunkSize>0, errors are thrown the way method.invoke throws driver errors
+         */
+        protected Object invokeBatch(String name, Object[] args) throws InvocationTargetException {
+            Statement statement = (Statement) delegate;
+            if (batch == null) {
+                batch = new BatchBuffer();
+            }
+            try {
+                switch (name) {
+                    case "addBatch":
+                        if (!batch.isPassThrough()) {
+                            if (query != null ? batch.add(parameters) : batch.add((String) args[0])) {
+                                return null;
+                            }
+                            batch.passThrough(statement);
+                        }
+                        if (query != null) {
+                            ((PreparedStatement) statement).addBatch();
+                        } else {
+                            statement.addBatch((String) args[0]);
+                        }
+                        return null;
+                    case "clearBatch":
+                        batch.clear();
+                        statement.clearBatch();
+                        return null;
+                    case "executeBatch":
+                        return executeBatch(statement, batch);
+                    default:
+                        return executeLargeBatch(statement, batch);
+                }
+            } catch (SQLException | RuntimeException e) {
+                throw new InvocationTargetException(e);
+            }
+        }
+
+        /**
+         * Remember a parameter bound with a set method taking the parameter index first
+         */
+        protected void recordParameter(Method method, Object[] args) {
+            String name = method.getName();
+            if ("clearParameters".equals(name)) {
+                parameters.clear();
+            } else if (name.startsWith("set") && args != null && args.length > 1 && args[0] instanceof Integer) {
+                parameters.setInvoke(method, args);
+            }
+        }
+
+        /**
+         * After a fatal error of executeQuery or execute without options, replace the driver statement
+         * with one on the reconnected connection, see {@link #retryRead}
+         * @return true if the call is executed once more
+         */
+        protected boolean retry(String name, Object[] args) {
+            int arity = query != null ? 0 : 1;
+            if (settings == null || retrying || delegate == null || (args != null ? args.length : 0) != arity
+                    || !("executeQuery".equals(name) || "execute".equals(name))) {
+                return false;
+            }
+            Statement retry = retryRead(getSql(args), query, parameters, settings);
+            if (retry == null) {
+                return false;
+            }
+            delegate = retry;
+            if (timeout != null) {
+                timeout.setApplied(settings.getQueryTimeout());
+            }
+            retrying = true;
+            return true;
+        }
+
+        protected StatementTimeout timeout() throws SQLException {
+            if (timeout == null) {
+                timeout = new StatementTimeout(((Statement) delegate).getQueryTimeout());
+            }
+            return timeout;
+        }
+
+        /**
+         * SQL of the prepared statement, or the SQL argument of a plain statement execute call
+         */
+        protected String getSql(Object[] args) {
+            if (query != null) {
+                return query;
+            }
+            return args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+        }
     }
 
-    protected boolean checkIfNeedDiscardConnection(Throwable t) {
-        ExceptionSorter exceptionSorter = ExceptionSorterManager.getSorter(pool);
-        if (con != null && !con.isDiscarded() && exceptionSorter != null && exceptionSorter.isExceptionFatal(t)) {
-            StringBuilder logMessage = new StringBuilder();
-            logMessage.append("Current Connection info: lastConnected()=").append(con.getLastConnected())
-                    .append(",lastValidate()=").append(con.getLastValidated()).append(".")
-                    .append("Current connection pool has released ").append(getCount(pool))
-                    .append("connection. And we will set current connection discard because of SQLException:");
-            log.error(logMessage.toString(), t);
+    /**
+     * executeBatch of a statement with batchChunkSize>0, see {@link #executeChunks}
+     */
+    protected int[] executeBatch(Statement statement, BatchBuffer batch) throws SQLException {
+        if (batch.isPassThrough() || batch.size() == 0) {
+            try {
+                return statement.executeBatch();
+            } finally {
+                batch.clear();
+            }
+        }
+        long[] counts = executeChunks(statement, batch, false);
+        int[] result = new int[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            result[i] = (int) counts[i];
+        }
+        return result;
+    }
+
+    protected long[] executeLargeBatch(Statement statement, BatchBuffer batch) throws SQLException {
+        if (batch.isPassThrough() || batch.size() == 0) {
+            try {
+                return statement.executeLargeBatch();
+            } finally {
+                batch.clear();
+            }
+        }
+        return executeChunks(statement, batch, true);
+    }
+
+    /**
+     * Hand the buffered rows to the driver statement and execute them, batchChunkSize rows at a time.
+     * The error of a failed chunk is trapped here and thrown as a {@link BatchChunkException} with the
+     * update counts of the chunks before, later chunks are not executed. The buffer is empty afterwards.
+     */
+    protected long[] executeChunks(Statement statement, BatchBuffer batch, boolean large) throws SQLException {
+        int rows = batch.size();
+        int chunkSize = Math.max(1, batchFeature.getBatchChunkSize());
+        long[] counts = new long[rows];
+        int done = 0;
+        try {
+            boolean autoCommit = statement.getConnection().getAutoCommit();
+            try {
+                while (done < rows) {
+                    int end = Math.min(rows, done + chunkSize);
+                    batch.bind(statement, done, end);
+                    if (large) {
+                        long[] chunk = statement.executeLargeBatch();
+                        System.arraycopy(chunk, 0, counts, done, Math.min(chunk.length, end - done));
+                    } else {
+                        int[] chunk = statement.executeBatch();
+                        for (int i = 0; i < chunk.length && i < end - done; i++) {
+                            counts[done + i] = chunk[i];
+                        }
+                    }
+                    done = end;
+                }
+                return counts;
+            } catch (SQLException e) {
+                trapThrowable(e);
+                PooledConnection con = this.con;
+                boolean discarded = con != null && con.isDiscarded();
+                if (!discarded) {
+                    try {
+                        statement.clearBatch();
+                    } catch (SQLException ignore) {
+                        // do nothing
+                    }
+                }
+                throw new BatchChunkException(Arrays.copyOf(counts, done), chunkSize, done / chunkSize, autoCommit,
+                        discarded, e);
+            }
+        } finally {
+            batch.clear();
+        }
+    }
+
+    /**
+     * Called before every execute call of a statement. Fails fast while the circuit breaker is open,
+     * the thread that wins the half-open probe validates its connection to decide whether to close it.
+     * @return start time for {@link #afterExecute(String, boolean, long, Throwable)}, 0 when statistics are off
+     */
+    protected long beforeExecute() throws SQLException {
+        ConnectionErrorTrapContext context = this.context;
+        CircuitBreaker breaker = context != null ? context.getCircuitBreaker() : null;
+        if (breaker != null && !breaker.isClosed()) {
+            checkCircuitBreaker(context, breaker);
+        }
+        if (context == null || context.getStatistics() == null) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        return start != 0 ? start : 1;
+    }
+
+    /**
+     * Called after every execute call of a statement, records its time and error
+     * @param sql        SQL executed, null if unknown
+     * @param normalize  true for plain statement SQL
+     * @param start      value returned by {@link #beforeExecute()}
+     * @param t          error of the call, null if it succeeded
+     */
+    protected void afterExecute(String sql, boolean normalize, long start, Throwable t) {
+        if (start == 0) {
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        ConnectionErrorTrapContext context = this.context;
+        QueryStatistics statistics = context != null ? context.getStatistics() : null;
+        if (statistics != null) {
+            statistics.record(sql, normalize, elapsed, t);
+        }
+        AdaptiveTimeout policy = context != null ? context.getAdaptiveTimeout() : null;
+        if (t != null && policy != null && AdaptiveTimeout.isTimeout(t)) {
+            policy.incrementTimeoutCount();
+        }
+    }
+
+    /**
+     * Set the adaptive query timeout of the SQL on the driver statement, capped by the timeout the
+     * application asked for. The driver is only called when the timeout changes.
+     * @param sql    SQL to execute, null for batches which keep the application timeout
+     * @param state  query timeout state of the statement
+     */
+    protected void applyTimeout(Statement statement, String sql, boolean normalize, StatementTimeout state)
+            throws SQLException {
+        int timeout = state.getRequested();
+        ConnectionErrorTrapContext context = this.context;
+        AdaptiveTimeout policy = context != null ? context.getAdaptiveTimeout() : null;
+        QueryStatistics statistics = context != null ? context.getStatistics() : null;
+        if (sql != null && policy != null && statistics != null) {
+            QueryStats stats = state.getStats(sql);
+            if (stats == null) {
+                stats = statistics.get(normalize ? SqlNormalizer.normalize(sql) : sql);
+                if (stats != null) {
+                    state.setStats(sql, stats);
+                }
+            }
+            int adaptive = policy.getTimeout(stats, System.currentTimeMillis());
+            timeout = timeout > 0 ? Math.min(timeout, adaptive) : adaptive;
+        }
+        if (timeout != state.getApplied()) {
+            statement.setQueryTimeout(timeout);
+            state.setApplied(timeout);
+        }
+    }
+
+    /**
+     * Reject the statement while the circuit breaker is open. The thread that wins the half-open probe
+     * validates its borrowed connection instead, without committing or rolling back the transaction the
+     * application may have open on it. After an outage that connection is most likely stale, so a failed
+     * probe reconnects it and decides on the fresh one. The statement was created on the stale connection
+     * and fails then, even if the breaker closes.
+     */
+    protected void checkCircuitBreaker(ConnectionErrorTrapContext context, CircuitBreaker breaker) throws SQLException {
+        if (breaker.tryStartProbe(System.currentTimeMillis())) {
+            PooledConnection con = this.con;
+            boolean valid = ConnectionValidator.probe(con);
+            boolean reconnected = false;
+            if (!valid && con != null && !con.isDiscarded()) {
+                reconnected = true;
+                valid = reconnectForProbe(con);
+            }
+            breaker.endProbe(valid, System.currentTimeMillis());
+            if (valid) {
+                log.info("Circuit breaker of pool:" + context.getName() + " closed, validation probe succeeded.");
+                if (reconnected) {
+                    throw new SQLException("Statement of pool:" + context.getName() + " was created on a stale"
+                            + " connection, the circuit breaker probe reconnected it. Any open transaction is lost.",
+                            "08003");
+                }
+                return;
+            }
+            if (con != null && !con.isDiscarded()) {
+                setConnectionDiscard();
+            }
+        }
+        breaker.reject();
+        throw new CircuitBreakerOpenException("Circuit breaker of pool:" + context.getName()
+                + " is open, statement not executed.");
+    }
+
+    /**
+     * Reconnect the pooled connection a half-open probe failed on and validate the fresh one. The auto-commit
+     * mode the application set is kept, so rolling back a transaction that was lost with the stale connection
+     * does nothing.
+     * @return true if the backend answered on the fresh connection
+     */
+    protected boolean reconnectForProbe(PooledConnection con) {
+        Boolean autoCommit = this.autoCommit;
+        try {
+            con.reconnect();
+            if (!ConnectionValidator.validate(con)) {
+                throw new SQLException("Failed to validate a newly established connection.");
+            }
+            Connection connection = con.getConnection();
+            if (autoCommit != null && connection.getAutoCommit() != autoCommit) {
+                connection.setAutoCommit(autoCommit);
+            }
             return true;
+        } catch (Exception x) {
+            log.warn("Unable to reconnect a connection of pool:" + getPoolName()
+                    + " for the circuit breaker probe.", x);
+            return false;
         }
-        return false;
     }
 
-    protected void setConnectionDiscard() {
-        con.setDiscarded(true);
-        increment(pool);
+    /**
+     * Discard current connection if the throwable is fatal
+     */
+    protected void trapThrowable(Throwable t) {
+        if (t instanceof CircuitBreakerOpenException || t instanceof BatchChunkException) {
+            //raised by the trap, the error of a failed chunk was trapped before
+            return;
+        }
+        if (checkIfSuspect(t)) {
+            markSuspect();
+            return;
+        }
+        if (checkIfNeedDiscardConnection(t)) {
+            if (eventsFeature.isAsyncEvents()) {
+                DiscardEventDispatcher.getInstance().offer(new DiscardEvent(this, context, t,
+                        con.getLastConnected(), con.getLastValidated(), eventsFeature.getEventWindow()));
+            }
+            setConnectionDiscard(t);
+            recordFatal(t);
+            if (purgeFeature.isPurgeOnFatal()) {
+                purgeIfBackendFailure(t);
+            }
+        }
     }
 
-    public static void initCount(ConnectionPool pool) {
-        if (pool == null) {
+    protected void recordFatal(Throwable t) {
+        ConnectionErrorTrapContext context = this.context;
+        if (context == null) {
             return;
         }
-        synchronized (counts) {
-            counts.put(pool, new LongAdder());
+        long now = System.currentTimeMillis();
+        context.setLastFatal(now);
+        SQLException e = DiscardEvent.toSQLException(t);
+        context.incrementFatalCount(e != null ? e.getSQLState() : null, e != null ? e.getErrorCode() : 0);
+        CircuitBreaker breaker = context.getCircuitBreaker();
+        if (breaker != null) {
+            if (breaker.recordFatal(now)) {
+                log.warn("Circuit breaker of pool:" + context.getName() + " opened, statements fail fast for "
+                        + breaker.getOpenTime() + "ms.");
+            }
+        }
+        HostTracker tracker = context.getHostTracker();
+        String host = this.host;
+        if (tracker != null && host != null) {
+            int evicted = tracker.recordFatal(host, now);
+            if (evicted >= 0) {
+                log.warn("Backend host:" + host + " of pool:" + context.getName() + " reached " + tracker.getThreshold()
+                        + " fatal errors, discarded its " + evicted + " other connections, quarantined for "
+                        + tracker.getQuarantine() + "ms.");
+            }
         }
     }
 
-    public static void deleteCount(ConnectionPool pool) {
-        if (pool == null) {
+    /**
+     * Purge every connection of the pool when the error means the backend is gone.
+     * An error storm purges once per purgeInterval, see {@link PurgeFeature}.
+     */
+    protected void purgeIfBackendFailure(Throwable t) {
+        ConnectionErrorTrapContext context = this.context;
+        ConnectionPool pool = this.pool;
+        if (context == null || pool == null || context.getSorter() == null
+                || !context.getSorter().isBackendFailure(t)) {
             return;
         }
-        synchronized (counts) {
-            counts.remove(pool);
+        //with several backend hosts the failure is the host's, the host tracker evicts its connections
+        HostTracker tracker = context.getHostTracker();
+        if (tracker != null && host != null && tracker.getHostCount() > 1) {
+            return;
+        }
+        if (context.tryPurge(System.currentTimeMillis(), purgeFeature.getPurgeInterval())) {
+            log.warn("Backend failure detected, purging all connections of pool:" + context.getName()
+                    + ". Idle connections are closed now, busy connections when they are returned.");
+            pool.purge();
         }
     }
 
-    public static void increment(ConnectionPool pool) {
-        if (pool == null) {
+    protected boolean checkIfSuspect(Throwable t) {
+        ConnectionErrorTrapContext context = this.context;
+        if (context == null) {
+            return false;
+        }
+        if (timeoutFeature.isAdaptiveTimeout() && con != null && !con.isDiscarded() && AdaptiveTimeout.isTimeout(t)) {
+            return true;
+        }
+        if (!suspectFeature.isSuspectValidation()) {
+            return false;
+        }
+        ExceptionSorter exceptionSorter = context.getSorter();
+        return con != null && !con.isDiscarded() && exceptionSorter != null && exceptionSorter.isExceptionSuspect(t);
+    }
+
+    protected void markSuspect() {
+        if (suspect) {
             return;
         }
-        LongAdder count = counts.getOrDefault(pool, null);
-        if (count == null) {
-            synchronized (counts) {
-                count = counts.getOrDefault(pool, null);
-                if (count == null) {
-                    count = new LongAdder();
-                    counts.put(pool, count);
+        suspect = true;
+        ConnectionErrorTrapContext context = this.context;
+        if (context != null) {
+            context.incrementSuspectCount();
+        }
+    }
+
+    /**
+     * The application closes a suspect connection: validate it, then hand it back to the pool.
+     * In async mode the caller returns at once and the connection stays borrowed until a background
+     * thread validated it, so nobody can get it in between.
+     */
+    protected Object closeSuspect(Object proxy, Method method, Object[] args) throws Throwable {
+        suspect = false;
+        final PooledConnection con = this.con;
+        if (suspectFeature.isAsync() && con != null) {
+            try {
+                TrapScheduler.execute(() -> {
+                    validateSuspect(con);
+                    try {
+                        invoke(proxy, method, args);
+                    } catch (Throwable t) {
+                        log.warn("Unable to return suspect connection to pool:" + getPoolName(), t);
+                    }
+                });
+                return null;
+            } catch (RejectedExecutionException e) {
+                //validate on the returning thread
+            }
+        }
+        validateSuspect(con);
+        return invoke(proxy, method, args);
+    }
+
+    /**
+     * The application closes a connection past its lifetime: reconnect it in the background, then hand
+     * it back to the pool. The caller returns at once and the connection stays borrowed until then.
+     * @return false if it has to be returned as it is, because enough connections are being reconnected
+     */
+    protected boolean closeExpired(Object proxy, Method method, Object[] args) {
+        ConnectionErrorTrapContext context = this.context;
+        final ConnectionRecycler recycler = context != null ? context.getRecycler() : null;
+        final PooledConnection con = this.con;
+        if (recycler == null || con == null || con.isDiscarded() || !recycler.tryStart()) {
+            return false;
+        }
+        recycleAt = 0;
+        try {
+            TrapScheduler.execute(() -> {
+                recycle(con, recycler);
+                try {
+                    invoke(proxy, method, args);
+                } catch (Throwable t) {
+                    log.warn("Unable to return recycled connection to pool:" + getPoolName(), t);
                 }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            recycler.cancel();
+            return false;
+        }
+    }
+
+    /**
+     * Reconnect a borrowed connection, discard it if that fails
+     */
+    protected void recycle(PooledConnection con, ConnectionRecycler recycler) {
+        boolean success = false;
+        try {
+            con.reconnect();
+            if (!con.validate(PooledConnection.VALIDATE_INIT)) {
+                throw new SQLException("Failed to validate a newly established connection.");
             }
+            con.setLastValidated(System.currentTimeMillis());
+            success = true;
+        } catch (Exception x) {
+            log.warn("Unable to recycle a connection of pool:" + getPoolName() + ", discard it.", x);
+            con.setDiscarded(true);
+        } finally {
+            recycler.end(success, System.currentTimeMillis());
         }
-        count.increment();
     }
 
-    public static int getCount(ConnectionPool pool) {
-        if (pool == null) {
-            return 0;
+    /**
+     * Roll back what the failed work left open and validate, discard the connection if it does not answer
+     */
+    protected void validateSuspect(PooledConnection con) {
+        if (con == null || con.isDiscarded()) {
+            return;
+        }
+        boolean valid;
+        try {
+            Connection connection = con.getConnection();
+            if (connection != null && !connection.getAutoCommit()) {
+                connection.rollback();
+            }
+            valid = ConnectionValidator.validate(con);
+        } catch (SQLException e) {
+            valid = false;
+        }
+        if (!valid && !con.isDiscarded()) {
+            log.warn("Suspect connection of pool:" + getPoolName() + " failed validation, discard it.");
+            setConnectionDiscard();
+            ConnectionErrorTrapContext context = this.context;
+            if (context != null) {
+                context.incrementSuspectDiscardCount();
+            }
         }
+    }
+
+    private String getPoolName() {
+        ConnectionErrorTrapContext context = this.context;
+        return context != null ? context.getName() : null;
+    }
 
-        LongAdder count = counts.getOrDefault(pool, null);
-        if (count != null) {
-            return count.intValue();
+    protected boolean checkIfNeedDiscardConnection(Throwable t) {
+        ConnectionErrorTrapContext context = this.context;
+        if (context == null) {
+            return false;
+        }
+        ExceptionSorter exceptionSorter = context.getSorter();
+        if (con != null && !con.isDiscarded() && exceptionSorter != null && exceptionSorter.isExceptionFatal(t)) {
+            if (!eventsFeature.isAsyncEvents()) {
+                logDiscard(context, con.getLastConnected(), con.getLastValidated(), t);
+            }
+            return true;
         }
-        return 0;
+        return false;
+    }
+
+    protected void logDiscard(ConnectionErrorTrapContext context, long lastConnected, long lastValidated, Throwable t) {
+        StringBuilder logMessage = new StringBuilder();
+        logMessage.append("Current Connection info: lastConnected()=").append(lastConnected)
+                .append(",lastValidate()=").append(lastValidated).append(".")
+                .append("Current connection pool has released ").append(context.getDiscardCount())
+                .append("connection. And we will set current connection discard because of SQLException:");
+        log.error(logMessage.toString(), t);
+    }
+
+    /**
+     * Called by the dispatcher thread for the first discard of a pool/SQLState/errorCode in a window
+     */
+    protected void onFirstDiscard(DiscardEvent event) {
+        logDiscard(event.getContext(), event.getLastConnected(), event.getLastValidated(), event.getThrowable());
+    }
+
+    /**
+     * Called by the dispatcher thread when a window ends with more discards than the first one
+     * @param first    first event of the window
+     * @param count    discards after the first one
+     * @param elapsed  milliseconds since the first one
+     */
+    protected void onDiscardSummary(DiscardEvent first, long count, long elapsed) {
+        log.error(getDiscardSummary(first, count, elapsed));
+    }
+
+    protected String getDiscardSummary(DiscardEvent first, long count, long elapsed) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(count).append(" more connections of pool:").append(first.getContext().getName())
+                .append(" discarded for SQLState ").append(first.getSqlState())
+                .append(", errorCode ").append(first.getErrorCode())
+                .append(" in the last ").append(elapsed).append("ms");
+        return sb.toString();
+    }
+
+    protected void setConnectionDiscard() {
+        setConnectionDiscard(null);
+    }
+
+    /**
+     * @param t  fatal error, null if the connection failed a validation
+     */
+    protected void setConnectionDiscard(Throwable t) {
+        ConnectionErrorTrapContext context = this.context;
+        DiscardJournal journal = context != null ? context.getJournal() : null;
+        if (journal != null) {
+            SQLException e = DiscardEvent.toSQLException(t);
+            journal.write(context.getId(), e != null ? e.getSQLState() : null, e != null ? e.getErrorCode() : 0,
+                    t != null ? DiscardJournal.REASON_FATAL : DiscardJournal.REASON_VALIDATION,
+                    con.getLastConnected(), con.getLastValidated(), System.currentTimeMillis());
+        }
+        con.setDiscarded(true);
+        TrapStatementCache cache = this.statementCache;
+        if (cache != null) {
+            cache.invalidate();
+        }
+        if (context != null) {
+            context.incrementDiscardCount();
+        }
+    }
+
+    public ConnectionErrorTrapContext getContext() {
+        return context;
     }
 }
@@ -0,0 +1,437 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import com.huan.tomcat.jdbc.journal.DiscardJournal;
+import com.huan.tomcat.jdbc.vendor.ExceptionSorter;
+import com.huan.tomcat.jdbc.vendor.ExceptionSorterManager;
+import org.apache.tomcat.jdbc.pool.ConnectionPool;
+
+import javax.management.ObjectName;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author edenhuan
+ * State the error trap keeps for one connection pool: exception sorter, counters and JMX registration.
+ * Created once in poolStarted and handed to the interceptors of the pool in reset, so the error path
+ * only reads fields of this object.
+ */
+public class ConnectionErrorTrapContext {
+    private static final AtomicLong idSequence = new AtomicLong(0);
+
+    /**
+     * Keyed by pool identity, pools with the same name get their own context
+     */
+    private static final ConcurrentMap<ConnectionPool, ConnectionErrorTrapContext> contexts = new ConcurrentHashMap<>();
+
+    private final long id;
+    private final ConnectionPool pool;
+    private final String name;
+    private final ExceptionSorter sorter;
+    private final LongAdder discardCount = new LongAdder();
+    private final LongAdder purgeCount = new LongAdder();
+    private final LongAdder droppedEventCount = new LongAdder();
+    private final LongAdder suspectCount = new LongAdder();
+    private final LongAdder suspectDiscardCount = new LongAdder();
+    private final AtomicLong lastPurge = new AtomicLong(0);
+    private final LongAdder adaptiveValidationCount = new LongAdder();
+    private final LongAdder adaptiveValidationFailureCount = new LongAdder();
+    private final LongAdder statementCacheHitCount = new LongAdder();
+    private final LongAdder statementCacheMissCount = new LongAdder();
+    private final LongAdder statementCacheEvictionCount = new LongAdder();
+    private volatile long lastFatal;
+    private volatile long lastDiscard;
+    private final ConcurrentHashMap<ErrorKey, LongAdder> fatalCounts = new ConcurrentHashMap<>();
+
+    /**
+     * distinct SQLState/errorCode pairs counted per pool, further ones are counted under OTHER
+     */
+    public static final int MAX_ERROR_KEYS = 64;
+    public static final ErrorKey OTHER_ERROR = new ErrorKey("OTHER", 0);
+
+    private volatile CircuitBreaker circuitBreaker;
+    private volatile ConnectionRefiller refiller;
+    private volatile QueryStatistics statistics;
+    private volatile HostTracker hostTracker;
+    private volatile AdaptiveTimeout adaptiveTimeout;
+    private volatile RetryBudget retryBudget;
+    private volatile DiscardJournal journal;
+    private volatile ConnectionRecycler recycler;
+    private volatile PoolWarmer warmer;
+    private volatile ObjectName objectName;
+    private volatile ConnectionErrorTrapJmx mbean;
+
+    protected ConnectionErrorTrapContext(ConnectionPool pool) {
+        this(pool, null);
+    }
+
+    /**
+     * @param sorterClassName  exception sorter of the pool, null to pick it by driver or url
+     */
+    protected ConnectionErrorTrapContext(ConnectionPool pool, String sorterClassName) {
+        this.id = idSequence.incrementAndGet();
+        this.pool = pool;
+        this.name = pool.getName();
+        this.sorter = ExceptionSorterManager.createSorter(pool, sorterClassName);
+    }
+
+    /**
+     * Create the context of the pool, or return the existing one if another interceptor already did
+     */
+    public static ConnectionErrorTrapContext start(ConnectionPool pool) {
+        return start(pool, null);
+    }
+
+    /**
+     * @param sorterClassName  exception sorter of the pool, null to pick it by driver or url. The sorter
+     *                         is created once with the context, the interceptor starting it first wins.
+     */
+    public static ConnectionErrorTrapContext start(ConnectionPool pool, String sorterClassName) {
+        if (pool == null) {
+            return null;
+        }
+        return contexts.computeIfAbsent(pool, p -> new ConnectionErrorTrapContext(p, sorterClassName));
+    }
+
+    public static ConnectionErrorTrapContext get(ConnectionPool pool) {
+        if (pool == null) {
+            return null;
+        }
+        return contexts.get(pool);
+    }
+
+    public static ConnectionErrorTrapContext close(ConnectionPool pool) {
+        if (pool == null) {
+            return null;
+        }
+        return contexts.remove(pool);
+    }
+
+    public static Collection<ConnectionErrorTrapContext> getContexts() {
+        return Collections.unmodifiableCollection(contexts.values());
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public ConnectionPool getPool() {
+        return pool;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public ExceptionSorter getSorter() {
+        return sorter;
+    }
+
+    public void incrementDiscardCount() {
+        discardCount.increment();
+        lastDiscard = System.currentTimeMillis();
+    }
+
+    /**
+     * time of the last discard in milliseconds, 0 if none
+     */
+    public long getLastDiscard() {
+        return lastDiscard;
+    }
+
+    /**
+     * Count a fatal verdict by SQLState and vendor error code
+     * @param sqlState   null when unknown
+     */
+    public void incrementFatalCount(String sqlState, int errorCode) {
+        ErrorKey key = new ErrorKey(sqlState, errorCode);
+        LongAdder adder = fatalCounts.get(key);
+        if (adder == null) {
+            if (fatalCounts.size() >= MAX_ERROR_KEYS) {
+                key = OTHER_ERROR;
+            }
+            adder = fatalCounts.computeIfAbsent(key, k -> new LongAdder());
+        }
+        adder.increment();
+    }
+
+    /**
+     * fatal verdicts by SQLState/errorCode, live view
+     */
+    public Map<ErrorKey, LongAdder> getFatalCounts() {
+        return Collections.unmodifiableMap(fatalCounts);
+    }
+
+    public long getDiscardCount() {
+        return discardCount.sum();
+    }
+
+    public void incrementDroppedEventCount() {
+        droppedEventCount.increment();
+    }
+
+    /**
+     * discard events dropped because the dispatcher queue was full
+     */
+    public long getDroppedEventCount() {
+        return droppedEventCount.sum();
+    }
+
+    public void incrementSuspectCount() {
+        suspectCount.increment();
+    }
+
+    /**
+     * connections marked suspect, each one is validated once when returned
+     */
+    public long getSuspectCount() {
+        return suspectCount.sum();
+    }
+
+    public void incrementSuspectDiscardCount() {
+        suspectDiscardCount.increment();
+    }
+
+    /**
+     * suspect connections discarded because their validation failed
+     */
+    public long getSuspectDiscardCount() {
+        return suspectDiscardCount.sum();
+    }
+
+    /**
+     * time of the last fatal error in milliseconds, 0 if none
+     */
+    public long getLastFatal() {
+        return lastFatal;
+    }
+
+    public void setLastFatal(long lastFatal) {
+        this.lastFatal = lastFatal;
+    }
+
+    public void incrementAdaptiveValidationCount() {
+        adaptiveValidationCount.increment();
+    }
+
+    public long getAdaptiveValidationCount() {
+        return adaptiveValidationCount.sum();
+    }
+
+    public void incrementAdaptiveValidationFailureCount() {
+        adaptiveValidationFailureCount.increment();
+    }
+
+    /**
+     * borrowed connections that failed the adaptive validation and were reconnected
+     */
+    public long getAdaptiveValidationFailureCount() {
+        return adaptiveValidationFailureCount.sum();
+    }
+
+    public void incrementStatementCacheHitCount() {
+        statementCacheHitCount.increment();
+    }
+
+    /**
+     * prepare calls served from the statement cache of the connection
+     */
+    public long getStatementCacheHitCount() {
+        return statementCacheHitCount.sum();
+    }
+
+    public void incrementStatementCacheMissCount() {
+        statementCacheMissCount.increment();
+    }
+
+    public long getStatementCacheMissCount() {
+        return statementCacheMissCount.sum();
+    }
+
+    public void incrementStatementCacheEvictionCount() {
+        statementCacheEvictionCount.increment();
+    }
+
+    /**
+     * cached statements closed to make room for more recently used ones
+     */
+    public long getStatementCacheEvictionCount() {
+        return statementCacheEvictionCount.sum();
+    }
+
+    /**
+     * Backend down signal for degraded modes, e.g. serving stale reads: the circuit breaker of the pool
+     * rejects statements. A single fatal error, e.g. of one stale connection, does not flag the backend
+     * down, and once the breaker is due for its probe statements go to the pool again to close it.
+     * @param now  current time in milliseconds
+     */
+    public boolean isBackendDown(long now) {
+        CircuitBreaker breaker = circuitBreaker;
+        return breaker != null && breaker.isRejecting(now);
+    }
+
+    /**
+     * Claim the right to purge the pool, at most once per interval whatever the number of callers
+     * @param now       current time in milliseconds
+     * @param interval  minimum milliseconds between two purges
+     * @return true if the caller should purge
+     */
+    public boolean tryPurge(long now, long interval) {
+        long last = lastPurge.get();
+        if (now - last < interval || !lastPurge.compareAndSet(last, now)) {
+            return false;
+        }
+        purgeCount.increment();
+        return true;
+    }
+
+    public long getPurgeCount() {
+        return purgeCount.sum();
+    }
+
+    public long getLastPurge() {
+        return lastPurge.get();
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    public ConnectionRefiller getRefiller() {
+        return refiller;
+    }
+
+    public void setRefiller(ConnectionRefiller refiller) {
+        this.refiller = refiller;
+    }
+
+    public QueryStatistics getStatistics() {
+        return statistics;
+    }
+
+    public void setStatistics(QueryStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    public HostTracker getHostTracker() {
+        return hostTracker;
+    }
+
+    public void setHostTracker(HostTracker hostTracker) {
+        this.hostTracker = hostTracker;
+    }
+
+    public AdaptiveTimeout getAdaptiveTimeout() {
+        return adaptiveTimeout;
+    }
+
+    public void setAdaptiveTimeout(AdaptiveTimeout adaptiveTimeout) {
+        this.adaptiveTimeout = adaptiveTimeout;
+    }
+
+    public RetryBudget getRetryBudget() {
+        return retryBudget;
+    }
+
+    public void setRetryBudget(RetryBudget retryBudget) {
+        this.retryBudget = retryBudget;
+    }
+
+    /**
+     * discard journal of the pool, null if disabled
+     */
+    public DiscardJournal getJournal() {
+        return journal;
+    }
+
+    public void setJournal(DiscardJournal journal) {
+        this.journal = journal;
+    }
+
+    public ConnectionRecycler getRecycler() {
+        return recycler;
+    }
+
+    public void setRecycler(ConnectionRecycler recycler) {
+        this.recycler = recycler;
+    }
+
+    /**
+     * warmer of the initial connections, null if warm-up is off
+     */
+    public PoolWarmer getWarmer() {
+        return warmer;
+    }
+
+    public void setWarmer(PoolWarmer warmer) {
+        this.warmer = warmer;
+    }
+
+    public ObjectName getObjectName() {
+        return objectName;
+    }
+
+    public void setObjectName(ObjectName objectName) {
+        this.objectName = objectName;
+    }
+
+    public ConnectionErrorTrapJmx getMBean() {
+        return mbean;
+    }
+
+    public void setMBean(ConnectionErrorTrapJmx mbean) {
+        this.mbean = mbean;
+    }
+
+    /**
+     * SQLState and vendor error code of a fatal verdict
+     */
+    public static final class ErrorKey {
+        private final String sqlState;
+        private final int errorCode;
+
+        public ErrorKey(String sqlState, int errorCode) {
+            this.sqlState = sqlState;
+            this.errorCode = errorCode;
+        }
+
+        public String getSqlState() {
+            return sqlState;
+        }
+
+        public int getErrorCode() {
+            return errorCode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ErrorKey)) {
+                return false;
+            }
+            ErrorKey other = (ErrorKey) o;
+            return errorCode == other.errorCode
+                    && (sqlState == null ? other.sqlState == null : sqlState.equals(other.sqlState));
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (sqlState != null ? sqlState.hashCode() : 0) + errorCode;
+        }
+
+        @Override
+        public String toString() {
+            return sqlState + "/" + errorCode;
+        }
+    }
+}
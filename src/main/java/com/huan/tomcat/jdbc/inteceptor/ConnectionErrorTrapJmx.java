@@ -1,5 +1,7 @@
 package com.huan.tomcat.jdbc.inteceptor;
 
+import com.huan.tomcat.jdbc.metrics.TrapMetrics;
+import com.huan.tomcat.jdbc.metrics.TrapMetricsCollector;
 import org.apache.juli.logging.Log;
 import org.apache.juli.logging.LogFactory;
 import org.apache.tomcat.jdbc.pool.ConnectionPool;
@@ -8,46 +10,79 @@ import org.apache.tomcat.jdbc.pool.jmx.JmxUtil;
 
 import javax.management.*;
 import javax.management.openmbean.*;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
 
 /**
  * @author edenhuan
  * Connection error trap interceptor which can register as Mbean. Release connection and send
  * notification when set connection discard.
+ * The instance that receives poolStarted is registered as the Mbean of the pool and kept in the
+ * pool's {@link ConnectionErrorTrapContext}, the per connection instances send through it.
  */
 public class ConnectionErrorTrapJmx extends ConnectionErrorTrap
         implements ConnectionErrorTrapJmxMBean, NotificationEmitter {
     protected String poolName = null;
 
-    protected volatile NotificationBroadcasterSupport notifier = new NotificationBroadcasterSupport();
+    /**
+     * Notifications are delivered by the trap workers, a slow listener never holds the request thread
+     * which met the error
+     */
+    protected static final Executor NOTIFICATION_EXECUTOR = TrapScheduler::execute;
+
+    protected volatile NotificationBroadcasterSupport notifier = new NotificationBroadcasterSupport(NOTIFICATION_EXECUTOR);
     private boolean isJmxPoolEnable;
+    /**
+     * snapshot behind the attributes, created on the first read of the registered instance
+     */
+    private TrapMetrics metrics;
 
     protected static volatile CompositeType CONNECTION_ERROR_COUNT_TYPE;
+    protected static volatile CompositeType QUERY_STATS_TYPE;
+    protected static volatile CompositeType HOST_HEALTH_TYPE;
 
     public static final String CONNECTION_ERROR_NOTIFICATION = "CONNECTION ERROR";
     protected static final AtomicLong notifySequence = new AtomicLong(0);
-    protected static final ConcurrentHashMap<String, ConnectionErrorTrapJmxMBean> mbeans = new ConcurrentHashMap<>();
+    /**
+     * Registered mbeans by the name used in their ObjectName
+     */
+    protected static final ConcurrentHashMap<String, ConnectionErrorTrapContext> mbeans = new ConcurrentHashMap<>();
 
     private static final Log log = LogFactory.getLog(ConnectionErrorTrapJmx.class);
 
 
     @Override
-    protected void setConnectionDiscard() {
-        super.setConnectionDiscard();
+    protected void setConnectionDiscard(Throwable t) {
+        super.setConnectionDiscard(t);
+        if (!eventsFeature.isAsyncEvents()) {
+            notifyJmx();
+        }
+    }
+
+    @Override
+    protected void onFirstDiscard(DiscardEvent event) {
+        super.onFirstDiscard(event);
         notifyJmx();
     }
 
+    @Override
+    protected void onDiscardSummary(DiscardEvent first, long count, long elapsed) {
+        super.onDiscardSummary(first, count, elapsed);
+        notifyJmx(getDiscardSummary(first, count, elapsed));
+    }
+
     @Override
     public void reset(ConnectionPool parent, PooledConnection con) {
         super.reset(parent, con);
         isJmxPoolEnable = false;
         if (parent != null) {
             this.poolName = parent.getName();
-            registerJmx();
             if (parent.getJmxPool() != null) {
                 isJmxPoolEnable = true;
             }
@@ -59,7 +94,7 @@ public class ConnectionErrorTrapJmx extends ConnectionErrorTrap
     @Override
     public void poolClosed(ConnectionPool pool) {
         this.poolName = pool.getName();
-        deregisterJmx();
+        deregisterJmx(ConnectionErrorTrapContext.get(pool));
         super.poolClosed(pool);
     }
 
@@ -68,14 +103,24 @@ public class ConnectionErrorTrapJmx extends ConnectionErrorTrap
         this.pool = pool;
         super.poolStarted(pool);
         this.poolName = pool.getName();
+        registerJmx(this.context);
     }
 
-    protected void registerJmx() {
+    protected void registerJmx(ConnectionErrorTrapContext context) {
+        if (context == null || context.getMBean() != null) {
+            return;
+        }
         try {
-            ObjectName oname = getObjectName(getClass(), poolName);
-            if (mbeans.putIfAbsent(poolName, this) == null) {
-                JmxUtil.registerJmx(oname, null, this);
+            //pools sharing a name get the context id appended, so their mbeans do not collide
+            String name = poolName;
+            if (mbeans.putIfAbsent(name, context) != null) {
+                name = poolName + "-" + context.getId();
+                mbeans.put(name, context);
             }
+            ObjectName oname = getObjectName(getClass(), name);
+            context.setMBean(this);
+            context.setObjectName(oname);
+            JmxUtil.registerJmx(oname, null, this);
         } catch (MalformedObjectNameException e) {
             log.error("Jmx registration failed, no JMX data will be exposed for the query stats.", e);
         } catch (RuntimeOperationsException e) {
@@ -84,14 +129,16 @@ public class ConnectionErrorTrapJmx extends ConnectionErrorTrap
     }
 
 
-    protected void deregisterJmx() {
+    protected void deregisterJmx(ConnectionErrorTrapContext context) {
+        if (context == null || context.getObjectName() == null) {
+            return;
+        }
         try {
-            if (mbeans.remove(poolName) != null) {
-                ObjectName oname = getObjectName(getClass(), poolName);
-                JmxUtil.unregisterJmx(oname);
-            }
-        } catch (MalformedObjectNameException e) {
-            log.warn("Jmx deregistration failed.", e);
+            ObjectName oname = context.getObjectName();
+            mbeans.remove(oname.getKeyProperty("name"), context);
+            context.setObjectName(null);
+            context.setMBean(null);
+            JmxUtil.unregisterJmx(oname);
         } catch (RuntimeOperationsException e) {
             log.warn("Jmx deregistration failed.", e);
         }
@@ -99,27 +146,35 @@ public class ConnectionErrorTrapJmx extends ConnectionErrorTrap
     }
 
     protected void notifyJmx() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("CONNECTION POOL:").append(poolName).append(" CATCH A CONNECTION ERROR AND WAIT TO DISCARD THE CONNECTION");
+        notifyJmx(sb.toString());
+    }
+
+    protected void notifyJmx(String message) {
         try {
             long sequence = notifySequence.incrementAndGet();
-            if (isJmxPoolEnable && this.pool.getJmxPool().getObjectName() != null) {
-                StringBuilder sb = new StringBuilder();
-                sb.append("CONNECTION POOL:").append(poolName).append(" CATCH A CONNECTION ERROR AND WAIT TO DISCARD THE CONNECTION");
-                this.pool.getJmxPool().notify(CONNECTION_ERROR_NOTIFICATION, sb.toString());
+            ConnectionPool pool = this.pool;
+            if (isJmxPoolEnable && pool != null && pool.getJmxPool() != null && pool.getJmxPool().getObjectName() != null) {
+                //the pool mbean calls its listeners on the sending thread
+                org.apache.tomcat.jdbc.pool.jmx.ConnectionPool jmxPool = pool.getJmxPool();
+                NOTIFICATION_EXECUTOR.execute(() -> jmxPool.notify(CONNECTION_ERROR_NOTIFICATION, message));
             } else {
+                ConnectionErrorTrapContext context = this.context;
+                ConnectionErrorTrapJmx mbean = context != null ? context.getMBean() : null;
+                NotificationBroadcasterSupport notifier = mbean != null ? mbean.notifier : this.notifier;
                 if (notifier != null) {
-                    StringBuilder sb = new StringBuilder();
-                    sb.append("CONNECTION POOL:").append(poolName).append(" CATCH A CONNECTION ERROR AND WAIT TO DISCARD THE CONNECTION");
                     Notification notification =
                             new Notification(CONNECTION_ERROR_NOTIFICATION,
-                                    this,
+                                    mbean != null ? mbean : this,
                                     sequence,
                                     System.currentTimeMillis(),
-                                    sb.toString());
+                                    message);
 
                     notifier.sendNotification(notification);
                 }
             }
-        } catch (RuntimeOperationsException e) {
+        } catch (RuntimeOperationsException | RejectedExecutionException e) {
             if (log.isDebugEnabled()) {
                 log.debug("Unable to send failed query notification.", e);
             }
@@ -156,25 +211,296 @@ public class ConnectionErrorTrapJmx extends ConnectionErrorTrap
 
     @Override
     public CompositeData[] getPoolConnectionErrorCount() throws OpenDataException {
-        CompositeDataSupport[] result = null;
-        if (counts != null) {
-            result = new CompositeDataSupport[counts.size()];
-            int pos = 0;
-            for (Iterator<Map.Entry<ConnectionPool, LongAdder>> it = counts.entrySet().iterator(); it.hasNext(); ) {
-                Map.Entry<ConnectionPool, LongAdder> countEntry = it.next();
-                result[pos++] = getCompositeData(getCompositeType(), countEntry);
+        TrapMetricsCollector collector = TrapMetricsCollector.getDefault();
+        synchronized (collector) {
+            List<TrapMetrics> pools = collector.collect();
+            CompositeData[] result = new CompositeData[pools.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = getCompositeData(getCompositeType(), pools.get(i));
             }
+            return result;
         }
-        return result;
     }
 
-    public CompositeDataSupport getCompositeData(final CompositeType type, Map.Entry<ConnectionPool, LongAdder> entry) throws OpenDataException {
+    public CompositeDataSupport getCompositeData(final CompositeType type, TrapMetrics metrics) throws OpenDataException {
         Object[] values = new Object[]{
-                entry.getKey().getName(), entry.getValue().intValue()
+                metrics.getName(), metrics.getDiscardCount()
         };
         return new CompositeDataSupport(type, FIELD_NAMES, values);
     }
 
+    /**
+     * Read one value of the pool snapshot, the attributes are views of {@link TrapMetrics}
+     */
+    protected synchronized long metric(ToLongFunction<TrapMetrics> value) {
+        ConnectionErrorTrapContext context = this.context;
+        if (context == null) {
+            return 0;
+        }
+        if (metrics == null) {
+            metrics = new TrapMetrics();
+        }
+        return value.applyAsLong(metrics.update(context));
+    }
+
+    @Override
+    public synchronized String getCircuitBreakerState() {
+        ConnectionErrorTrapContext context = this.context;
+        if (context == null) {
+            return TrapMetrics.BREAKER_DISABLED;
+        }
+        if (metrics == null) {
+            metrics = new TrapMetrics();
+        }
+        return metrics.update(context).getCircuitBreakerState();
+    }
+
+    @Override
+    public long getCircuitBreakerOpenCount() {
+        return metric(TrapMetrics::getCircuitBreakerOpenCount);
+    }
+
+    @Override
+    public long getCircuitBreakerCloseCount() {
+        return metric(TrapMetrics::getCircuitBreakerCloseCount);
+    }
+
+    @Override
+    public long getCircuitBreakerRejectedCount() {
+        return metric(TrapMetrics::getCircuitBreakerRejectedCount);
+    }
+
+    @Override
+    public long getCircuitBreakerLastTransition() {
+        return metric(TrapMetrics::getCircuitBreakerLastTransition);
+    }
+
+    @Override
+    public long getDroppedEventCount() {
+        return metric(TrapMetrics::getDroppedEventCount);
+    }
+
+    @Override
+    public long getSuspectConnectionCount() {
+        return metric(TrapMetrics::getSuspectCount);
+    }
+
+    @Override
+    public long getSuspectDiscardCount() {
+        return metric(TrapMetrics::getSuspectDiscardCount);
+    }
+
+    @Override
+    public long getLastFatalError() {
+        return metric(TrapMetrics::getLastFatal);
+    }
+
+    @Override
+    public long getAdaptiveValidationCount() {
+        return metric(TrapMetrics::getAdaptiveValidationCount);
+    }
+
+    @Override
+    public long getAdaptiveValidationFailureCount() {
+        return metric(TrapMetrics::getAdaptiveValidationFailureCount);
+    }
+
+    @Override
+    public long getRefilledConnectionCount() {
+        return metric(TrapMetrics::getRefilledCount);
+    }
+
+    @Override
+    public long getRefillFailureCount() {
+        return metric(TrapMetrics::getRefillFailureCount);
+    }
+
+    @Override
+    public long getRefillLatency() {
+        return metric(TrapMetrics::getRefillLatency);
+    }
+
+    @Override
+    public int getStatisticsSize() {
+        return (int) metric(TrapMetrics::getStatisticsSize);
+    }
+
+    @Override
+    public long getStatisticsEvictionCount() {
+        return metric(TrapMetrics::getStatisticsEvictionCount);
+    }
+
+    @Override
+    public long getQueryTimeoutCount() {
+        return metric(TrapMetrics::getQueryTimeoutCount);
+    }
+
+    @Override
+    public long getStatementCacheHitCount() {
+        return metric(TrapMetrics::getStatementCacheHitCount);
+    }
+
+    @Override
+    public long getStatementCacheMissCount() {
+        return metric(TrapMetrics::getStatementCacheMissCount);
+    }
+
+    @Override
+    public long getStatementCacheEvictionCount() {
+        return metric(TrapMetrics::getStatementCacheEvictionCount);
+    }
+
+    @Override
+    public long getRetryCount() {
+        return metric(TrapMetrics::getRetryCount);
+    }
+
+    @Override
+    public long getRetrySuccessCount() {
+        return metric(TrapMetrics::getRetrySuccessCount);
+    }
+
+    @Override
+    public long getRetryRejectedCount() {
+        return metric(TrapMetrics::getRetryRejectedCount);
+    }
+
+    @Override
+    public long getRecycledConnectionCount() {
+        return metric(TrapMetrics::getRecycledCount);
+    }
+
+    @Override
+    public long getRecycleFailureCount() {
+        return metric(TrapMetrics::getRecycleFailureCount);
+    }
+
+    @Override
+    public long getRecycleSkippedCount() {
+        return metric(TrapMetrics::getRecycleSkippedCount);
+    }
+
+    @Override
+    public long getRecycleRate() {
+        return metric(TrapMetrics::getRecycleRate);
+    }
+
+    @Override
+    public int getRecyclingConnectionCount() {
+        return (int) metric(TrapMetrics::getRecycling);
+    }
+
+    @Override
+    public int getRecycleConcurrency() {
+        return (int) metric(TrapMetrics::getRecycleConcurrency);
+    }
+
+    @Override
+    public void setRecycleConcurrency(int recycleConcurrency) {
+        ConnectionErrorTrapContext context = this.context;
+        ConnectionRecycler recycler = context != null ? context.getRecycler() : null;
+        if (recycler != null) {
+            recycler.setConcurrency(recycleConcurrency);
+        }
+    }
+
+    @Override
+    public long getWarmUpDuration() {
+        return metric(TrapMetrics::getWarmUpDuration);
+    }
+
+    @Override
+    public long getWarmedUpConnectionCount() {
+        return metric(TrapMetrics::getWarmedUpCount);
+    }
+
+    @Override
+    public long getWarmUpFailureCount() {
+        return metric(TrapMetrics::getWarmUpFailureCount);
+    }
+
+    @Override
+    public long getWarmUpHandshakeLatencyAverage() {
+        return metric(TrapMetrics::getWarmUpHandshakeAverage);
+    }
+
+    @Override
+    public long getWarmUpHandshakeLatencyMax() {
+        return metric(TrapMetrics::getWarmUpHandshakeMax);
+    }
+
+    protected QueryStatistics getStatistics() {
+        ConnectionErrorTrapContext context = this.context;
+        return context != null ? context.getStatistics() : null;
+    }
+
+    @Override
+    public CompositeData[] getTopStatements(String orderBy, int n) throws OpenDataException {
+        QueryStatistics statistics = getStatistics();
+        if (statistics == null) {
+            return new CompositeData[0];
+        }
+        List<CompositeData> result = new ArrayList<>();
+        for (QueryStats stats : statistics.getTop(n, orderBy)) {
+            result.add(getQueryStatsData(getQueryStatsType(), stats));
+        }
+        return result.toArray(new CompositeData[0]);
+    }
+
+    public CompositeDataSupport getQueryStatsData(final CompositeType type, QueryStats stats) throws OpenDataException {
+        StringBuilder errors = new StringBuilder();
+        for (Map.Entry<String, Long> entry : stats.getErrorsByState().entrySet()) {
+            if (errors.length() > 0) {
+                errors.append(',');
+            }
+            errors.append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        Object[] values = new Object[]{
+                stats.getSql(),
+                stats.getCount(),
+                stats.getErrorCount(),
+                stats.getTotalNanos() / 1000000,
+                stats.getAverageMicros(),
+                stats.getPercentileMicros(0.5),
+                stats.getPercentileMicros(0.99),
+                stats.getMaxNanos() / 1000,
+                errors.toString()
+        };
+        return new CompositeDataSupport(type, QUERY_STATS_FIELD_NAMES, values);
+    }
+
+    @Override
+    public CompositeData[] getHostHealth() throws OpenDataException {
+        ConnectionErrorTrapContext context = this.context;
+        HostTracker tracker = context != null ? context.getHostTracker() : null;
+        if (tracker == null) {
+            return new CompositeData[0];
+        }
+        long now = System.currentTimeMillis();
+        List<CompositeData> result = new ArrayList<>();
+        for (HostHealth health : tracker.getHosts()) {
+            result.add(getHostHealthData(getHostHealthType(), tracker, health, now));
+        }
+        return result.toArray(new CompositeData[0]);
+    }
+
+    public CompositeDataSupport getHostHealthData(final CompositeType type, HostTracker tracker, HostHealth health,
+                                                  long now) throws OpenDataException {
+        Object[] values = new Object[]{
+                health.getHost(),
+                health.getState(now),
+                tracker.getConnectionCount(health.getHost()),
+                health.getRecentErrorCount(),
+                health.getFatalCount(),
+                health.getLastFatal(),
+                health.getQuarantineCount(),
+                health.getQuarantinedUntil(),
+                health.getEvictedCount(),
+                health.getReconnectCount()
+        };
+        return new CompositeDataSupport(type, HOST_HEALTH_FIELD_NAMES, values);
+    }
+
     protected static CompositeType getCompositeType() {
         if (CONNECTION_ERROR_COUNT_TYPE == null) {
             try {
@@ -192,6 +518,113 @@ public class ConnectionErrorTrapJmx extends ConnectionErrorTrap
     }
 
 
+    protected static CompositeType getQueryStatsType() {
+        if (QUERY_STATS_TYPE == null) {
+            try {
+                QUERY_STATS_TYPE = new CompositeType(
+                        QueryStats.class.getName(),
+                        "Composite data type for per SQL statistics",
+                        QUERY_STATS_FIELD_NAMES,
+                        QUERY_STATS_FIELD_DESCRIPTIONS,
+                        QUERY_STATS_FIELD_TYPES);
+            } catch (OpenDataException x) {
+                log.warn("Unable to initialize composite data type for JMX stats and notifications.", x);
+            }
+        }
+        return QUERY_STATS_TYPE;
+    }
+
+    protected static CompositeType getHostHealthType() {
+        if (HOST_HEALTH_TYPE == null) {
+            try {
+                HOST_HEALTH_TYPE = new CompositeType(
+                        HostHealth.class.getName(),
+                        "Composite data type for backend host health",
+                        HOST_HEALTH_FIELD_NAMES,
+                        HOST_HEALTH_FIELD_DESCRIPTIONS,
+                        HOST_HEALTH_FIELD_TYPES);
+            } catch (OpenDataException x) {
+                log.warn("Unable to initialize composite data type for JMX stats and notifications.", x);
+            }
+        }
+        return HOST_HEALTH_TYPE;
+    }
+
+    static final String[] HOST_HEALTH_FIELD_NAMES = new String[]{
+            "host",
+            "state",
+            "connections",
+            "recentErrors",
+            "fatalCount",
+            "lastFatal",
+            "quarantineCount",
+            "quarantinedUntil",
+            "evictedCount",
+            "reconnectCount",
+    };
+
+    static final String[] HOST_HEALTH_FIELD_DESCRIPTIONS = new String[]{
+            "The backend host reported by the driver",
+            "HEALTHY or QUARANTINED",
+            "The pooled connections to the host when last borrowed",
+            "The fatal errors of the host in the current hostErrorWindow",
+            "The fatal errors of the host",
+            "The time of the last fatal error of the host in milliseconds",
+            "The number of quarantines of the host",
+            "The end of the current or last quarantine in milliseconds",
+            "The connections discarded at once when the host was quarantined",
+            "The borrowed connections reconnected because they pointed to the quarantined host",
+    };
+
+    static final OpenType<?>[] HOST_HEALTH_FIELD_TYPES = new OpenType<?>[]{
+            SimpleType.STRING,
+            SimpleType.STRING,
+            SimpleType.INTEGER,
+            SimpleType.INTEGER,
+            SimpleType.LONG,
+            SimpleType.LONG,
+            SimpleType.LONG,
+            SimpleType.LONG,
+            SimpleType.LONG,
+            SimpleType.LONG,
+    };
+
+    static final String[] QUERY_STATS_FIELD_NAMES = new String[]{
+            "sql",
+            "count",
+            "errorCount",
+            "totalTime",
+            "averageTime",
+            "p50",
+            "p99",
+            "maxTime",
+            "errorsBySqlState",
+    };
+
+    static final String[] QUERY_STATS_FIELD_DESCRIPTIONS = new String[]{
+            "The SQL, normalized for plain statements",
+            "The number of executions",
+            "The number of failed executions",
+            "The total execution time in milliseconds",
+            "The average execution time in microseconds",
+            "The median execution time in microseconds, upper bound of its histogram bucket",
+            "The 99th percentile execution time in microseconds, upper bound of its histogram bucket",
+            "The maximum execution time in microseconds",
+            "The failed executions by SQLState",
+    };
+
+    static final OpenType<?>[] QUERY_STATS_FIELD_TYPES = new OpenType<?>[]{
+            SimpleType.STRING,
+            SimpleType.LONG,
+            SimpleType.LONG,
+            SimpleType.LONG,
+            SimpleType.LONG,
+            SimpleType.LONG,
+            SimpleType.LONG,
+            SimpleType.LONG,
+            SimpleType.STRING,
+    };
+
     static final String[] FIELD_NAMES = new String[]{
             "poolName",
             "errorCount",
@@ -202,8 +635,8 @@ public class ConnectionErrorTrapJmx extends ConnectionErrorTrap
             "The number of released error connection",
     };
 
-    static final OpenType<?>[] FIELD_TYPES = new OpenType[]{
+    static final OpenType<?>[] FIELD_TYPES = new OpenType<?>[]{
             SimpleType.STRING,
-            SimpleType.INTEGER,
+            SimpleType.LONG,
     };
 }
@@ -8,4 +8,149 @@ import javax.management.openmbean.OpenDataException;
  */
 public interface ConnectionErrorTrapJmxMBean {
     public CompositeData[] getPoolConnectionErrorCount() throws OpenDataException;
+
+    /**
+     * CLOSED, OPEN, HALF_OPEN, or DISABLED when no breaker is configured
+     */
+    public String getCircuitBreakerState();
+
+    public long getCircuitBreakerOpenCount();
+
+    public long getCircuitBreakerCloseCount();
+
+    public long getCircuitBreakerRejectedCount();
+
+    /**
+     * time of the last state transition in milliseconds, 0 if none
+     */
+    public long getCircuitBreakerLastTransition();
+
+    /**
+     * discard events dropped because the asynchronous event queue was full
+     */
+    public long getDroppedEventCount();
+
+    public long getRefilledConnectionCount();
+
+    public long getRefillFailureCount();
+
+    /**
+     * milliseconds the last background refill took to bring the pool back to its idle target
+     */
+    public long getRefillLatency();
+
+    /**
+     * Statistics of the most expensive SQL, needs statistics=true
+     * @param orderBy  totalTime or p99
+     * @param n        maximum number of statements returned
+     */
+    public CompositeData[] getTopStatements(String orderBy, int n) throws OpenDataException;
+
+    /**
+     * distinct SQL currently tracked by the statistics
+     */
+    public int getStatisticsSize();
+
+    /**
+     * SQL statistics evicted because more than statisticsMaxSize distinct SQL were seen
+     */
+    public long getStatisticsEvictionCount();
+
+    /**
+     * executions failed with a query timeout while adaptiveTimeout is on
+     */
+    public long getQueryTimeoutCount();
+
+    /**
+     * prepare calls served from, and missing, the per connection statement cache
+     */
+    public long getStatementCacheHitCount();
+
+    public long getStatementCacheMissCount();
+
+    public long getStatementCacheEvictionCount();
+
+    /**
+     * reads executed again after a fatal error, the ones that succeeded, and the ones refused by the
+     * retry budget
+     */
+    public long getRetryCount();
+
+    public long getRetrySuccessCount();
+
+    public long getRetryRejectedCount();
+
+    /**
+     * connections reconnected by the recycler because they reached their lifetime, the reconnects
+     * that failed, and the expired connections returned as they were because recycleConcurrency
+     * reconnects were running
+     */
+    public long getRecycledConnectionCount();
+
+    public long getRecycleFailureCount();
+
+    public long getRecycleSkippedCount();
+
+    /**
+     * connections recycled in the last complete minute
+     */
+    public long getRecycleRate();
+
+    /**
+     * connections being recycled now
+     */
+    public int getRecyclingConnectionCount();
+
+    /**
+     * maximum number of connections of the pool reconnected at once, 0 when recycling is off
+     */
+    public int getRecycleConcurrency();
+
+    public void setRecycleConcurrency(int recycleConcurrency);
+
+    /**
+     * milliseconds the parallel warm-up of the initial connections took, 0 if warm-up is off
+     */
+    public long getWarmUpDuration();
+
+    /**
+     * initial connections validated and warmed up, and the ones that failed and were discarded
+     */
+    public long getWarmedUpConnectionCount();
+
+    public long getWarmUpFailureCount();
+
+    /**
+     * average and maximum milliseconds to open a connection during warm-up
+     */
+    public long getWarmUpHandshakeLatencyAverage();
+
+    public long getWarmUpHandshakeLatencyMax();
+
+    /**
+     * connections marked suspect and validated once when returned
+     */
+    public long getSuspectConnectionCount();
+
+    /**
+     * suspect connections discarded because their validation failed
+     */
+    public long getSuspectDiscardCount();
+
+    /**
+     * time of the last fatal error in milliseconds, 0 if none
+     */
+    public long getLastFatalError();
+
+    /**
+     * borrowed connections validated because the pool had a recent fatal error
+     */
+    public long getAdaptiveValidationCount();
+
+    public long getAdaptiveValidationFailureCount();
+
+    /**
+     * health of every backend host of the pool, empty unless hostErrorThreshold is set
+     */
+    public CompositeData[] getHostHealth() throws OpenDataException;
 }
@@ -0,0 +1,149 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author edenhuan
+ * Proactive recycling of the connections of a pool. Every physical connection gets its own lifetime,
+ * drawn between age*(1-jitter) and age, so connections opened together at start or after a mass
+ * discard do not expire together. A connection past its lifetime is reconnected in the background
+ * when the application returns it, while it still counts as borrowed, so nobody uses it meanwhile.
+ * At most concurrency connections of the pool are reconnected at once, the others are returned as
+ * they are and recycled on a later return.
+ */
+public class ConnectionRecycler {
+    public static final long RATE_WINDOW = 60000;
+
+    private final long age;
+    private final double jitter;
+    private volatile int concurrency;
+
+    private final AtomicInteger running = new AtomicInteger(0);
+    private final LongAdder recycleCount = new LongAdder();
+    private final LongAdder failureCount = new LongAdder();
+    private final LongAdder skippedCount = new LongAdder();
+
+    private final AtomicLong windowStart = new AtomicLong(0);
+    private final LongAdder windowCount = new LongAdder();
+    private volatile long lastRate;
+
+    /**
+     * @param age          longest lifetime of a connection in milliseconds
+     * @param jitter       fraction of age lifetimes are shortened by at most, between 0 and 1
+     * @param concurrency  connections reconnected at once
+     */
+    public ConnectionRecycler(long age, double jitter, int concurrency) {
+        if (age <= 0) {
+            throw new IllegalArgumentException("age must be positive:" + age);
+        }
+        this.age = age;
+        this.jitter = Math.max(0, Math.min(1, jitter));
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    /**
+     * @param lastConnected  when the physical connection was opened
+     * @return when the connection should be recycled
+     */
+    public long getRecycleAt(long lastConnected) {
+        long shortening = (long) (age * jitter * ThreadLocalRandom.current().nextDouble());
+        return lastConnected + age - shortening;
+    }
+
+    /**
+     * Take a reconnect slot
+     * @return false if concurrency connections are being reconnected already
+     */
+    public boolean tryStart() {
+        int current;
+        do {
+            current = running.get();
+            if (current >= concurrency) {
+                skippedCount.increment();
+                return false;
+            }
+        } while (!running.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * Give back a slot taken for a reconnect that did not happen
+     */
+    public void cancel() {
+        running.decrementAndGet();
+    }
+
+    /**
+     * Give the slot back after the reconnect
+     */
+    public void end(boolean success, long now) {
+        running.decrementAndGet();
+        if (!success) {
+            failureCount.increment();
+            return;
+        }
+        recycleCount.increment();
+        long start = windowStart.get();
+        if (now - start >= RATE_WINDOW && windowStart.compareAndSet(start, now)) {
+            //reconnects of the window that just ended, the first window is usually shorter
+            lastRate = windowCount.sumThenReset();
+        }
+        windowCount.increment();
+    }
+
+    public long getAge() {
+        return age;
+    }
+
+    public double getJitter() {
+        return jitter;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * Change the maximum number of concurrent reconnects at runtime, at least 1
+     */
+    public void setConcurrency(int concurrency) {
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    /**
+     * connections being reconnected now
+     */
+    public int getRunning() {
+        return running.get();
+    }
+
+    public long getRecycleCount() {
+        return recycleCount.sum();
+    }
+
+    public long getFailureCount() {
+        return failureCount.sum();
+    }
+
+    /**
+     * expired connections returned without reconnect because concurrency reconnects were running
+     */
+    public long getSkippedCount() {
+        return skippedCount.sum();
+    }
+
+    /**
+     * connections recycled in the last complete minute
+     */
+    public long getRate() {
+        long elapsed = System.currentTimeMillis() - windowStart.get();
+        if (elapsed >= 2 * RATE_WINDOW) {
+            return 0;
+        }
+        //the current window is complete but no reconnect rolled it yet
+        return elapsed >= RATE_WINDOW ? windowCount.sum() : lastRate;
+    }
+}
@@ -0,0 +1,155 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.jdbc.pool.ConnectionPool;
+import org.apache.tomcat.jdbc.pool.PoolConfiguration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author edenhuan
+ * Opens replacement connections in the background after connections of the pool were released,
+ * until the pool is back to min(minIdle, maxActive). Connections are opened the way the pool
+ * fills itself on init: borrow until the pool had to create one, then return everything, so the
+ * handshake is paid by the refill thread instead of the next request thread.
+ * At most concurrency refill tasks run per pool on the {@link TrapScheduler}, failures back off
+ * exponentially up to maxBackoff.
+ */
+public class ConnectionRefiller {
+    public static final long INITIAL_BACKOFF = 100;
+    /**
+     * the pool lowers its size only after the disconnect callback that requests the refill returned
+     */
+    public static final long REQUEST_DELAY = 20;
+
+    private static final Log log = LogFactory.getLog(ConnectionRefiller.class);
+
+    private final ConnectionPool pool;
+    private final int concurrency;
+    private final long maxBackoff;
+
+    private final AtomicInteger running = new AtomicInteger(0);
+    private final AtomicLong requestedAt = new AtomicLong(0);
+    private volatile long backoff = INITIAL_BACKOFF;
+    private volatile long lastLatency;
+
+    private final LongAdder refilledCount = new LongAdder();
+    private final LongAdder failureCount = new LongAdder();
+
+    public ConnectionRefiller(ConnectionPool pool, int concurrency, long maxBackoff) {
+        this.pool = pool;
+        this.concurrency = Math.max(1, concurrency);
+        this.maxBackoff = Math.max(INITIAL_BACKOFF, maxBackoff);
+    }
+
+    /**
+     * number of connections the pool is refilled to
+     */
+    public int getTarget() {
+        PoolConfiguration properties = pool.getPoolProperties();
+        return Math.min(properties.getMinIdle(), properties.getMaxActive());
+    }
+
+    /**
+     * Ask for a refill, returns immediately. Does nothing when enough refill tasks already run.
+     */
+    public void request() {
+        if (pool.isClosed()) {
+            return;
+        }
+        requestedAt.compareAndSet(0, System.currentTimeMillis());
+        int current;
+        do {
+            current = running.get();
+            if (current >= concurrency) {
+                return;
+            }
+        } while (!running.compareAndSet(current, current + 1));
+        schedule(REQUEST_DELAY);
+    }
+
+    private void schedule(long delay) {
+        try {
+            TrapScheduler.schedule(this::refill, delay, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            running.decrementAndGet();
+            log.warn("Unable to schedule connection refill of pool:" + pool.getName(), e);
+        }
+    }
+
+    protected void refill() {
+        while (!pool.isClosed() && pool.getSize() < getTarget()) {
+            try {
+                if (!openOne()) {
+                    //request threads took the room meanwhile
+                    break;
+                }
+            } catch (SQLException e) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Unable to open a replacement connection for pool:" + pool.getName(), e);
+                }
+                failureCount.increment();
+                long delay = backoff;
+                backoff = Math.min(delay * 2, maxBackoff);
+                //keep the running slot, the retry owns it
+                schedule(delay);
+                return;
+            }
+            backoff = INITIAL_BACKOFF;
+            refilledCount.increment();
+        }
+        long requested = requestedAt.getAndSet(0);
+        if (requested > 0) {
+            lastLatency = System.currentTimeMillis() - requested;
+        }
+        running.decrementAndGet();
+    }
+
+    /**
+     * Borrow until the pool creates or reconnects one connection, then return everything
+     * @return true if a connection was opened
+     */
+    protected boolean openOne() throws SQLException {
+        List<Connection> held = new ArrayList<>();
+        long opened = pool.getCreatedCount() + pool.getReconnectedCount();
+        int maxActive = pool.getPoolProperties().getMaxActive();
+        try {
+            while (pool.getCreatedCount() + pool.getReconnectedCount() == opened
+                    && pool.getSize() < getTarget() && held.size() < maxActive) {
+                held.add(pool.getConnection());
+            }
+            return pool.getCreatedCount() + pool.getReconnectedCount() != opened;
+        } finally {
+            for (Connection connection : held) {
+                try {
+                    connection.close();
+                } catch (SQLException ignore) {
+                    // do nothing
+                }
+            }
+        }
+    }
+
+    public long getRefilledCount() {
+        return refilledCount.sum();
+    }
+
+    public long getFailureCount() {
+        return failureCount.sum();
+    }
+
+    /**
+     * milliseconds from the first refill request to the pool being back to its target, for the last refill
+     */
+    public long getLastLatency() {
+        return lastLatency;
+    }
+}
@@ -0,0 +1,93 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.jdbc.pool.PoolConfiguration;
+import org.apache.tomcat.jdbc.pool.PooledConnection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * @author edenhuan
+ * Validate a pooled connection on demand with the pool's validator or validation query.
+ * Unlike {@link PooledConnection#validate(int)} it does not depend on test-on-borrow/test-on-return/
+ * test-while-idle, the interceptor decides when validation is worth a round trip.
+ */
+public class ConnectionValidator {
+    private static final Log log = LogFactory.getLog(ConnectionValidator.class);
+
+    private ConnectionValidator() {
+    }
+
+    /**
+     * Return true if the connection answered, lastValidated of the connection is updated on success.
+     * Outside auto-commit mode the validation query is committed, or rolled back if it fails, so only
+     * validate connections without an open application transaction.
+     */
+    public static boolean validate(PooledConnection con) {
+        return validate(con, true);
+    }
+
+    /**
+     * Like {@link #validate(PooledConnection)} but leaves the transaction of the connection alone, for
+     * connections the application is using
+     */
+    public static boolean probe(PooledConnection con) {
+        return validate(con, false);
+    }
+
+    private static boolean validate(PooledConnection con, boolean endTransaction) {
+        if (con == null || con.isDiscarded()) {
+            return false;
+        }
+        Connection connection = con.getConnection();
+        if (connection == null) {
+            return false;
+        }
+        PoolConfiguration properties = con.getPoolProperties();
+        long now = System.currentTimeMillis();
+        boolean valid;
+        if (properties.getValidator() != null) {
+            valid = properties.getValidator().validate(connection, PooledConnection.VALIDATE_BORROW);
+        } else {
+            int timeout = Math.max(0, properties.getValidationQueryTimeout());
+            valid = execute(connection, properties.getValidationQuery(), timeout, endTransaction);
+        }
+        if (valid) {
+            con.setLastValidated(now);
+        }
+        return valid;
+    }
+
+    private static boolean execute(Connection connection, String query, int timeout, boolean endTransaction) {
+        try {
+            if (query == null) {
+                return connection.isValid(timeout);
+            }
+            try (Statement stmt = connection.createStatement()) {
+                if (timeout > 0) {
+                    stmt.setQueryTimeout(timeout);
+                }
+                stmt.execute(query);
+            }
+            if (endTransaction && !connection.getAutoCommit()) {
+                connection.commit();
+            }
+            return true;
+        } catch (SQLException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Connection validation failed.", e);
+            }
+            try {
+                if (endTransaction && !connection.getAutoCommit()) {
+                    connection.rollback();
+                }
+            } catch (SQLException ignore) {
+                // do nothing
+            }
+            return false;
+        }
+    }
+}
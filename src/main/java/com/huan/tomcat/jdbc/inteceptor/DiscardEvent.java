@@ -0,0 +1,80 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import java.lang.reflect.InvocationTargetException;
+import java.sql.SQLException;
+
+/**
+ * @author edenhuan
+ * A connection discarded by the trap, handed from the request thread to {@link DiscardEventDispatcher}.
+ */
+public class DiscardEvent {
+    private final ConnectionErrorTrap source;
+    private final ConnectionErrorTrapContext context;
+    private final Throwable throwable;
+    private final String sqlState;
+    private final int errorCode;
+    private final long timestamp;
+    private final long lastConnected;
+    private final long lastValidated;
+    private final long window;
+
+    public DiscardEvent(ConnectionErrorTrap source, ConnectionErrorTrapContext context, Throwable throwable,
+                        long lastConnected, long lastValidated, long window) {
+        this.source = source;
+        this.context = context;
+        this.throwable = throwable;
+        SQLException e = toSQLException(throwable);
+        this.sqlState = e != null ? e.getSQLState() : null;
+        this.errorCode = e != null ? e.getErrorCode() : 0;
+        this.timestamp = System.currentTimeMillis();
+        this.lastConnected = lastConnected;
+        this.lastValidated = lastValidated;
+        this.window = window;
+    }
+
+    public static SQLException toSQLException(Throwable t) {
+        if (t instanceof InvocationTargetException) {
+            t = t.getCause();
+        }
+        return t instanceof SQLException ? (SQLException) t : null;
+    }
+
+    public ConnectionErrorTrap getSource() {
+        return source;
+    }
+
+    public ConnectionErrorTrapContext getContext() {
+        return context;
+    }
+
+    public Throwable getThrowable() {
+        return throwable;
+    }
+
+    public String getSqlState() {
+        return sqlState;
+    }
+
+    public int getErrorCode() {
+        return errorCode;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getLastConnected() {
+        return lastConnected;
+    }
+
+    public long getLastValidated() {
+        return lastValidated;
+    }
+
+    /**
+     * milliseconds during which events with the same pool, SQLState and error code are coalesced
+     */
+    public long getWindow() {
+        return window;
+    }
+}
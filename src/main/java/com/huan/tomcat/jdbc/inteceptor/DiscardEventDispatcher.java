@@ -0,0 +1,174 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @author edenhuan
+ * Background dispatcher of discard events. Request threads only enqueue into a bounded lock free
+ * queue, one daemon thread logs and notifies. The first event of a pool/SQLState/errorCode is
+ * reported with its stack trace, the following ones within the event window are counted and
+ * reported as a single summary when the window ends. Events are dropped and counted when the
+ * queue is full.
+ */
+public class DiscardEventDispatcher implements Runnable {
+    public static final int DEFAULT_CAPACITY = 4096;
+    private static final long POLL_INTERVAL = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private static final Log log = LogFactory.getLog(DiscardEventDispatcher.class);
+
+    private static final ReentrantLock lock = new ReentrantLock();
+    private static volatile DiscardEventDispatcher instance;
+
+    private final int capacity;
+    private final ConcurrentLinkedQueue<DiscardEvent> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger(0);
+    private final LongAdder droppedCount = new LongAdder();
+
+    /**
+     * only touched by the dispatcher thread
+     */
+    private final Map<Key, Aggregate> aggregates = new HashMap<>();
+
+    protected DiscardEventDispatcher(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public static DiscardEventDispatcher getInstance() {
+        DiscardEventDispatcher dispatcher = instance;
+        if (dispatcher == null) {
+            lock.lock();
+            try {
+                dispatcher = instance;
+                if (dispatcher == null) {
+                    dispatcher = new DiscardEventDispatcher(DEFAULT_CAPACITY);
+                    Thread thread = new Thread(dispatcher, "ConnectionErrorTrap-events");
+                    thread.setDaemon(true);
+                    thread.start();
+                    instance = dispatcher;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return dispatcher;
+    }
+
+    /**
+     * Enqueue an event, never blocks
+     * @return false if the queue was full and the event dropped
+     */
+    public boolean offer(DiscardEvent event) {
+        if (size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+            droppedCount.increment();
+            if (event.getContext() != null) {
+                event.getContext().incrementDroppedEventCount();
+            }
+            return false;
+        }
+        queue.offer(event);
+        return true;
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    public int getQueueSize() {
+        return size.get();
+    }
+
+    @Override
+    public void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                DiscardEvent event;
+                while ((event = queue.poll()) != null) {
+                    size.decrementAndGet();
+                    accept(event);
+                }
+                flushExpired(System.currentTimeMillis());
+            } catch (Throwable t) {
+                log.warn("Unable to dispatch connection discard events.", t);
+            }
+            LockSupport.parkNanos(POLL_INTERVAL);
+        }
+    }
+
+    protected void accept(DiscardEvent event) {
+        Key key = new Key(event.getContext(), event.getSqlState(), event.getErrorCode());
+        Aggregate aggregate = aggregates.get(key);
+        if (aggregate == null) {
+            aggregates.put(key, new Aggregate(event));
+            event.getSource().onFirstDiscard(event);
+        } else {
+            aggregate.count++;
+        }
+    }
+
+    protected void flushExpired(long now) {
+        for (Iterator<Aggregate> it = aggregates.values().iterator(); it.hasNext(); ) {
+            Aggregate aggregate = it.next();
+            if (now - aggregate.first.getTimestamp() >= aggregate.first.getWindow()) {
+                it.remove();
+                if (aggregate.count > 0) {
+                    aggregate.first.getSource().onDiscardSummary(aggregate.first, aggregate.count,
+                            now - aggregate.first.getTimestamp());
+                }
+            }
+        }
+    }
+
+    private static final class Key {
+        private final ConnectionErrorTrapContext context;
+        private final String sqlState;
+        private final int errorCode;
+
+        Key(ConnectionErrorTrapContext context, String sqlState, int errorCode) {
+            this.context = context;
+            this.sqlState = sqlState;
+            this.errorCode = errorCode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return context == key.context && errorCode == key.errorCode && Objects.equals(sqlState, key.sqlState);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * System.identityHashCode(context) + Objects.hashCode(sqlState)) + errorCode;
+        }
+    }
+
+    private static final class Aggregate {
+        private final DiscardEvent first;
+        /**
+         * events after the first one
+         */
+        private long count;
+
+        Aggregate(DiscardEvent first) {
+            this.first = first;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author edenhuan
+ * Lock free error rate of one backend host of a pool. The host is quarantined for a while when it
+ * reaches the threshold of fatal errors within the window, like a {@link CircuitBreaker} scoped to
+ * one host, except that a quarantine simply expires.
+ */
+public class HostHealth {
+    public static final String HEALTHY = "HEALTHY";
+    public static final String QUARANTINED = "QUARANTINED";
+
+    private final String host;
+    private final AtomicLong windowStart = new AtomicLong(0);
+    private final AtomicInteger windowCount = new AtomicInteger(0);
+    private final AtomicLong quarantinedUntil = new AtomicLong(0);
+    private volatile long lastFatal;
+
+    private final LongAdder fatalCount = new LongAdder();
+    private final LongAdder quarantineCount = new LongAdder();
+    private final LongAdder evictedCount = new LongAdder();
+    private final LongAdder reconnectCount = new LongAdder();
+
+    public HostHealth(String host) {
+        this.host = host;
+    }
+
+    /**
+     * Count a fatal verdict of the host
+     * @return true if this call put the host into quarantine
+     */
+    public boolean recordFatal(long now, int threshold, long window, long quarantine) {
+        fatalCount.increment();
+        lastFatal = now;
+        long until = quarantinedUntil.get();
+        if (now < until) {
+            return false;
+        }
+        long start = windowStart.get();
+        if (now - start > window && windowStart.compareAndSet(start, now)) {
+            windowCount.set(0);
+        }
+        if (windowCount.incrementAndGet() >= threshold && quarantinedUntil.compareAndSet(until, now + quarantine)) {
+            windowCount.set(0);
+            quarantineCount.increment();
+            return true;
+        }
+        return false;
+    }
+
+    public boolean isQuarantined(long now) {
+        return now < quarantinedUntil.get();
+    }
+
+    public void addEvicted(int count) {
+        evictedCount.add(count);
+    }
+
+    public void incrementReconnectCount() {
+        reconnectCount.increment();
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public String getState(long now) {
+        return isQuarantined(now) ? QUARANTINED : HEALTHY;
+    }
+
+    public long getQuarantinedUntil() {
+        return quarantinedUntil.get();
+    }
+
+    public long getLastFatal() {
+        return lastFatal;
+    }
+
+    /**
+     * fatal errors in the current window
+     */
+    public int getRecentErrorCount() {
+        return windowCount.get();
+    }
+
+    public long getFatalCount() {
+        return fatalCount.sum();
+    }
+
+    public long getQuarantineCount() {
+        return quarantineCount.sum();
+    }
+
+    /**
+     * connections discarded at once when the host was quarantined
+     */
+    public long getEvictedCount() {
+        return evictedCount.sum();
+    }
+
+    /**
+     * borrowed connections reconnected because they pointed to the quarantined host
+     */
+    public long getReconnectCount() {
+        return reconnectCount.sum();
+    }
+}
@@ -0,0 +1,123 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import org.apache.tomcat.jdbc.pool.PooledConnection;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author edenhuan
+ * Backend hosts of a pool whose url names several of them (MySQL replication or loadbalance urls).
+ * Knows the host every pooled connection talked to when it was last borrowed and the
+ * {@link HostHealth} of every host, so a host reaching hostErrorThreshold gets all its connections
+ * discarded at once instead of one failed statement at a time.
+ */
+public class HostTracker {
+    /**
+     * hosts beyond this are not tracked, a url does not name that many
+     */
+    public static final int MAX_HOSTS = 64;
+
+    private final int threshold;
+    private final long window;
+    private final long quarantine;
+
+    private final ConcurrentHashMap<String, HostHealth> hosts = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<PooledConnection, String> connections = new ConcurrentHashMap<>();
+
+    public HostTracker(int threshold, long window, long quarantine) {
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("threshold must be positive:" + threshold);
+        }
+        this.threshold = threshold;
+        this.window = window;
+        this.quarantine = quarantine;
+    }
+
+    /**
+     * Remember the host of a borrowed connection, the map is only written when the host changed
+     */
+    public void register(PooledConnection con, String host) {
+        if (!host.equals(connections.get(con))) {
+            connections.put(con, host);
+            getHealth(host);
+        }
+    }
+
+    public void unregister(PooledConnection con) {
+        connections.remove(con);
+    }
+
+    /**
+     * @return the health of the host, null if MAX_HOSTS hosts are tracked already
+     */
+    public HostHealth getHealth(String host) {
+        HostHealth health = hosts.get(host);
+        if (health == null && hosts.size() < MAX_HOSTS) {
+            health = hosts.computeIfAbsent(host, HostHealth::new);
+        }
+        return health;
+    }
+
+    public boolean isQuarantined(String host, long now) {
+        HostHealth health = hosts.get(host);
+        return health != null && health.isQuarantined(now);
+    }
+
+    /**
+     * Count a fatal verdict of the host, discard every connection to it if this puts it in quarantine
+     * @return connections discarded, -1 if the host was not quarantined by this call
+     */
+    public int recordFatal(String host, long now) {
+        HostHealth health = getHealth(host);
+        if (health == null || !health.recordFatal(now, threshold, window, quarantine)) {
+            return -1;
+        }
+        int evicted = 0;
+        for (Map.Entry<PooledConnection, String> entry : connections.entrySet()) {
+            PooledConnection con = entry.getKey();
+            //idle ones reconnect when borrowed, busy ones are released when returned
+            if (host.equals(entry.getValue()) && !con.isDiscarded()) {
+                con.setDiscarded(true);
+                evicted++;
+            }
+        }
+        health.addEvicted(evicted);
+        return evicted;
+    }
+
+    public int getConnectionCount(String host) {
+        int count = 0;
+        for (String value : connections.values()) {
+            if (host.equals(value)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * hosts seen by borrowed connections or fatal errors
+     */
+    public int getHostCount() {
+        return hosts.size();
+    }
+
+    public Collection<HostHealth> getHosts() {
+        return Collections.unmodifiableCollection(hosts.values());
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public long getWindow() {
+        return window;
+    }
+
+    public long getQuarantine() {
+        return quarantine;
+    }
+}
@@ -0,0 +1,75 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import com.huan.tomcat.jdbc.vendor.ExceptionSorter;
+import org.apache.tomcat.jdbc.pool.ConnectionPool;
+import org.apache.tomcat.jdbc.pool.PoolProperties.InterceptorProperty;
+
+import java.sql.Connection;
+import java.util.Map;
+
+/**
+ * @author edenhuan
+ * With hostErrorThreshold>0 fatal errors are attributed to the backend host of the connection (see
+ * {@link ExceptionSorter#getBackendHost(Connection)}), a host reaching the threshold within
+ * hostErrorWindow milliseconds gets all its pooled connections discarded at once and is quarantined
+ * for hostQuarantine milliseconds, see {@link HostTracker}.
+ */
+public class HostTrackingFeature implements TrapFeature {
+    public static final String PROP_HOST_ERROR_THRESHOLD = "hostErrorThreshold";
+    public static final String PROP_HOST_ERROR_WINDOW = "hostErrorWindow";
+    public static final String PROP_HOST_QUARANTINE = "hostQuarantine";
+
+    /**
+     * fatal errors of one backend host within hostErrorWindow that evict its connections, 0 disables it
+     */
+    protected int hostErrorThreshold = 0;
+    protected long hostErrorWindow = 10000;
+    protected long hostQuarantine = 30000;
+
+    @Override
+    public void setProperties(Map<String, InterceptorProperty> properties) {
+        InterceptorProperty p = properties.get(PROP_HOST_ERROR_THRESHOLD);
+        if (p != null) {
+            setHostErrorThreshold(p.getValueAsInt(hostErrorThreshold));
+        }
+        p = properties.get(PROP_HOST_ERROR_WINDOW);
+        if (p != null) {
+            setHostErrorWindow(p.getValueAsLong(hostErrorWindow));
+        }
+        p = properties.get(PROP_HOST_QUARANTINE);
+        if (p != null) {
+            setHostQuarantine(p.getValueAsLong(hostQuarantine));
+        }
+    }
+
+    @Override
+    public void poolStarted(ConnectionPool pool, ConnectionErrorTrapContext context) {
+        if (hostErrorThreshold > 0 && context.getHostTracker() == null) {
+            context.setHostTracker(new HostTracker(hostErrorThreshold, hostErrorWindow, hostQuarantine));
+        }
+    }
+
+    public int getHostErrorThreshold() {
+        return hostErrorThreshold;
+    }
+
+    public void setHostErrorThreshold(int hostErrorThreshold) {
+        this.hostErrorThreshold = hostErrorThreshold;
+    }
+
+    public long getHostErrorWindow() {
+        return hostErrorWindow;
+    }
+
+    public void setHostErrorWindow(long hostErrorWindow) {
+        this.hostErrorWindow = hostErrorWindow;
+    }
+
+    public long getHostQuarantine() {
+        return hostQuarantine;
+    }
+
+    public void setHostQuarantine(long hostQuarantine) {
+        this.hostQuarantine = hostQuarantine;
+    }
+}
@@ -0,0 +1,72 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import com.huan.tomcat.jdbc.journal.DiscardJournal;
+import org.apache.tomcat.jdbc.pool.ConnectionPool;
+import org.apache.tomcat.jdbc.pool.PoolProperties.InterceptorProperty;
+
+import java.util.Map;
+
+/**
+ * @author edenhuan
+ * With journalDirectory set every discard is also written to a {@link DiscardJournal} of the pool in that
+ * directory, a memory mapped ring of the last journalSize discards for post-mortem analysis. The journal
+ * is closed with the pool.
+ */
+public class JournalFeature implements TrapFeature {
+    public static final String PROP_JOURNAL_DIRECTORY = "journalDirectory";
+    public static final String PROP_JOURNAL_SIZE = "journalSize";
+
+    /**
+     * directory of the discard journals, null disables them
+     */
+    protected String journalDirectory;
+    /**
+     * discards kept per journal
+     */
+    protected int journalSize = 65536;
+
+    @Override
+    public void setProperties(Map<String, InterceptorProperty> properties) {
+        InterceptorProperty p = properties.get(PROP_JOURNAL_DIRECTORY);
+        if (p != null) {
+            setJournalDirectory(p.getValue());
+        }
+        p = properties.get(PROP_JOURNAL_SIZE);
+        if (p != null) {
+            setJournalSize(p.getValueAsInt(journalSize));
+        }
+    }
+
+    @Override
+    public void poolStarted(ConnectionPool pool, ConnectionErrorTrapContext context) {
+        if (journalDirectory != null && journalSize > 0 && context.getJournal() == null) {
+            context.setJournal(DiscardJournal.open(journalDirectory, context.getName(), context.getId(),
+                    journalSize));
+        }
+    }
+
+    @Override
+    public void poolClosed(ConnectionErrorTrapContext context) {
+        DiscardJournal journal = context.getJournal();
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    public String getJournalDirectory() {
+        return journalDirectory;
+    }
+
+    public void setJournalDirectory(String journalDirectory) {
+        this.journalDirectory = journalDirectory != null && !journalDirectory.trim().isEmpty()
+                ? journalDirectory.trim() : null;
+    }
+
+    public int getJournalSize() {
+        return journalSize;
+    }
+
+    public void setJournalSize(int journalSize) {
+        this.journalSize = journalSize;
+    }
+}
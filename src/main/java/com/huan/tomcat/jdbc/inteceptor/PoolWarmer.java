@@ -0,0 +1,287 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.jdbc.pool.ConnectionPool;
+import org.apache.tomcat.jdbc.pool.PoolConfiguration;
+import org.apache.tomcat.jdbc.pool.PooledConnection;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @author edenhuan
+ * Opens the initial connections of a pool in parallel before the pool fills itself. Called from
+ * poolStarted, which the pool runs before borrowing initialSize connections one after another: the
+ * warmer borrows min(initialSize, maxActive) connections on up to concurrency threads, validates each
+ * one, runs the warm-up SQL on it and returns them together, so the serial fill of the pool only finds
+ * idle connections. A connection that fails is discarded, the pool opens a fresh one in its place.
+ * Warm-up SQL with ? placeholders is only prepared, other statements are executed with maxRows=1,
+ * so it should only contain reads. Preparing only reaches the server with server side prepares, e.g.
+ * useServerPrepStmts=true for MySQL, client side prepares just warm the driver and the statement cache.
+ */
+public class PoolWarmer {
+    private static final Log log = LogFactory.getLog(PoolWarmer.class);
+
+    private final ConnectionPool pool;
+    private final int concurrency;
+    private final List<String> sql;
+    private final long timeout;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<Connection> held = new ArrayList<>();
+    private boolean done;
+
+    private volatile long duration;
+    private final LongAdder warmedCount = new LongAdder();
+    private final LongAdder failureCount = new LongAdder();
+    private final LongAdder handshakeCount = new LongAdder();
+    private final LongAdder handshakeTime = new LongAdder();
+    private final AtomicLong maxHandshake = new AtomicLong(0);
+
+    /**
+     * @param sql      warm-up statements run on every connection, may be empty
+     * @param timeout  milliseconds the warm-up may take, connections still warming up then are returned
+     *                 once they are done
+     */
+    public PoolWarmer(ConnectionPool pool, int concurrency, List<String> sql, long timeout) {
+        this.pool = pool;
+        this.concurrency = Math.max(1, concurrency);
+        this.sql = sql != null ? sql : Collections.<String>emptyList();
+        this.timeout = Math.max(1, timeout);
+    }
+
+    /**
+     * number of connections warmed up
+     */
+    public int getTarget() {
+        PoolConfiguration properties = pool.getPoolProperties();
+        return Math.min(properties.getInitialSize(), properties.getMaxActive());
+    }
+
+    /**
+     * Warm the pool up, returns when every connection is warmed up and returned or the timeout expired
+     */
+    public void warmUp() {
+        int target = getTarget();
+        if (target <= 0 || pool.isClosed()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        final AtomicInteger threadId = new AtomicInteger(0);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrency, target), r -> {
+            Thread thread = new Thread(r, "ConnectionErrorTrap-warmup-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (int i = 0; i < target; i++) {
+                executor.execute(this::warmUpOne);
+            }
+            executor.shutdown();
+            if (!executor.awaitTermination(timeout, TimeUnit.MILLISECONDS)) {
+                log.warn("Warm-up of pool:" + pool.getName() + " did not finish within " + timeout
+                        + "ms, the remaining connections are opened by the pool.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdown();
+            List<Connection> warmed;
+            lock.lock();
+            try {
+                done = true;
+                warmed = new ArrayList<>(held);
+                held.clear();
+            } finally {
+                lock.unlock();
+            }
+            for (Connection connection : warmed) {
+                close(connection);
+            }
+            duration = System.currentTimeMillis() - start;
+        }
+        log.info("Warmed up " + warmedCount.sum() + " of " + target + " connections of pool:" + pool.getName()
+                + " in " + duration + "ms, " + failureCount.sum() + " failed, max handshake "
+                + maxHandshake.get() + "ms.");
+    }
+
+    /**
+     * Borrow, validate and warm up one connection, then hold it so the next borrow opens another one
+     */
+    protected void warmUpOne() {
+        long begin = System.currentTimeMillis();
+        Connection connection;
+        try {
+            connection = pool.getConnection();
+        } catch (SQLException e) {
+            failureCount.increment();
+            log.warn("Unable to open a connection of pool:" + pool.getName() + " during warm-up.", e);
+            return;
+        }
+        long handshake = System.currentTimeMillis() - begin;
+        handshakeCount.increment();
+        handshakeTime.add(handshake);
+        long max;
+        while (handshake > (max = maxHandshake.get()) && !maxHandshake.compareAndSet(max, handshake)) {
+            // retry
+        }
+        PooledConnection con = null;
+        boolean warmed = false;
+        try {
+            con = connection.unwrap(PooledConnection.class);
+            if (!ConnectionValidator.validate(con)) {
+                throw new SQLException("Failed to validate a newly established connection.");
+            }
+            execute(connection);
+            warmed = true;
+        } catch (SQLException | RuntimeException e) {
+            log.warn("Warm-up of a connection of pool:" + pool.getName() + " failed, discarding it.", e);
+        }
+        if (!warmed) {
+            failureCount.increment();
+            if (con != null) {
+                con.setDiscarded(true);
+            }
+            close(connection);
+            return;
+        }
+        warmedCount.increment();
+        lock.lock();
+        try {
+            if (!done) {
+                held.add(connection);
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        //the warm-up timed out meanwhile
+        close(connection);
+    }
+
+    protected void execute(Connection connection) throws SQLException {
+        if (sql.isEmpty()) {
+            return;
+        }
+        int queryTimeout = (int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(timeout));
+        for (String statement : sql) {
+            if (statement.indexOf('?') >= 0) {
+                connection.prepareStatement(statement).close();
+            } else {
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.setQueryTimeout(queryTimeout);
+                    stmt.setMaxRows(1);
+                    stmt.execute(statement);
+                }
+            }
+        }
+        if (!connection.getAutoCommit()) {
+            connection.rollback();
+        }
+    }
+
+    private static void close(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException ignore) {
+            // do nothing
+        }
+    }
+
+    /**
+     * Read warm-up statements, one per line, from a class path resource or else a file. Blank lines and
+     * lines starting with -- or # are skipped, a trailing ; is removed.
+     * @return the statements, empty if the location can not be read
+     */
+    public static List<String> loadSql(String location) {
+        if (location == null || location.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> statements = new ArrayList<>();
+        try (InputStream in = open(location)) {
+            if (in == null) {
+                log.warn("Warm-up SQL not found:" + location);
+                return Collections.emptyList();
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.endsWith(";")) {
+                    line = line.substring(0, line.length() - 1).trim();
+                }
+                if (!line.isEmpty() && !line.startsWith("--") && !line.startsWith("#")) {
+                    statements.add(line);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Unable to read warm-up SQL:" + location, e);
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(statements);
+    }
+
+    private static InputStream open(String location) throws IOException {
+        String name = location.startsWith("classpath:") ? location.substring("classpath:".length()) : location;
+        if (name.startsWith("/")) {
+            name = name.substring(1);
+        }
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        InputStream in = (loader != null ? loader : PoolWarmer.class.getClassLoader()).getResourceAsStream(name);
+        if (in != null || location.startsWith("classpath:")) {
+            return in;
+        }
+        File file = new File(location);
+        return file.isFile() ? new FileInputStream(file) : null;
+    }
+
+    public List<String> getSql() {
+        return sql;
+    }
+
+    /**
+     * milliseconds the last warm-up took, 0 if it did not run
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    public long getWarmedCount() {
+        return warmedCount.sum();
+    }
+
+    public long getFailureCount() {
+        return failureCount.sum();
+    }
+
+    /**
+     * average milliseconds to open a connection during warm-up, 0 if none was opened
+     */
+    public long getHandshakeAverage() {
+        long count = handshakeCount.sum();
+        return count > 0 ? handshakeTime.sum() / count : 0;
+    }
+
+    public long getHandshakeMax() {
+        return maxHandshake.get();
+    }
+}
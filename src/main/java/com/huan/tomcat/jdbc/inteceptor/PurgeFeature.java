@@ -0,0 +1,52 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import com.huan.tomcat.jdbc.vendor.ExceptionSorter;
+import org.apache.tomcat.jdbc.pool.PoolProperties.InterceptorProperty;
+
+import java.util.Map;
+
+/**
+ * @author edenhuan
+ * With purgeOnFatal=true a backend failure (see {@link ExceptionSorter#isBackendFailure(Throwable)}) purges
+ * the whole pool: idle connections are closed and busy ones are released when returned. An error storm
+ * purges once per purgeInterval milliseconds. With several backend hosts the host tracker evicts the
+ * connections of the failed host instead, see {@link HostTrackingFeature}.
+ */
+public class PurgeFeature implements TrapFeature {
+    public static final String PROP_PURGE_ON_FATAL = "purgeOnFatal";
+    public static final String PROP_PURGE_INTERVAL = "purgeInterval";
+
+    protected boolean purgeOnFatal = false;
+    /**
+     * minimum milliseconds between two purges of the same pool
+     */
+    protected long purgeInterval = 5000;
+
+    @Override
+    public void setProperties(Map<String, InterceptorProperty> properties) {
+        InterceptorProperty p = properties.get(PROP_PURGE_ON_FATAL);
+        if (p != null) {
+            setPurgeOnFatal(p.getValueAsBoolean(false));
+        }
+        p = properties.get(PROP_PURGE_INTERVAL);
+        if (p != null) {
+            setPurgeInterval(p.getValueAsLong(purgeInterval));
+        }
+    }
+
+    public boolean isPurgeOnFatal() {
+        return purgeOnFatal;
+    }
+
+    public void setPurgeOnFatal(boolean purgeOnFatal) {
+        this.purgeOnFatal = purgeOnFatal;
+    }
+
+    public long getPurgeInterval() {
+        return purgeInterval;
+    }
+
+    public void setPurgeInterval(long purgeInterval) {
+        this.purgeInterval = purgeInterval;
+    }
+}
@@ -0,0 +1,136 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * @author edenhuan
+ * Per SQL {@link QueryStats} of one pool, kept in a bounded map. When the map grows past maxSize,
+ * the thread that adds the entry evicts: among the least recently used half of the entries, the
+ * least frequently executed ones go first, so memory stays flat whatever the variety of SQL is
+ * while hot statements survive.
+ */
+public class QueryStatistics {
+    public static final String ORDER_BY_TOTAL_TIME = "totalTime";
+    public static final String ORDER_BY_P99 = "p99";
+
+    private final int maxSize;
+    private final ConcurrentHashMap<String, QueryStats> stats = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean(false);
+    private final LongAdder evictionCount = new LongAdder();
+
+    public QueryStatistics(int maxSize) {
+        this.maxSize = Math.max(1, maxSize);
+    }
+
+    /**
+     * @param sql        the SQL, ignored when null
+     * @param normalize  true for plain statement SQL that may contain literals
+     * @param nanos      execution time in nanoseconds
+     * @param t          error of the execution, null if it succeeded
+     */
+    public void record(String sql, boolean normalize, long nanos, Throwable t) {
+        if (sql == null) {
+            return;
+        }
+        String key = normalize ? SqlNormalizer.normalize(sql) : sql;
+        QueryStats entry = stats.get(key);
+        if (entry == null) {
+            entry = stats.computeIfAbsent(key, QueryStats::new);
+            if (stats.size() > maxSize) {
+                evict();
+            }
+        }
+        entry.record(nanos, t, System.currentTimeMillis());
+    }
+
+    protected void evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int excess = stats.size() - maxSize;
+            if (excess <= 0) {
+                return;
+            }
+            //evict a tenth more than needed, so a stream of new SQL does not evict on every insert
+            excess = Math.min(stats.size(), excess + maxSize / 10);
+            List<QueryStats> candidates = sort(stats.values(), QueryStats::getLastAccess, false);
+            int size = Math.max(excess, candidates.size() / 2);
+            candidates = sort(candidates.subList(0, Math.min(size, candidates.size())), QueryStats::getCount, false);
+            for (int i = 0; i < excess && i < candidates.size(); i++) {
+                QueryStats entry = candidates.get(i);
+                if (stats.remove(entry.getSql(), entry)) {
+                    evictionCount.increment();
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    public QueryStats get(String sql) {
+        return sql == null ? null : stats.get(sql);
+    }
+
+    /**
+     * @param n      maximum number of entries
+     * @param order  {@link #ORDER_BY_TOTAL_TIME} or {@link #ORDER_BY_P99}
+     */
+    public List<QueryStats> getTop(int n, String order) {
+        List<QueryStats> result = ORDER_BY_P99.equalsIgnoreCase(order)
+                ? sort(stats.values(), entry -> entry.getPercentileMicros(0.99), true)
+                : sort(stats.values(), QueryStats::getTotalNanos, true);
+        return result.size() > n ? new ArrayList<>(result.subList(0, Math.max(0, n))) : result;
+    }
+
+    /**
+     * Sort by a snapshot of the key, the counters keep moving while sorting
+     */
+    private static List<QueryStats> sort(Collection<QueryStats> entries, ToLongFunction<QueryStats> key,
+                                         boolean descending) {
+        List<Ranked> ranked = new ArrayList<>(entries.size());
+        for (QueryStats entry : entries) {
+            ranked.add(new Ranked(entry, key.applyAsLong(entry)));
+        }
+        Comparator<Ranked> comparator = Comparator.comparingLong(r -> r.value);
+        ranked.sort(descending ? comparator.reversed() : comparator);
+        List<QueryStats> result = new ArrayList<>(ranked.size());
+        for (Ranked r : ranked) {
+            result.add(r.stats);
+        }
+        return result;
+    }
+
+    private static class Ranked {
+        final QueryStats stats;
+        final long value;
+
+        Ranked(QueryStats stats, long value) {
+            this.stats = stats;
+            this.value = value;
+        }
+    }
+
+    public int getSize() {
+        return stats.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    public void clear() {
+        stats.clear();
+    }
+}
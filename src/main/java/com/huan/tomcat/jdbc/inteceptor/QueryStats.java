@@ -0,0 +1,187 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author edenhuan
+ * Latency histogram and error counts of one SQL. Lock free: every counter is a striped
+ * {@link LongAdder}, latencies go to fixed log-scale buckets, bucket i holding executions that took
+ * less than 2^i microseconds (bucket 0: less than 1us, last bucket: everything longer).
+ */
+public class QueryStats {
+    public static final int BUCKETS = 32;
+    /**
+     * distinct SQLStates counted per SQL, further ones are counted under OTHER_STATE
+     */
+    public static final int MAX_STATES = 16;
+    public static final String OTHER_STATE = "OTHER";
+    public static final String UNKNOWN_STATE = "UNKNOWN";
+
+    private final String sql;
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errorCount = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final ConcurrentHashMap<String, LongAdder> errorsByState = new ConcurrentHashMap<>();
+    /**
+     * last record time in milliseconds, written at most once per ACCESS_RESOLUTION
+     */
+    private volatile long lastAccess;
+
+    static final long ACCESS_RESOLUTION = 1000;
+
+    /**
+     * adaptive query timeout in seconds and when it was computed, see {@link AdaptiveTimeout}
+     */
+    private volatile int timeout;
+    private volatile long timeoutUpdated;
+
+    public QueryStats(String sql) {
+        this.sql = sql;
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+        this.lastAccess = System.currentTimeMillis();
+    }
+
+    /**
+     * @param nanos  execution time in nanoseconds
+     * @param t      error of the execution, null if it succeeded
+     * @param now    current time in milliseconds
+     */
+    public void record(long nanos, Throwable t, long now) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        buckets[bucketOf(nanos)].increment();
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+        if (t != null) {
+            errorCount.increment();
+            incrementState(getSqlState(t));
+        }
+        if (now - lastAccess >= ACCESS_RESOLUTION) {
+            lastAccess = now;
+        }
+    }
+
+    private void incrementState(String state) {
+        LongAdder adder = errorsByState.get(state);
+        if (adder == null) {
+            if (errorsByState.size() >= MAX_STATES) {
+                state = OTHER_STATE;
+            }
+            adder = errorsByState.computeIfAbsent(state, k -> new LongAdder());
+        }
+        adder.increment();
+    }
+
+    static String getSqlState(Throwable t) {
+        SQLException e = DiscardEvent.toSQLException(t);
+        if (e == null || e.getSQLState() == null) {
+            return UNKNOWN_STATE;
+        }
+        return e.getSQLState();
+    }
+
+    public static int bucketOf(long nanos) {
+        long micros = nanos / 1000;
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public long getLastAccess() {
+        return lastAccess;
+    }
+
+    int getTimeout() {
+        return timeout;
+    }
+
+    long getTimeoutUpdated() {
+        return timeoutUpdated;
+    }
+
+    void setTimeout(int timeout, long now) {
+        this.timeout = timeout;
+        this.timeoutUpdated = now;
+    }
+
+    /**
+     * @return average execution time in microseconds
+     */
+    public long getAverageMicros() {
+        long n = count.sum();
+        return n == 0 ? 0 : totalNanos.sum() / n / 1000;
+    }
+
+    /**
+     * Upper bound of the bucket holding the given percentile, capped by the maximum seen
+     * @param percentile  between 0 and 1, e.g. 0.99
+     * @return execution time in microseconds
+     */
+    public long getPercentileMicros(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = buckets[i].sum();
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile);
+        long seen = 0;
+        long maxMicros = maxNanos.get() / 1000;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(1L << i, Math.max(1, maxMicros));
+            }
+        }
+        return maxMicros;
+    }
+
+    public long[] getBuckets() {
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = buckets[i].sum();
+        }
+        return snapshot;
+    }
+
+    public Map<String, Long> getErrorsByState() {
+        Map<String, Long> result = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : errorsByState.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().sum());
+        }
+        return Collections.unmodifiableMap(result);
+    }
+}
@@ -0,0 +1,72 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import org.apache.tomcat.jdbc.pool.ConnectionPool;
+import org.apache.tomcat.jdbc.pool.PoolProperties.InterceptorProperty;
+
+import java.util.Map;
+
+/**
+ * @author edenhuan
+ * With recycleAge>0 every physical connection is reconnected after a lifetime between
+ * recycleAge*(1-recycleJitter) and recycleAge milliseconds, in the background when the application
+ * returns it and by at most recycleConcurrency connections of the pool at once, see {@link ConnectionRecycler}.
+ */
+public class RecycleFeature implements TrapFeature {
+    public static final String PROP_RECYCLE_AGE = "recycleAge";
+    public static final String PROP_RECYCLE_JITTER = "recycleJitter";
+    public static final String PROP_RECYCLE_CONCURRENCY = "recycleConcurrency";
+
+    /**
+     * longest lifetime of a connection in milliseconds, 0 disables recycling
+     */
+    protected long recycleAge = 0;
+    protected double recycleJitter = 0.2;
+    protected int recycleConcurrency = 1;
+
+    @Override
+    public void setProperties(Map<String, InterceptorProperty> properties) {
+        InterceptorProperty p = properties.get(PROP_RECYCLE_AGE);
+        if (p != null) {
+            setRecycleAge(p.getValueAsLong(recycleAge));
+        }
+        p = properties.get(PROP_RECYCLE_JITTER);
+        if (p != null) {
+            setRecycleJitter(p.getValueAsDouble(recycleJitter));
+        }
+        p = properties.get(PROP_RECYCLE_CONCURRENCY);
+        if (p != null) {
+            setRecycleConcurrency(p.getValueAsInt(recycleConcurrency));
+        }
+    }
+
+    @Override
+    public void poolStarted(ConnectionPool pool, ConnectionErrorTrapContext context) {
+        if (recycleAge > 0 && context.getRecycler() == null) {
+            context.setRecycler(new ConnectionRecycler(recycleAge, recycleJitter, recycleConcurrency));
+        }
+    }
+
+    public long getRecycleAge() {
+        return recycleAge;
+    }
+
+    public void setRecycleAge(long recycleAge) {
+        this.recycleAge = recycleAge;
+    }
+
+    public double getRecycleJitter() {
+        return recycleJitter;
+    }
+
+    public void setRecycleJitter(double recycleJitter) {
+        this.recycleJitter = recycleJitter;
+    }
+
+    public int getRecycleConcurrency() {
+        return recycleConcurrency;
+    }
+
+    public void setRecycleConcurrency(int recycleConcurrency) {
+        this.recycleConcurrency = recycleConcurrency;
+    }
+}
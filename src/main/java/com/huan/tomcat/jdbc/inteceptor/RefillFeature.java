@@ -0,0 +1,69 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import org.apache.tomcat.jdbc.pool.ConnectionPool;
+import org.apache.tomcat.jdbc.pool.PoolProperties.InterceptorProperty;
+
+import java.util.Map;
+
+/**
+ * @author edenhuan
+ * With refill=true a {@link ConnectionRefiller} reopens released connections in the background, on at
+ * most refillConcurrency threads, backing off up to refillMaxBackoff milliseconds while the backend
+ * refuses connections.
+ */
+public class RefillFeature implements TrapFeature {
+    public static final String PROP_REFILL = "refill";
+    public static final String PROP_REFILL_CONCURRENCY = "refillConcurrency";
+    public static final String PROP_REFILL_MAX_BACKOFF = "refillMaxBackoff";
+
+    protected boolean refill = false;
+    protected int refillConcurrency = 2;
+    protected long refillMaxBackoff = 30000;
+
+    @Override
+    public void setProperties(Map<String, InterceptorProperty> properties) {
+        InterceptorProperty p = properties.get(PROP_REFILL);
+        if (p != null) {
+            setRefill(p.getValueAsBoolean(false));
+        }
+        p = properties.get(PROP_REFILL_CONCURRENCY);
+        if (p != null) {
+            setRefillConcurrency(p.getValueAsInt(refillConcurrency));
+        }
+        p = properties.get(PROP_REFILL_MAX_BACKOFF);
+        if (p != null) {
+            setRefillMaxBackoff(p.getValueAsLong(refillMaxBackoff));
+        }
+    }
+
+    @Override
+    public void poolStarted(ConnectionPool pool, ConnectionErrorTrapContext context) {
+        if (refill && context.getRefiller() == null) {
+            context.setRefiller(new ConnectionRefiller(pool, refillConcurrency, refillMaxBackoff));
+        }
+    }
+
+    public boolean isRefill() {
+        return refill;
+    }
+
+    public void setRefill(boolean refill) {
+        this.refill = refill;
+    }
+
+    public int getRefillConcurrency() {
+        return refillConcurrency;
+    }
+
+    public void setRefillConcurrency(int refillConcurrency) {
+        this.refillConcurrency = refillConcurrency;
+    }
+
+    public long getRefillMaxBackoff() {
+        return refillMaxBackoff;
+    }
+
+    public void setRefillMaxBackoff(long refillMaxBackoff) {
+        this.refillMaxBackoff = refillMaxBackoff;
+    }
+}
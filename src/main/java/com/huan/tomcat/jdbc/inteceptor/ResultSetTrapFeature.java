@@ -0,0 +1,33 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import org.apache.tomcat.jdbc.pool.PoolProperties.InterceptorProperty;
+
+import java.util.Map;
+
+/**
+ * @author edenhuan
+ * With trapResultSets=true result sets and database metadata are wrapped by {@link TrapResultSet} and
+ * {@link TrapDatabaseMetaData}, so errors raised while reading a streaming or cursor result set are
+ * trapped like errors of the statement.
+ */
+public class ResultSetTrapFeature implements TrapFeature {
+    public static final String PROP_TRAP_RESULT_SETS = "trapResultSets";
+
+    protected boolean trapResultSets = false;
+
+    @Override
+    public void setProperties(Map<String, InterceptorProperty> properties) {
+        InterceptorProperty p = properties.get(PROP_TRAP_RESULT_SETS);
+        if (p != null) {
+            setTrapResultSets(p.getValueAsBoolean(false));
+        }
+    }
+
+    public boolean isTrapResultSets() {
+        return trapResultSets;
+    }
+
+    public void setTrapResultSets(boolean trapResultSets) {
+        this.trapResultSets = trapResultSets;
+    }
+}
@@ -0,0 +1,105 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author edenhuan
+ * Lock free budget of the read retries of a pool: at most maxRetries within each window, so retries
+ * can not multiply the load on a database that is failing anyway.
+ */
+public class RetryBudget {
+    private final int maxRetries;
+    private final long window;
+    private final AtomicLong windowStart = new AtomicLong(0);
+    private final AtomicInteger windowCount = new AtomicInteger(0);
+
+    private final LongAdder retryCount = new LongAdder();
+    private final LongAdder successCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+
+    public RetryBudget(int maxRetries, long window) {
+        this.maxRetries = maxRetries;
+        this.window = window;
+    }
+
+    /**
+     * Take a retry from the budget
+     * @return false if the budget of the current window is spent
+     */
+    public boolean tryAcquire(long now) {
+        long start = windowStart.get();
+        if (now - start >= window && windowStart.compareAndSet(start, now)) {
+            windowCount.set(0);
+        }
+        if (windowCount.incrementAndGet() > maxRetries) {
+            rejectedCount.increment();
+            return false;
+        }
+        retryCount.increment();
+        return true;
+    }
+
+    /**
+     * Return true for a plain SELECT: no FOR UPDATE, LOCK IN SHARE MODE, FOR SHARE or INTO
+     */
+    public static boolean isRead(String sql) {
+        if (sql == null) {
+            return false;
+        }
+        int i = 0;
+        int length = sql.length();
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c) || c == '(') {
+                i++;
+            } else if (sql.startsWith("/*", i)) {
+                int end = sql.indexOf("*/", i + 2);
+                if (end < 0) {
+                    return false;
+                }
+                i = end + 2;
+            } else {
+                break;
+            }
+        }
+        if (!sql.regionMatches(true, i, "select", 0, 6)) {
+            return false;
+        }
+        String lower = sql.toLowerCase(Locale.ROOT);
+        return !lower.contains("for update") && !lower.contains("lock in share mode")
+                && !lower.contains("for share") && !lower.contains(" into ");
+    }
+
+    public void incrementSuccessCount() {
+        successCount.increment();
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public long getWindow() {
+        return window;
+    }
+
+    /**
+     * reads executed again after a fatal error
+     */
+    public long getRetryCount() {
+        return retryCount.sum();
+    }
+
+    public long getSuccessCount() {
+        return successCount.sum();
+    }
+
+    /**
+     * retries refused because the budget was spent
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+}
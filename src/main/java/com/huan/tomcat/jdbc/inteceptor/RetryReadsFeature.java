@@ -0,0 +1,73 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import org.apache.tomcat.jdbc.pool.ConnectionPool;
+import org.apache.tomcat.jdbc.pool.PoolProperties.InterceptorProperty;
+
+import java.util.Map;
+
+/**
+ * @author edenhuan
+ * With retryReads=true a plain SELECT executed in auto-commit mode that fails with a fatal error is
+ * executed once more: the pooled connection is reconnected instead of released, the statement is created
+ * again on it with its parameters, and the caller only sees the error if the retry fails too. At most
+ * retryBudget retries per retryBudgetWindow milliseconds are made per pool, see {@link RetryBudget}.
+ */
+public class RetryReadsFeature implements TrapFeature {
+    public static final String PROP_RETRY_READS = "retryReads";
+    public static final String PROP_RETRY_BUDGET = "retryBudget";
+    public static final String PROP_RETRY_BUDGET_WINDOW = "retryBudgetWindow";
+
+    protected boolean retryReads = false;
+    /**
+     * read retries per retryBudgetWindow milliseconds of a pool
+     */
+    protected int retryBudget = 10;
+    protected long retryBudgetWindow = 1000;
+
+    @Override
+    public void setProperties(Map<String, InterceptorProperty> properties) {
+        InterceptorProperty p = properties.get(PROP_RETRY_READS);
+        if (p != null) {
+            setRetryReads(p.getValueAsBoolean(false));
+        }
+        p = properties.get(PROP_RETRY_BUDGET);
+        if (p != null) {
+            setRetryBudget(p.getValueAsInt(retryBudget));
+        }
+        p = properties.get(PROP_RETRY_BUDGET_WINDOW);
+        if (p != null) {
+            setRetryBudgetWindow(p.getValueAsLong(retryBudgetWindow));
+        }
+    }
+
+    @Override
+    public void poolStarted(ConnectionPool pool, ConnectionErrorTrapContext context) {
+        if (retryReads && context.getRetryBudget() == null) {
+            context.setRetryBudget(new RetryBudget(retryBudget, retryBudgetWindow));
+        }
+    }
+
+    public boolean isRetryReads() {
+        return retryReads;
+    }
+
+    public void setRetryReads(boolean retryReads) {
+        this.retryReads = retryReads;
+    }
+
+    public int getRetryBudget() {
+        return retryBudget;
+    }
+
+    public void setRetryBudget(int retryBudget) {
+        this.retryBudget = retryBudget;
+    }
+
+    public long getRetryBudgetWindow() {
+        return retryBudgetWindow;
+    }
+
+    public void setRetryBudgetWindow(long retryBudgetWindow) {
+        this.retryBudgetWindow = retryBudgetWindow;
+    }
+}
@@ -0,0 +1,112 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+/**
+ * @author edenhuan
+ * Turns plain statement SQL into a parameterized form so statements that only differ by literals
+ * share their statistics: string and numeric literals become ?, lists of ? collapse to one, runs of
+ * whitespace become a single space.
+ * select * from t where id in (1, 2, 3) and name = 'a'  ->  select * from t where id in (?) and name = ?
+ */
+public final class SqlNormalizer {
+    /**
+     * longer SQL is cut, so huge generated statements do not blow up the statistics
+     */
+    public static final int MAX_LENGTH = 2048;
+
+    private SqlNormalizer() {
+    }
+
+    public static String normalize(String sql) {
+        if (sql == null) {
+            return null;
+        }
+        int length = Math.min(sql.length(), MAX_LENGTH);
+        StringBuilder sb = new StringBuilder(length);
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                i = skipString(sql, i, length, c);
+                appendParameter(sb);
+            } else if (isDigit(c) && !isIdentifierPart(last(sb))) {
+                i++;
+                while (i < length && (isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                appendParameter(sb);
+            } else if (c == '?') {
+                i++;
+                appendParameter(sb);
+            } else if (Character.isWhitespace(c)) {
+                while (i < length && Character.isWhitespace(sql.charAt(i))) {
+                    i++;
+                }
+                if (sb.length() > 0 && i < length) {
+                    sb.append(' ');
+                }
+            } else {
+                sb.append(c);
+                i++;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static int skipString(String sql, int i, int length, char quote) {
+        i++;
+        while (i < length) {
+            char c = sql.charAt(i++);
+            if (c == '\\') {
+                i++;
+            } else if (c == quote) {
+                if (i < length && sql.charAt(i) == quote) {
+                    i++;
+                } else {
+                    break;
+                }
+            }
+        }
+        return i;
+    }
+
+    /**
+     * append ?, unless it continues a list of parameters like "?, ?"
+     */
+    private static void appendParameter(StringBuilder sb) {
+        int end = sb.length();
+        int j = end - 1;
+        while (j >= 0 && sb.charAt(j) == ' ') {
+            j--;
+        }
+        if (j >= 0 && sb.charAt(j) == ',') {
+            int k = j - 1;
+            while (k >= 0 && sb.charAt(k) == ' ') {
+                k--;
+            }
+            if (k >= 0 && sb.charAt(k) == '?') {
+                sb.setLength(k + 1);
+                return;
+            }
+        }
+        if (end > 0 && sb.charAt(end - 1) == '-') {
+            char previous = end > 1 ? sb.charAt(end - 2) : ' ';
+            if (!isIdentifierPart(previous) && previous != ')') {
+                //sign of a negative number
+                sb.setLength(end - 1);
+            }
+        }
+        sb.append('?');
+    }
+
+    private static char last(StringBuilder sb) {
+        return sb.length() == 0 ? ' ' : sb.charAt(sb.length() - 1);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '`' || c == '.';
+    }
+}
@@ -0,0 +1,49 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import org.apache.tomcat.jdbc.pool.ConnectionPool;
+import org.apache.tomcat.jdbc.pool.PoolProperties.InterceptorProperty;
+
+import java.util.Map;
+
+/**
+ * @author edenhuan
+ * With statementCacheSize>0 each connection keeps up to that many closed prepared and callable statements
+ * in a {@link TrapStatementCache}, prepareStatement/prepareCall with the same SQL, result set type and
+ * concurrency reuse them across borrows. The cache is dropped when the connection is discarded.
+ */
+public class StatementCacheFeature implements TrapFeature {
+    public static final String PROP_STATEMENT_CACHE_SIZE = "statementCacheSize";
+
+    /**
+     * statements cached per connection, 0 disables the cache
+     */
+    protected int statementCacheSize = 0;
+
+    @Override
+    public void setProperties(Map<String, InterceptorProperty> properties) {
+        InterceptorProperty p = properties.get(PROP_STATEMENT_CACHE_SIZE);
+        if (p != null) {
+            setStatementCacheSize(p.getValueAsInt(statementCacheSize));
+        }
+    }
+
+    @Override
+    public void poolStarted(ConnectionPool pool, ConnectionErrorTrapContext context) {
+        //NOOP, the caches belong to the connections
+    }
+
+    /**
+     * Create the statement cache of a connection, null when the cache is disabled
+     */
+    public TrapStatementCache createCache() {
+        return statementCacheSize > 0 ? new TrapStatementCache(statementCacheSize) : null;
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    public void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+    }
+}
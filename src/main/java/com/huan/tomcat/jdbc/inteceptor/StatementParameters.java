@@ -0,0 +1,340 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Ref;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.SQLType;
+import java.sql.SQLXML;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Calendar;
+
+/**
+ * @author edenhuan
+ * Parameters bound to a prepared read with retryReads=true, so the read can be prepared again on a
+ * reconnected connection, or to a prepared statement with batchChunkSize>0, copied into its
+ * {@link BatchBuffer} on addBatch. Every parameter is kept as the type of its set method, a primitive
+ * and at most two objects in arrays per column, so binding a parameter allocates nothing; the rows of a
+ * {@link BatchBuffer} are kept back to back in the same arrays.
+ * Streams, readers and driver objects tied to the old connection can not be bound twice, a statement
+ * holding one is not retried or chunked. Used by the thread owning the statement only.
+ */
+public class StatementParameters {
+    /**
+     * not set, skipped when bound
+     */
+    public static final byte UNSET = 0;
+    /**
+     * stands for a parameter that can not be bound again
+     */
+    public static final byte UNREPLAYABLE = 1;
+    /**
+     * number is the sqlType
+     */
+    public static final byte NULL = 2;
+    /**
+     * number is the sqlType, option the type name
+     */
+    public static final byte NULL_TYPE_NAME = 3;
+    public static final byte BOOLEAN = 4;
+    public static final byte BYTE = 5;
+    public static final byte SHORT = 6;
+    public static final byte INT = 7;
+    public static final byte LONG = 8;
+    /**
+     * number holds the bits of Float.floatToRawIntBits
+     */
+    public static final byte FLOAT = 9;
+    /**
+     * number holds the bits of Double.doubleToRawLongBits
+     */
+    public static final byte DOUBLE = 10;
+    public static final byte BIG_DECIMAL = 11;
+    public static final byte STRING = 12;
+    public static final byte NSTRING = 13;
+    public static final byte BYTES = 14;
+    public static final byte DATE = 15;
+    public static final byte TIME = 16;
+    public static final byte TIMESTAMP = 17;
+    /**
+     * option is the Calendar
+     */
+    public static final byte DATE_CALENDAR = 18;
+    public static final byte TIME_CALENDAR = 19;
+    public static final byte TIMESTAMP_CALENDAR = 20;
+    public static final byte URL = 21;
+    public static final byte OBJECT = 22;
+    /**
+     * number is the targetSqlType
+     */
+    public static final byte OBJECT_TYPE = 23;
+    /**
+     * number is the targetSqlType in the high and the scaleOrLength in the low 32 bits
+     */
+    public static final byte OBJECT_TYPE_SCALE = 24;
+    /**
+     * option is the SQLType
+     */
+    public static final byte OBJECT_SQL_TYPE = 25;
+    /**
+     * option is the SQLType, number the scaleOrLength
+     */
+    public static final byte OBJECT_SQL_TYPE_SCALE = 26;
+    /**
+     * a set call of a statement proxy: value is the argument array, option the Method
+     */
+    public static final byte INVOKE = 27;
+
+    private byte[] types;
+    private long[] numbers;
+    private Object[] values;
+    private Object[] options;
+    private int size;
+
+    public StatementParameters() {
+        this(8);
+    }
+
+    public StatementParameters(int capacity) {
+        types = new byte[capacity];
+        numbers = new long[capacity];
+        values = new Object[capacity];
+        options = new Object[capacity];
+    }
+
+    /**
+     * Remember a parameter set with a primitive: BOOLEAN as 0 or 1, BYTE, SHORT, INT, LONG, FLOAT, DOUBLE
+     * or NULL with its sqlType
+     */
+    public void setNumber(int parameterIndex, byte type, long number) {
+        set(parameterIndex, type, number, null, null);
+    }
+
+    /**
+     * Remember a parameter set with one object, from BIG_DECIMAL to OBJECT
+     */
+    public void setValue(int parameterIndex, byte type, Object value) {
+        set(parameterIndex, type, 0, value, null);
+    }
+
+    /**
+     * Remember a parameter, see the type for the meaning of number and option
+     */
+    public void set(int parameterIndex, byte type, long number, Object value, Object option) {
+        if (parameterIndex < 1) {
+            return;
+        }
+        if (parameterIndex > types.length) {
+            grow(Math.max(parameterIndex, types.length * 2));
+        }
+        int i = parameterIndex - 1;
+        types[i] = type;
+        numbers[i] = number;
+        values[i] = value;
+        options[i] = option;
+        size = Math.max(size, parameterIndex);
+    }
+
+    public void setUnreplayable(int parameterIndex) {
+        set(parameterIndex, UNREPLAYABLE, 0, null, null);
+    }
+
+    /**
+     * Remember a set call of a statement proxy taking the parameter index first, bound again with
+     * method.invoke
+     */
+    public void setInvoke(Method method, Object[] args) {
+        int parameterIndex = (Integer) args[0];
+        if (isReplayable(args[1])) {
+            set(parameterIndex, INVOKE, 0, args, method);
+        } else {
+            setUnreplayable(parameterIndex);
+        }
+    }
+
+    private void grow(int capacity) {
+        types = Arrays.copyOf(types, capacity);
+        numbers = Arrays.copyOf(numbers, capacity);
+        values = Arrays.copyOf(values, capacity);
+        options = Arrays.copyOf(options, capacity);
+    }
+
+    public void clear() {
+        Arrays.fill(types, 0, size, UNSET);
+        Arrays.fill(values, 0, size, null);
+        Arrays.fill(options, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * highest parameter index recorded, for the rows of a {@link BatchBuffer} the number of columns of all rows
+     */
+    public int getSize() {
+        return size;
+    }
+
+    public boolean isReplayable() {
+        for (int i = 0; i < size; i++) {
+            if (types[i] == UNREPLAYABLE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Append the parameters after the last column of the rows, for {@link BatchBuffer}
+     */
+    void copyTo(StatementParameters rows) {
+        int end = rows.size + size;
+        if (end > rows.types.length) {
+            rows.grow(Math.max(end, rows.types.length * 2));
+        }
+        System.arraycopy(types, 0, rows.types, rows.size, size);
+        System.arraycopy(numbers, 0, rows.numbers, rows.size, size);
+        System.arraycopy(values, 0, rows.values, rows.size, size);
+        System.arraycopy(options, 0, rows.options, rows.size, size);
+        rows.size = end;
+    }
+
+    /**
+     * bind every recorded parameter on the statement
+     */
+    public void replay(PreparedStatement statement) throws SQLException {
+        bind(statement, 0, size);
+    }
+
+    /**
+     * Bind the columns from index from to index to on the statement, the column from is parameter 1
+     */
+    public void bind(PreparedStatement statement, int from, int to) throws SQLException {
+        for (int i = from; i < to; i++) {
+            int index = i - from + 1;
+            long number = numbers[i];
+            Object value = values[i];
+            switch (types[i]) {
+                case UNSET:
+                    break;
+                case NULL:
+                    statement.setNull(index, (int) number);
+                    break;
+                case NULL_TYPE_NAME:
+                    statement.setNull(index, (int) number, (String) options[i]);
+                    break;
+                case BOOLEAN:
+                    statement.setBoolean(index, number != 0);
+                    break;
+                case BYTE:
+                    statement.setByte(index, (byte) number);
+                    break;
+                case SHORT:
+                    statement.setShort(index, (short) number);
+                    break;
+                case INT:
+                    statement.setInt(index, (int) number);
+                    break;
+                case LONG:
+                    statement.setLong(index, number);
+                    break;
+                case FLOAT:
+                    statement.setFloat(index, Float.intBitsToFloat((int) number));
+                    break;
+                case DOUBLE:
+                    statement.setDouble(index, Double.longBitsToDouble(number));
+                    break;
+                case BIG_DECIMAL:
+                    statement.setBigDecimal(index, (BigDecimal) value);
+                    break;
+                case STRING:
+                    statement.setString(index, (String) value);
+                    break;
+                case NSTRING:
+                    statement.setNString(index, (String) value);
+                    break;
+                case BYTES:
+                    statement.setBytes(index, (byte[]) value);
+                    break;
+                case DATE:
+                    statement.setDate(index, (Date) value);
+                    break;
+                case TIME:
+                    statement.setTime(index, (Time) value);
+                    break;
+                case TIMESTAMP:
+                    statement.setTimestamp(index, (Timestamp) value);
+                    break;
+                case DATE_CALENDAR:
+                    statement.setDate(index, (Date) value, (Calendar) options[i]);
+                    break;
+                case TIME_CALENDAR:
+                    statement.setTime(index, (Time) value, (Calendar) options[i]);
+                    break;
+                case TIMESTAMP_CALENDAR:
+                    statement.setTimestamp(index, (Timestamp) value, (Calendar) options[i]);
+                    break;
+                case URL:
+                    statement.setURL(index, (URL) value);
+                    break;
+                case OBJECT:
+                    statement.setObject(index, value);
+                    break;
+                case OBJECT_TYPE:
+                    statement.setObject(index, value, (int) number);
+                    break;
+                case OBJECT_TYPE_SCALE:
+                    statement.setObject(index, value, (int) (number >> 32), (int) number);
+                    break;
+                case OBJECT_SQL_TYPE:
+                    statement.setObject(index, value, (SQLType) options[i]);
+                    break;
+                case OBJECT_SQL_TYPE_SCALE:
+                    statement.setObject(index, value, (SQLType) options[i], (int) number);
+                    break;
+                case INVOKE:
+                    //the arguments hold the parameter index, the same in every row
+                    invoke(statement, (Method) options[i], (Object[]) value);
+                    break;
+                default:
+                    throw new SQLException("Parameter " + index + " can not be bound again.");
+            }
+        }
+    }
+
+    private static void invoke(PreparedStatement statement, Method method, Object[] args) throws SQLException {
+        try {
+            method.invoke(statement, args);
+        } catch (InvocationTargetException e) {
+            throw DiscardEvent.toSQLException(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new SQLException(e);
+        }
+    }
+
+    /**
+     * @return number of setObject with a targetSqlType and a scaleOrLength
+     */
+    public static long pack(int targetSqlType, int scaleOrLength) {
+        return ((long) targetSqlType << 32) | (scaleOrLength & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return false for values that are consumed when bound or belong to a connection
+     */
+    public static boolean isReplayable(Object value) {
+        return !(value instanceof InputStream || value instanceof Reader || value instanceof Blob
+                || value instanceof Clob || value instanceof SQLXML || value instanceof Array
+                || value instanceof Ref || value instanceof RowId);
+    }
+}
@@ -0,0 +1,91 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * @author edenhuan
+ * Fetch size, max rows and query timeout of a statement a failed read may be retried on, with retryReads=true.
+ * Read from the driver statement when it is created and kept up to date by the set calls of the application,
+ * so the retry does not ask the failed driver statement: MySQL and PostgreSQL drivers close the statement
+ * and the connection on a communications failure, their getters throw then. Used by the thread owning the
+ * statement only.
+ */
+public class StatementSettings {
+    private int fetchSize;
+    private int maxRows;
+    /**
+     * query timeout the application set, not the adaptive one
+     */
+    private int queryTimeout;
+
+    public static StatementSettings read(Statement statement) throws SQLException {
+        StatementSettings settings = new StatementSettings();
+        settings.fetchSize = statement.getFetchSize();
+        settings.maxRows = statement.getMaxRows();
+        settings.queryTimeout = statement.getQueryTimeout();
+        return settings;
+    }
+
+    /**
+     * Set the settings on a new driver statement, those still at the driver default are skipped
+     */
+    public void apply(Statement statement) throws SQLException {
+        if (fetchSize != 0) {
+            statement.setFetchSize(fetchSize);
+        }
+        if (maxRows != 0) {
+            statement.setMaxRows(maxRows);
+        }
+        if (queryTimeout != 0) {
+            statement.setQueryTimeout(queryTimeout);
+        }
+    }
+
+    /**
+     * Remember the value of a setFetchSize, setMaxRows or setQueryTimeout call, other calls are ignored
+     */
+    public void record(String name, Object[] args) {
+        if (args == null || args.length != 1 || !(args[0] instanceof Integer)) {
+            return;
+        }
+        int value = (Integer) args[0];
+        switch (name) {
+            case "setFetchSize":
+                fetchSize = value;
+                break;
+            case "setMaxRows":
+                maxRows = value;
+                break;
+            case "setQueryTimeout":
+                queryTimeout = value;
+                break;
+            default:
+                break;
+        }
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    public int getMaxRows() {
+        return maxRows;
+    }
+
+    public void setMaxRows(int maxRows) {
+        this.maxRows = maxRows;
+    }
+
+    public int getQueryTimeout() {
+        return queryTimeout;
+    }
+
+    public void setQueryTimeout(int queryTimeout) {
+        this.queryTimeout = queryTimeout;
+    }
+}
@@ -0,0 +1,51 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+/**
+ * @author edenhuan
+ * Query timeout of one statement under adaptiveTimeout: the timeout the application set, the one
+ * currently set on the driver statement, and the statistics of the last SQL it executed. Used by the
+ * thread owning the statement only.
+ */
+public class StatementTimeout {
+    private int requested;
+    private int applied;
+    private String sql;
+    private QueryStats stats;
+
+    public StatementTimeout(int current) {
+        this.requested = current;
+        this.applied = current;
+    }
+
+    /**
+     * the application sets a timeout, it is also what the driver statement has now
+     */
+    public void setRequested(int seconds) {
+        this.requested = seconds;
+        this.applied = seconds;
+    }
+
+    public int getRequested() {
+        return requested;
+    }
+
+    public int getApplied() {
+        return applied;
+    }
+
+    public void setApplied(int applied) {
+        this.applied = applied;
+    }
+
+    /**
+     * @return statistics remembered for the SQL, null if the statement last ran another one
+     */
+    public QueryStats getStats(String sql) {
+        return sql.equals(this.sql) ? stats : null;
+    }
+
+    public void setStats(String sql, QueryStats stats) {
+        this.sql = sql;
+        this.stats = stats;
+    }
+}
@@ -0,0 +1,63 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import org.apache.tomcat.jdbc.pool.ConnectionPool;
+import org.apache.tomcat.jdbc.pool.PoolProperties.InterceptorProperty;
+
+import java.util.Map;
+
+/**
+ * @author edenhuan
+ * With statistics=true every execute call is timed into the per SQL {@link QueryStats} of the pool,
+ * at most statisticsMaxSize distinct SQL are kept, see {@link QueryStatistics}.
+ */
+public class StatisticsFeature implements TrapFeature {
+    public static final String PROP_STATISTICS = "statistics";
+    public static final String PROP_STATISTICS_MAX_SIZE = "statisticsMaxSize";
+
+    protected boolean statistics = false;
+    protected int statisticsMaxSize = 1000;
+
+    @Override
+    public void setProperties(Map<String, InterceptorProperty> properties) {
+        InterceptorProperty p = properties.get(PROP_STATISTICS);
+        if (p != null) {
+            setStatistics(p.getValueAsBoolean(false));
+        }
+        p = properties.get(PROP_STATISTICS_MAX_SIZE);
+        if (p != null) {
+            setStatisticsMaxSize(p.getValueAsInt(statisticsMaxSize));
+        }
+    }
+
+    @Override
+    public void poolStarted(ConnectionPool pool, ConnectionErrorTrapContext context) {
+        if (statistics) {
+            startStatistics(context);
+        }
+    }
+
+    /**
+     * Create the statistics of the pool unless they exist, also called by the features that need them
+     */
+    public void startStatistics(ConnectionErrorTrapContext context) {
+        if (context.getStatistics() == null) {
+            context.setStatistics(new QueryStatistics(statisticsMaxSize));
+        }
+    }
+
+    public boolean isStatistics() {
+        return statistics;
+    }
+
+    public void setStatistics(boolean statistics) {
+        this.statistics = statistics;
+    }
+
+    public int getStatisticsMaxSize() {
+        return statisticsMaxSize;
+    }
+
+    public void setStatisticsMaxSize(int statisticsMaxSize) {
+        this.statisticsMaxSize = statisticsMaxSize;
+    }
+}
@@ -0,0 +1,53 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import com.huan.tomcat.jdbc.vendor.ExceptionSorter;
+import org.apache.tomcat.jdbc.pool.PoolProperties.InterceptorProperty;
+
+import java.util.Map;
+
+/**
+ * @author edenhuan
+ * suspectValidation is none, return or async. With return or async, errors the sorter calls suspect (see
+ * {@link ExceptionSorter#isExceptionSuspect(Throwable)}) mark the connection instead of being ignored. It is
+ * validated once when returned, by the returning thread or in the background, before it can be borrowed
+ * again. Healthy connections are never validated by the trap.
+ */
+public class SuspectValidationFeature implements TrapFeature {
+    public static final String PROP_SUSPECT_VALIDATION = "suspectValidation";
+
+    public static final String SUSPECT_VALIDATION_NONE = "none";
+    public static final String SUSPECT_VALIDATION_RETURN = "return";
+    public static final String SUSPECT_VALIDATION_ASYNC = "async";
+
+    protected String suspectValidation = SUSPECT_VALIDATION_NONE;
+
+    @Override
+    public void setProperties(Map<String, InterceptorProperty> properties) {
+        InterceptorProperty p = properties.get(PROP_SUSPECT_VALIDATION);
+        if (p != null) {
+            setSuspectValidation(p.getValue());
+        }
+    }
+
+    public boolean isSuspectValidation() {
+        return !SUSPECT_VALIDATION_NONE.equals(suspectValidation);
+    }
+
+    public boolean isAsync() {
+        return SUSPECT_VALIDATION_ASYNC.equals(suspectValidation);
+    }
+
+    public String getSuspectValidation() {
+        return suspectValidation;
+    }
+
+    public void setSuspectValidation(String suspectValidation) {
+        if (SUSPECT_VALIDATION_RETURN.equalsIgnoreCase(suspectValidation)) {
+            this.suspectValidation = SUSPECT_VALIDATION_RETURN;
+        } else if (SUSPECT_VALIDATION_ASYNC.equalsIgnoreCase(suspectValidation)) {
+            this.suspectValidation = SUSPECT_VALIDATION_ASYNC;
+        } else {
+            this.suspectValidation = SUSPECT_VALIDATION_NONE;
+        }
+    }
+}
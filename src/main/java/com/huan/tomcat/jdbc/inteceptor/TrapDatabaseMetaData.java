@@ -0,0 +1,1804 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.RowIdLifetime;
+import java.sql.SQLException;
+
+/**
+ * @author edenhuan
+ * Delegating database metadata used when ConnectionErrorTrap runs with trapResultSets=true. Errors of
+ * the metadata calls and of the result sets they return reach the trap, getConnection() returns the
+ * pooled connection instead of the driver's one.
+ */
+public class TrapDatabaseMetaData implements DatabaseMetaData {
+    protected final ConnectionErrorTrap trap;
+    private final DatabaseMetaData delegate;
+    private final Connection connection;
+
+    public TrapDatabaseMetaData(ConnectionErrorTrap trap, DatabaseMetaData delegate, Connection connection) {
+        this.trap = trap;
+        this.delegate = delegate;
+        this.connection = connection;
+    }
+
+    protected DatabaseMetaData delegate() {
+        return delegate;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connection;
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        try {
+            return delegate().unwrap(iface);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        try {
+            return delegate().isWrapperFor(iface);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean allProceduresAreCallable() throws SQLException {
+        try {
+            return delegate().allProceduresAreCallable();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean allTablesAreSelectable() throws SQLException {
+        try {
+            return delegate().allTablesAreSelectable();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public String getURL() throws SQLException {
+        try {
+            return delegate().getURL();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public String getUserName() throws SQLException {
+        try {
+            return delegate().getUserName();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean isReadOnly() throws SQLException {
+        try {
+            return delegate().isReadOnly();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean nullsAreSortedHigh() throws SQLException {
+        try {
+            return delegate().nullsAreSortedHigh();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean nullsAreSortedLow() throws SQLException {
+        try {
+            return delegate().nullsAreSortedLow();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean nullsAreSortedAtStart() throws SQLException {
+        try {
+            return delegate().nullsAreSortedAtStart();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean nullsAreSortedAtEnd() throws SQLException {
+        try {
+            return delegate().nullsAreSortedAtEnd();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public String getDatabaseProductName() throws SQLException {
+        try {
+            return delegate().getDatabaseProductName();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public String getDatabaseProductVersion() throws SQLException {
+        try {
+            return delegate().getDatabaseProductVersion();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public String getDriverName() throws SQLException {
+        try {
+            return delegate().getDriverName();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public String getDriverVersion() throws SQLException {
+        try {
+            return delegate().getDriverVersion();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int getDriverMajorVersion() {
+        try {
+            return delegate().getDriverMajorVersion();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int getDriverMinorVersion() {
+        try {
+            return delegate().getDriverMinorVersion();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean usesLocalFiles() throws SQLException {
+        try {
+            return delegate().usesLocalFiles();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean usesLocalFilePerTable() throws SQLException {
+        try {
+            return delegate().usesLocalFilePerTable();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsMixedCaseIdentifiers() throws SQLException {
+        try {
+            return delegate().supportsMixedCaseIdentifiers();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean storesUpperCaseIdentifiers() throws SQLException {
+        try {
+            return delegate().storesUpperCaseIdentifiers();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean storesLowerCaseIdentifiers() throws SQLException {
+        try {
+            return delegate().storesLowerCaseIdentifiers();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean storesMixedCaseIdentifiers() throws SQLException {
+        try {
+            return delegate().storesMixedCaseIdentifiers();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsMixedCaseQuotedIdentifiers() throws SQLException {
+        try {
+            return delegate().supportsMixedCaseQuotedIdentifiers();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean storesUpperCaseQuotedIdentifiers() throws SQLException {
+        try {
+            return delegate().storesUpperCaseQuotedIdentifiers();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean storesLowerCaseQuotedIdentifiers() throws SQLException {
+        try {
+            return delegate().storesLowerCaseQuotedIdentifiers();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean storesMixedCaseQuotedIdentifiers() throws SQLException {
+        try {
+            return delegate().storesMixedCaseQuotedIdentifiers();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public String getIdentifierQuoteString() throws SQLException {
+        try {
+            return delegate().getIdentifierQuoteString();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public String getSQLKeywords() throws SQLException {
+        try {
+            return delegate().getSQLKeywords();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public String getNumericFunctions() throws SQLException {
+        try {
+            return delegate().getNumericFunctions();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public String getStringFunctions() throws SQLException {
+        try {
+            return delegate().getStringFunctions();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public String getSystemFunctions() throws SQLException {
+        try {
+            return delegate().getSystemFunctions();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public String getTimeDateFunctions() throws SQLException {
+        try {
+            return delegate().getTimeDateFunctions();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public String getSearchStringEscape() throws SQLException {
+        try {
+            return delegate().getSearchStringEscape();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public String getExtraNameCharacters() throws SQLException {
+        try {
+            return delegate().getExtraNameCharacters();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsAlterTableWithAddColumn() throws SQLException {
+        try {
+            return delegate().supportsAlterTableWithAddColumn();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsAlterTableWithDropColumn() throws SQLException {
+        try {
+            return delegate().supportsAlterTableWithDropColumn();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsColumnAliasing() throws SQLException {
+        try {
+            return delegate().supportsColumnAliasing();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean nullPlusNonNullIsNull() throws SQLException {
+        try {
+            return delegate().nullPlusNonNullIsNull();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsConvert() throws SQLException {
+        try {
+            return delegate().supportsConvert();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsConvert(int fromType, int toType) throws SQLException {
+        try {
+            return delegate().supportsConvert(fromType, toType);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsTableCorrelationNames() throws SQLException {
+        try {
+            return delegate().supportsTableCorrelationNames();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsDifferentTableCorrelationNames() throws SQLException {
+        try {
+            return delegate().supportsDifferentTableCorrelationNames();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsExpressionsInOrderBy() throws SQLException {
+        try {
+            return delegate().supportsExpressionsInOrderBy();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsOrderByUnrelated() throws SQLException {
+        try {
+            return delegate().supportsOrderByUnrelated();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsGroupBy() throws SQLException {
+        try {
+            return delegate().supportsGroupBy();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsGroupByUnrelated() throws SQLException {
+        try {
+            return delegate().supportsGroupByUnrelated();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsGroupByBeyondSelect() throws SQLException {
+        try {
+            return delegate().supportsGroupByBeyondSelect();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsLikeEscapeClause() throws SQLException {
+        try {
+            return delegate().supportsLikeEscapeClause();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsMultipleResultSets() throws SQLException {
+        try {
+            return delegate().supportsMultipleResultSets();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsMultipleTransactions() throws SQLException {
+        try {
+            return delegate().supportsMultipleTransactions();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsNonNullableColumns() throws SQLException {
+        try {
+            return delegate().supportsNonNullableColumns();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsMinimumSQLGrammar() throws SQLException {
+        try {
+            return delegate().supportsMinimumSQLGrammar();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsCoreSQLGrammar() throws SQLException {
+        try {
+            return delegate().supportsCoreSQLGrammar();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsExtendedSQLGrammar() throws SQLException {
+        try {
+            return delegate().supportsExtendedSQLGrammar();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsANSI92EntryLevelSQL() throws SQLException {
+        try {
+            return delegate().supportsANSI92EntryLevelSQL();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsANSI92IntermediateSQL() throws SQLException {
+        try {
+            return delegate().supportsANSI92IntermediateSQL();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsANSI92FullSQL() throws SQLException {
+        try {
+            return delegate().supportsANSI92FullSQL();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsIntegrityEnhancementFacility() throws SQLException {
+        try {
+            return delegate().supportsIntegrityEnhancementFacility();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsOuterJoins() throws SQLException {
+        try {
+            return delegate().supportsOuterJoins();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsFullOuterJoins() throws SQLException {
+        try {
+            return delegate().supportsFullOuterJoins();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsLimitedOuterJoins() throws SQLException {
+        try {
+            return delegate().supportsLimitedOuterJoins();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public String getSchemaTerm() throws SQLException {
+        try {
+            return delegate().getSchemaTerm();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public String getProcedureTerm() throws SQLException {
+        try {
+            return delegate().getProcedureTerm();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public String getCatalogTerm() throws SQLException {
+        try {
+            return delegate().getCatalogTerm();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean isCatalogAtStart() throws SQLException {
+        try {
+            return delegate().isCatalogAtStart();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public String getCatalogSeparator() throws SQLException {
+        try {
+            return delegate().getCatalogSeparator();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsSchemasInDataManipulation() throws SQLException {
+        try {
+            return delegate().supportsSchemasInDataManipulation();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsSchemasInProcedureCalls() throws SQLException {
+        try {
+            return delegate().supportsSchemasInProcedureCalls();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsSchemasInTableDefinitions() throws SQLException {
+        try {
+            return delegate().supportsSchemasInTableDefinitions();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsSchemasInIndexDefinitions() throws SQLException {
+        try {
+            return delegate().supportsSchemasInIndexDefinitions();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsSchemasInPrivilegeDefinitions() throws SQLException {
+        try {
+            return delegate().supportsSchemasInPrivilegeDefinitions();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsCatalogsInDataManipulation() throws SQLException {
+        try {
+            return delegate().supportsCatalogsInDataManipulation();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsCatalogsInProcedureCalls() throws SQLException {
+        try {
+            return delegate().supportsCatalogsInProcedureCalls();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsCatalogsInTableDefinitions() throws SQLException {
+        try {
+            return delegate().supportsCatalogsInTableDefinitions();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsCatalogsInIndexDefinitions() throws SQLException {
+        try {
+            return delegate().supportsCatalogsInIndexDefinitions();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsCatalogsInPrivilegeDefinitions() throws SQLException {
+        try {
+            return delegate().supportsCatalogsInPrivilegeDefinitions();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsPositionedDelete() throws SQLException {
+        try {
+            return delegate().supportsPositionedDelete();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsPositionedUpdate() throws SQLException {
+        try {
+            return delegate().supportsPositionedUpdate();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsSelectForUpdate() throws SQLException {
+        try {
+            return delegate().supportsSelectForUpdate();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsStoredProcedures() throws SQLException {
+        try {
+            return delegate().supportsStoredProcedures();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsSubqueriesInComparisons() throws SQLException {
+        try {
+            return delegate().supportsSubqueriesInComparisons();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsSubqueriesInExists() throws SQLException {
+        try {
+            return delegate().supportsSubqueriesInExists();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsSubqueriesInIns() throws SQLException {
+        try {
+            return delegate().supportsSubqueriesInIns();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsSubqueriesInQuantifieds() throws SQLException {
+        try {
+            return delegate().supportsSubqueriesInQuantifieds();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsCorrelatedSubqueries() throws SQLException {
+        try {
+            return delegate().supportsCorrelatedSubqueries();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsUnion() throws SQLException {
+        try {
+            return delegate().supportsUnion();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsUnionAll() throws SQLException {
+        try {
+            return delegate().supportsUnionAll();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsOpenCursorsAcrossCommit() throws SQLException {
+        try {
+            return delegate().supportsOpenCursorsAcrossCommit();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsOpenCursorsAcrossRollback() throws SQLException {
+        try {
+            return delegate().supportsOpenCursorsAcrossRollback();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsOpenStatementsAcrossCommit() throws SQLException {
+        try {
+            return delegate().supportsOpenStatementsAcrossCommit();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsOpenStatementsAcrossRollback() throws SQLException {
+        try {
+            return delegate().supportsOpenStatementsAcrossRollback();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int getMaxBinaryLiteralLength() throws SQLException {
+        try {
+            return delegate().getMaxBinaryLiteralLength();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int getMaxCharLiteralLength() throws SQLException {
+        try {
+            return delegate().getMaxCharLiteralLength();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int getMaxColumnNameLength() throws SQLException {
+        try {
+            return delegate().getMaxColumnNameLength();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int getMaxColumnsInGroupBy() throws SQLException {
+        try {
+            return delegate().getMaxColumnsInGroupBy();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int getMaxColumnsInIndex() throws SQLException {
+        try {
+            return delegate().getMaxColumnsInIndex();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int getMaxColumnsInOrderBy() throws SQLException {
+        try {
+            return delegate().getMaxColumnsInOrderBy();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int getMaxColumnsInSelect() throws SQLException {
+        try {
+            return delegate().getMaxColumnsInSelect();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int getMaxColumnsInTable() throws SQLException {
+        try {
+            return delegate().getMaxColumnsInTable();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int getMaxConnections() throws SQLException {
+        try {
+            return delegate().getMaxConnections();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int getMaxCursorNameLength() throws SQLException {
+        try {
+            return delegate().getMaxCursorNameLength();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int getMaxIndexLength() throws SQLException {
+        try {
+            return delegate().getMaxIndexLength();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int getMaxSchemaNameLength() throws SQLException {
+        try {
+            return delegate().getMaxSchemaNameLength();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int getMaxProcedureNameLength() throws SQLException {
+        try {
+            return delegate().getMaxProcedureNameLength();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int getMaxCatalogNameLength() throws SQLException {
+        try {
+            return delegate().getMaxCatalogNameLength();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int getMaxRowSize() throws SQLException {
+        try {
+            return delegate().getMaxRowSize();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean doesMaxRowSizeIncludeBlobs() throws SQLException {
+        try {
+            return delegate().doesMaxRowSizeIncludeBlobs();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int getMaxStatementLength() throws SQLException {
+        try {
+            return delegate().getMaxStatementLength();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int getMaxStatements() throws SQLException {
+        try {
+            return delegate().getMaxStatements();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int getMaxTableNameLength() throws SQLException {
+        try {
+            return delegate().getMaxTableNameLength();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int getMaxTablesInSelect() throws SQLException {
+        try {
+            return delegate().getMaxTablesInSelect();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int getMaxUserNameLength() throws SQLException {
+        try {
+            return delegate().getMaxUserNameLength();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int getDefaultTransactionIsolation() throws SQLException {
+        try {
+            return delegate().getDefaultTransactionIsolation();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsTransactions() throws SQLException {
+        try {
+            return delegate().supportsTransactions();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsTransactionIsolationLevel(int level) throws SQLException {
+        try {
+            return delegate().supportsTransactionIsolationLevel(level);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsDataDefinitionAndDataManipulationTransactions() throws SQLException {
+        try {
+            return delegate().supportsDataDefinitionAndDataManipulationTransactions();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsDataManipulationTransactionsOnly() throws SQLException {
+        try {
+            return delegate().supportsDataManipulationTransactionsOnly();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean dataDefinitionCausesTransactionCommit() throws SQLException {
+        try {
+            return delegate().dataDefinitionCausesTransactionCommit();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean dataDefinitionIgnoredInTransactions() throws SQLException {
+        try {
+            return delegate().dataDefinitionIgnoredInTransactions();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public ResultSet getProcedures(String catalog, String schemaPattern, String procedureNamePattern) throws SQLException {
+        try {
+            return trap.wrapResultSet(delegate().getProcedures(catalog, schemaPattern, procedureNamePattern), null);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public ResultSet getProcedureColumns(String catalog, String schemaPattern, String procedureNamePattern, String columnNamePattern) throws SQLException {
+        try {
+            return trap.wrapResultSet(delegate().getProcedureColumns(catalog, schemaPattern, procedureNamePattern, columnNamePattern), null);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public ResultSet getTables(String catalog, String schemaPattern, String tableNamePattern, String[] types) throws SQLException {
+        try {
+            return trap.wrapResultSet(delegate().getTables(catalog, schemaPattern, tableNamePattern, types), null);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public ResultSet getSchemas() throws SQLException {
+        try {
+            return trap.wrapResultSet(delegate().getSchemas(), null);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public ResultSet getCatalogs() throws SQLException {
+        try {
+            return trap.wrapResultSet(delegate().getCatalogs(), null);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public ResultSet getTableTypes() throws SQLException {
+        try {
+            return trap.wrapResultSet(delegate().getTableTypes(), null);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public ResultSet getColumns(String catalog, String schemaPattern, String tableNamePattern, String columnNamePattern) throws SQLException {
+        try {
+            return trap.wrapResultSet(delegate().getColumns(catalog, schemaPattern, tableNamePattern, columnNamePattern), null);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public ResultSet getColumnPrivileges(String catalog, String schema, String table, String columnNamePattern) throws SQLException {
+        try {
+            return trap.wrapResultSet(delegate().getColumnPrivileges(catalog, schema, table, columnNamePattern), null);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public ResultSet getTablePrivileges(String catalog, String schemaPattern, String tableNamePattern) throws SQLException {
+        try {
+            return trap.wrapResultSet(delegate().getTablePrivileges(catalog, schemaPattern, tableNamePattern), null);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public ResultSet getBestRowIdentifier(String catalog, String schema, String table, int scope, boolean nullable) throws SQLException {
+        try {
+            return trap.wrapResultSet(delegate().getBestRowIdentifier(catalog, schema, table, scope, nullable), null);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public ResultSet getVersionColumns(String catalog, String schema, String table) throws SQLException {
+        try {
+            return trap.wrapResultSet(delegate().getVersionColumns(catalog, schema, table), null);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public ResultSet getPrimaryKeys(String catalog, String schema, String table) throws SQLException {
+        try {
+            return trap.wrapResultSet(delegate().getPrimaryKeys(catalog, schema, table), null);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public ResultSet getImportedKeys(String catalog, String schema, String table) throws SQLException {
+        try {
+            return trap.wrapResultSet(delegate().getImportedKeys(catalog, schema, table), null);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public ResultSet getExportedKeys(String catalog, String schema, String table) throws SQLException {
+        try {
+            return trap.wrapResultSet(delegate().getExportedKeys(catalog, schema, table), null);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public ResultSet getCrossReference(String parentCatalog, String parentSchema, String parentTable, String foreignCatalog, String foreignSchema, String foreignTable) throws SQLException {
+        try {
+            return trap.wrapResultSet(delegate().getCrossReference(parentCatalog, parentSchema, parentTable, foreignCatalog, foreignSchema, foreignTable), null);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public ResultSet getTypeInfo() throws SQLException {
+        try {
+            return trap.wrapResultSet(delegate().getTypeInfo(), null);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public ResultSet getIndexInfo(String catalog, String schema, String table, boolean unique, boolean approximate) throws SQLException {
+        try {
+            return trap.wrapResultSet(delegate().getIndexInfo(catalog, schema, table, unique, approximate), null);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsResultSetType(int type) throws SQLException {
+        try {
+            return delegate().supportsResultSetType(type);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsResultSetConcurrency(int type, int concurrency) throws SQLException {
+        try {
+            return delegate().supportsResultSetConcurrency(type, concurrency);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean ownUpdatesAreVisible(int type) throws SQLException {
+        try {
+            return delegate().ownUpdatesAreVisible(type);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean ownDeletesAreVisible(int type) throws SQLException {
+        try {
+            return delegate().ownDeletesAreVisible(type);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean ownInsertsAreVisible(int type) throws SQLException {
+        try {
+            return delegate().ownInsertsAreVisible(type);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean othersUpdatesAreVisible(int type) throws SQLException {
+        try {
+            return delegate().othersUpdatesAreVisible(type);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean othersDeletesAreVisible(int type) throws SQLException {
+        try {
+            return delegate().othersDeletesAreVisible(type);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean othersInsertsAreVisible(int type) throws SQLException {
+        try {
+            return delegate().othersInsertsAreVisible(type);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean updatesAreDetected(int type) throws SQLException {
+        try {
+            return delegate().updatesAreDetected(type);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean deletesAreDetected(int type) throws SQLException {
+        try {
+            return delegate().deletesAreDetected(type);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean insertsAreDetected(int type) throws SQLException {
+        try {
+            return delegate().insertsAreDetected(type);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsBatchUpdates() throws SQLException {
+        try {
+            return delegate().supportsBatchUpdates();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public ResultSet getUDTs(String catalog, String schemaPattern, String typeNamePattern, int[] types) throws SQLException {
+        try {
+            return trap.wrapResultSet(delegate().getUDTs(catalog, schemaPattern, typeNamePattern, types), null);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsSavepoints() throws SQLException {
+        try {
+            return delegate().supportsSavepoints();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsNamedParameters() throws SQLException {
+        try {
+            return delegate().supportsNamedParameters();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsMultipleOpenResults() throws SQLException {
+        try {
+            return delegate().supportsMultipleOpenResults();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsGetGeneratedKeys() throws SQLException {
+        try {
+            return delegate().supportsGetGeneratedKeys();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public ResultSet getSuperTypes(String catalog, String schemaPattern, String typeNamePattern) throws SQLException {
+        try {
+            return trap.wrapResultSet(delegate().getSuperTypes(catalog, schemaPattern, typeNamePattern), null);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public ResultSet getSuperTables(String catalog, String schemaPattern, String tableNamePattern) throws SQLException {
+        try {
+            return trap.wrapResultSet(delegate().getSuperTables(catalog, schemaPattern, tableNamePattern), null);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public ResultSet getAttributes(String catalog, String schemaPattern, String typeNamePattern, String attributeNamePattern) throws SQLException {
+        try {
+            return trap.wrapResultSet(delegate().getAttributes(catalog, schemaPattern, typeNamePattern, attributeNamePattern), null);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsResultSetHoldability(int holdability) throws SQLException {
+        try {
+            return delegate().supportsResultSetHoldability(holdability);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int getResultSetHoldability() throws SQLException {
+        try {
+            return delegate().getResultSetHoldability();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int getDatabaseMajorVersion() throws SQLException {
+        try {
+            return delegate().getDatabaseMajorVersion();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int getDatabaseMinorVersion() throws SQLException {
+        try {
+            return delegate().getDatabaseMinorVersion();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int getJDBCMajorVersion() throws SQLException {
+        try {
+            return delegate().getJDBCMajorVersion();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int getJDBCMinorVersion() throws SQLException {
+        try {
+            return delegate().getJDBCMinorVersion();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int getSQLStateType() throws SQLException {
+        try {
+            return delegate().getSQLStateType();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean locatorsUpdateCopy() throws SQLException {
+        try {
+            return delegate().locatorsUpdateCopy();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsStatementPooling() throws SQLException {
+        try {
+            return delegate().supportsStatementPooling();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public RowIdLifetime getRowIdLifetime() throws SQLException {
+        try {
+            return delegate().getRowIdLifetime();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public ResultSet getSchemas(String catalog, String schemaPattern) throws SQLException {
+        try {
+            return trap.wrapResultSet(delegate().getSchemas(catalog, schemaPattern), null);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsStoredFunctionsUsingCallSyntax() throws SQLException {
+        try {
+            return delegate().supportsStoredFunctionsUsingCallSyntax();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean autoCommitFailureClosesAllResultSets() throws SQLException {
+        try {
+            return delegate().autoCommitFailureClosesAllResultSets();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public ResultSet getClientInfoProperties() throws SQLException {
+        try {
+            return trap.wrapResultSet(delegate().getClientInfoProperties(), null);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public ResultSet getFunctions(String catalog, String schemaPattern, String functionNamePattern) throws SQLException {
+        try {
+            return trap.wrapResultSet(delegate().getFunctions(catalog, schemaPattern, functionNamePattern), null);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public ResultSet getFunctionColumns(String catalog, String schemaPattern, String functionNamePattern, String columnNamePattern) throws SQLException {
+        try {
+            return trap.wrapResultSet(delegate().getFunctionColumns(catalog, schemaPattern, functionNamePattern, columnNamePattern), null);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public ResultSet getPseudoColumns(String catalog, String schemaPattern, String tableNamePattern, String columnNamePattern) throws SQLException {
+        try {
+            return trap.wrapResultSet(delegate().getPseudoColumns(catalog, schemaPattern, tableNamePattern, columnNamePattern), null);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean generatedKeyAlwaysReturned() throws SQLException {
+        try {
+            return delegate().generatedKeyAlwaysReturned();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public long getMaxLogicalLobSize() throws SQLException {
+        try {
+            return delegate().getMaxLogicalLobSize();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean supportsRefCursors() throws SQLException {
+        try {
+            return delegate().supportsRefCursors();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import org.apache.tomcat.jdbc.pool.ConnectionPool;
+import org.apache.tomcat.jdbc.pool.PoolProperties.InterceptorProperty;
+
+import java.util.Map;
+
+/**
+ * @author edenhuan
+ * An optional feature of {@link ConnectionErrorTrap}. Reads its own interceptor properties and creates
+ * the pool wide component it needs in the {@link ConnectionErrorTrapContext} when the pool starts. The
+ * pool creates an interceptor, and so its features, per connection, only the one of poolStarted and
+ * poolClosed creates and closes components. A feature without a component only holds settings the trap
+ * reads per statement.
+ */
+public interface TrapFeature {
+
+    /**
+     * Read the properties of the feature, others are ignored
+     */
+    void setProperties(Map<String, InterceptorProperty> properties);
+
+    /**
+     * Called once per pool, after the context is created
+     */
+    default void poolStarted(ConnectionPool pool, ConnectionErrorTrapContext context) {
+    }
+
+    /**
+     * Called once per pool, after the context is removed
+     */
+    default void poolClosed(ConnectionErrorTrapContext context) {
+    }
+}
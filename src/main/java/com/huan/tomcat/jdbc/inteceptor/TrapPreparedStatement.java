@@ -0,0 +1,914 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.SQLType;
+import java.sql.SQLXML;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Calendar;
+
+/**
+ * @author edenhuan
+ * Delegating prepared statement for the wrapper mode of ConnectionErrorTrap.
+ */
+public class TrapPreparedStatement extends TrapStatement implements PreparedStatement {
+
+    /**
+     * parameters of a retryable read or of a statement with batchChunkSize>0, null otherwise
+     */
+    protected StatementParameters parameters;
+
+    public TrapPreparedStatement(ConnectionErrorTrap trap, PreparedStatement delegate, String query) {
+        super(trap, delegate, query);
+    }
+
+    @Override
+    void setRetrySettings(StatementSettings settings) {
+        super.setRetrySettings(settings);
+        this.parameters = settings != null ? new StatementParameters() : null;
+    }
+
+    @Override
+    void setBatching(boolean batching) {
+        super.setBatching(batching);
+        if (batching && parameters == null) {
+            this.parameters = new StatementParameters();
+        }
+    }
+
+    /**
+     * A parameter that can not be bound twice is about to be set: hand the rows buffered for the batch to
+     * the driver and bind the current row again, the rest of the batch passes through
+     */
+    protected void beforeUnreplayable() throws SQLException {
+        BatchBuffer batch = getBatch();
+        if (batch == null || batch.isPassThrough() || batch.size() == 0) {
+            return;
+        }
+        PreparedStatement statement = delegate();
+        batch.passThrough(statement);
+        parameters.replay(statement);
+    }
+
+    @Override
+    protected StatementParameters getParameters() {
+        return parameters;
+    }
+
+    @Override
+    protected PreparedStatement delegate() throws SQLException {
+        return (PreparedStatement) super.delegate();
+    }
+
+    @Override
+    public ResultSet executeQuery() throws SQLException {
+        long start = beforeExecute(query, false);
+        try {
+            ResultSet result = delegate().executeQuery();
+            trap.afterExecute(query, false, start, null);
+            return trap.wrapResultSet(result, this);
+        } catch (Throwable t) {
+            trap.afterExecute(query, false, start, t);
+            trap.trapThrowable(t);
+            if (!retry(query)) {
+                throw t;
+            }
+        }
+        try {
+            ResultSet result = executeQuery();
+            trap.retrySucceeded();
+            return result;
+        } finally {
+            retried();
+        }
+    }
+
+    @Override
+    public int executeUpdate() throws SQLException {
+        long start = beforeExecute(query, false);
+        try {
+            int result = delegate().executeUpdate();
+            trap.afterExecute(query, false, start, null);
+            return result;
+        } catch (Throwable t) {
+            trap.afterExecute(query, false, start, t);
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setNull(int parameterIndex, int sqlType) throws SQLException {
+        try {
+            delegate().setNull(parameterIndex, sqlType);
+            if (parameters != null) {
+                parameters.setNumber(parameterIndex, StatementParameters.NULL, sqlType);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setBoolean(int parameterIndex, boolean x) throws SQLException {
+        try {
+            delegate().setBoolean(parameterIndex, x);
+            if (parameters != null) {
+                parameters.setNumber(parameterIndex, StatementParameters.BOOLEAN, x ? 1 : 0);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setByte(int parameterIndex, byte x) throws SQLException {
+        try {
+            delegate().setByte(parameterIndex, x);
+            if (parameters != null) {
+                parameters.setNumber(parameterIndex, StatementParameters.BYTE, x);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setShort(int parameterIndex, short x) throws SQLException {
+        try {
+            delegate().setShort(parameterIndex, x);
+            if (parameters != null) {
+                parameters.setNumber(parameterIndex, StatementParameters.SHORT, x);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setInt(int parameterIndex, int x) throws SQLException {
+        try {
+            delegate().setInt(parameterIndex, x);
+            if (parameters != null) {
+                parameters.setNumber(parameterIndex, StatementParameters.INT, x);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setLong(int parameterIndex, long x) throws SQLException {
+        try {
+            delegate().setLong(parameterIndex, x);
+            if (parameters != null) {
+                parameters.setNumber(parameterIndex, StatementParameters.LONG, x);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setFloat(int parameterIndex, float x) throws SQLException {
+        try {
+            delegate().setFloat(parameterIndex, x);
+            if (parameters != null) {
+                parameters.setNumber(parameterIndex, StatementParameters.FLOAT, Float.floatToRawIntBits(x));
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setDouble(int parameterIndex, double x) throws SQLException {
+        try {
+            delegate().setDouble(parameterIndex, x);
+            if (parameters != null) {
+                parameters.setNumber(parameterIndex, StatementParameters.DOUBLE, Double.doubleToRawLongBits(x));
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setBigDecimal(int parameterIndex, BigDecimal x) throws SQLException {
+        try {
+            delegate().setBigDecimal(parameterIndex, x);
+            if (parameters != null) {
+                parameters.setValue(parameterIndex, StatementParameters.BIG_DECIMAL, x);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setString(int parameterIndex, String x) throws SQLException {
+        try {
+            delegate().setString(parameterIndex, x);
+            if (parameters != null) {
+                parameters.setValue(parameterIndex, StatementParameters.STRING, x);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setBytes(int parameterIndex, byte[] x) throws SQLException {
+        try {
+            delegate().setBytes(parameterIndex, x);
+            if (parameters != null) {
+                parameters.setValue(parameterIndex, StatementParameters.BYTES, x);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setDate(int parameterIndex, java.sql.Date x) throws SQLException {
+        try {
+            delegate().setDate(parameterIndex, x);
+            if (parameters != null) {
+                parameters.setValue(parameterIndex, StatementParameters.DATE, x);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setTime(int parameterIndex, java.sql.Time x) throws SQLException {
+        try {
+            delegate().setTime(parameterIndex, x);
+            if (parameters != null) {
+                parameters.setValue(parameterIndex, StatementParameters.TIME, x);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setTimestamp(int parameterIndex, java.sql.Timestamp x) throws SQLException {
+        try {
+            delegate().setTimestamp(parameterIndex, x);
+            if (parameters != null) {
+                parameters.setValue(parameterIndex, StatementParameters.TIMESTAMP, x);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setAsciiStream(int parameterIndex, InputStream x, int length) throws SQLException {
+        try {
+            beforeUnreplayable();
+            delegate().setAsciiStream(parameterIndex, x, length);
+            if (parameters != null) {
+                parameters.setUnreplayable(parameterIndex);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Deprecated
+    @Override
+    public void setUnicodeStream(int parameterIndex, InputStream x, int length) throws SQLException {
+        try {
+            beforeUnreplayable();
+            delegate().setUnicodeStream(parameterIndex, x, length);
+            if (parameters != null) {
+                parameters.setUnreplayable(parameterIndex);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setBinaryStream(int parameterIndex, InputStream x, int length) throws SQLException {
+        try {
+            beforeUnreplayable();
+            delegate().setBinaryStream(parameterIndex, x, length);
+            if (parameters != null) {
+                parameters.setUnreplayable(parameterIndex);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void clearParameters() throws SQLException {
+        try {
+            delegate().clearParameters();
+            if (parameters != null) {
+                parameters.clear();
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setObject(int parameterIndex, Object x, int targetSqlType) throws SQLException {
+        try {
+            if (!StatementParameters.isReplayable(x)) {
+                beforeUnreplayable();
+            }
+            delegate().setObject(parameterIndex, x, targetSqlType);
+            if (parameters != null) {
+                if (StatementParameters.isReplayable(x)) {
+                    parameters.set(parameterIndex, StatementParameters.OBJECT_TYPE, targetSqlType, x, null);
+                } else {
+                    parameters.setUnreplayable(parameterIndex);
+                }
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setObject(int parameterIndex, Object x) throws SQLException {
+        try {
+            if (!StatementParameters.isReplayable(x)) {
+                beforeUnreplayable();
+            }
+            delegate().setObject(parameterIndex, x);
+            if (parameters != null) {
+                if (StatementParameters.isReplayable(x)) {
+                    parameters.setValue(parameterIndex, StatementParameters.OBJECT, x);
+                } else {
+                    parameters.setUnreplayable(parameterIndex);
+                }
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean execute() throws SQLException {
+        long start = beforeExecute(query, false);
+        try {
+            boolean result = delegate().execute();
+            trap.afterExecute(query, false, start, null);
+            return result;
+        } catch (Throwable t) {
+            trap.afterExecute(query, false, start, t);
+            trap.trapThrowable(t);
+            if (!retry(query)) {
+                throw t;
+            }
+        }
+        try {
+            boolean result = execute();
+            trap.retrySucceeded();
+            return result;
+        } finally {
+            retried();
+        }
+    }
+
+    @Override
+    public void addBatch() throws SQLException {
+        try {
+            BatchBuffer batch = batch();
+            if (batch != null && !batch.isPassThrough()) {
+                if (batch.add(parameters)) {
+                    return;
+                }
+                batch.passThrough(delegate());
+            }
+            delegate().addBatch();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setCharacterStream(int parameterIndex, Reader reader, int length) throws SQLException {
+        try {
+            beforeUnreplayable();
+            delegate().setCharacterStream(parameterIndex, reader, length);
+            if (parameters != null) {
+                parameters.setUnreplayable(parameterIndex);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setRef(int parameterIndex, Ref x) throws SQLException {
+        try {
+            beforeUnreplayable();
+            delegate().setRef(parameterIndex, x);
+            if (parameters != null) {
+                parameters.setUnreplayable(parameterIndex);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setBlob(int parameterIndex, Blob x) throws SQLException {
+        try {
+            beforeUnreplayable();
+            delegate().setBlob(parameterIndex, x);
+            if (parameters != null) {
+                parameters.setUnreplayable(parameterIndex);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setClob(int parameterIndex, Clob x) throws SQLException {
+        try {
+            beforeUnreplayable();
+            delegate().setClob(parameterIndex, x);
+            if (parameters != null) {
+                parameters.setUnreplayable(parameterIndex);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setArray(int parameterIndex, Array x) throws SQLException {
+        try {
+            beforeUnreplayable();
+            delegate().setArray(parameterIndex, x);
+            if (parameters != null) {
+                parameters.setUnreplayable(parameterIndex);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public ResultSetMetaData getMetaData() throws SQLException {
+        try {
+            return delegate().getMetaData();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setDate(int parameterIndex, java.sql.Date x, Calendar cal) throws SQLException {
+        try {
+            delegate().setDate(parameterIndex, x, cal);
+            if (parameters != null) {
+                parameters.set(parameterIndex, StatementParameters.DATE_CALENDAR, 0, x, cal);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setTime(int parameterIndex, java.sql.Time x, Calendar cal) throws SQLException {
+        try {
+            delegate().setTime(parameterIndex, x, cal);
+            if (parameters != null) {
+                parameters.set(parameterIndex, StatementParameters.TIME_CALENDAR, 0, x, cal);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setTimestamp(int parameterIndex, java.sql.Timestamp x, Calendar cal) throws SQLException {
+        try {
+            delegate().setTimestamp(parameterIndex, x, cal);
+            if (parameters != null) {
+                parameters.set(parameterIndex, StatementParameters.TIMESTAMP_CALENDAR, 0, x, cal);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setNull(int parameterIndex, int sqlType, String typeName) throws SQLException {
+        try {
+            delegate().setNull(parameterIndex, sqlType, typeName);
+            if (parameters != null) {
+                parameters.set(parameterIndex, StatementParameters.NULL_TYPE_NAME, sqlType, null, typeName);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setURL(int parameterIndex, URL x) throws SQLException {
+        try {
+            delegate().setURL(parameterIndex, x);
+            if (parameters != null) {
+                parameters.setValue(parameterIndex, StatementParameters.URL, x);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public ParameterMetaData getParameterMetaData() throws SQLException {
+        try {
+            return delegate().getParameterMetaData();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setRowId(int parameterIndex, RowId x) throws SQLException {
+        try {
+            beforeUnreplayable();
+            delegate().setRowId(parameterIndex, x);
+            if (parameters != null) {
+                parameters.setUnreplayable(parameterIndex);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setNString(int parameterIndex, String value) throws SQLException {
+        try {
+            delegate().setNString(parameterIndex, value);
+            if (parameters != null) {
+                parameters.setValue(parameterIndex, StatementParameters.NSTRING, value);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setNCharacterStream(int parameterIndex, Reader value, long length) throws SQLException {
+        try {
+            beforeUnreplayable();
+            delegate().setNCharacterStream(parameterIndex, value, length);
+            if (parameters != null) {
+                parameters.setUnreplayable(parameterIndex);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setNClob(int parameterIndex, NClob value) throws SQLException {
+        try {
+            beforeUnreplayable();
+            delegate().setNClob(parameterIndex, value);
+            if (parameters != null) {
+                parameters.setUnreplayable(parameterIndex);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setClob(int parameterIndex, Reader reader, long length) throws SQLException {
+        try {
+            beforeUnreplayable();
+            delegate().setClob(parameterIndex, reader, length);
+            if (parameters != null) {
+                parameters.setUnreplayable(parameterIndex);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setBlob(int parameterIndex, InputStream inputStream, long length) throws SQLException {
+        try {
+            beforeUnreplayable();
+            delegate().setBlob(parameterIndex, inputStream, length);
+            if (parameters != null) {
+                parameters.setUnreplayable(parameterIndex);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setNClob(int parameterIndex, Reader reader, long length) throws SQLException {
+        try {
+            beforeUnreplayable();
+            delegate().setNClob(parameterIndex, reader, length);
+            if (parameters != null) {
+                parameters.setUnreplayable(parameterIndex);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setSQLXML(int parameterIndex, SQLXML xmlObject) throws SQLException {
+        try {
+            beforeUnreplayable();
+            delegate().setSQLXML(parameterIndex, xmlObject);
+            if (parameters != null) {
+                parameters.setUnreplayable(parameterIndex);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setObject(int parameterIndex, Object x, int targetSqlType, int scaleOrLength) throws SQLException {
+        try {
+            if (!StatementParameters.isReplayable(x)) {
+                beforeUnreplayable();
+            }
+            delegate().setObject(parameterIndex, x, targetSqlType, scaleOrLength);
+            if (parameters != null) {
+                if (StatementParameters.isReplayable(x)) {
+                    parameters.set(parameterIndex, StatementParameters.OBJECT_TYPE_SCALE,
+                            StatementParameters.pack(targetSqlType, scaleOrLength), x, null);
+                } else {
+                    parameters.setUnreplayable(parameterIndex);
+                }
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setAsciiStream(int parameterIndex, InputStream x, long length) throws SQLException {
+        try {
+            beforeUnreplayable();
+            delegate().setAsciiStream(parameterIndex, x, length);
+            if (parameters != null) {
+                parameters.setUnreplayable(parameterIndex);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setBinaryStream(int parameterIndex, InputStream x, long length) throws SQLException {
+        try {
+            beforeUnreplayable();
+            delegate().setBinaryStream(parameterIndex, x, length);
+            if (parameters != null) {
+                parameters.setUnreplayable(parameterIndex);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setCharacterStream(int parameterIndex, Reader reader, long length) throws SQLException {
+        try {
+            beforeUnreplayable();
+            delegate().setCharacterStream(parameterIndex, reader, length);
+            if (parameters != null) {
+                parameters.setUnreplayable(parameterIndex);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setAsciiStream(int parameterIndex, InputStream x) throws SQLException {
+        try {
+            beforeUnreplayable();
+            delegate().setAsciiStream(parameterIndex, x);
+            if (parameters != null) {
+                parameters.setUnreplayable(parameterIndex);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setBinaryStream(int parameterIndex, InputStream x) throws SQLException {
+        try {
+            beforeUnreplayable();
+            delegate().setBinaryStream(parameterIndex, x);
+            if (parameters != null) {
+                parameters.setUnreplayable(parameterIndex);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setCharacterStream(int parameterIndex, Reader reader) throws SQLException {
+        try {
+            beforeUnreplayable();
+            delegate().setCharacterStream(parameterIndex, reader);
+            if (parameters != null) {
+                parameters.setUnreplayable(parameterIndex);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setNCharacterStream(int parameterIndex, Reader value) throws SQLException {
+        try {
+            beforeUnreplayable();
+            delegate().setNCharacterStream(parameterIndex, value);
+            if (parameters != null) {
+                parameters.setUnreplayable(parameterIndex);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setClob(int parameterIndex, Reader reader) throws SQLException {
+        try {
+            beforeUnreplayable();
+            delegate().setClob(parameterIndex, reader);
+            if (parameters != null) {
+                parameters.setUnreplayable(parameterIndex);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setBlob(int parameterIndex, InputStream inputStream) throws SQLException {
+        try {
+            beforeUnreplayable();
+            delegate().setBlob(parameterIndex, inputStream);
+            if (parameters != null) {
+                parameters.setUnreplayable(parameterIndex);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setNClob(int parameterIndex, Reader reader) throws SQLException {
+        try {
+            beforeUnreplayable();
+            delegate().setNClob(parameterIndex, reader);
+            if (parameters != null) {
+                parameters.setUnreplayable(parameterIndex);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setObject(int parameterIndex, Object x, SQLType targetSqlType, int scaleOrLength) throws SQLException {
+        try {
+            if (!StatementParameters.isReplayable(x)) {
+                beforeUnreplayable();
+            }
+            delegate().setObject(parameterIndex, x, targetSqlType, scaleOrLength);
+            if (parameters != null) {
+                if (StatementParameters.isReplayable(x)) {
+                    parameters.set(parameterIndex, StatementParameters.OBJECT_SQL_TYPE_SCALE, scaleOrLength, x,
+                            targetSqlType);
+                } else {
+                    parameters.setUnreplayable(parameterIndex);
+                }
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setObject(int parameterIndex, Object x, SQLType targetSqlType) throws SQLException {
+        try {
+            if (!StatementParameters.isReplayable(x)) {
+                beforeUnreplayable();
+            }
+            delegate().setObject(parameterIndex, x, targetSqlType);
+            if (parameters != null) {
+                if (StatementParameters.isReplayable(x)) {
+                    parameters.set(parameterIndex, StatementParameters.OBJECT_SQL_TYPE, 0, x, targetSqlType);
+                } else {
+                    parameters.setUnreplayable(parameterIndex);
+                }
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public long executeLargeUpdate() throws SQLException {
+        long start = beforeExecute(query, false);
+        try {
+            long result = delegate().executeLargeUpdate();
+            trap.afterExecute(query, false, start, null);
+            return result;
+        } catch (Throwable t) {
+            trap.afterExecute(query, false, start, t);
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+}
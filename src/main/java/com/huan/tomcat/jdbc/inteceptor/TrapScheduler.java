@@ -0,0 +1,62 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @author edenhuan
+ * Daemon threads shared by every pool for the background work of the trap: connection refill and
+ * validation of suspect connections. Created on first use, under a lock rather than a monitor so a
+ * virtual thread racing the creation does not pin its carrier.
+ */
+public final class TrapScheduler {
+    private static final int THREADS = 4;
+
+    private static final ReentrantLock lock = new ReentrantLock();
+    private static volatile ScheduledExecutorService scheduler;
+
+    private TrapScheduler() {
+    }
+
+    /**
+     * Run the task on a worker thread
+     * @throws java.util.concurrent.RejectedExecutionException if the task can not be accepted
+     */
+    public static void execute(Runnable task) {
+        get().execute(task);
+    }
+
+    /**
+     * Run the task on a worker thread after the delay
+     * @throws java.util.concurrent.RejectedExecutionException if the task can not be accepted
+     */
+    public static void schedule(Runnable task, long delay, TimeUnit unit) {
+        get().schedule(task, delay, unit);
+    }
+
+    private static ScheduledExecutorService get() {
+        ScheduledExecutorService executor = scheduler;
+        if (executor == null) {
+            lock.lock();
+            try {
+                executor = scheduler;
+                if (executor == null) {
+                    final AtomicInteger threadId = new AtomicInteger(0);
+                    ScheduledThreadPoolExecutor stpe = new ScheduledThreadPoolExecutor(THREADS, r -> {
+                        Thread thread = new Thread(r, "ConnectionErrorTrap-worker-" + threadId.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    stpe.setRemoveOnCancelPolicy(true);
+                    scheduler = executor = stpe;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return executor;
+    }
+}
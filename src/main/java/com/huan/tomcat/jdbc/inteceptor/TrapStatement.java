@@ -0,0 +1,789 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+
+/**
+ * @author edenhuan
+ * Delegating statement used when ConnectionErrorTrap runs with useWrapper=true. Calls go straight
+ * to the driver statement and every error is handed to the trap, so there is neither reflection
+ * nor allocation per call.
+ */
+public class TrapStatement implements Statement {
+    protected final ConnectionErrorTrap trap;
+    protected final String query;
+    private Statement delegate;
+    /**
+     * query timeout state, created on first use when adaptiveTimeout is on
+     */
+    private StatementTimeout timeout;
+    /**
+     * key in the statement cache of the connection, null if the statement is not cached
+     */
+    private TrapStatementCache.Key cacheKey;
+    /**
+     * settings of a statement created with the default result set options, whose failed reads may be
+     * retried, null otherwise
+     */
+    private StatementSettings settings;
+    private boolean retrying;
+    /**
+     * addBatch rows are kept by the trap, see {@link ConnectionErrorTrap#executeBatch}
+     */
+    private boolean batching;
+    /**
+     * rows of the current batch, created on first addBatch
+     */
+    private BatchBuffer batch;
+
+    public TrapStatement(ConnectionErrorTrap trap, Statement delegate, String query) {
+        this.trap = trap;
+        this.delegate = delegate;
+        this.query = query;
+    }
+
+    protected Statement delegate() throws SQLException {
+        Statement statement = delegate;
+        if (statement == null) {
+            throw new SQLException("Statement closed.");
+        }
+        return statement;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    void setRetrySettings(StatementSettings settings) {
+        this.settings = settings;
+    }
+
+    void setBatching(boolean batching) {
+        this.batching = batching;
+    }
+
+    /**
+     * @return the batch rows kept by the trap, null if the driver keeps them
+     */
+    protected BatchBuffer batch() {
+        if (!batching) {
+            return null;
+        }
+        if (batch == null) {
+            batch = new BatchBuffer();
+        }
+        return batch;
+    }
+
+    /**
+     * @return the batch rows kept by the trap, null if none were added yet
+     */
+    protected BatchBuffer getBatch() {
+        return batch;
+    }
+
+    /**
+     * parameters bound to the statement, null if not recorded
+     */
+    protected StatementParameters getParameters() {
+        return null;
+    }
+
+    /**
+     * After a fatal error of a read, replace the driver statement with one on the reconnected connection,
+     * see {@link ConnectionErrorTrap#retryRead}. The caller then executes once more and calls
+     * {@link #retried()} when done.
+     * @return true if the read is retried
+     */
+    protected boolean retry(String sql) {
+        StatementSettings settings = this.settings;
+        if (settings == null || retrying || delegate == null) {
+            return false;
+        }
+        Statement retry = trap.retryRead(sql, query, getParameters(), settings);
+        if (retry == null) {
+            return false;
+        }
+        delegate = retry;
+        if (timeout != null) {
+            timeout.setApplied(settings.getQueryTimeout());
+        }
+        retrying = true;
+        return true;
+    }
+
+    protected void retried() {
+        retrying = false;
+    }
+
+    void setCacheKey(TrapStatementCache.Key cacheKey) {
+        this.cacheKey = cacheKey;
+    }
+
+    protected StatementTimeout timeout() throws SQLException {
+        if (timeout == null) {
+            timeout = new StatementTimeout(delegate().getQueryTimeout());
+        }
+        return timeout;
+    }
+
+    /**
+     * {@link ConnectionErrorTrap#beforeExecute()}, then the adaptive query timeout of the SQL if enabled
+     * @param sql  SQL to execute, null for batches
+     */
+    protected long beforeExecute(String sql, boolean normalize) throws SQLException {
+        long start = trap.beforeExecute();
+        if (trap.isAdaptiveTimeout()) {
+            try {
+                trap.applyTimeout(delegate(), sql, normalize, timeout());
+            } catch (Throwable t) {
+                trap.trapThrowable(t);
+                throw t;
+            }
+        }
+        return start;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        Statement statement = delegate;
+        if (statement == null) {
+            return;
+        }
+        if (cacheKey != null) {
+            delegate = null;
+            if (trap.parkStatement(cacheKey, statement, timeout)) {
+                return;
+            }
+            delegate = statement;
+        }
+        try {
+            statement.close();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+        delegate = null;
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+        Statement statement = delegate;
+        if (statement == null) {
+            return true;
+        }
+        try {
+            return statement.isClosed();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        try {
+            return delegate().unwrap(iface);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        try {
+            return delegate().isWrapperFor(iface);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public ResultSet executeQuery(String sql) throws SQLException {
+        long start = beforeExecute(sql, true);
+        try {
+            ResultSet result = delegate().executeQuery(sql);
+            trap.afterExecute(sql, true, start, null);
+            return trap.wrapResultSet(result, this);
+        } catch (Throwable t) {
+            trap.afterExecute(sql, true, start, t);
+            trap.trapThrowable(t);
+            if (!retry(sql)) {
+                throw t;
+            }
+        }
+        try {
+            ResultSet result = executeQuery(sql);
+            trap.retrySucceeded();
+            return result;
+        } finally {
+            retried();
+        }
+    }
+
+    @Override
+    public int executeUpdate(String sql) throws SQLException {
+        long start = beforeExecute(sql, true);
+        try {
+            int result = delegate().executeUpdate(sql);
+            trap.afterExecute(sql, true, start, null);
+            return result;
+        } catch (Throwable t) {
+            trap.afterExecute(sql, true, start, t);
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int getMaxFieldSize() throws SQLException {
+        try {
+            return delegate().getMaxFieldSize();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setMaxFieldSize(int max) throws SQLException {
+        try {
+            delegate().setMaxFieldSize(max);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int getMaxRows() throws SQLException {
+        try {
+            return delegate().getMaxRows();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setMaxRows(int max) throws SQLException {
+        try {
+            delegate().setMaxRows(max);
+            if (settings != null) {
+                settings.setMaxRows(max);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setEscapeProcessing(boolean enable) throws SQLException {
+        try {
+            delegate().setEscapeProcessing(enable);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int getQueryTimeout() throws SQLException {
+        try {
+            if (trap.isAdaptiveTimeout()) {
+                return timeout().getRequested();
+            }
+            return delegate().getQueryTimeout();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setQueryTimeout(int seconds) throws SQLException {
+        try {
+            delegate().setQueryTimeout(seconds);
+            if (trap.isAdaptiveTimeout()) {
+                timeout().setRequested(seconds);
+            }
+            if (settings != null) {
+                settings.setQueryTimeout(seconds);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void cancel() throws SQLException {
+        try {
+            delegate().cancel();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public SQLWarning getWarnings() throws SQLException {
+        try {
+            return delegate().getWarnings();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void clearWarnings() throws SQLException {
+        try {
+            delegate().clearWarnings();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setCursorName(String name) throws SQLException {
+        try {
+            delegate().setCursorName(name);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean execute(String sql) throws SQLException {
+        long start = beforeExecute(sql, true);
+        try {
+            boolean result = delegate().execute(sql);
+            trap.afterExecute(sql, true, start, null);
+            return result;
+        } catch (Throwable t) {
+            trap.afterExecute(sql, true, start, t);
+            trap.trapThrowable(t);
+            if (!retry(sql)) {
+                throw t;
+            }
+        }
+        try {
+            boolean result = execute(sql);
+            trap.retrySucceeded();
+            return result;
+        } finally {
+            retried();
+        }
+    }
+
+    @Override
+    public ResultSet getResultSet() throws SQLException {
+        try {
+            return trap.wrapResultSet(delegate().getResultSet(), this);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int getUpdateCount() throws SQLException {
+        try {
+            return delegate().getUpdateCount();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean getMoreResults() throws SQLException {
+        try {
+            return delegate().getMoreResults();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setFetchDirection(int direction) throws SQLException {
+        try {
+            delegate().setFetchDirection(direction);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int getFetchDirection() throws SQLException {
+        try {
+            return delegate().getFetchDirection();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setFetchSize(int rows) throws SQLException {
+        try {
+            delegate().setFetchSize(rows);
+            if (settings != null) {
+                settings.setFetchSize(rows);
+            }
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int getFetchSize() throws SQLException {
+        try {
+            return delegate().getFetchSize();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int getResultSetConcurrency() throws SQLException {
+        try {
+            return delegate().getResultSetConcurrency();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int getResultSetType() throws SQLException {
+        try {
+            return delegate().getResultSetType();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void addBatch(String sql) throws SQLException {
+        try {
+            BatchBuffer batch = query == null ? batch() : null;
+            if (batch != null && !batch.isPassThrough()) {
+                batch.add(sql);
+                return;
+            }
+            delegate().addBatch(sql);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void clearBatch() throws SQLException {
+        try {
+            BatchBuffer batch = this.batch;
+            if (batch != null) {
+                batch.clear();
+            }
+            delegate().clearBatch();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int[] executeBatch() throws SQLException {
+        long start = beforeExecute(null, false);
+        try {
+            BatchBuffer batch = batch();
+            int[] result = batch != null ? trap.executeBatch(delegate(), batch) : delegate().executeBatch();
+            trap.afterExecute(query, false, start, null);
+            return result;
+        } catch (Throwable t) {
+            trap.afterExecute(query, false, start, t);
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        try {
+            return delegate().getConnection();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean getMoreResults(int current) throws SQLException {
+        try {
+            return delegate().getMoreResults(current);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public ResultSet getGeneratedKeys() throws SQLException {
+        try {
+            return trap.wrapResultSet(delegate().getGeneratedKeys(), this);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        long start = beforeExecute(sql, true);
+        try {
+            int result = delegate().executeUpdate(sql, autoGeneratedKeys);
+            trap.afterExecute(sql, true, start, null);
+            return result;
+        } catch (Throwable t) {
+            trap.afterExecute(sql, true, start, t);
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        long start = beforeExecute(sql, true);
+        try {
+            int result = delegate().executeUpdate(sql, columnIndexes);
+            trap.afterExecute(sql, true, start, null);
+            return result;
+        } catch (Throwable t) {
+            trap.afterExecute(sql, true, start, t);
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+        long start = beforeExecute(sql, true);
+        try {
+            int result = delegate().executeUpdate(sql, columnNames);
+            trap.afterExecute(sql, true, start, null);
+            return result;
+        } catch (Throwable t) {
+            trap.afterExecute(sql, true, start, t);
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+        long start = beforeExecute(sql, true);
+        try {
+            boolean result = delegate().execute(sql, autoGeneratedKeys);
+            trap.afterExecute(sql, true, start, null);
+            return result;
+        } catch (Throwable t) {
+            trap.afterExecute(sql, true, start, t);
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean execute(String sql, int[] columnIndexes) throws SQLException {
+        long start = beforeExecute(sql, true);
+        try {
+            boolean result = delegate().execute(sql, columnIndexes);
+            trap.afterExecute(sql, true, start, null);
+            return result;
+        } catch (Throwable t) {
+            trap.afterExecute(sql, true, start, t);
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean execute(String sql, String[] columnNames) throws SQLException {
+        long start = beforeExecute(sql, true);
+        try {
+            boolean result = delegate().execute(sql, columnNames);
+            trap.afterExecute(sql, true, start, null);
+            return result;
+        } catch (Throwable t) {
+            trap.afterExecute(sql, true, start, t);
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public int getResultSetHoldability() throws SQLException {
+        try {
+            return delegate().getResultSetHoldability();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setPoolable(boolean poolable) throws SQLException {
+        try {
+            delegate().setPoolable(poolable);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean isPoolable() throws SQLException {
+        try {
+            return delegate().isPoolable();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void closeOnCompletion() throws SQLException {
+        try {
+            delegate().closeOnCompletion();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public boolean isCloseOnCompletion() throws SQLException {
+        try {
+            return delegate().isCloseOnCompletion();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public long getLargeUpdateCount() throws SQLException {
+        try {
+            return delegate().getLargeUpdateCount();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public void setLargeMaxRows(long max) throws SQLException {
+        try {
+            delegate().setLargeMaxRows(max);
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public long getLargeMaxRows() throws SQLException {
+        try {
+            return delegate().getLargeMaxRows();
+        } catch (Throwable t) {
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public long[] executeLargeBatch() throws SQLException {
+        long start = beforeExecute(null, false);
+        try {
+            BatchBuffer batch = batch();
+            long[] result = batch != null ? trap.executeLargeBatch(delegate(), batch) : delegate().executeLargeBatch();
+            trap.afterExecute(query, false, start, null);
+            return result;
+        } catch (Throwable t) {
+            trap.afterExecute(query, false, start, t);
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql) throws SQLException {
+        long start = beforeExecute(sql, true);
+        try {
+            long result = delegate().executeLargeUpdate(sql);
+            trap.afterExecute(sql, true, start, null);
+            return result;
+        } catch (Throwable t) {
+            trap.afterExecute(sql, true, start, t);
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        long start = beforeExecute(sql, true);
+        try {
+            long result = delegate().executeLargeUpdate(sql, autoGeneratedKeys);
+            trap.afterExecute(sql, true, start, null);
+            return result;
+        } catch (Throwable t) {
+            trap.afterExecute(sql, true, start, t);
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        long start = beforeExecute(sql, true);
+        try {
+            long result = delegate().executeLargeUpdate(sql, columnIndexes);
+            trap.afterExecute(sql, true, start, null);
+            return result;
+        } catch (Throwable t) {
+            trap.afterExecute(sql, true, start, t);
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, String[] columnNames) throws SQLException {
+        long start = beforeExecute(sql, true);
+        try {
+            long result = delegate().executeLargeUpdate(sql, columnNames);
+            trap.afterExecute(sql, true, start, null);
+            return result;
+        } catch (Throwable t) {
+            trap.afterExecute(sql, true, start, t);
+            trap.trapThrowable(t);
+            throw t;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @author edenhuan
+ * LRU cache of the prepared and callable statements of one pooled connection, used by ConnectionErrorTrap
+ * with statementCacheSize>0. Closing a cached statement parks the driver statement, the next prepare of
+ * the same SQL, result set type and concurrency takes it out again and hands it to the application in a
+ * new wrapper, also after the connection went back to the pool and was borrowed again. The wrapper closed
+ * by the application stays closed, so a statement is in the cache only while nobody can use it.
+ * The cache belongs to one physical connection: it is dropped at once when the connection is discarded,
+ * and when the pool reconnected it in between, so a statement never outlives its connection.
+ */
+public class TrapStatementCache {
+    private final int maxSize;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private Connection connection;
+
+    public TrapStatementCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Take the statement cached for the key out of the cache
+     * @param connection  current physical connection, the cache is dropped if it changed
+     * @return the entry, null on a miss
+     */
+    public Entry checkout(Key key, Connection connection) {
+        lock.lock();
+        try {
+            if (this.connection != connection) {
+                entries.clear();
+                this.connection = connection;
+                return null;
+            }
+            return entries.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Park a statement the application closed. The caller closes the driver statement of the returned
+     * entry: the least recently parked one when the cache is full, or the given one if it could not be
+     * cached because a statement with the same key is already parked or the connection changed.
+     * @return entry to close, null if nothing has to be closed
+     */
+    public Entry checkin(Entry entry, Connection connection) {
+        lock.lock();
+        try {
+            if (this.connection != connection || entries.containsKey(entry.key)) {
+                return entry;
+            }
+            entries.put(entry.key, entry);
+            if (entries.size() <= maxSize) {
+                return null;
+            }
+            Iterator<Entry> it = entries.values().iterator();
+            Entry eldest = it.next();
+            it.remove();
+            return eldest;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drop every parked statement without closing it, the driver releases them with the connection
+     * @return number of statements dropped
+     */
+    public int invalidate() {
+        lock.lock();
+        try {
+            int size = entries.size();
+            entries.clear();
+            connection = null;
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getSize() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * prepareStatement or prepareCall with its SQL, result set type and concurrency
+     */
+    public static final class Key {
+        private final boolean call;
+        private final String sql;
+        private final int resultSetType;
+        private final int resultSetConcurrency;
+
+        public Key(boolean call, String sql, int resultSetType, int resultSetConcurrency) {
+            this.call = call;
+            this.sql = sql;
+            this.resultSetType = resultSetType;
+            this.resultSetConcurrency = resultSetConcurrency;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return call == key.call && resultSetType == key.resultSetType
+                    && resultSetConcurrency == key.resultSetConcurrency && sql.equals(key.sql);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = sql.hashCode();
+            result = 31 * result + resultSetType;
+            result = 31 * result + resultSetConcurrency;
+            return call ? ~result : result;
+        }
+    }
+
+    /**
+     * a parked driver statement
+     */
+    public static final class Entry {
+        private final Key key;
+        private final Statement statement;
+
+        public Entry(Key key, Statement statement) {
+            this.key = key;
+            this.statement = statement;
+        }
+
+        public Key getKey() {
+            return key;
+        }
+
+        public Statement getStatement() {
+            return statement;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.jdbc.pool.ConnectionPool;
+import org.apache.tomcat.jdbc.pool.PoolProperties.InterceptorDefinition;
+import org.apache.tomcat.jdbc.pool.PoolProperties.InterceptorProperty;
+
+import java.util.Map;
+
+/**
+ * @author edenhuan
+ * With warmUp=true the initial connections of the pool are opened on warmUpConcurrency threads, validated
+ * and warmed up with the statements of warmUpSqlFile before the pool fills itself, see {@link PoolWarmer}.
+ * The trap should then be the last jdbc interceptor: later ones are not started yet during poolStarted.
+ * The feature is the last one started, so the connections see every component of the context.
+ */
+public class WarmUpFeature implements TrapFeature {
+    private static final Log log = LogFactory.getLog(WarmUpFeature.class);
+
+    public static final String PROP_WARM_UP = "warmUp";
+    public static final String PROP_WARM_UP_CONCURRENCY = "warmUpConcurrency";
+    public static final String PROP_WARM_UP_SQL_FILE = "warmUpSqlFile";
+    public static final String PROP_WARM_UP_TIMEOUT = "warmUpTimeout";
+
+    protected boolean warmUp = false;
+    protected int warmUpConcurrency = 4;
+    /**
+     * class path resource or file with one warm-up statement per line, null for validation only
+     */
+    protected String warmUpSqlFile;
+    /**
+     * milliseconds poolStarted waits for the warm-up
+     */
+    protected long warmUpTimeout = 30000;
+
+    @Override
+    public void setProperties(Map<String, InterceptorProperty> properties) {
+        InterceptorProperty p = properties.get(PROP_WARM_UP);
+        if (p != null) {
+            setWarmUp(p.getValueAsBoolean(false));
+        }
+        p = properties.get(PROP_WARM_UP_CONCURRENCY);
+        if (p != null) {
+            setWarmUpConcurrency(p.getValueAsInt(warmUpConcurrency));
+        }
+        p = properties.get(PROP_WARM_UP_SQL_FILE);
+        if (p != null) {
+            setWarmUpSqlFile(p.getValue());
+        }
+        p = properties.get(PROP_WARM_UP_TIMEOUT);
+        if (p != null) {
+            setWarmUpTimeout(p.getValueAsLong(warmUpTimeout));
+        }
+    }
+
+    @Override
+    public void poolStarted(ConnectionPool pool, ConnectionErrorTrapContext context) {
+        if (!warmUp || context.getWarmer() != null) {
+            return;
+        }
+        if (!isLastInterceptor(pool)) {
+            log.warn("Warm-up of pool:" + context.getName() + " skipped, " + ConnectionErrorTrap.class.getName()
+                    + " must be the last jdbc interceptor to warm up.");
+            return;
+        }
+        PoolWarmer warmer = new PoolWarmer(pool, warmUpConcurrency, PoolWarmer.loadSql(warmUpSqlFile), warmUpTimeout);
+        context.setWarmer(warmer);
+        warmer.warmUp();
+    }
+
+    protected boolean isLastInterceptor(ConnectionPool pool) {
+        InterceptorDefinition[] definitions = pool.getPoolProperties().getJdbcInterceptorsAsArray();
+        if (definitions.length == 0) {
+            return false;
+        }
+        try {
+            Class<?> last = definitions[definitions.length - 1].getInterceptorClass();
+            return ConnectionErrorTrap.class.isAssignableFrom(last);
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    public boolean isWarmUp() {
+        return warmUp;
+    }
+
+    public void setWarmUp(boolean warmUp) {
+        this.warmUp = warmUp;
+    }
+
+    public int getWarmUpConcurrency() {
+        return warmUpConcurrency;
+    }
+
+    public void setWarmUpConcurrency(int warmUpConcurrency) {
+        this.warmUpConcurrency = warmUpConcurrency;
+    }
+
+    public String getWarmUpSqlFile() {
+        return warmUpSqlFile;
+    }
+
+    public void setWarmUpSqlFile(String warmUpSqlFile) {
+        this.warmUpSqlFile = warmUpSqlFile != null && !warmUpSqlFile.trim().isEmpty()
+                ? warmUpSqlFile.trim() : null;
+    }
+
+    public long getWarmUpTimeout() {
+        return warmUpTimeout;
+    }
+
+    public void setWarmUpTimeout(long warmUpTimeout) {
+        this.warmUpTimeout = warmUpTimeout;
+    }
+}
@@ -0,0 +1,242 @@
+package com.huan.tomcat.jdbc.journal;
+
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author edenhuan
+ * Binary journal of the connection discards of one pool, a fixed size ring of records in a memory mapped
+ * file. Writing a record only stores a few numbers into the mapping, no object is allocated and no I/O
+ * is done by the request thread, the operating system writes the pages back, also after the JVM crashed.
+ * Once the ring is full the oldest records are overwritten. A journal found at start with the same layout
+ * is continued, so the records of a crashed run survive the restart. The file is locked while the pool is
+ * open, a pool whose name is taken by another pool of this or another process gets its id appended.
+ * Read it offline with {@link DiscardJournalReader}.
+ * <pre>
+ * header  0 magic, 4 version, 8 record size, 12 capacity, 16 creation time, 24 name length, 28 pool name
+ * record  0 sequence, 8 timestamp, 16 pool id, 24 errorCode, 28 SQLState, 34 reason, 36 connection age,
+ *         44 milliseconds since validation, 52 thread id
+ * </pre>
+ * The sequence is stored negated while a record is written, a record with a sequence &lt;= 0 is incomplete.
+ */
+public class DiscardJournal {
+    public static final int MAGIC = 0x544A444A;
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 64;
+    public static final int RECORD_SIZE = 64;
+    public static final int NAME_SIZE = HEADER_SIZE - 28;
+    public static final int SQL_STATE_SIZE = 6;
+
+    /**
+     * the exception sorter called the error fatal
+     */
+    public static final byte REASON_FATAL = 1;
+    /**
+     * the connection failed a validation of the trap, there is no error
+     */
+    public static final byte REASON_VALIDATION = 2;
+
+    static final int SEQUENCE = 0;
+    static final int TIMESTAMP = 8;
+    static final int POOL_ID = 16;
+    static final int ERROR_CODE = 24;
+    static final int SQL_STATE = 28;
+    static final int REASON = 34;
+    static final int CONNECTION_AGE = 36;
+    static final int SINCE_VALIDATION = 44;
+    static final int THREAD_ID = 52;
+
+    private final File file;
+    private final int capacity;
+    private final MappedByteBuffer buffer;
+    private final AtomicLong sequence;
+    /**
+     * open until the journal is closed, it holds the lock of the file
+     */
+    private final RandomAccessFile raf;
+
+    private static final Log log = LogFactory.getLog(DiscardJournal.class);
+
+    private DiscardJournal(File file, int capacity, MappedByteBuffer buffer, long sequence, RandomAccessFile raf) {
+        this.file = file;
+        this.capacity = capacity;
+        this.buffer = buffer;
+        this.sequence = new AtomicLong(sequence);
+        this.raf = raf;
+    }
+
+    /**
+     * Open the journal of a pool in the directory, named after the pool. If the file is locked by another pool
+     * sharing the name, in this process or another one, the pool id is appended to the name.
+     * @param poolId    id of the pool, appended when the name is taken
+     * @param capacity  records kept
+     * @return the journal, null if the file can not be mapped or locked
+     */
+    public static DiscardJournal open(String directory, String poolName, long poolId, int capacity) {
+        File file = new File(directory, getFileName(poolName));
+        try {
+            DiscardJournal journal = open(file, poolName, capacity);
+            if (journal == null) {
+                file = new File(directory, getFileName((poolName != null ? poolName : "pool") + "-" + poolId));
+                journal = open(file, poolName, capacity);
+            }
+            if (journal == null) {
+                log.warn("Discard journal:" + file + " is used by another pool, discards are not journaled.");
+            }
+            return journal;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Unable to open discard journal:" + file + ", discards are not journaled.", e);
+            return null;
+        }
+    }
+
+    /**
+     * @return the journal, null if the file is locked by another journal
+     */
+    public static DiscardJournal open(File file, String poolName, int capacity) throws IOException {
+        if (capacity <= 0 || (long) capacity * RECORD_SIZE > Integer.MAX_VALUE - HEADER_SIZE) {
+            throw new IllegalArgumentException("capacity must be positive and fit a mapping: " + capacity);
+        }
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Unable to create directory " + parent);
+        }
+        long size = HEADER_SIZE + (long) capacity * RECORD_SIZE;
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        boolean opened = false;
+        try {
+            if (!lock(raf.getChannel())) {
+                return null;
+            }
+            boolean reuse = raf.length() == size;
+            if (!reuse) {
+                raf.setLength(0);
+                raf.setLength(size);
+            }
+            //the mapping stays valid after the file is closed
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            reuse = reuse && buffer.getInt(0) == MAGIC && buffer.getInt(4) == VERSION
+                    && buffer.getInt(8) == RECORD_SIZE && buffer.getInt(12) == capacity;
+            long sequence = 0;
+            if (reuse) {
+                for (int i = 0; i < capacity; i++) {
+                    sequence = Math.max(sequence, Math.abs(buffer.getLong(HEADER_SIZE + i * RECORD_SIZE)));
+                }
+            } else {
+                writeHeader(buffer, poolName, capacity);
+            }
+            opened = true;
+            return new DiscardJournal(file, capacity, buffer, sequence, raf);
+        } finally {
+            if (!opened) {
+                raf.close();
+            }
+        }
+    }
+
+    /**
+     * @return false if another journal of this or another process holds the lock
+     */
+    private static boolean lock(FileChannel channel) throws IOException {
+        try {
+            FileLock lock = channel.tryLock();
+            return lock != null;
+        } catch (OverlappingFileLockException e) {
+            return false;
+        }
+    }
+
+    private static void writeHeader(MappedByteBuffer buffer, String poolName, int capacity) {
+        for (int i = 0; i < HEADER_SIZE; i++) {
+            buffer.put(i, (byte) 0);
+        }
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, RECORD_SIZE);
+        buffer.putInt(12, capacity);
+        buffer.putLong(16, System.currentTimeMillis());
+        byte[] name = poolName != null ? poolName.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        int length = Math.min(name.length, NAME_SIZE);
+        buffer.putInt(24, length);
+        for (int i = 0; i < length; i++) {
+            buffer.put(28 + i, name[i]);
+        }
+        //magic last, a half written header is not taken for a journal
+        buffer.putInt(0, MAGIC);
+    }
+
+    /**
+     * File name of the journal of a pool, characters other than letters, digits, '.', '-' and '_' are replaced
+     */
+    public static String getFileName(String poolName) {
+        String name = poolName != null ? poolName : "pool";
+        return name.replaceAll("[^A-Za-z0-9._-]", "_") + ".discard.journal";
+    }
+
+    /**
+     * Append a discard, allocation free
+     * @param sqlState         null if unknown
+     * @param lastConnected    PooledConnection.getLastConnected(), 0 if unknown
+     * @param lastValidated    PooledConnection.getLastValidated(), 0 if never validated
+     */
+    public void write(long poolId, String sqlState, int errorCode, byte reason,
+                      long lastConnected, long lastValidated, long now) {
+        long seq = sequence.incrementAndGet();
+        //long until the end, the mapping is at most Integer.MAX_VALUE bytes
+        int offset = (int) (HEADER_SIZE + (seq - 1) % capacity * RECORD_SIZE);
+        MappedByteBuffer buffer = this.buffer;
+        buffer.putLong(offset + SEQUENCE, -seq);
+        buffer.putLong(offset + TIMESTAMP, now);
+        buffer.putLong(offset + POOL_ID, poolId);
+        buffer.putInt(offset + ERROR_CODE, errorCode);
+        int length = sqlState != null ? Math.min(sqlState.length(), SQL_STATE_SIZE) : 0;
+        for (int i = 0; i < SQL_STATE_SIZE; i++) {
+            buffer.put(offset + SQL_STATE + i, i < length ? (byte) sqlState.charAt(i) : 0);
+        }
+        buffer.put(offset + REASON, reason);
+        buffer.putLong(offset + CONNECTION_AGE, lastConnected > 0 ? now - lastConnected : -1);
+        buffer.putLong(offset + SINCE_VALIDATION, lastValidated > 0 ? now - lastValidated : -1);
+        buffer.putLong(offset + THREAD_ID, Thread.currentThread().getId());
+        buffer.putLong(offset + SEQUENCE, seq);
+    }
+
+    /**
+     * Write the mapped pages to the disk and release the file, called when the pool is closed
+     */
+    public void close() {
+        try {
+            buffer.force();
+        } catch (RuntimeException e) {
+            log.warn("Unable to flush discard journal:" + file, e);
+        }
+        try {
+            raf.close();
+        } catch (IOException e) {
+            log.warn("Unable to close discard journal:" + file, e);
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * records written since the journal was created, including the overwritten ones
+     */
+    public long getWriteCount() {
+        return sequence.get();
+    }
+}
@@ -0,0 +1,318 @@
+package com.huan.tomcat.jdbc.journal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @author edenhuan
+ * Reads a {@link DiscardJournal} offline and summarizes it: discard bursts, dominant SQLState/errorCode
+ * pairs and the distribution of connection ages. Also a command line tool:
+ * <pre>
+ *     java -cp TomcatJdbcInterceptor.jar com.huan.tomcat.jdbc.journal.DiscardJournalReader [-gap ms] [-top n] file...
+ * </pre>
+ * Discards less than gap milliseconds (default 1000) apart belong to the same burst, the top n (default 10)
+ * bursts and error codes are printed.
+ */
+public class DiscardJournalReader {
+    /**
+     * upper bounds in milliseconds of the age buckets
+     */
+    private static final long[] AGE_BOUNDS = {1000, 10000, 60000, 600000, 3600000, Long.MAX_VALUE};
+    private static final String[] AGE_LABELS = {"<1s", "<10s", "<1m", "<10m", "<1h", ">=1h"};
+
+    private final File file;
+    private final String poolName;
+    private final int capacity;
+    private final long created;
+    private final List<DiscardRecord> records;
+
+    public DiscardJournalReader(File file) throws IOException {
+        this.file = file;
+        ByteBuffer buffer;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            if (raf.length() < DiscardJournal.HEADER_SIZE) {
+                throw new IOException("Not a discard journal: " + file);
+            }
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+        }
+        if (buffer.getInt(0) != DiscardJournal.MAGIC) {
+            throw new IOException("Not a discard journal: " + file);
+        }
+        if (buffer.getInt(4) != DiscardJournal.VERSION || buffer.getInt(8) != DiscardJournal.RECORD_SIZE) {
+            throw new IOException("Unsupported discard journal version " + buffer.getInt(4) + ": " + file);
+        }
+        this.capacity = buffer.getInt(12);
+        if ((long) DiscardJournal.HEADER_SIZE + (long) capacity * DiscardJournal.RECORD_SIZE > buffer.capacity()) {
+            throw new IOException("Truncated discard journal: " + file);
+        }
+        this.created = buffer.getLong(16);
+        byte[] name = new byte[Math.min(Math.max(buffer.getInt(24), 0), DiscardJournal.NAME_SIZE)];
+        for (int i = 0; i < name.length; i++) {
+            name[i] = buffer.get(28 + i);
+        }
+        this.poolName = new String(name, StandardCharsets.UTF_8);
+        this.records = readRecords(buffer, capacity);
+    }
+
+    private static List<DiscardRecord> readRecords(ByteBuffer buffer, int capacity) {
+        List<DiscardRecord> records = new ArrayList<>();
+        for (int i = 0; i < capacity; i++) {
+            int offset = DiscardJournal.HEADER_SIZE + i * DiscardJournal.RECORD_SIZE;
+            long sequence = buffer.getLong(offset + DiscardJournal.SEQUENCE);
+            if (sequence <= 0) {
+                continue;
+            }
+            StringBuilder sqlState = new StringBuilder(DiscardJournal.SQL_STATE_SIZE);
+            for (int j = 0; j < DiscardJournal.SQL_STATE_SIZE; j++) {
+                byte b = buffer.get(offset + DiscardJournal.SQL_STATE + j);
+                if (b == 0) {
+                    break;
+                }
+                sqlState.append((char) b);
+            }
+            records.add(new DiscardRecord(sequence,
+                    buffer.getLong(offset + DiscardJournal.TIMESTAMP),
+                    buffer.getLong(offset + DiscardJournal.POOL_ID),
+                    sqlState.length() > 0 ? sqlState.toString() : null,
+                    buffer.getInt(offset + DiscardJournal.ERROR_CODE),
+                    buffer.get(offset + DiscardJournal.REASON),
+                    buffer.getLong(offset + DiscardJournal.CONNECTION_AGE),
+                    buffer.getLong(offset + DiscardJournal.SINCE_VALIDATION),
+                    buffer.getLong(offset + DiscardJournal.THREAD_ID)));
+        }
+        records.sort(Comparator.comparingLong(DiscardRecord::getSequence));
+        return records;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public String getPoolName() {
+        return poolName;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * time the journal file was created
+     */
+    public long getCreated() {
+        return created;
+    }
+
+    /**
+     * complete records, oldest first
+     */
+    public List<DiscardRecord> getRecords() {
+        return Collections.unmodifiableList(records);
+    }
+
+    /**
+     * Split the records into bursts of discards less than gap milliseconds apart
+     */
+    public List<Burst> getBursts(long gap) {
+        List<Burst> bursts = new ArrayList<>();
+        Burst burst = null;
+        for (DiscardRecord record : records) {
+            if (burst == null || record.getTimestamp() - burst.end > gap) {
+                burst = new Burst(record.getTimestamp());
+                bursts.add(burst);
+            }
+            burst.add(record);
+        }
+        return bursts;
+    }
+
+    /**
+     * @return discards per "SQLState/errorCode", most frequent first
+     */
+    public List<Map.Entry<String, Integer>> getErrorCounts() {
+        return sortByCount(countErrors(records));
+    }
+
+    /**
+     * @param ages  connection ages or milliseconds since validation
+     * @return records per bucket of {@link #AGE_LABELS}, unknown ages are not counted
+     */
+    private static int[] getAgeDistribution(long[] ages) {
+        int[] counts = new int[AGE_BOUNDS.length];
+        for (long age : ages) {
+            if (age < 0) {
+                continue;
+            }
+            for (int i = 0; i < AGE_BOUNDS.length; i++) {
+                if (age < AGE_BOUNDS[i]) {
+                    counts[i]++;
+                    break;
+                }
+            }
+        }
+        return counts;
+    }
+
+    public void summarize(PrintStream out, long gap, int top) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+        out.println("Journal " + file + " of pool:" + poolName + ", created " + format.format(new Date(created)));
+        if (records.isEmpty()) {
+            out.println("  no discards");
+            return;
+        }
+        DiscardRecord first = records.get(0);
+        DiscardRecord last = records.get(records.size() - 1);
+        out.println("  " + records.size() + " discards kept of " + last.getSequence() + " written, capacity "
+                + capacity + ", from " + format.format(new Date(first.getTimestamp())) + " to "
+                + format.format(new Date(last.getTimestamp())));
+
+        List<Burst> bursts = getBursts(gap);
+        List<Burst> largest = new ArrayList<>(bursts);
+        largest.sort((a, b) -> Integer.compare(b.records.size(), a.records.size()));
+        largest = new ArrayList<>(largest.subList(0, Math.min(top, largest.size())));
+        largest.sort(Comparator.comparingLong(Burst::getStart));
+        out.println("Bursts (gap " + gap + "ms): " + bursts.size() + ", largest:");
+        for (Burst burst : largest) {
+            out.println(String.format("  %s %8dms %6d discards %4d threads  %s",
+                    format.format(new Date(burst.getStart())), burst.getDuration(), burst.getCount(),
+                    burst.getThreadCount(), burst.getDominantError()));
+        }
+
+        out.println("Errors:");
+        List<Map.Entry<String, Integer>> errors = getErrorCounts();
+        for (Map.Entry<String, Integer> entry : errors.subList(0, Math.min(top, errors.size()))) {
+            out.println(String.format("  %-20s %6d %5.1f%%", entry.getKey(), entry.getValue(),
+                    entry.getValue() * 100.0 / records.size()));
+        }
+
+        long[] ages = new long[records.size()];
+        long[] sinceValidation = new long[records.size()];
+        int validation = 0;
+        Set<Long> threads = new HashSet<>();
+        for (int i = 0; i < records.size(); i++) {
+            DiscardRecord record = records.get(i);
+            ages[i] = record.getConnectionAge();
+            sinceValidation[i] = record.getSinceValidation();
+            if (record.getReason() == DiscardJournal.REASON_VALIDATION) {
+                validation++;
+            }
+            threads.add(record.getThreadId());
+        }
+        out.println("Reasons: fatal error " + (records.size() - validation) + ", failed validation " + validation
+                + ", threads " + threads.size());
+        printDistribution(out, "Connection age:", getAgeDistribution(ages));
+        printDistribution(out, "Since validation:", getAgeDistribution(sinceValidation));
+    }
+
+    private static void printDistribution(PrintStream out, String title, int[] counts) {
+        StringBuilder sb = new StringBuilder(title);
+        for (int i = 0; i < counts.length; i++) {
+            sb.append(' ').append(AGE_LABELS[i]).append('=').append(counts[i]);
+        }
+        out.println(sb);
+    }
+
+    private static Map<String, Integer> countErrors(List<DiscardRecord> records) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (DiscardRecord record : records) {
+            counts.merge(getErrorKey(record), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    private static List<Map.Entry<String, Integer>> sortByCount(Map<String, Integer> counts) {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(counts.entrySet());
+        entries.sort((a, b) -> Integer.compare(b.getValue(), a.getValue()));
+        return entries;
+    }
+
+    private static String getErrorKey(DiscardRecord record) {
+        if (record.getReason() == DiscardJournal.REASON_VALIDATION) {
+            return "validation";
+        }
+        return record.getSqlState() + "/" + record.getErrorCode();
+    }
+
+    public static void main(String[] args) throws IOException {
+        long gap = 1000;
+        int top = 10;
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if ("-gap".equals(args[i]) && i + 1 < args.length) {
+                gap = Long.parseLong(args[++i]);
+            } else if ("-top".equals(args[i]) && i + 1 < args.length) {
+                top = Integer.parseInt(args[++i]);
+            } else {
+                files.add(args[i]);
+            }
+        }
+        if (files.isEmpty()) {
+            System.err.println("Usage: DiscardJournalReader [-gap ms] [-top n] file...");
+            System.exit(1);
+        }
+        for (String file : files) {
+            new DiscardJournalReader(new File(file)).summarize(System.out, gap, top);
+        }
+    }
+
+    /**
+     * discards less than the gap apart
+     */
+    public static class Burst {
+        private final long start;
+        private long end;
+        private final List<DiscardRecord> records = new ArrayList<>();
+
+        Burst(long start) {
+            this.start = start;
+            this.end = start;
+        }
+
+        void add(DiscardRecord record) {
+            records.add(record);
+            end = Math.max(end, record.getTimestamp());
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getDuration() {
+            return end - start;
+        }
+
+        public int getCount() {
+            return records.size();
+        }
+
+        public int getThreadCount() {
+            Set<Long> threads = new HashSet<>();
+            for (DiscardRecord record : records) {
+                threads.add(record.getThreadId());
+            }
+            return threads.size();
+        }
+
+        /**
+         * most frequent "SQLState/errorCode" of the burst
+         */
+        public String getDominantError() {
+            return sortByCount(countErrors(records)).get(0).getKey();
+        }
+    }
+}
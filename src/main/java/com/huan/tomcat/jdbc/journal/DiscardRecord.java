@@ -0,0 +1,81 @@
+package com.huan.tomcat.jdbc.journal;
+
+/**
+ * @author edenhuan
+ * One discard read back from a {@link DiscardJournal}
+ */
+public class DiscardRecord {
+    private final long sequence;
+    private final long timestamp;
+    private final long poolId;
+    private final String sqlState;
+    private final int errorCode;
+    private final byte reason;
+    private final long connectionAge;
+    private final long sinceValidation;
+    private final long threadId;
+
+    public DiscardRecord(long sequence, long timestamp, long poolId, String sqlState, int errorCode, byte reason,
+                         long connectionAge, long sinceValidation, long threadId) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.poolId = poolId;
+        this.sqlState = sqlState;
+        this.errorCode = errorCode;
+        this.reason = reason;
+        this.connectionAge = connectionAge;
+        this.sinceValidation = sinceValidation;
+        this.threadId = threadId;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * id of the pool context in the process that wrote the record
+     */
+    public long getPoolId() {
+        return poolId;
+    }
+
+    /**
+     * null if the error had none, or for validation failures
+     */
+    public String getSqlState() {
+        return sqlState;
+    }
+
+    public int getErrorCode() {
+        return errorCode;
+    }
+
+    /**
+     * {@link DiscardJournal#REASON_FATAL} or {@link DiscardJournal#REASON_VALIDATION}
+     */
+    public byte getReason() {
+        return reason;
+    }
+
+    /**
+     * milliseconds since the connection was opened, -1 if unknown
+     */
+    public long getConnectionAge() {
+        return connectionAge;
+    }
+
+    /**
+     * milliseconds since the connection was last validated, -1 if never
+     */
+    public long getSinceValidation() {
+        return sinceValidation;
+    }
+
+    public long getThreadId() {
+        return threadId;
+    }
+}
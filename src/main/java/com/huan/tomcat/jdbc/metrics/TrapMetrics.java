@@ -0,0 +1,369 @@
+package com.huan.tomcat.jdbc.metrics;
+
+import com.huan.tomcat.jdbc.inteceptor.AdaptiveTimeout;
+import com.huan.tomcat.jdbc.inteceptor.CircuitBreaker;
+import com.huan.tomcat.jdbc.inteceptor.ConnectionErrorTrapContext;
+import com.huan.tomcat.jdbc.inteceptor.ConnectionErrorTrapContext.ErrorKey;
+import com.huan.tomcat.jdbc.inteceptor.ConnectionRecycler;
+import com.huan.tomcat.jdbc.inteceptor.ConnectionRefiller;
+import com.huan.tomcat.jdbc.inteceptor.PoolWarmer;
+import com.huan.tomcat.jdbc.inteceptor.QueryStatistics;
+import com.huan.tomcat.jdbc.inteceptor.RetryBudget;
+import org.apache.tomcat.jdbc.pool.ConnectionPool;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author edenhuan
+ * Snapshot of the error trap counters of one pool. Meant to be reused: {@link #update(ConnectionErrorTrapContext)}
+ * overwrites every value, the fatal error arrays only grow when a pool reports more SQLState/errorCode
+ * pairs than before, so polling allocates nothing once the snapshot is warm.
+ * Not thread safe, one snapshot per reader.
+ */
+public class TrapMetrics {
+    public static final String BREAKER_DISABLED = "DISABLED";
+
+    private long id;
+    private String name;
+    private int poolSize;
+    private int poolActive;
+    private int poolIdle;
+
+    private long discardCount;
+    private long lastDiscard;
+    private long lastFatal;
+    private long purgeCount;
+    private long lastPurge;
+    private long droppedEventCount;
+    private long suspectCount;
+    private long suspectDiscardCount;
+    private long adaptiveValidationCount;
+    private long adaptiveValidationFailureCount;
+
+    private String circuitBreakerState;
+    private long circuitBreakerOpenCount;
+    private long circuitBreakerCloseCount;
+    private long circuitBreakerRejectedCount;
+    private long circuitBreakerLastTransition;
+
+    private long refilledCount;
+    private long refillFailureCount;
+    private long refillLatency;
+
+    private long statisticsSize;
+    private long statisticsEvictionCount;
+    private long queryTimeoutCount;
+    private long statementCacheHitCount;
+    private long statementCacheMissCount;
+    private long statementCacheEvictionCount;
+    private long retryCount;
+    private long retrySuccessCount;
+    private long retryRejectedCount;
+    private long recycledCount;
+    private long recycleFailureCount;
+    private long recycleSkippedCount;
+    private long recycleRate;
+    private long recycling;
+    private long recycleConcurrency;
+    private long warmUpDuration;
+    private long warmedUpCount;
+    private long warmUpFailureCount;
+    private long warmUpHandshakeAverage;
+    private long warmUpHandshakeMax;
+
+    private int fatalSize;
+    private String[] fatalSqlStates = new String[8];
+    private int[] fatalErrorCodes = new int[8];
+    private long[] fatalCounts = new long[8];
+
+    /**
+     * Overwrite the snapshot with the current values of the context
+     * @return this
+     */
+    public TrapMetrics update(ConnectionErrorTrapContext context) {
+        id = context.getId();
+        name = context.getName();
+        ConnectionPool pool = context.getPool();
+        poolSize = pool.getSize();
+        poolActive = pool.getActive();
+        poolIdle = pool.getIdle();
+
+        discardCount = context.getDiscardCount();
+        lastDiscard = context.getLastDiscard();
+        lastFatal = context.getLastFatal();
+        purgeCount = context.getPurgeCount();
+        lastPurge = context.getLastPurge();
+        droppedEventCount = context.getDroppedEventCount();
+        suspectCount = context.getSuspectCount();
+        suspectDiscardCount = context.getSuspectDiscardCount();
+        adaptiveValidationCount = context.getAdaptiveValidationCount();
+        adaptiveValidationFailureCount = context.getAdaptiveValidationFailureCount();
+
+        CircuitBreaker breaker = context.getCircuitBreaker();
+        circuitBreakerState = breaker != null ? breaker.getState().name() : BREAKER_DISABLED;
+        circuitBreakerOpenCount = breaker != null ? breaker.getOpenCount() : 0;
+        circuitBreakerCloseCount = breaker != null ? breaker.getCloseCount() : 0;
+        circuitBreakerRejectedCount = breaker != null ? breaker.getRejectedCount() : 0;
+        circuitBreakerLastTransition = breaker != null ? breaker.getLastTransition() : 0;
+
+        ConnectionRefiller refiller = context.getRefiller();
+        refilledCount = refiller != null ? refiller.getRefilledCount() : 0;
+        refillFailureCount = refiller != null ? refiller.getFailureCount() : 0;
+        refillLatency = refiller != null ? refiller.getLastLatency() : 0;
+
+        QueryStatistics statistics = context.getStatistics();
+        statisticsSize = statistics != null ? statistics.getSize() : 0;
+        statisticsEvictionCount = statistics != null ? statistics.getEvictionCount() : 0;
+        AdaptiveTimeout adaptiveTimeout = context.getAdaptiveTimeout();
+        queryTimeoutCount = adaptiveTimeout != null ? adaptiveTimeout.getTimeoutCount() : 0;
+        statementCacheHitCount = context.getStatementCacheHitCount();
+        statementCacheMissCount = context.getStatementCacheMissCount();
+        statementCacheEvictionCount = context.getStatementCacheEvictionCount();
+        RetryBudget retryBudget = context.getRetryBudget();
+        retryCount = retryBudget != null ? retryBudget.getRetryCount() : 0;
+        retrySuccessCount = retryBudget != null ? retryBudget.getSuccessCount() : 0;
+        retryRejectedCount = retryBudget != null ? retryBudget.getRejectedCount() : 0;
+        ConnectionRecycler recycler = context.getRecycler();
+        recycledCount = recycler != null ? recycler.getRecycleCount() : 0;
+        recycleFailureCount = recycler != null ? recycler.getFailureCount() : 0;
+        recycleSkippedCount = recycler != null ? recycler.getSkippedCount() : 0;
+        recycleRate = recycler != null ? recycler.getRate() : 0;
+        recycling = recycler != null ? recycler.getRunning() : 0;
+        recycleConcurrency = recycler != null ? recycler.getConcurrency() : 0;
+        PoolWarmer warmer = context.getWarmer();
+        warmUpDuration = warmer != null ? warmer.getDuration() : 0;
+        warmedUpCount = warmer != null ? warmer.getWarmedCount() : 0;
+        warmUpFailureCount = warmer != null ? warmer.getFailureCount() : 0;
+        warmUpHandshakeAverage = warmer != null ? warmer.getHandshakeAverage() : 0;
+        warmUpHandshakeMax = warmer != null ? warmer.getHandshakeMax() : 0;
+
+        fatalSize = 0;
+        for (Map.Entry<ErrorKey, LongAdder> entry : context.getFatalCounts().entrySet()) {
+            if (fatalSize == fatalCounts.length) {
+                int length = fatalSize * 2;
+                fatalSqlStates = Arrays.copyOf(fatalSqlStates, length);
+                fatalErrorCodes = Arrays.copyOf(fatalErrorCodes, length);
+                fatalCounts = Arrays.copyOf(fatalCounts, length);
+            }
+            fatalSqlStates[fatalSize] = entry.getKey().getSqlState();
+            fatalErrorCodes[fatalSize] = entry.getKey().getErrorCode();
+            fatalCounts[fatalSize] = entry.getValue().sum();
+            fatalSize++;
+        }
+        return this;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public int getPoolActive() {
+        return poolActive;
+    }
+
+    public int getPoolIdle() {
+        return poolIdle;
+    }
+
+    public long getDiscardCount() {
+        return discardCount;
+    }
+
+    /**
+     * time of the last discard in milliseconds, 0 if none
+     */
+    public long getLastDiscard() {
+        return lastDiscard;
+    }
+
+    public long getLastFatal() {
+        return lastFatal;
+    }
+
+    public long getPurgeCount() {
+        return purgeCount;
+    }
+
+    public long getLastPurge() {
+        return lastPurge;
+    }
+
+    public long getDroppedEventCount() {
+        return droppedEventCount;
+    }
+
+    public long getSuspectCount() {
+        return suspectCount;
+    }
+
+    public long getSuspectDiscardCount() {
+        return suspectDiscardCount;
+    }
+
+    public long getAdaptiveValidationCount() {
+        return adaptiveValidationCount;
+    }
+
+    public long getAdaptiveValidationFailureCount() {
+        return adaptiveValidationFailureCount;
+    }
+
+    /**
+     * CLOSED, OPEN, HALF_OPEN, or DISABLED when no breaker is configured
+     */
+    public String getCircuitBreakerState() {
+        return circuitBreakerState;
+    }
+
+    public long getCircuitBreakerOpenCount() {
+        return circuitBreakerOpenCount;
+    }
+
+    public long getCircuitBreakerCloseCount() {
+        return circuitBreakerCloseCount;
+    }
+
+    public long getCircuitBreakerRejectedCount() {
+        return circuitBreakerRejectedCount;
+    }
+
+    public long getCircuitBreakerLastTransition() {
+        return circuitBreakerLastTransition;
+    }
+
+    public long getRefilledCount() {
+        return refilledCount;
+    }
+
+    public long getRefillFailureCount() {
+        return refillFailureCount;
+    }
+
+    public long getRefillLatency() {
+        return refillLatency;
+    }
+
+    public long getStatisticsSize() {
+        return statisticsSize;
+    }
+
+    public long getStatisticsEvictionCount() {
+        return statisticsEvictionCount;
+    }
+
+    public long getQueryTimeoutCount() {
+        return queryTimeoutCount;
+    }
+
+    public long getStatementCacheHitCount() {
+        return statementCacheHitCount;
+    }
+
+    public long getStatementCacheMissCount() {
+        return statementCacheMissCount;
+    }
+
+    public long getStatementCacheEvictionCount() {
+        return statementCacheEvictionCount;
+    }
+
+    public long getRetryCount() {
+        return retryCount;
+    }
+
+    public long getRetrySuccessCount() {
+        return retrySuccessCount;
+    }
+
+    public long getRetryRejectedCount() {
+        return retryRejectedCount;
+    }
+
+    public long getRecycledCount() {
+        return recycledCount;
+    }
+
+    public long getRecycleFailureCount() {
+        return recycleFailureCount;
+    }
+
+    public long getRecycleSkippedCount() {
+        return recycleSkippedCount;
+    }
+
+    /**
+     * connections recycled in the last complete minute
+     */
+    public long getRecycleRate() {
+        return recycleRate;
+    }
+
+    /**
+     * connections being recycled now
+     */
+    public long getRecycling() {
+        return recycling;
+    }
+
+    public long getRecycleConcurrency() {
+        return recycleConcurrency;
+    }
+
+    /**
+     * milliseconds the warm-up of the initial connections took, 0 if it did not run
+     */
+    public long getWarmUpDuration() {
+        return warmUpDuration;
+    }
+
+    public long getWarmedUpCount() {
+        return warmedUpCount;
+    }
+
+    public long getWarmUpFailureCount() {
+        return warmUpFailureCount;
+    }
+
+    /**
+     * average and maximum milliseconds to open a connection during warm-up
+     */
+    public long getWarmUpHandshakeAverage() {
+        return warmUpHandshakeAverage;
+    }
+
+    public long getWarmUpHandshakeMax() {
+        return warmUpHandshakeMax;
+    }
+
+    /**
+     * number of SQLState/errorCode pairs with fatal verdicts
+     */
+    public int getFatalSize() {
+        return fatalSize;
+    }
+
+    /**
+     * @param i  between 0 and {@link #getFatalSize()}, SQLState may be null
+     */
+    public String getFatalSqlState(int i) {
+        return fatalSqlStates[i];
+    }
+
+    public int getFatalErrorCode(int i) {
+        return fatalErrorCodes[i];
+    }
+
+    public long getFatalCount(int i) {
+        return fatalCounts[i];
+    }
+}
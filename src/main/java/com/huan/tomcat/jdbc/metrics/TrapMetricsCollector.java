@@ -0,0 +1,55 @@
+package com.huan.tomcat.jdbc.metrics;
+
+import com.huan.tomcat.jdbc.inteceptor.ConnectionErrorTrapContext;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author edenhuan
+ * Collects the {@link TrapMetrics} of every started pool, without JMX. Snapshots and the render buffer
+ * are reused between calls, a scraper polling a stable set of pools only allocates the rendered String.
+ * <pre>
+ *     String text = TrapMetricsCollector.getDefault().renderPrometheus();
+ * </pre>
+ */
+public class TrapMetricsCollector {
+    private static final TrapMetricsCollector DEFAULT = new TrapMetricsCollector();
+
+    private final List<TrapMetrics> snapshots = new ArrayList<>();
+    private final List<TrapMetrics> view = Collections.unmodifiableList(snapshots);
+    private final StringBuilder buffer = new StringBuilder(4096);
+
+    public static TrapMetricsCollector getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Update the snapshots of all pools. The returned list and its elements are overwritten by the
+     * next call, copy or hold the collector lock while reading them from several threads.
+     */
+    public synchronized List<TrapMetrics> collect() {
+        int size = 0;
+        for (ConnectionErrorTrapContext context : ConnectionErrorTrapContext.getContexts()) {
+            if (size == snapshots.size()) {
+                snapshots.add(new TrapMetrics());
+            }
+            snapshots.get(size++).update(context);
+        }
+        snapshots.subList(size, snapshots.size()).clear();
+        return view;
+    }
+
+    public synchronized String renderPrometheus() {
+        buffer.setLength(0);
+        TrapMetricsRenderer.writePrometheus(collect(), buffer);
+        return buffer.toString();
+    }
+
+    public synchronized String renderJson() {
+        buffer.setLength(0);
+        TrapMetricsRenderer.writeJson(collect(), buffer);
+        return buffer.toString();
+    }
+}
@@ -0,0 +1,295 @@
+package com.huan.tomcat.jdbc.metrics;
+
+import com.huan.tomcat.jdbc.stale.StaleResultCache;
+
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * @author edenhuan
+ * Writes {@link TrapMetrics} snapshots as Prometheus text exposition (version 0.0.4) or JSON
+ * into a caller supplied StringBuilder. Every series is labelled with the pool name and the
+ * context id, pools sharing a name stay apart.
+ */
+public final class TrapMetricsRenderer {
+    public static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    public static final String PREFIX = "tomcat_jdbc_trap_";
+
+    private TrapMetricsRenderer() {
+    }
+
+    public static void writePrometheus(List<TrapMetrics> pools, StringBuilder sb) {
+        gauge(sb, pools, "pool_size", "Connections open in the pool", TrapMetrics::getPoolSize);
+        gauge(sb, pools, "pool_active", "Connections borrowed from the pool", TrapMetrics::getPoolActive);
+        gauge(sb, pools, "pool_idle", "Idle connections of the pool", TrapMetrics::getPoolIdle);
+        counter(sb, pools, "discards_total", "Connections discarded after a fatal error",
+                TrapMetrics::getDiscardCount);
+        timestamp(sb, pools, "last_discard_timestamp_seconds", "Time of the last discard, 0 if none",
+                TrapMetrics::getLastDiscard);
+        timestamp(sb, pools, "last_fatal_timestamp_seconds", "Time of the last fatal error, 0 if none",
+                TrapMetrics::getLastFatal);
+        writeFatalErrors(pools, sb);
+        counter(sb, pools, "purges_total", "Idle connection purges after a fatal error",
+                TrapMetrics::getPurgeCount);
+        counter(sb, pools, "dropped_events_total", "Discard events dropped by the asynchronous queue",
+                TrapMetrics::getDroppedEventCount);
+        counter(sb, pools, "suspects_total", "Connections marked suspect", TrapMetrics::getSuspectCount);
+        counter(sb, pools, "suspect_discards_total", "Suspect connections which failed validation",
+                TrapMetrics::getSuspectDiscardCount);
+        counter(sb, pools, "adaptive_validations_total", "Borrows validated after a fatal error",
+                TrapMetrics::getAdaptiveValidationCount);
+        counter(sb, pools, "adaptive_validation_failures_total", "Borrow validations which failed",
+                TrapMetrics::getAdaptiveValidationFailureCount);
+        writeBreakerState(pools, sb);
+        counter(sb, pools, "circuit_breaker_opens_total", "Transitions of the circuit breaker to open",
+                TrapMetrics::getCircuitBreakerOpenCount);
+        counter(sb, pools, "circuit_breaker_closes_total", "Transitions of the circuit breaker to closed",
+                TrapMetrics::getCircuitBreakerCloseCount);
+        counter(sb, pools, "circuit_breaker_rejected_total", "Executions rejected by the open circuit breaker",
+                TrapMetrics::getCircuitBreakerRejectedCount);
+        counter(sb, pools, "refilled_connections_total", "Connections opened by the refiller",
+                TrapMetrics::getRefilledCount);
+        counter(sb, pools, "refill_failures_total", "Failed refill attempts", TrapMetrics::getRefillFailureCount);
+        gauge(sb, pools, "refill_latency_milliseconds", "Latency of the last refill connect",
+                TrapMetrics::getRefillLatency);
+        gauge(sb, pools, "statistics_size", "SQL tracked by the statistics", TrapMetrics::getStatisticsSize);
+        counter(sb, pools, "statistics_evictions_total", "SQL evicted from the statistics",
+                TrapMetrics::getStatisticsEvictionCount);
+        counter(sb, pools, "query_timeouts_total", "Executions failed with an adaptive query timeout",
+                TrapMetrics::getQueryTimeoutCount);
+        counter(sb, pools, "statement_cache_hits_total", "Prepare calls served from the statement cache",
+                TrapMetrics::getStatementCacheHitCount);
+        counter(sb, pools, "statement_cache_misses_total", "Cacheable prepare calls missing the statement cache",
+                TrapMetrics::getStatementCacheMissCount);
+        counter(sb, pools, "statement_cache_evictions_total", "Cached statements closed to make room",
+                TrapMetrics::getStatementCacheEvictionCount);
+        counter(sb, pools, "retries_total", "Reads executed again after a fatal error", TrapMetrics::getRetryCount);
+        counter(sb, pools, "retry_successes_total", "Retried reads which succeeded",
+                TrapMetrics::getRetrySuccessCount);
+        counter(sb, pools, "retries_rejected_total", "Retries refused by the retry budget",
+                TrapMetrics::getRetryRejectedCount);
+        counter(sb, pools, "recycled_connections_total", "Connections reconnected because they reached their lifetime",
+                TrapMetrics::getRecycledCount);
+        counter(sb, pools, "recycle_failures_total", "Failed recycle reconnects", TrapMetrics::getRecycleFailureCount);
+        counter(sb, pools, "recycle_skipped_total", "Expired connections returned while other reconnects ran",
+                TrapMetrics::getRecycleSkippedCount);
+        gauge(sb, pools, "recycle_rate_per_minute", "Connections recycled in the last complete minute",
+                TrapMetrics::getRecycleRate);
+        gauge(sb, pools, "recycling_connections", "Connections being recycled", TrapMetrics::getRecycling);
+        gauge(sb, pools, "warm_up_duration_milliseconds", "Duration of the warm-up of the initial connections",
+                TrapMetrics::getWarmUpDuration);
+        counter(sb, pools, "warmed_up_connections_total", "Connections validated and warmed up at startup",
+                TrapMetrics::getWarmedUpCount);
+        counter(sb, pools, "warm_up_failures_total", "Connections discarded or not opened during warm-up",
+                TrapMetrics::getWarmUpFailureCount);
+        gauge(sb, pools, "warm_up_handshake_average_milliseconds", "Average connect latency during warm-up",
+                TrapMetrics::getWarmUpHandshakeAverage);
+        gauge(sb, pools, "warm_up_handshake_max_milliseconds", "Maximum connect latency during warm-up",
+                TrapMetrics::getWarmUpHandshakeMax);
+    }
+
+    public static void writeJson(List<TrapMetrics> pools, StringBuilder sb) {
+        sb.append('[');
+        for (int i = 0; i < pools.size(); i++) {
+            TrapMetrics m = pools.get(i);
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"name\":");
+            jsonString(sb, m.getName());
+            field(sb, "id", m.getId());
+            field(sb, "poolSize", m.getPoolSize());
+            field(sb, "poolActive", m.getPoolActive());
+            field(sb, "poolIdle", m.getPoolIdle());
+            field(sb, "discardCount", m.getDiscardCount());
+            field(sb, "lastDiscard", m.getLastDiscard());
+            field(sb, "lastFatal", m.getLastFatal());
+            field(sb, "purgeCount", m.getPurgeCount());
+            field(sb, "lastPurge", m.getLastPurge());
+            field(sb, "droppedEventCount", m.getDroppedEventCount());
+            field(sb, "suspectCount", m.getSuspectCount());
+            field(sb, "suspectDiscardCount", m.getSuspectDiscardCount());
+            field(sb, "adaptiveValidationCount", m.getAdaptiveValidationCount());
+            field(sb, "adaptiveValidationFailureCount", m.getAdaptiveValidationFailureCount());
+            sb.append(",\"circuitBreakerState\":");
+            jsonString(sb, m.getCircuitBreakerState());
+            field(sb, "circuitBreakerOpenCount", m.getCircuitBreakerOpenCount());
+            field(sb, "circuitBreakerCloseCount", m.getCircuitBreakerCloseCount());
+            field(sb, "circuitBreakerRejectedCount", m.getCircuitBreakerRejectedCount());
+            field(sb, "circuitBreakerLastTransition", m.getCircuitBreakerLastTransition());
+            field(sb, "refilledCount", m.getRefilledCount());
+            field(sb, "refillFailureCount", m.getRefillFailureCount());
+            field(sb, "refillLatency", m.getRefillLatency());
+            field(sb, "statisticsSize", m.getStatisticsSize());
+            field(sb, "statisticsEvictionCount", m.getStatisticsEvictionCount());
+            field(sb, "queryTimeoutCount", m.getQueryTimeoutCount());
+            field(sb, "statementCacheHitCount", m.getStatementCacheHitCount());
+            field(sb, "statementCacheMissCount", m.getStatementCacheMissCount());
+            field(sb, "statementCacheEvictionCount", m.getStatementCacheEvictionCount());
+            field(sb, "retryCount", m.getRetryCount());
+            field(sb, "retrySuccessCount", m.getRetrySuccessCount());
+            field(sb, "retryRejectedCount", m.getRetryRejectedCount());
+            field(sb, "recycledCount", m.getRecycledCount());
+            field(sb, "recycleFailureCount", m.getRecycleFailureCount());
+            field(sb, "recycleSkippedCount", m.getRecycleSkippedCount());
+            field(sb, "recycleRate", m.getRecycleRate());
+            field(sb, "recycling", m.getRecycling());
+            field(sb, "warmUpDuration", m.getWarmUpDuration());
+            field(sb, "warmedUpCount", m.getWarmedUpCount());
+            field(sb, "warmUpFailureCount", m.getWarmUpFailureCount());
+            field(sb, "warmUpHandshakeAverage", m.getWarmUpHandshakeAverage());
+            field(sb, "warmUpHandshakeMax", m.getWarmUpHandshakeMax());
+            sb.append(",\"fatalErrors\":[");
+            for (int j = 0; j < m.getFatalSize(); j++) {
+                if (j > 0) {
+                    sb.append(',');
+                }
+                sb.append("{\"sqlState\":");
+                jsonString(sb, m.getFatalSqlState(j));
+                field(sb, "errorCode", m.getFatalErrorCode(j));
+                field(sb, "count", m.getFatalCount(j));
+                sb.append('}');
+            }
+            sb.append("]}");
+        }
+        sb.append(']');
+    }
+
+    /**
+     * Prometheus text of a stale result cache, labelled with its name
+     */
+    public static void writeStaleCache(String name, StaleResultCache cache, StringBuilder sb) {
+        staleFamily(sb, name, "stale_reads_total", "counter", "Reads served stale while the backend was down",
+                cache.getHitCount());
+        staleFamily(sb, name, "stale_misses_total", "counter", "Reads without a stale result while the backend was down",
+                cache.getMissCount());
+        staleFamily(sb, name, "stale_rejected_writes_total", "counter", "Writes failed fast while the backend was down",
+                cache.getRejectedWriteCount());
+        staleFamily(sb, name, "stale_cache_size", "gauge", "Results kept by the stale cache", cache.getSize());
+    }
+
+    private static void staleFamily(StringBuilder sb, String name, String family, String type, String help,
+                                    long value) {
+        header(sb, family, type, help);
+        sb.append(PREFIX).append(family).append("{cache=\"");
+        labelValue(sb, name);
+        sb.append("\"} ").append(value).append('\n');
+    }
+
+    private static void writeFatalErrors(List<TrapMetrics> pools, StringBuilder sb) {
+        header(sb, "fatal_errors_total", "counter", "Fatal errors by SQLState and vendor error code");
+        for (int i = 0; i < pools.size(); i++) {
+            TrapMetrics m = pools.get(i);
+            for (int j = 0; j < m.getFatalSize(); j++) {
+                sb.append(PREFIX).append("fatal_errors_total");
+                labels(sb, m);
+                sb.append(",sqlstate=\"");
+                labelValue(sb, m.getFatalSqlState(j) != null ? m.getFatalSqlState(j) : "");
+                sb.append("\",error_code=\"").append(m.getFatalErrorCode(j)).append("\"} ")
+                        .append(m.getFatalCount(j)).append('\n');
+            }
+        }
+    }
+
+    private static void writeBreakerState(List<TrapMetrics> pools, StringBuilder sb) {
+        header(sb, "circuit_breaker_state", "gauge", "Current state of the circuit breaker, 1 for the labelled state");
+        for (int i = 0; i < pools.size(); i++) {
+            TrapMetrics m = pools.get(i);
+            sb.append(PREFIX).append("circuit_breaker_state");
+            labels(sb, m);
+            sb.append(",state=\"").append(m.getCircuitBreakerState()).append("\"} 1\n");
+        }
+    }
+
+    private static void counter(StringBuilder sb, List<TrapMetrics> pools, String name, String help,
+                                ToLongFunction<TrapMetrics> value) {
+        family(sb, pools, name, "counter", help, value);
+    }
+
+    private static void gauge(StringBuilder sb, List<TrapMetrics> pools, String name, String help,
+                              ToLongFunction<TrapMetrics> value) {
+        family(sb, pools, name, "gauge", help, value);
+    }
+
+    private static void family(StringBuilder sb, List<TrapMetrics> pools, String name, String type, String help,
+                               ToLongFunction<TrapMetrics> value) {
+        header(sb, name, type, help);
+        for (int i = 0; i < pools.size(); i++) {
+            TrapMetrics m = pools.get(i);
+            sb.append(PREFIX).append(name);
+            labels(sb, m);
+            sb.append("} ").append(value.applyAsLong(m)).append('\n');
+        }
+    }
+
+    /**
+     * millisecond timestamps written as seconds with three decimals, without going through double
+     */
+    private static void timestamp(StringBuilder sb, List<TrapMetrics> pools, String name, String help,
+                                  ToLongFunction<TrapMetrics> millis) {
+        header(sb, name, "gauge", help);
+        for (int i = 0; i < pools.size(); i++) {
+            TrapMetrics m = pools.get(i);
+            long value = millis.applyAsLong(m);
+            sb.append(PREFIX).append(name);
+            labels(sb, m);
+            sb.append("} ").append(value / 1000).append('.');
+            long fraction = value % 1000;
+            if (fraction < 100) {
+                sb.append('0');
+            }
+            if (fraction < 10) {
+                sb.append('0');
+            }
+            sb.append(fraction).append('\n');
+        }
+    }
+
+    private static void header(StringBuilder sb, String name, String type, String help) {
+        sb.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void labels(StringBuilder sb, TrapMetrics m) {
+        sb.append("{pool=\"");
+        labelValue(sb, m.getName() != null ? m.getName() : "");
+        sb.append("\",id=\"").append(m.getId()).append('"');
+    }
+
+    private static void labelValue(StringBuilder sb, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                sb.append('\\').append(c);
+            } else if (c == '\n') {
+                sb.append("\\n");
+            } else {
+                sb.append(c);
+            }
+        }
+    }
+
+    private static void field(StringBuilder sb, String name, long value) {
+        sb.append(",\"").append(name).append("\":").append(value);
+    }
+
+    private static void jsonString(StringBuilder sb, String value) {
+        if (value == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append("\\u00");
+                sb.append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xf, 16));
+            } else {
+                sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+}
@@ -0,0 +1,202 @@
+package com.huan.tomcat.jdbc.stale;
+
+import com.huan.tomcat.jdbc.inteceptor.CircuitBreaker;
+import com.huan.tomcat.jdbc.inteceptor.ConnectionErrorTrapContext;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @author edenhuan
+ * Bounded LRU store of the last good result of each query, served while the circuit breaker of the
+ * pool rejects statements (see {@link ConnectionErrorTrapContext#isBackendDown(long)}) instead of sending
+ * the query to a dead pool, so the pool needs breakerThreshold>0. Results are kept for maxAge
+ * milliseconds, usually far longer than a normal cache TTL. The keys of a large cache are spread over
+ * stripes with a lock and an LRU order each, so concurrent reads of different queries rarely wait for
+ * each other. Lists are
+ * copied when stored and when served, the rows in them are shared and must be treated as read only.
+ * Independent of any ORM, see the MyBatis plugin of the sample application.
+ */
+public class StaleResultCache {
+    private static final int MAX_STRIPES = 16;
+    /**
+     * results per stripe at least, a small cache is one exact LRU
+     */
+    private static final int MIN_STRIPE_SIZE = 64;
+
+    private final int maxSize;
+    private final long maxAge;
+    private final String poolName;
+    private final Stripe[] stripes;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder rejectedWriteCount = new LongAdder();
+
+    /**
+     * @param maxSize     results kept
+     * @param maxAge      milliseconds a result can be served after it was read
+     * @param poolName    pool to watch, null for any pool
+     */
+    public StaleResultCache(int maxSize, long maxAge, String poolName) {
+        this.maxSize = maxSize;
+        this.maxAge = maxAge;
+        this.poolName = poolName;
+        int count = 1;
+        while (count < MAX_STRIPES && count * 2 * MIN_STRIPE_SIZE <= maxSize) {
+            count *= 2;
+        }
+        this.stripes = new Stripe[count];
+        int stripeSize = Math.max(1, (maxSize + count - 1) / count);
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe(stripeSize);
+        }
+    }
+
+    private Stripe stripe(Object key) {
+        int h = key.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+    }
+
+    /**
+     * lists are copied, so no caller changes what others are served
+     */
+    private static Object copy(Object value) {
+        return value instanceof List ? new ArrayList<>((List<?>) value) : value;
+    }
+
+    /**
+     * @return true if the circuit breaker of a watched pool rejects statements
+     */
+    public boolean isBackendDown(long now) {
+        if (!CircuitBreaker.isAnyNotClosed()) {
+            return false;
+        }
+        for (ConnectionErrorTrapContext context : ConnectionErrorTrapContext.getContexts()) {
+            if ((poolName == null || poolName.equals(context.getName())) && context.isBackendDown(now)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Remember the result of a successful read
+     */
+    public void put(Object key, Object value, long now) {
+        if (key == null || value == null) {
+            return;
+        }
+        Result result = new Result(copy(value), now);
+        Stripe stripe = stripe(key);
+        stripe.lock.lock();
+        try {
+            stripe.entries.put(key, result);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Serve a read while the backend is down
+     * @return the last result read within maxAge, null if none
+     */
+    public Object get(Object key, long now) {
+        Result entry;
+        Stripe stripe = stripe(key);
+        stripe.lock.lock();
+        try {
+            entry = stripe.entries.get(key);
+            if (entry != null && now - entry.readAt > maxAge) {
+                stripe.entries.remove(key);
+                entry = null;
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+        if (entry == null) {
+            missCount.increment();
+            return null;
+        }
+        hitCount.increment();
+        return copy(entry.value);
+    }
+
+    /**
+     * a write failed fast because the backend is down
+     */
+    public void incrementRejectedWriteCount() {
+        rejectedWriteCount.increment();
+    }
+
+    public int getSize() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                size += stripe.entries.size();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getMaxAge() {
+        return maxAge;
+    }
+
+    public String getPoolName() {
+        return poolName;
+    }
+
+    /**
+     * reads served from the cache while the backend was down
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * reads while the backend was down without a result to serve
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getRejectedWriteCount() {
+        return rejectedWriteCount.sum();
+    }
+
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LinkedHashMap<Object, Result> entries;
+
+        private Stripe(final int maxSize) {
+            this.entries = new LinkedHashMap<Object, Result>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Object, Result> eldest) {
+                    return size() > maxSize;
+                }
+            };
+        }
+    }
+
+    private static final class Result {
+        private final Object value;
+        private final long readAt;
+
+        private Result(Object value, long readAt) {
+            this.value = value;
+            this.readAt = readAt;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.huan.tomcat.jdbc.inteceptor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @author edenhuan
+ * Java 21 version of the shared trap workers, packaged under META-INF/versions/21. Every task runs on a
+ * virtual thread of its own, so a refill connect or a suspect validation blocked on the network parks
+ * its virtual thread and does not wait for a free worker. Delayed tasks are timed by a single platform
+ * thread, which only hands them to a virtual thread when they are due.
+ */
+public final class TrapScheduler {
+    private static final ReentrantLock lock = new ReentrantLock();
+    private static volatile ExecutorService workers;
+    private static volatile ScheduledExecutorService timer;
+
+    private TrapScheduler() {
+    }
+
+    /**
+     * Run the task on a virtual thread
+     * @throws java.util.concurrent.RejectedExecutionException if the task can not be accepted
+     */
+    public static void execute(Runnable task) {
+        workers().execute(task);
+    }
+
+    /**
+     * Run the task on a virtual thread after the delay
+     * @throws java.util.concurrent.RejectedExecutionException if the task can not be accepted
+     */
+    public static void schedule(Runnable task, long delay, TimeUnit unit) {
+        ExecutorService executor = workers();
+        timer().schedule(() -> executor.execute(task), delay, unit);
+    }
+
+    private static ExecutorService workers() {
+        ExecutorService executor = workers;
+        if (executor == null) {
+            lock.lock();
+            try {
+                executor = workers;
+                if (executor == null) {
+                    workers = executor = Executors.newVirtualThreadPerTaskExecutor();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return executor;
+    }
+
+    private static ScheduledExecutorService timer() {
+        ScheduledExecutorService executor = timer;
+        if (executor == null) {
+            lock.lock();
+            try {
+                executor = timer;
+                if (executor == null) {
+                    ScheduledThreadPoolExecutor stpe = new ScheduledThreadPoolExecutor(1,
+                            Thread.ofPlatform().name("ConnectionErrorTrap-timer").daemon(true).factory());
+                    stpe.setRemoveOnCancelPolicy(true);
+                    timer = executor = stpe;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return executor;
+    }
+}
@@ -0,0 +1,5 @@
+-- CustomerMapper hot statements, prepared on every initial connection
+-- preparing only reaches MySQL with useServerPrepStmts=true in the url
+select id, name, money from customer where id = ?
+-- parameterless reads are executed with maxRows=1
+select id, name, money from customer
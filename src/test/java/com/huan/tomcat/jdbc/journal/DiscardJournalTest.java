@@ -0,0 +1,57 @@
+package com.huan.tomcat.jdbc.journal;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class DiscardJournalTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void poolsSharingANameGetTheirOwnFile() throws IOException {
+        String directory = folder.getRoot().getPath();
+        DiscardJournal first = DiscardJournal.open(directory, "orders", 1, 16);
+        DiscardJournal second = DiscardJournal.open(directory, "orders", 2, 16);
+        assertNotNull(first);
+        assertNotNull(second);
+        assertEquals(new File(directory, "orders.discard.journal"), first.getFile());
+        assertEquals(new File(directory, "orders-2.discard.journal"), second.getFile());
+        first.write(1, "08S01", 0, DiscardJournal.REASON_FATAL, 0, 0, 1000);
+        second.write(2, "08S01", 0, DiscardJournal.REASON_FATAL, 0, 0, 1000);
+        first.close();
+        second.close();
+
+        assertEquals(1, new DiscardJournalReader(first.getFile()).getRecords().get(0).getPoolId());
+        assertEquals(2, new DiscardJournalReader(second.getFile()).getRecords().get(0).getPoolId());
+        //released on close, the restarted pool continues its own file
+        DiscardJournal restarted = DiscardJournal.open(directory, "orders", 3, 16);
+        assertNotNull(restarted);
+        assertEquals(first.getFile(), restarted.getFile());
+        assertEquals(1, restarted.getWriteCount());
+        restarted.close();
+    }
+
+    @Test
+    public void ringKeepsTheLastRecords() throws IOException {
+        DiscardJournal journal = DiscardJournal.open(folder.getRoot().getPath(), "ring", 1, 4);
+        for (int i = 1; i <= 10; i++) {
+            journal.write(1, null, i, DiscardJournal.REASON_VALIDATION, 0, 0, i);
+        }
+        journal.close();
+        List<DiscardRecord> records = new DiscardJournalReader(journal.getFile()).getRecords();
+        assertEquals(4, records.size());
+        long sum = 0;
+        for (DiscardRecord record : records) {
+            sum += record.getErrorCode();
+        }
+        assertEquals(7 + 8 + 9 + 10, sum);
+    }
+}